@@ -81,6 +81,7 @@ import org.cirdles.tripoli.sessions.analysis.outputs.etRedux.ETReduxFraction;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 import org.cirdles.tripoli.utilities.stateUtilities.AnalysisMethodPersistance;
 import org.cirdles.tripoli.utilities.stateUtilities.TripoliPersistentState;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSessionStore;
 import org.cirdles.tripoli.utilities.stateUtilities.liveWorkFlow.FractionMetaData;
 import org.cirdles.tripoli.utilities.stateUtilities.liveWorkFlow.SampleMetaData;
 import org.cirdles.tripoli.utilities.stateUtilities.liveWorkFlow.SampleMetaDataUnmarshaller;
@@ -111,7 +112,6 @@ import static org.cirdles.tripoli.gui.utilities.fileUtilities.FileHandlerUtil.*;
 import static org.cirdles.tripoli.sessions.analysis.Analysis.*;
 import static org.cirdles.tripoli.sessions.analysis.AnalysisInterface.initializeNewAnalysis;
 import static org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod.compareAnalysisMethodToDataFileSpecs;
-import static org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer.serializeObjectToFile;
 
 public class AnalysisManagerController implements Initializable, AnalysisManagerCallbackI {
 
@@ -2189,7 +2189,7 @@ public class AnalysisManagerController implements Initializable, AnalysisManager
                     File sessionFile = saveSessionFile(tripoliSession, primaryStageWindow);
                     tripoliPersistentState.updateSessionListMRU(sessionFile);
                 } else {
-                    serializeObjectToFile(tripoliSession, tripoliPersistentState.getMRUSessionFile().getAbsolutePath());
+                    TripoliSessionStore.saveSession(tripoliSession, tripoliPersistentState.getMRUSessionFile().getAbsolutePath());
                 }
                 Session.setSessionChanged(false);
             } catch (TripoliException ex) {
@@ -16,7 +16,7 @@
 
 package org.cirdles.tripoli.gui;
 
-import jakarta.xml.bind.JAXBException;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -29,17 +29,13 @@ import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
 import org.cirdles.tripoli.gui.dialogs.TripoliMessageDialog;
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -97,33 +93,28 @@ public class SessionManagerController implements Initializable {
             Dragboard db = event.getDragboard();
 
             if (event.getDragboard().hasFiles()) {
-                for (int i = 0; i < db.getFiles().size(); i++) {
-                    File dataFile = db.getFiles().get(i);
-
-                    AnalysisInterface analysisProposed;
-                    try {
-                        analysisProposed = AnalysisInterface.initializeNewAnalysis(0);
-                        String analysisName = analysisProposed.extractMassSpecDataFromPath(Path.of(dataFile.toURI()));
-                        tripoliSession.getMapOfAnalyses().remove(analysisName);
-                        if (analysisProposed.getMassSpecExtractedData().getMassSpectrometerContext().compareTo(MassSpectrometerContextEnum.UNKNOWN) != 0) {
-                            analysisProposed.setAnalysisName(analysisName);
-                            analysisProposed.setAnalysisStartTime(analysisProposed.getMassSpecExtractedData().getHeader().analysisStartTime());
-                            tripoliSession.getMapOfAnalyses().put(analysisProposed.getAnalysisName(), analysisProposed);
-                            analysis = analysisProposed;
-                            AllBlockInitForDataLiteOne.initBlockModels(analysis);
-                            AnalysisManagerController.readingFile = true;
-                        } else {
-                            analysis = null;
-                            TripoliMessageDialog.showWarningDialog("Tripoli does not recognize this file format.", primaryStageWindow);
-                        }
-                    } catch (JAXBException | IOException | InvocationTargetException | NoSuchMethodException |
-                             IllegalAccessException | TripoliException e) {
-//                    throw new RuntimeException(e);
-                    }
-                }
-                MenuItem menuItemSessionManager = ((MenuBar) TripoliGUI.primaryStage.getScene()
-                        .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(0);
-                menuItemSessionManager.fire();
+                List<Path> dataFilePaths = db.getFiles().stream().map(file -> Path.of(file.toURI())).toList();
+                // parses and initialises on the import pool; the session gets the whole batch at once
+                TripoliGUIController.batchImportService.importFilesAsync(tripoliSession, dataFilePaths, null)
+                        .whenComplete((batchImportRecord, throwable) -> Platform.runLater(() -> {
+                            if ((null != batchImportRecord) && !batchImportRecord.importedAnalyses().isEmpty()) {
+                                analysis = batchImportRecord.importedAnalyses().get(batchImportRecord.importedAnalyses().size() - 1);
+                                AnalysisManagerController.readingFile = true;
+                            } else {
+                                analysis = null;
+                            }
+                            if ((null != batchImportRecord) && !batchImportRecord.mapOfFilesToFailures().isEmpty()) {
+                                TripoliMessageDialog.showWarningDialog("Tripoli could not import:\n" + batchImportRecord.prettyPrintFailures(), primaryStageWindow);
+                            }
+                            if (null != throwable) {
+                                // the batch itself failed, so the session is unchanged
+                                Throwable cause = (null == throwable.getCause()) ? throwable : throwable.getCause();
+                                TripoliMessageDialog.showWarningDialog("Tripoli could not import the files:\n" + cause.getMessage(), primaryStageWindow);
+                            }
+                            MenuItem menuItemSessionManager = ((MenuBar) TripoliGUI.primaryStage.getScene()
+                                    .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(0);
+                            menuItemSessionManager.fire();
+                        }));
             }
         });
         // end implement drag n drop of files ===================================================================
@@ -51,6 +51,7 @@ import org.cirdles.tripoli.gui.utilities.BrowserControl;
 import org.cirdles.tripoli.gui.utilities.events.SaveCurrentSessionEvent;
 import org.cirdles.tripoli.gui.utilities.events.SaveSessionAsEvent;
 import org.cirdles.tripoli.reports.Report;
+import org.cirdles.tripoli.sessions.BatchImportService;
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.SessionBuiltinFactory;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
@@ -58,14 +59,16 @@ import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
 import org.cirdles.tripoli.sessions.analysis.imports.OgTripoliImporter;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.peakShapes.PeakShapeService;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix.PhoenixLiveData;
 import org.cirdles.tripoli.sessions.analysis.outputs.etRedux.ETReduxFraction;
 import org.cirdles.tripoli.utilities.DelegateActionSet;
+import org.cirdles.tripoli.utilities.callbacks.FileBatchCallbackInterface;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
-import org.cirdles.tripoli.utilities.file.FileWatcher;
+import org.cirdles.tripoli.utilities.file.LiveDataWatchService;
 import org.cirdles.tripoli.utilities.stateUtilities.AnalysisMethodPersistance;
 import org.cirdles.tripoli.utilities.stateUtilities.TripoliPersistentState;
-import org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSessionStore;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
@@ -79,8 +82,6 @@ import java.net.URL;
 import java.nio.file.*;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static org.cirdles.tripoli.gui.AnalysisManagerController.analysis;
 import static org.cirdles.tripoli.gui.AnalysisManagerController.ogTripoliPreviewPlotsWindow;
@@ -92,7 +93,6 @@ import static org.cirdles.tripoli.sessions.SessionBuiltinFactory.TRIPOLI_DEMONST
 import static org.cirdles.tripoli.sessions.analysis.AnalysisInterface.initializeNewAnalysis;
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix.PhoenixLiveData.findLiveDataFolderPath;
 import static org.cirdles.tripoli.utilities.comparators.LiveDataEntryComparator.blockCycleComparator;
-import static org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer.serializeObjectToFile;
 
 /**
  * @author James F. Bowring
@@ -108,6 +108,7 @@ public class TripoliGUIController implements Initializable {
     private static GridPane sessionManagerUI;
     @FXML
     private static GridPane analysesManagerUI;
+    static final BatchImportService batchImportService = new BatchImportService(BatchImportService.DEFAULT_PARALLELISM);
 
     static {
         try {
@@ -136,12 +137,10 @@ public class TripoliGUIController implements Initializable {
     public MenuItem processLiveDataMenuItem;
     @FXML
     public MenuItem importAnalysisMenuItem;
-    Thread liveDataLogThread;
-    FileWatcher liveDataLogWatcher;
-    Thread liveDataFinishFileThread;
-    FileWatcher liveDataFinishFileWatcher;
-    Thread liveDataStatusThread;
-    FileWatcher liveDataStatusWatcher;
+    LiveDataWatchService liveDataWatchService;
+    LiveDataWatchService.Registration liveDataLogRegistration;
+    LiveDataWatchService.Registration liveDataFinishFileRegistration;
+    LiveDataWatchService.Registration liveDataStatusRegistration;
     PhoenixLiveData phoenixLiveData;
     @FXML // fx:id="versionBuildDate"
     private Label versionBuildDate; // Value injected by FXMLLoader
@@ -331,38 +330,36 @@ public class TripoliGUIController implements Initializable {
                     MenuItem menuItemSessionNew = ((MenuBar) primaryStage.getScene()
                             .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(2);
                     menuItemSessionNew.fire();
-                    for (int i = 0; i < db.getFiles().size(); i++) {
-                        dataFile = db.getFiles().get(i);
-
-                        AnalysisInterface analysisProposed;
-                        try {
-                            analysisProposed = initializeNewAnalysis(0);
-                            String analysisName = analysisProposed.extractMassSpecDataFromPath(Path.of(dataFile.toURI()));
-                            if (analysisProposed.getMassSpecExtractedData().getMassSpectrometerContext().compareTo(MassSpectrometerContextEnum.UNKNOWN) != 0) {
-
-                                tripoliPersistentState.setMRUDataFileFolderPath(dataFile.getParent());
-                                analysisProposed.setAnalysisName(analysisName);
-                                analysisProposed.setAnalysisStartTime(analysisProposed.getMassSpecExtractedData().getHeader().analysisStartTime());
-                                tripoliSession.addAnalysis(analysisProposed);
-                                analysis = analysisProposed;
-                                AllBlockInitForDataLiteOne.initBlockModels(analysis);
-                                reportsMenu.setDisable(false);
-                                AnalysisManagerController.readingFile = true;
-                                analysis.getParameters().setMassSpectrometerContext(analysis.getMassSpecExtractedData().getMassSpectrometerContext());
-                                detectMassSpecContext();
-                            } else {
-                                analysis = null;
-                                reportsMenu.setDisable(true);
-                                TripoliMessageDialog.showWarningDialog("Tripoli does not recognize this file format.", primaryStageWindow);
-                            }
-                        } catch (JAXBException | IOException | InvocationTargetException | NoSuchMethodException |
-                                 IllegalAccessException | TripoliException e) {
-//                    throw new RuntimeException(e);
-                        }
-                    }
-                    MenuItem menuItemSessionManager = ((MenuBar) primaryStage.getScene()
-                            .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(0);
-                    menuItemSessionManager.fire();
+                    List<Path> dataFilePaths = db.getFiles().stream().map(file -> Path.of(file.toURI())).toList();
+                    tripoliPersistentState.setMRUDataFileFolderPath(db.getFiles().get(db.getFiles().size() - 1).getParent());
+                    // parses and initialises on the import pool; the session gets the whole batch at once
+                    batchImportService.importFilesAsync(tripoliSession, dataFilePaths, null)
+                            .whenComplete((batchImportRecord, throwable) -> Platform.runLater(() -> {
+                                if ((null != batchImportRecord) && !batchImportRecord.importedAnalyses().isEmpty()) {
+                                    for (AnalysisInterface analysisImported : batchImportRecord.importedAnalyses()) {
+                                        analysisImported.getParameters().setMassSpectrometerContext(
+                                                analysisImported.getMassSpecExtractedData().getMassSpectrometerContext());
+                                    }
+                                    analysis = batchImportRecord.importedAnalyses().get(batchImportRecord.importedAnalyses().size() - 1);
+                                    reportsMenu.setDisable(false);
+                                    AnalysisManagerController.readingFile = true;
+                                    detectMassSpecContext();
+                                } else {
+                                    analysis = null;
+                                    reportsMenu.setDisable(true);
+                                }
+                                if ((null != batchImportRecord) && !batchImportRecord.mapOfFilesToFailures().isEmpty()) {
+                                    TripoliMessageDialog.showWarningDialog("Tripoli could not import:\n" + batchImportRecord.prettyPrintFailures(), primaryStageWindow);
+                                }
+                                if (null != throwable) {
+                                    // the batch itself failed, so the session is unchanged
+                                    Throwable cause = (null == throwable.getCause()) ? throwable : throwable.getCause();
+                                    TripoliMessageDialog.showWarningDialog("Tripoli could not import the files:\n" + cause.getMessage(), primaryStageWindow);
+                                }
+                                MenuItem menuItemSessionManager = ((MenuBar) primaryStage.getScene()
+                                        .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(0);
+                                menuItemSessionManager.fire();
+                            }));
                 }
             }
         });
@@ -566,7 +563,7 @@ public class TripoliGUIController implements Initializable {
             sessionFileName = aSessionFileName;
             File sessionFile = new File(sessionFileName);
             confirmSaveOnProjectClose();
-            tripoliSession = (Session) TripoliSerializer.getSerializedObjectFromFile(sessionFileName, true);
+            tripoliSession = TripoliSessionStore.loadSession(sessionFileName, true);
             AnalysisManagerController.analysis = null;
             if (null != tripoliSession) {
                 SessionManagerController.tripoliSession = tripoliSession;
@@ -603,7 +600,7 @@ public class TripoliGUIController implements Initializable {
     public void saveSessionMenuItemAction() {
         if (null != tripoliSession) {
             try {
-                serializeObjectToFile(tripoliSession, tripoliPersistentState.getMRUSessionFile().getAbsolutePath());
+                TripoliSessionStore.saveSession(tripoliSession, tripoliPersistentState.getMRUSessionFile().getAbsolutePath());
                 Session.setSessionChanged(false);
                 updateStageTitle();
 
@@ -649,6 +646,7 @@ public class TripoliGUIController implements Initializable {
         //       launchSessionManager();
         analysis = null;
         tripoliSession = null;
+        PeakShapeService.clearCache();
         detectMassSpecContext();
         SessionManagerController.tripoliSession = tripoliSession;
         //TODO:        menuHighlighter.deHighlight();
@@ -879,9 +877,9 @@ public class TripoliGUIController implements Initializable {
 
         // Handles halting the processing. Two active cases are either:
         // Logs & Finish watchers are running OR Status watcher is running
-        if (liveDataLogThread != null && liveDataLogThread.isAlive()) {
-            liveDataLogWatcher.stop();
-            liveDataFinishFileWatcher.stop();
+        if (liveDataLogRegistration != null && liveDataLogRegistration.isActive()) {
+            liveDataWatchService.unwatch(liveDataLogRegistration);
+            liveDataWatchService.unwatch(liveDataFinishFileRegistration);
             processLiveDataMenuItem.textProperty().set("Start LiveData");
             TripoliMessageDialog.showInfoDialog(
                     """
@@ -891,8 +889,8 @@ public class TripoliGUIController implements Initializable {
             isLiveDataOn = false;
             updateStageTitle();
             return;
-        } else if (liveDataStatusThread != null && liveDataStatusThread.isAlive()) {
-            liveDataStatusWatcher.stop();
+        } else if (liveDataStatusRegistration != null && liveDataStatusRegistration.isActive()) {
+            liveDataWatchService.unwatch(liveDataStatusRegistration);
             processLiveDataMenuItem.textProperty().set("Start LiveData");
             TripoliMessageDialog.showInfoDialog(
                     """
@@ -916,6 +914,10 @@ public class TripoliGUIController implements Initializable {
 
             Path massSpecDataHomePath = liveDataFolderPath.getParent().getParent();
             boolean finalFileExists = PhoenixLiveData.getFinishedFile(massSpecDataHomePath.toFile()).exists();
+            if (liveDataWatchService == null) {
+                // one watch thread for every live data folder
+                liveDataWatchService = new LiveDataWatchService();
+            }
             if (finalFileExists) {
                 waitForLiveDataStatusUpdate(massSpecDataHomePath);
                 TripoliMessageDialog.showInfoDialog(
@@ -1018,6 +1020,8 @@ public class TripoliGUIController implements Initializable {
 
                 // Merge with LiveData changes
                 phoenixLiveData.mergeFinalFile(analysisProposed);
+                liveDataWatchService.unwatch(liveDataLogRegistration);
+                liveDataWatchService.unwatch(liveDataFinishFileRegistration);
 
                 // Cleanup
                 removeAnalysisFromSession(phoenixLiveData.getLiveDataAnalysis());
@@ -1033,13 +1037,13 @@ public class TripoliGUIController implements Initializable {
         }
     }
 
-    private void waitForLiveDataStatusUpdate(Path parentFolder) {
-        liveDataStatusWatcher = new FileWatcher(parentFolder, (filePath, kind) -> {
-            if (kind == StandardWatchEventKinds.ENTRY_MODIFY &&
-                    filePath.getFileName().toString().equals("LiveDataStatus.txt")) {
+    private void waitForLiveDataStatusUpdate(Path parentFolder) throws IOException {
+        liveDataStatusRegistration = liveDataWatchService.watch(parentFolder, (filePaths, kind) -> {
+            if ((kind == StandardWatchEventKinds.ENTRY_MODIFY)
+                    && filePaths.stream().anyMatch(filePath -> filePath.getFileName().toString().equals("LiveDataStatus.txt"))) {
 
                 // Stop watching once we detect change
-                liveDataStatusWatcher.stop();
+                liveDataWatchService.unwatch(liveDataStatusRegistration);
 
                 // Read new folder path from status file
                 Path newLiveDataFolder = PhoenixLiveData.getLiveDataFolderPath(parentFolder.toFile());
@@ -1057,13 +1061,9 @@ public class TripoliGUIController implements Initializable {
                 });
             }
         });
-
-        liveDataStatusThread = new Thread(liveDataStatusWatcher);
-        liveDataStatusThread.setDaemon(true);
-        liveDataStatusThread.start();
     }
 
-    private void processLiveDataOnNewFolder(Path liveDataFolderPath) throws TripoliException {
+    private void processLiveDataOnNewFolder(Path liveDataFolderPath) throws TripoliException, IOException {
         if (tripoliSession == null) {
             MenuItem menuItemSessionNew = ((MenuBar) primaryStage.getScene()
                     .getRoot().getChildrenUnmodifiable().get(0)).getMenus().get(0).getItems().get(2);
@@ -1073,48 +1073,45 @@ public class TripoliGUIController implements Initializable {
         phoenixLiveData = tripoliSession.getPhoenixLiveData();
         ogTripoliPreviewPlotsWindow = null;
 
-        AtomicReference<AnalysisInterface> liveDataAnalysis = new AtomicReference<>(phoenixLiveData.getLiveDataAnalysis());
-        phoenixLiveData.setLiveDataAnalysis(liveDataAnalysis.get());
-        liveDataAnalysis.get().setDataFilePathString(liveDataFolderPath.toString());
+        AnalysisInterface liveDataAnalysis = phoenixLiveData.getLiveDataAnalysis();
+        liveDataAnalysis.setDataFilePathString(liveDataFolderPath.toString());
 
         Path analysisFolderPath = liveDataFolderPath.getParent();
 
-        liveDataFinishFileWatcher = new FileWatcher(analysisFolderPath, (filePath, kind) -> {
+        liveDataWatchService.unwatch(liveDataLogRegistration);
+        liveDataWatchService.unwatch(liveDataFinishFileRegistration);
+
+        liveDataFinishFileRegistration = liveDataWatchService.watch(analysisFolderPath, (filePaths, kind) -> {
             if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                Platform.runLater(() -> handleFinalFileProcessing(filePath));
+                for (Path filePath : filePaths) {
+                    Platform.runLater(() -> handleFinalFileProcessing(filePath));
+                }
             }
         });
 
-        liveDataLogWatcher = new FileWatcher(liveDataFolderPath, (filePath, kind) -> {
-            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                // add pause aug 2026
-                try {
-                    TimeUnit.MILLISECONDS.sleep(100);
-                } catch (InterruptedException e) {
-                   // throw new RuntimeException(e);
-                }
-                liveDataAnalysis.set(phoenixLiveData.readLiveDataFile(filePath));
-                if (liveDataAnalysis.get() != null) {
-                    try {
-                        Platform.runLater(() -> onLiveDataUpdated(liveDataAnalysis.get()));
-                    } catch (Exception e) {
-                        //throw new RuntimeException(e);
+        // files arrive complete and in batches, so a burst of cycles is one update of the plots
+        PhoenixLiveData currentPhoenixLiveData = phoenixLiveData;
+        liveDataLogRegistration = liveDataWatchService.watch(liveDataFolderPath, new FileBatchCallbackInterface() {
+            @Override
+            public void onFilesReady(List<Path> filePaths, WatchEvent.Kind<?> kind) {
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    AnalysisInterface updatedAnalysis = currentPhoenixLiveData.readLiveDataFiles(filePaths);
+                    if (updatedAnalysis != null) {
+                        Platform.runLater(() -> onLiveDataUpdated(updatedAnalysis));
                     }
                 }
             }
+
+            @Override
+            public void onFailure(Path folder, Exception exception) {
+                Platform.runLater(() -> TripoliMessageDialog.showWarningDialog(
+                        "Live data could not be read from " + folder + ":\n" + exception.getMessage(), primaryStageWindow));
+            }
         });
 
-        if (liveDataAnalysis.get().getUserFunctions().isEmpty()) {
-            liveDataLogWatcher.processExistingFiles(blockCycleComparator);
+        if (liveDataAnalysis.getUserFunctions().isEmpty()) {
+            liveDataWatchService.processExistingFiles(liveDataLogRegistration, blockCycleComparator);
         }
-
-        liveDataLogThread = new Thread(liveDataLogWatcher);
-        liveDataLogThread.setDaemon(true);
-        liveDataLogThread.start();
-
-        liveDataFinishFileThread = new Thread(liveDataFinishFileWatcher);
-        liveDataFinishFileThread.setDaemon(true);
-        liveDataFinishFileThread.start();
     }
 
     // ------------------ End LiveData Methods ------------------------------------------------
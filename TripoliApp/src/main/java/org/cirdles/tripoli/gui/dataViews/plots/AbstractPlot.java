@@ -20,10 +20,12 @@
 package org.cirdles.tripoli.gui.dataViews.plots;
 
 import javafx.event.EventHandler;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.paint.Color;
@@ -31,6 +33,7 @@ import javafx.scene.paint.Paint;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.scene.transform.Transform;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.ogTripoliPlots.analysisPlots.AnalysisBlockCyclesPlotI;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.tripoliPlots.HistogramSinglePlot;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.tripoliPlots.LinePlot;
@@ -45,12 +48,16 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author James F. Bowring
  */
 public abstract class AbstractPlot extends Canvas {
 
+    private static final Map<String, Color> mapOfWebColorStringsToColors = new ConcurrentHashMap<>();
+
     protected double x;
     protected double y;
     protected double width;
@@ -94,6 +101,11 @@ public abstract class AbstractPlot extends Canvas {
     protected PlotBuilder plotBuilder;
     protected double yAxisTickSpread = 15.0;
 
+    private WritableImage staticLayer;
+    private StaticLayerKey staticLayerKey;
+    private int repaintSuspendedCount;
+    private boolean repaintPending;
+
     AbstractPlot() {
     }
 
@@ -259,6 +271,25 @@ public abstract class AbstractPlot extends Canvas {
         if (!showYaxis) {
             leftMargin = 15;
         }
+        // while overlays are drawn over an unchanged plot, as when a selection box is dragged, the rest is kept as an image
+        StaticLayerKey currentStaticLayerKey = hasOverlays() ? new StaticLayerKey(
+                width, height, getDisplayMinX(), getDisplayMaxX(), getDisplayMinY(), getDisplayMaxY(),
+                leftMargin, topMargin, showStats, staticLayerState()) : null;
+        if ((null != currentStaticLayerKey) && currentStaticLayerKey.equals(staticLayerKey)) {
+            paintInit(g2d);
+            g2d.drawImage(staticLayer, 0, 0, width, height);
+        } else {
+            paintStaticLayer(g2d);
+            staticLayer = (null == currentStaticLayerKey) ? null : snapshotStaticLayer();
+            staticLayerKey = currentStaticLayerKey;
+        }
+        plotOverlays(g2d);
+    }
+
+    /**
+     * @param g2d
+     */
+    protected void paintStaticLayer(GraphicsContext g2d) {
         paintInit(g2d);
 
         drawBorder(g2d);
@@ -287,8 +318,75 @@ public abstract class AbstractPlot extends Canvas {
         showLegend(g2d);
     }
 
+    private WritableImage snapshotStaticLayer() {
+        SnapshotParameters snapshotParameters = new SnapshotParameters();
+        // at the resolution of the screen, so that the image is as sharp as the canvas
+        double outputScale = ((null == getScene()) || (null == getScene().getWindow())) ? 1.0 : getScene().getWindow().getOutputScaleX();
+        snapshotParameters.setTransform(Transform.scale(outputScale, outputScale));
+        snapshotParameters.setFill(Color.TRANSPARENT);
+        return snapshot(snapshotParameters, null);
+    }
+
     public void repaint() {
-        paint(getGraphicsContext2D());
+        if (0 < repaintSuspendedCount) {
+            repaintPending = true;
+        } else {
+            paint(getGraphicsContext2D());
+        }
+    }
+
+    /**
+     * Holds repaints back, for example while an operation is applied to every plot of a wall, until resumeRepaint.
+     */
+    public void suspendRepaint() {
+        repaintSuspendedCount++;
+    }
+
+    /**
+     * Repaints once if a repaint was asked for while suspended.
+     */
+    public void resumeRepaint() {
+        if (0 < repaintSuspendedCount) {
+            repaintSuspendedCount--;
+            if ((0 == repaintSuspendedCount) && repaintPending) {
+                repaintPending = false;
+                repaint();
+            }
+        }
+    }
+
+    public boolean isRepaintPending() {
+        return repaintPending;
+    }
+
+    /**
+     * @param colorString as for Color.web
+     * @return the color, parsed once for each string
+     */
+    public static Color webColor(String colorString) {
+        return mapOfWebColorStringsToColors.computeIfAbsent(colorString, Color::web);
+    }
+
+    /**
+     * @return true while plotOverlays draws anything, so that the rest of the plot is worth keeping as an image
+     */
+    protected boolean hasOverlays() {
+        return false;
+    }
+
+    /**
+     * Draws what changes without the data or extents changing, over the rest of the plot.
+     *
+     * @param g2d
+     */
+    protected void plotOverlays(GraphicsContext g2d) {
+    }
+
+    /**
+     * @return whatever, besides the extents, the plot under the overlays depends on, compared with equals
+     */
+    protected Object staticLayerState() {
+        return null;
     }
 
     public abstract void plotData(GraphicsContext g2d);
@@ -688,6 +786,20 @@ public abstract class AbstractPlot extends Canvas {
         return inWidth && inHeight;
     }
 
+    private record StaticLayerKey(
+            double width,
+            double height,
+            double displayMinX,
+            double displayMaxX,
+            double displayMinY,
+            double displayMaxY,
+            double leftMargin,
+            double topMargin,
+            boolean showStats,
+            Object state
+    ) {
+    }
+
 //    class MouseClickEventHandler implements EventHandler<MouseEvent> {
 //        @Override
 //        public void handle(MouseEvent mouseEvent) {
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.gui.dataViews.plots;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+
+import java.util.BitSet;
+
+/**
+ * Draws the data points of a plot, with their one-sigma bars, at a level of detail suited to its zoom.  While the
+ * visible points are sparse each is drawn as before, as an oval with its bar.  Once there are more of them than
+ * half the pixel columns of the plot, the ovals would overlap anyway, and the points of each pixel column and
+ * inclusion are reduced to the extremes of their values and bars, drawn as one mark and one bar.  The marks and the
+ * bars of each inclusion are drawn as one path, and the pixel positions are kept until the data, the inclusions or
+ * the extents of the plot change.
+ *
+ * @author James F. Bowring
+ */
+public final class LevelOfDetailRenderer {
+
+    public static final double DENSE_POINTS_PER_PIXEL_COLUMN = 0.5;
+    private static final double POINT_RADIUS = 2.0;
+
+    private final AbstractPlot plot;
+
+    private double[] xData;
+    private double[] yData;
+    private double[] oneSigmaData;
+    private BitSet included;
+    private ExtentsRecord extentsRecord;
+
+    private boolean dense;
+    // sparse: the visible points in pixels; dense: the buckets of included columns then of excluded columns
+    private int countOfPositions;
+    private double[] positionsX = new double[0];
+    private double[] positionsY = new double[0];
+    private double[] barTops = new double[0];
+    private double[] barBottoms = new double[0];
+    private double[] markTops = new double[0];
+    private double[] markBottoms = new double[0];
+    private boolean[] hasBar = new boolean[0];
+    private boolean[] isIncluded = new boolean[0];
+
+    public LevelOfDetailRenderer(AbstractPlot plot) {
+        this.plot = plot;
+    }
+
+    /**
+     * Points with a y of zero are not drawn, and bars only for points above zero, as in the cycle plots.
+     *
+     * @param xData
+     * @param yData
+     * @param oneSigmaData
+     * @param included     the included points; the others are drawn in the excluded paint
+     */
+    public void setData(double[] xData, double[] yData, double[] oneSigmaData, BitSet included) {
+        if ((xData != this.xData) || (yData != this.yData) || (oneSigmaData != this.oneSigmaData) || !included.equals(this.included)) {
+            this.xData = xData;
+            this.yData = yData;
+            this.oneSigmaData = oneSigmaData;
+            this.included = (BitSet) included.clone();
+            extentsRecord = null;
+        }
+    }
+
+    /**
+     * @param g2d
+     * @param includedPaint
+     * @param excludedPaint
+     */
+    public void draw(GraphicsContext g2d, Paint includedPaint, Paint excludedPaint) {
+        if (null == xData) {
+            return;
+        }
+        locate();
+        drawPoints(g2d, true, includedPaint);
+        drawPoints(g2d, false, excludedPaint);
+    }
+
+    /**
+     * Places the points in pixels, unless the extents of the plot are unchanged since they were last placed.
+     */
+    void locate() {
+        ExtentsRecord currentExtentsRecord = new ExtentsRecord(
+                plot.getDisplayMinX(), plot.getDisplayMaxX(), plot.getDisplayMinY(), plot.getDisplayMaxY(),
+                plot.leftMargin, plot.topMargin, plot.plotWidth, plot.plotHeight);
+        if (!currentExtentsRecord.equals(extentsRecord)) {
+            locatePoints();
+            extentsRecord = currentExtentsRecord;
+        }
+    }
+
+    /**
+     * @return true if the points were last reduced to pixel columns
+     */
+    public boolean isDense() {
+        return dense;
+    }
+
+    int getCountOfPositions() {
+        return countOfPositions;
+    }
+
+    /**
+     * @param position a visible point, or when dense a bucket: the pixel columns of the included points, then of
+     *                 the excluded points
+     * @return the x, mark top, mark bottom, bar top and bar bottom in pixels; a sparse point's mark is its y
+     */
+    double[] pixelsAt(int position) {
+        return dense
+                ? new double[]{positionsX[position], markTops[position], markBottoms[position], barTops[position], barBottoms[position]}
+                : new double[]{positionsX[position], positionsY[position], positionsY[position], barTops[position], barBottoms[position]};
+    }
+
+    boolean isIncludedAt(int position) {
+        return isIncluded[position];
+    }
+
+    private void locatePoints() {
+        int countOfVisible = 0;
+        for (int i = 0; i < xData.length; i++) {
+            if (isVisible(i)) {
+                countOfVisible++;
+            }
+        }
+        int countOfColumns = (int) plot.plotWidth + 1;
+        dense = countOfVisible > countOfColumns * DENSE_POINTS_PER_PIXEL_COLUMN;
+        ensureCapacity(dense ? 2 * countOfColumns : countOfVisible);
+
+        if (dense) {
+            countOfPositions = 2 * countOfColumns;
+            for (int bucket = 0; bucket < countOfPositions; bucket++) {
+                markTops[bucket] = Double.POSITIVE_INFINITY;
+                markBottoms[bucket] = Double.NEGATIVE_INFINITY;
+                barTops[bucket] = Double.POSITIVE_INFINITY;
+                barBottoms[bucket] = Double.NEGATIVE_INFINITY;
+                hasBar[bucket] = false;
+                isIncluded[bucket] = bucket < countOfColumns;
+                positionsX[bucket] = plot.leftMargin + (bucket % countOfColumns);
+            }
+        } else {
+            countOfPositions = 0;
+        }
+
+        for (int i = 0; i < xData.length; i++) {
+            if (!isVisible(i)) {
+                continue;
+            }
+            double pointX = plot.mapX(xData[i]);
+            double pointY = plot.mapY(yData[i]);
+            boolean pointHasBar = yData[i] > 0;
+            // mapY is decreasing, so the plus-sigma end is the top
+            double barTop = pointHasBar ? plot.mapY(yData[i] + oneSigmaData[i]) : pointY;
+            double barBottom = pointHasBar ? plot.mapY(yData[i] - oneSigmaData[i]) : pointY;
+            if (dense) {
+                int column = Math.min(countOfColumns - 1, Math.max(0, (int) Math.round(pointX - plot.leftMargin)));
+                int bucket = (included.get(i) ? 0 : countOfColumns) + column;
+                markTops[bucket] = Math.min(markTops[bucket], pointY);
+                markBottoms[bucket] = Math.max(markBottoms[bucket], pointY);
+                if (pointHasBar) {
+                    barTops[bucket] = Math.min(barTops[bucket], barTop);
+                    barBottoms[bucket] = Math.max(barBottoms[bucket], barBottom);
+                    hasBar[bucket] = true;
+                }
+            } else {
+                positionsX[countOfPositions] = pointX;
+                positionsY[countOfPositions] = pointY;
+                barTops[countOfPositions] = barTop;
+                barBottoms[countOfPositions] = barBottom;
+                hasBar[countOfPositions] = pointHasBar;
+                isIncluded[countOfPositions] = included.get(i);
+                countOfPositions++;
+            }
+        }
+    }
+
+    private boolean isVisible(int index) {
+        return (yData[index] != 0.0) && plot.pointInPlot(xData[index], yData[index]);
+    }
+
+    private void drawPoints(GraphicsContext g2d, boolean drawIncluded, Paint paint) {
+        g2d.setFill(paint);
+        g2d.setStroke(paint);
+        g2d.setLineWidth(1.0);
+
+        g2d.beginPath();
+        for (int position = 0; position < countOfPositions; position++) {
+            if ((isIncluded[position] == drawIncluded) && hasBar[position]) {
+                g2d.moveTo(positionsX[position], barTops[position]);
+                g2d.lineTo(positionsX[position], barBottoms[position]);
+            }
+        }
+        g2d.stroke();
+
+        g2d.beginPath();
+        for (int position = 0; position < countOfPositions; position++) {
+            if (isIncluded[position] != drawIncluded) {
+                continue;
+            }
+            if (dense) {
+                // an empty bucket keeps its infinite bounds
+                if (markTops[position] <= markBottoms[position]) {
+                    g2d.rect(positionsX[position] - POINT_RADIUS, markTops[position] - POINT_RADIUS,
+                            2.0 * POINT_RADIUS, markBottoms[position] - markTops[position] + 2.0 * POINT_RADIUS);
+                }
+            } else {
+                g2d.moveTo(positionsX[position] + POINT_RADIUS, positionsY[position]);
+                g2d.arc(positionsX[position], positionsY[position], POINT_RADIUS, POINT_RADIUS, 0.0, 360.0);
+            }
+        }
+        g2d.fill();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (positionsX.length < capacity) {
+            positionsX = new double[capacity];
+            positionsY = new double[capacity];
+            barTops = new double[capacity];
+            barBottoms = new double[capacity];
+            markTops = new double[capacity];
+            markBottoms = new double[capacity];
+            hasBar = new boolean[capacity];
+            isIncluded = new boolean[capacity];
+        }
+    }
+
+    private record ExtentsRecord(
+            double displayMinX,
+            double displayMaxX,
+            double displayMinY,
+            double displayMaxY,
+            double leftMargin,
+            double topMargin,
+            double plotWidth,
+            double plotHeight
+    ) {
+    }
+}
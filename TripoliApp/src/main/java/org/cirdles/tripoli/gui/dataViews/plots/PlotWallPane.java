@@ -43,8 +43,10 @@ import org.cirdles.tripoli.utilities.DelegateActionSet;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.cirdles.tripoli.constants.TripoliConstants.*;
@@ -223,27 +225,46 @@ public class PlotWallPane extends Pane implements PlotWallPaneInterface {
     }
 
     public void resetDataAll() {
-        for (Node plotPane : getChildren()) {
-            if (plotPane instanceof TripoliPlotPane) {
-                ((TripoliPlotPane) plotPane).resetData();
-            }
-        }
+        batchAcrossPlots(TripoliPlotPane::resetData);
     }
 
     public void performChauvenets() {
-        for (Node plotPane : getChildren()) {
-            if (plotPane instanceof TripoliPlotPane) {
-                ((TripoliPlotPane) plotPane).performChauvenets();
-            }
-        }
+        batchAcrossPlots(TripoliPlotPane::performChauvenets);
     }
 
     public void performIgnoreRejects(boolean ignoreRejects) {
+        batchAcrossPlots(plotPane -> plotPane.performIgnoreRejects(ignoreRejects));
+    }
+
+    /**
+     * Applies an operation to every plot with repaints held back.  Then the statistics of the user function of each
+     * plot that asked for a repaint are recomputed, once and for just the blocks the operation changed, and only
+     * then is each such plot repainted.
+     *
+     * @param operation
+     */
+    private void batchAcrossPlots(Consumer<TripoliPlotPane> operation) {
+        List<AbstractPlot> plots = new ArrayList<>();
         for (Node plotPane : getChildren()) {
-            if (plotPane instanceof TripoliPlotPane) {
-                ((TripoliPlotPane) plotPane).performIgnoreRejects(ignoreRejects);
+            if ((plotPane instanceof TripoliPlotPane) && (null != ((TripoliPlotPane) plotPane).getPlot())) {
+                plots.add(((TripoliPlotPane) plotPane).getPlot());
             }
         }
+        plots.forEach(AbstractPlot::suspendRepaint);
+        try {
+            for (Node plotPane : getChildren()) {
+                if (plotPane instanceof TripoliPlotPane) {
+                    operation.accept((TripoliPlotPane) plotPane);
+                }
+            }
+            for (AbstractPlot plot : plots) {
+                if (plot.isRepaintPending() && (plot instanceof AnalysisBlockCyclesPlotI)) {
+                    ((AnalysisBlockCyclesPlotI) plot).calcStats();
+                }
+            }
+        } finally {
+            plots.forEach(AbstractPlot::resumeRepaint);
+        }
     }
 
     public void toggleShowStatsAllPlots() {
@@ -637,21 +658,18 @@ public class PlotWallPane extends Pane implements PlotWallPaneInterface {
     // }
 
     public void synchronizeBlockToggle(int blockID) {
-        ObservableList<Node> children = getChildren();
-        boolean included = false;
-        for (Node child : children) {
-            if (child instanceof TripoliPlotPane) {
-                AnalysisBlockCyclesPlotI childPlot = (AnalysisBlockCyclesPlotI) ((TripoliPlotPane) child).getPlot();
-                if (childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID) != null) {
-                    childPlot.getMapBlockIdToBlockCyclesRecord().put(
-                            blockID,
-                            childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID).toggleBlockIncluded());
-                    childPlot.repaint();
-                    included = childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID).blockIncluded();
-                }
+        boolean[] included = new boolean[1];
+        batchAcrossPlots(plotPane -> {
+            AnalysisBlockCyclesPlotI childPlot = (AnalysisBlockCyclesPlotI) plotPane.getPlot();
+            if (childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID) != null) {
+                childPlot.getMapBlockIdToBlockCyclesRecord().put(
+                        blockID,
+                        childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID).toggleBlockIncluded());
+                childPlot.repaint();
+                included[0] = childPlot.getMapBlockIdToBlockCyclesRecord().get(blockID).blockIncluded();
             }
-        }
-        analysisManagerCallbackI.callBackSetBlockIncludedStatus(blockID, included);
+        });
+        analysisManagerCallbackI.callBackSetBlockIncludedStatus(blockID, included[0]);
     }
 
     // Control visibility of analysis-related scale controls (log-scale) for Plot2 windows.
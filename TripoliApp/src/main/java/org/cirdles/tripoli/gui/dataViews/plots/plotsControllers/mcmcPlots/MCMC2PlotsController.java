@@ -39,6 +39,7 @@ import org.cirdles.tripoli.gui.dataViews.plots.TripoliPlotPane;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.ogTripoliPlots.OGTripoliPlotsWindow;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.ogTripoliPlots.OGTripoliViewController;
 import org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.tripoliPlots.*;
+import org.cirdles.tripoli.gui.dialogs.TripoliMessageDialog;
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.plots.histograms.HistogramBuilder;
 import org.cirdles.tripoli.plots.histograms.HistogramRecord;
@@ -50,6 +51,7 @@ import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.m
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.TestDriver;
 import org.cirdles.tripoli.utilities.IntuitiveStringComparator;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 
 import java.net.URL;
 import java.util.*;
@@ -154,7 +156,13 @@ public class MCMC2PlotsController implements MCMCPlotsControllerInterface {
     }
 
     public synchronized void processDataFileAndShowPlotsOfMCMC2(AnalysisInterface analysis) {
-        PlotBuilder[] test = TestDriver.simulationsOfMCMC2();
+        PlotBuilder[] test;
+        try {
+            test = TestDriver.simulationsOfMCMC2();
+        } catch (TripoliException e) {
+            TripoliMessageDialog.showWarningDialog("MCMC2 simulation failed:\n" + e.getMessage(), TripoliGUI.primaryStageWindow);
+            return;
+        }
         PlotBuilder[][] plots = new PlotBuilder[1][];
         plots[0] = test;
         plotEnsemblesEngine(plots);
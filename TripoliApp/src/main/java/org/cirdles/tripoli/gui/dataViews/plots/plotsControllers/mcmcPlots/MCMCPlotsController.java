@@ -50,6 +50,7 @@ import org.cirdles.tripoli.plots.histograms.RatioHistogramBuilder;
 import org.cirdles.tripoli.plots.linePlots.*;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCBlockScheduler;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCProcess;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
 import org.cirdles.tripoli.utilities.IntuitiveStringComparator;
@@ -69,6 +70,8 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
 
     private static final int TOOLBAR_HEIGHT = 30;
     private static final int MAX_BLOCK_COUNT = 2000;
+    // bounds how many block inversions run at once across all MCMC windows
+    private static final MCMCBlockScheduler mcmcBlockScheduler = new MCMCBlockScheduler(MCMCBlockScheduler.DEFAULT_PARALLELISM);
     public static AnalysisInterface analysis;
     public static AnalysisManagerCallbackI analysisManagerCallbackI;
     private int currentBlockID = 0;
@@ -120,6 +123,8 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
     }
 
     public void plotIncomingAction() {
+        // the peak shapes of the other blocks are fitted while the first is processed
+        analysis.fitPeakShapesInBackground();
         processDataFileAndShowPlotsOfMCMC(analysis);
 
     }
@@ -211,6 +216,7 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
         int indexOfFirstRunningBlockProcess = MAX_BLOCK_COUNT;
         for (int blockIndex = 0; blockIndex < countOfBlocks; blockIndex++) {
             services[blockIndex] = new MCMCUpdatesService(blocksToProcess.get(blockIndex));
+            services[blockIndex].setExecutor(mcmcBlockScheduler.getExecutor());
 
             if (analysis.getMapOfBlockIdToProcessStatus().get(blocksToProcess.get(blockIndex)) == RUN) {
                 indexOfFirstRunningBlockProcess = Math.min(indexOfFirstRunningBlockProcess, blockIndex);
@@ -789,6 +789,7 @@ public class AnalysisBlockCyclesPlot extends AbstractPlot implements AnalysisBlo
         g2d.setGlobalAlpha(1.0);
     }
 
+    @Override
     public void calcStats() {
         // Jan 2024 new approach - two modes: block mode and cycle mode
         // BLOCK MODE will be default - calculate and plot stats for each block
@@ -66,4 +66,10 @@ public interface AnalysisBlockCyclesPlotI {
     void setIgnoreRejects(boolean b);
 
     void refreshPanel(boolean reScaleX, boolean reScaleY);
+
+    /**
+     * Recomputes the statistics of the plot's user function; plots that show no statistics do nothing.
+     */
+    default void calcStats() {
+    }
 }
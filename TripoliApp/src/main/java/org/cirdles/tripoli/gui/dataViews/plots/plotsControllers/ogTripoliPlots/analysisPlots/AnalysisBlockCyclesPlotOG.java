@@ -37,11 +37,13 @@ import org.cirdles.tripoli.gui.dataViews.plots.*;
 import org.cirdles.tripoli.plots.analysisPlotBuilders.AnalysisBlockCyclesRecord;
 import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
 import org.cirdles.tripoli.sessions.analysis.*;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
 import org.cirdles.tripoli.utilities.mathUtilities.FormatterForSigFigN;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,7 +72,9 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
     private final UserFunction userFunction;
     private final PlotWallPaneInterface parentWallPane;
     private final boolean isRatio;
+    private final LevelOfDetailRenderer levelOfDetailRenderer;
     private double[] oneSigmaForCycles;
+    private boolean[] memberAnalysisBorderFlagsByBlockIndex;
     private boolean logScale;
     private boolean[] zoomFlagsXY;
     private boolean blockMode;
@@ -110,6 +114,8 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
         this.blockMode = userFunction.getReductionMode().equals(TripoliConstants.ReductionModeEnum.BLOCK);
         this.isRatio = userFunction.isTreatAsIsotopicRatio();
         this.ignoreRejects = false;
+        this.levelOfDetailRenderer = new LevelOfDetailRenderer(this);
+        this.memberAnalysisBorderFlagsByBlockIndex = new boolean[0];
 
         tooltip = new Tooltip(((Analysis) analysis).hasMemberAnalyses() ? tooltipTextConcat : tooltipTextSculpt);
         Tooltip.install(this, tooltip);
@@ -195,6 +201,12 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
                 xAxisData[i] = i + 1;
                 xAxisDataBlockIDs[i] = calculateBlockIDfromDataIndex(i, cyclesPerEachBlockIndex);
             }
+            memberAnalysisBorderFlagsByBlockIndex = new boolean[cyclesPerEachBlockIndex.length];
+            for (int blockIndex : ((Analysis) analysis).getMemberAnalysisBorderFlags()) {
+                if ((0 <= blockIndex) && (blockIndex < memberAnalysisBorderFlagsByBlockIndex.length)) {
+                    memberAnalysisBorderFlagsByBlockIndex[blockIndex] = true;
+                }
+            }
 
             displayOffsetX = 0.0;
             inSculptorMode = false;
@@ -277,6 +289,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
         zoomChunkY = zoomFlagsXY[1] ? zoomChunkY : 0.0;
     }
 
+    @Override
     public void calcStats() {
         analysisStatsRecord = userFunction.calculateAnalysisStatsRecord(analysis);
     }
@@ -432,7 +445,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
                     boolean meanIsPlottable = (mapY(geoWeightedMeanRatio) >= topMargin) && (mapY(geoWeightedMeanRatio) <= topMargin + plotHeight);
                     if (meanIsPlottable) {
 //                        g2d.setStroke(OGTRIPOLI_MEAN);
-                        g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+                        g2d.setStroke(webColor(analysis.getMeanHexColorString()));
                         g2d.strokeLine(Math.max(mapX(xAxisData[0]), leftMargin) - 2, mapY(geoWeightedMeanRatio), Math.min(mapX(xAxisData[xAxisData.length - 1]), leftMargin + plotWidth) + 2, mapY(geoWeightedMeanRatio));
                         g2d.setStroke(Paint.valueOf("BLACK"));
                     }
@@ -516,7 +529,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
                     boolean meanIsPlottable = (mapY(geoMean) >= topMargin) && (mapY(geoMean) <= topMargin + plotHeight);
                     if (meanIsPlottable) {
 //                        g2d.setStroke(OGTRIPOLI_MEAN);
-                        g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+                        g2d.setStroke(webColor(analysis.getMeanHexColorString()));
                         g2d.strokeLine(Math.max(mapX(xAxisData[0]), leftMargin) - 2, mapY(geoMean), Math.min(mapX(xAxisData[xAxisData.length - 1]), leftMargin + plotWidth) + 2, mapY(geoMean));
                         g2d.setStroke(Paint.valueOf("BLACK"));
                     }
@@ -617,7 +630,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
                     boolean meanIsPlottable = (mapY(weightedMean) >= topMargin) && (mapY(weightedMean) <= topMargin + plotHeight);
                     if (meanIsPlottable) {
 //                        g2d.setStroke(OGTRIPOLI_MEAN);
-                        g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+                        g2d.setStroke(webColor(analysis.getMeanHexColorString()));
                         g2d.strokeLine(Math.max(mapX(xAxisData[0]), leftMargin) - 2, mapY(weightedMean), Math.min(mapX(xAxisData[xAxisData.length - 1]), leftMargin + plotWidth) + 2, mapY(weightedMean));
                         g2d.setStroke(Paint.valueOf("BLACK"));
                     }
@@ -680,7 +693,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 //        g2d.fillText("Legend:", textLeft + 5, textTop += textDeltaY * 2);
         //  TODO: Change the legend colors based on user selection
 
-        g2d.setFill(Color.web(analysis.getTwoSigmaHexColorString()));
+        g2d.setFill(webColor(analysis.getTwoSigmaHexColorString()));
         g2d.fillRect(textLeft + 8, textTop + textDeltaY, 27, 50);
         g2d.setFill(Paint.valueOf("BLACK"));
         g2d.fillText("2\u03C3", textLeft + 11, textTop + 2 * textDeltaY);
@@ -688,13 +701,13 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 //        g2d.fillText("\u0304", textLeft + 26, textTop + 2 * textDeltaY + 7);
 
 
-        g2d.setFill(Color.web(analysis.getOneSigmaHexColorString()));
+        g2d.setFill(webColor(analysis.getOneSigmaHexColorString()));
         g2d.fillRect(textLeft + 35, textTop + textDeltaY + 25, 25, 25);
         g2d.setFill(Paint.valueOf("BLACK"));
         g2d.fillText("\u03C3", textLeft + 42, textTop + 3.2 * textDeltaY);
 
 
-        g2d.setFill(Color.web(analysis.getTwoStandardErrorHexColorString()));
+        g2d.setFill(webColor(analysis.getTwoStandardErrorHexColorString()));
         g2d.fillRect(textLeft + 60, textTop + textDeltaY + 25, 25, 25);
         g2d.setFill(Paint.valueOf("BLACK"));
         g2d.fillText("\u03C3", textLeft + 62, textTop + 3.2 * textDeltaY);
@@ -703,7 +716,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 
         g2d.setFont(normalFourteen);
 
-        g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+        g2d.setStroke(webColor(analysis.getMeanHexColorString()));
         g2d.setLineWidth(1.5);
         g2d.strokeLine(textLeft + 5, textTop + textDeltaY + 50, textLeft + 90, textTop + textDeltaY + 50);
         g2d.fillText("x", textLeft + 95, textTop + 3.2 * textDeltaY + 14);
@@ -749,9 +762,6 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 
     @Override
     public void plotData(GraphicsContext g2d) {
-        g2d.setFill(Color.web(analysis.getDataHexColorString()));
-        g2d.setStroke(Color.web(analysis.getDataHexColorString()));
-
         // block delimiters rendered behind data
         g2d.setStroke(Color.BLACK);
         g2d.setLineWidth(0.5);
@@ -760,7 +770,7 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
             int i = cyclesCountedToStartOfBlockIndex[b];
             if (xInPlot(xAxisData[i])) {
                 double dataX = mapX(xAxisData[i] - 0.5);
-                if (((Analysis) analysis).getMemberAnalysisBorderFlags().contains(blockID - 1)) {
+                if ((b < memberAnalysisBorderFlagsByBlockIndex.length) && memberAnalysisBorderFlagsByBlockIndex[b]) {
                     g2d.setLineWidth(2.0);
                     g2d.strokeLine(dataX, topMargin + plotHeight, dataX, topMargin);
                     g2d.setLineWidth(0.5);
@@ -788,38 +798,39 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
         g2d.strokeLine(dataX, topMargin + plotHeight, dataX, topMargin);
 
         // data
-        int cycleCountAll = 0;
-        for (int i = 0; i < xAxisData.length; i++) {
-            blockID = xAxisDataBlockIDs[i];
-            int cycleCount = cycleCountAll - cyclesCountedToStartOfBlockIndex[blockID - 1];
-
-            if (pointInPlot(xAxisData[i], yAxisData[i]) && (yAxisData[i] != 0.0)) {
-                g2d.setFill(Color.web(analysis.getDataHexColorString()));
-                g2d.setStroke(Color.web(analysis.getDataHexColorString()));
-                boolean testme = false;
-                testme = analysis.getMapOfBlockIdToRawDataLiteOne().get(blockID)
-                        .blockRawDataLiteIncludedArray()[cycleCount][userFunction.getColumnIndex()];
-                if (!testme) {
-                    g2d.setFill(Color.web(analysis.getAntiDataHexColorString()));
-                    g2d.setStroke(Color.web(analysis.getAntiDataHexColorString()));
-                }
-                dataX = mapX(xAxisData[i]);
-                double dataY = mapY(yAxisData[i]);
-                // TODO: refine for ratio mode
-                double dataYplusSigma = mapY(yAxisData[i] + oneSigmaForCycles[i]);
-                double dataYminusSigma = mapY(yAxisData[i] - oneSigmaForCycles[i]);
-
-                if (yAxisData[i] > 0) {
-                    g2d.fillOval(dataX - 2.0, dataY - 2.0, 4, 4);
-                    g2d.strokeLine(dataX, dataY, dataX, dataYplusSigma);
-                    g2d.strokeLine(dataX, dataY, dataX, dataYminusSigma);
-                } else {
-                    g2d.fillOval(dataX - 2.0, dataY - 2.0, 4, 4);
+        levelOfDetailRenderer.setData(xAxisData, yAxisData, oneSigmaForCycles, cycleInclusions());
+        levelOfDetailRenderer.draw(g2d, webColor(analysis.getDataHexColorString()), webColor(analysis.getAntiDataHexColorString()));
+    }
+
+    /**
+     * @return the cycles included for this user function, read once for each block
+     */
+    private BitSet cycleInclusions() {
+        BitSet cycleInclusions = new BitSet(xAxisData.length);
+        int columnIndex = userFunction.getColumnIndex();
+        Map<Integer, SingleBlockRawDataLiteSetRecord> mapOfBlockIdToRawDataLiteOne = analysis.getMapOfBlockIdToRawDataLiteOne();
+        for (int blockIndex = 0; blockIndex < cyclesCountedToStartOfBlockIndex.length; blockIndex++) {
+            SingleBlockRawDataLiteSetRecord singleBlockRawDataLiteSetRecord = mapOfBlockIdToRawDataLiteOne.get(blockIndex + 1);
+            if (null != singleBlockRawDataLiteSetRecord) {
+                boolean[][] blockRawDataLiteIncludedArray = singleBlockRawDataLiteSetRecord.blockRawDataLiteIncludedArray();
+                int cycleCount = Math.min(cyclesPerEachBlockIndex[blockIndex], blockRawDataLiteIncludedArray.length);
+                for (int cycle = 0; cycle < cycleCount; cycle++) {
+                    if (blockRawDataLiteIncludedArray[cycle][columnIndex]) {
+                        cycleInclusions.set(cyclesCountedToStartOfBlockIndex[blockIndex] + cycle);
+                    }
                 }
             }
-            cycleCountAll++;
         }
+        return cycleInclusions;
+    }
+
+    @Override
+    protected boolean hasOverlays() {
+        return (inSculptorMode && showSelectionBox) || (inZoomBoxMode && showZoomBox);
+    }
 
+    @Override
+    protected void plotOverlays(GraphicsContext g2d) {
         if (inSculptorMode && showSelectionBox) {
             //plot selectorbox
             g2d.setStroke(Color.RED);
@@ -834,6 +845,32 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
         }
     }
 
+    @Override
+    protected Object staticLayerState() {
+        // the statistics drawn under the overlays, brought up to date as plotStats would
+        calcStats();
+        BlockStatsRecord[] blockStatsRecords = analysisStatsRecord.blockStatsRecords();
+        BitSet blockInclusions = new BitSet(blockStatsRecords.length);
+        for (int blockIndex = 0; blockIndex < blockStatsRecords.length; blockIndex++) {
+            blockInclusions.set(blockIndex, blockStatsRecords[blockIndex].blockIncluded());
+        }
+        return new StaticLayerStateRecord(
+                yAxisData,
+                oneSigmaForCycles,
+                cycleInclusions(),
+                blockInclusions,
+                List.of(blockStatsRecords),
+                List.of(analysisStatsRecord.blockModeWeightedMean(), analysisStatsRecord.blockModeWeightedMeanOneSigma(),
+                        analysisStatsRecord.blockModeChiSquared(), analysisStatsRecord.cycleModeMean(),
+                        analysisStatsRecord.cycleModeStandardDeviation(), analysisStatsRecord.cycleModeStandardError(),
+                        (double) analysisStatsRecord.countOfIncludedBlocks(), (double) analysisStatsRecord.countOfIncludedCycles()),
+                List.of(analysis.getDataHexColorString(), analysis.getAntiDataHexColorString(),
+                        analysis.getOneSigmaHexColorString(), analysis.getTwoSigmaHexColorString(),
+                        analysis.getTwoStandardErrorHexColorString(), analysis.getMeanHexColorString()),
+                List.of(inSculptorMode, logScale, blockMode, ignoreRejects, AnalysisManagerController.showBlockDelimiters),
+                sculptBlockID);
+    }
+
     private void showBlockID(GraphicsContext g2d, int blockID, double xPosition) {
         Paint savedPaint = g2d.getFill();
         g2d.setFill(Paint.valueOf("BLACK"));
@@ -913,23 +950,23 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 
                 double plottedTwoSigmaHeight = Math.min(mapY(meanMinusTwoStandardDeviation), topMargin + plotHeight) - Math.max(mapY(meanPlusTwoStandardDeviation), topMargin);
 //                g2d.setFill(OGTRIPOLI_TWOSIGMA);
-                g2d.setFill(Color.web(analysis.getTwoSigmaHexColorString()));
+                g2d.setFill(webColor(analysis.getTwoSigmaHexColorString()));
                 g2d.fillRect(leftX, Math.max(mapY(meanPlusTwoStandardDeviation), topMargin), rightX - leftX, plottedTwoSigmaHeight);
 
                 double plottedOneSigmaHeight = Math.min(mapY(meanMinusOneStandardDeviation), topMargin + plotHeight) - Math.max(mapY(meanPlusOneStandardDeviation), topMargin);
 //                g2d.setFill(OGTRIPOLI_ONESIGMA);
-                g2d.setFill(Color.web(analysis.getOneSigmaHexColorString()));
+                g2d.setFill(webColor(analysis.getOneSigmaHexColorString()));
                 g2d.fillRect(leftX, Math.max(mapY(meanPlusOneStandardDeviation), topMargin), rightX - leftX, plottedOneSigmaHeight);
 
                 double plottedTwoStdErrHeight = Math.min(mapY(meanMinusTwoStandardError), topMargin + plotHeight) - Math.max(mapY(meanPlusTwoStandardError), topMargin);
 //                g2d.setFill(OGTRIPOLI_TWOSTDERR);
-                g2d.setFill(Color.web(analysis.getTwoStandardErrorHexColorString()));
+                g2d.setFill(webColor(analysis.getTwoStandardErrorHexColorString()));
                 g2d.fillRect(leftX, Math.max(mapY(meanPlusTwoStandardError), topMargin), rightX - leftX, plottedTwoStdErrHeight);
 
                 boolean meanIsPlottable = (mapY(mean) >= topMargin) && (mapY(mean) <= topMargin + plotHeight);
                 if (meanIsPlottable && (leftX <= rightX)) {
 //                    g2d.setStroke(OGTRIPOLI_MEAN);
-                    g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+                    g2d.setStroke(webColor(analysis.getMeanHexColorString()));
                     g2d.setLineWidth(1.5);
                     g2d.strokeLine(leftX, mapY(mean), rightX, mapY(mean));
                 }
@@ -971,23 +1008,23 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
 
             double plottedTwoSigmaHeight = Math.min(mapY(meanMinusTwoStandardDeviation), topMargin + plotHeight) - Math.max(mapY(meanPlusTwoStandardDeviation), topMargin);
 //            g2d.setFill(OGTRIPOLI_TWOSIGMA);
-            g2d.setFill(Color.web(analysis.getTwoSigmaHexColorString()));
+            g2d.setFill(webColor(analysis.getTwoSigmaHexColorString()));
             g2d.fillRect(leftX, Math.max(mapY(meanPlusTwoStandardDeviation), topMargin), rightX - leftX, plottedTwoSigmaHeight);
 
             double plottedOneSigmaHeight = Math.min(mapY(meanMinusOneStandardDeviation), topMargin + plotHeight) - Math.max(mapY(meanPlusOneStandardDeviation), topMargin);
 //            g2d.setFill(OGTRIPOLI_ONESIGMA);
-            g2d.setFill(Color.web(analysis.getOneSigmaHexColorString()));
+            g2d.setFill(webColor(analysis.getOneSigmaHexColorString()));
             g2d.fillRect(leftX, Math.max(mapY(meanPlusOneStandardDeviation), topMargin), rightX - leftX, plottedOneSigmaHeight);
 
             double plottedTwoStdErrHeight = Math.min(mapY(meanMinusTwoStandardError), topMargin + plotHeight) - Math.max(mapY(meanPlusTwoStandardError), topMargin);
 //            g2d.setFill(OGTRIPOLI_TWOSTDERR);
-            g2d.setFill(Color.web(analysis.getTwoStandardErrorHexColorString()));
+            g2d.setFill(webColor(analysis.getTwoStandardErrorHexColorString()));
             g2d.fillRect(leftX, Math.max(mapY(meanPlusTwoStandardError), topMargin), rightX - leftX, plottedTwoStdErrHeight);
 
             boolean meanIsPlottable = (mapY(mean) >= topMargin) && (mapY(mean) <= topMargin + plotHeight);
             if (meanIsPlottable && (leftX <= rightX)) {
 //                g2d.setStroke(OGTRIPOLI_MEAN);
-                g2d.setStroke(Color.web(analysis.getMeanHexColorString()));
+                g2d.setStroke(webColor(analysis.getMeanHexColorString()));
                 g2d.setLineWidth(1.5);
                 g2d.strokeLine(leftX - 2, mapY(mean), rightX + 2, mapY(mean));
             }
@@ -1048,7 +1085,8 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
                         analysis.getMapOfBlockIdToRawDataLiteOne().get(i + 1).recordChauvenets(userFunction, plotBlockCyclesRecord.cyclesIncluded()));
 
             }
-            analysisStatsRecord = AnalysisStatsRecord.generateAnalysisStatsRecord(blockStatsRecords);
+            // only the blocks whose inclusions changed are recomputed
+            calcStats();
 //            }
         }
 
@@ -1464,4 +1502,21 @@ public class AnalysisBlockCyclesPlotOG extends AbstractPlot implements AnalysisB
             repaint();
         }
     }
+
+    /**
+     * The arrays are compared as references, as preparePanel replaces them.  The statistics are compared by value,
+     * as each AnalysisStatsRecord is new, while a block keeps its BlockStatsRecord until the block is recomputed.
+     */
+    private record StaticLayerStateRecord(
+            double[] yAxisData,
+            double[] oneSigmaForCycles,
+            BitSet cycleInclusions,
+            BitSet blockInclusions,
+            List<BlockStatsRecord> blockStatsRecords,
+            List<Double> analysisStatistics,
+            List<String> colorStrings,
+            List<Boolean> flags,
+            int sculptBlockID
+    ) {
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.gui.dataViews.plots;
+
+import javafx.scene.canvas.GraphicsContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelOfDetailRendererTest {
+
+    /**
+     * 100 pixel columns, with x mapped to leftMargin + x and y to topMargin + 2 * (100 - y).
+     */
+    private static AbstractPlot plot() {
+        AbstractPlot plot = new AbstractPlot() {
+            @Override
+            public void plotData(GraphicsContext g2d) {
+            }
+
+            @Override
+            public void plotStats(GraphicsContext g2d) {
+            }
+
+            @Override
+            public void showLegend(GraphicsContext g2d) {
+            }
+
+            @Override
+            public void preparePanel(boolean reScaleX, boolean reScaleY) {
+            }
+        };
+        plot.leftMargin = 10;
+        plot.topMargin = 5;
+        plot.plotWidth = 99;
+        plot.plotHeight = 200;
+        plot.minX = 0;
+        plot.maxX = 99;
+        plot.minY = 0;
+        plot.maxY = 100;
+        return plot;
+    }
+
+    @Test
+    void densePointsAreBucketedByColumnKeepingTheirExtremes() {
+        AbstractPlot plot = plot();
+        // ten points in each column, at y = 10 to 19, with the top point of column 3 excluded
+        double[] xData = new double[1000];
+        double[] yData = new double[1000];
+        double[] oneSigmaData = new double[1000];
+        BitSet included = new BitSet(1000);
+        for (int i = 0; i < 1000; i++) {
+            xData[i] = i % 100;
+            yData[i] = 10 + (i / 100);
+            oneSigmaData[i] = 1.0;
+            included.set(i, !((3 == i % 100) && (19 == yData[i])));
+        }
+        LevelOfDetailRenderer levelOfDetailRenderer = new LevelOfDetailRenderer(plot);
+        levelOfDetailRenderer.setData(xData, yData, oneSigmaData, included);
+        levelOfDetailRenderer.locate();
+
+        assertTrue(levelOfDetailRenderer.isDense());
+        assertEquals(200, levelOfDetailRenderer.getCountOfPositions());
+
+        assertTrue(levelOfDetailRenderer.isIncludedAt(5));
+        assertArrayEquals(new double[]{15, plot.mapY(19), plot.mapY(10), plot.mapY(20), plot.mapY(9)},
+                levelOfDetailRenderer.pixelsAt(5));
+
+        assertArrayEquals(new double[]{13, plot.mapY(18), plot.mapY(10), plot.mapY(19), plot.mapY(9)},
+                levelOfDetailRenderer.pixelsAt(3));
+        assertFalse(levelOfDetailRenderer.isIncludedAt(103));
+        assertArrayEquals(new double[]{13, plot.mapY(19), plot.mapY(19), plot.mapY(20), plot.mapY(18)},
+                levelOfDetailRenderer.pixelsAt(103));
+
+        // an excluded bucket with no points keeps its infinite bounds and is not drawn
+        double[] emptyBucket = levelOfDetailRenderer.pixelsAt(104);
+        assertEquals(Double.POSITIVE_INFINITY, emptyBucket[1]);
+        assertEquals(Double.NEGATIVE_INFINITY, emptyBucket[2]);
+    }
+
+    @Test
+    void sparsePointsAreEachPlaced() {
+        AbstractPlot plot = plot();
+        double[] xData = new double[21];
+        double[] yData = new double[21];
+        double[] oneSigmaData = new double[21];
+        BitSet included = new BitSet(21);
+        for (int i = 0; i < 20; i++) {
+            xData[i] = 5 * i;
+            yData[i] = 50;
+            oneSigmaData[i] = 1.0;
+            included.set(i);
+        }
+        // a point with a y of zero is not drawn
+        xData[20] = 50;
+        LevelOfDetailRenderer levelOfDetailRenderer = new LevelOfDetailRenderer(plot);
+        levelOfDetailRenderer.setData(xData, yData, oneSigmaData, included);
+        levelOfDetailRenderer.locate();
+
+        assertFalse(levelOfDetailRenderer.isDense());
+        assertEquals(20, levelOfDetailRenderer.getCountOfPositions());
+        assertArrayEquals(new double[]{20, plot.mapY(50), plot.mapY(50), plot.mapY(51), plot.mapY(49)},
+                levelOfDetailRenderer.pixelsAt(2));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Microbenchmarks for TripoliCore hot paths; run with ./gradlew :TripoliBenchmarks:jmh
+// or a subset with ./gradlew :TripoliBenchmarks:jmh -PjmhIncludes=ExpressionBenchmark
+plugins {
+    java
+    id("me.champeau.jmh") version "0.6.8"
+    id("common-build") // Plugin calls common gradle build from buildSrc
+}
+
+dependencies {
+    jmh(project(":TripoliCore"))
+    jmh("com.github.topobyte:jama:1.1.0")
+    jmh("org.apache.commons:commons-math3:3.6.1")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    // allocation rate and GC counts alongside each score, so allocation regressions show up
+    profilers.set(listOf("gc"))
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
+}
+
+project(":TripoliBenchmarks") {
+    description = "Tripoli JMH benchmarks"
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.Tripoli;
+import org.cirdles.tripoli.sessions.BatchImportService;
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * Data files bundled with TripoliCore, copied out of the jar so the parsers read them from disk as they would in use.
+ *
+ * @author James F. Bowring
+ */
+enum BenchmarkData {
+    ;
+
+    static final String DATA_SOURCES = "/org/cirdles/tripoli/dataSourceProcessors/dataSources/";
+    static final String PHOENIX_ISOLINX_1 = "ogTripoli/isotopxPhoenixTIMS/kU_IGL/isolinxVersion1/NBS981_210325b-392.TIMSDP";
+    static final String PHOENIX_ISOLINX_2 = "ogTripoli/isotopxPhoenixTIMS/kU_IGL/isolinxVersion2/NBS981_230024a-145.TIMSDP";
+    static final String PHOENIX_PURDUE = "ogTripoli/isotopxPhoenixTIMS/purdue/WH205_z4_Pb-654.TIMSDP";
+    static final String TRITON_ETH = "ogTripoli/tritonTIMS/ETH/15700_Nd_Gain_10_13_301115.exp";
+    static final String TRITON_UCDAVIS = "ogTripoli/tritonTIMS/UCDavis/z11_1.exp";
+    static final String PHOENIX_SYNTHETIC = "synthetic/twoIsotopeSyntheticData/SyntheticDataset_05.txt";
+
+    /**
+     * @param dataSource path below DATA_SOURCES
+     * @return a copy in a temporary folder that is removed on exit
+     * @throws IOException
+     */
+    static Path extractDataSource(String dataSource) throws IOException {
+        Path folder = Files.createTempDirectory("tripoliBenchmarks");
+        folder.toFile().deleteOnExit();
+        Path dataFile = folder.resolve(Path.of(dataSource).getFileName().toString());
+        try (InputStream inputStream = Objects.requireNonNull(
+                Tripoli.class.getResourceAsStream(DATA_SOURCES + dataSource), dataSource)) {
+            Files.copy(inputStream, dataFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        dataFile.toFile().deleteOnExit();
+        return dataFile;
+    }
+
+    /**
+     * @param session    supplies the defaults of the analysis
+     * @param dataSource path below DATA_SOURCES
+     * @return the analysis with its blocks initialised, as imported by Tripoli
+     * @throws Exception
+     */
+    static AnalysisInterface importAnalysis(Session session, String dataSource) throws Exception {
+        return BatchImportService.importFile(session, extractDataSource(dataSource));
+    }
+}
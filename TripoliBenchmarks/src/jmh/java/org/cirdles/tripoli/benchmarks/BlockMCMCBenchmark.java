@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCProcess;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelDriver;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.PHOENIX_SYNTHETIC;
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.importAnalysis;
+
+/**
+ * The block MCMC of the bundled synthetic Phoenix data: the forward model of the initial model, and a whole seeded
+ * inversion of block 1, counted in MCMC iterations per second.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+public class BlockMCMCBenchmark {
+
+    private static final int BLOCK_ID = 1;
+    private static final long SEED = 20230601L;
+
+    private AnalysisInterface analysis;
+    private SingleBlockRawDataSetRecord singleBlockRawDataSetRecord;
+    private SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov;
+    private SingleBlockModelRecord singleBlockInitialModelRecord;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        analysis = importAnalysis(Session.initializeDefaultSession(), PHOENIX_SYNTHETIC);
+        singleBlockRawDataSetRecord = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(
+                BLOCK_ID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        singleBlockInitialModelRecordWithCov = SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                analysis, analysis.getAnalysisMethod(), singleBlockRawDataSetRecord, true);
+        singleBlockInitialModelRecord = singleBlockInitialModelRecordWithCov.singleBlockModelRecord();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] modelInitData() {
+        return SingleBlockModelInitForMCMC.modelInitData(singleBlockInitialModelRecord, singleBlockRawDataSetRecord);
+    }
+
+    /**
+     * Each invocation runs the block to convergence; iterations reports its MCMC iterations per second.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 3, time = 1)
+    public void blockInversion(IterationCounter iterationCounter) {
+        MCMCProcess mcmcProcess = MCMCProcess.createMCMCProcess(
+                analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, SEED);
+        mcmcProcess.initializeMCMCProcess();
+        mcmcProcess.applyInversionWithAdaptiveMCMC(loggingSnippet -> {
+        });
+        iterationCounter.iterations +=
+                (long) analysis.getMapBlockIDToEnsembles().get(BLOCK_ID).size() * MCMCProcess.getStepCountForcedSave();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class IterationCounter {
+        public long iterations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            iterations = 0;
+        }
+    }
+}
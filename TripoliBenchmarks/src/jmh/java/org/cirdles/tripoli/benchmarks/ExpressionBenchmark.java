@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.expressions.expressionTrees.CompiledExpression;
+import org.cirdles.tripoli.expressions.expressionTrees.ExpressionTree;
+import org.cirdles.tripoli.expressions.parsing.ShuntingYard;
+import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.PHOENIX_ISOLINX_1;
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.importAnalysis;
+
+/**
+ * A user expression over every cycle of an analysis: the ExpressionTree walk against its CompiledExpression.
+ * The expression is that of ExpressionTreeTest, 204Pb + 205Pb * 206Pb - 207Pb * ( 208Pb + 204/206 ).
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpressionBenchmark {
+
+    private AnalysisInterface analysis;
+    private ExpressionTree expressionTree;
+    private CompiledExpression compiledExpression;
+    private String[] columnHeaders;
+    private Map<Integer, MassSpecOutputBlockRecordLite> blocksDataLite;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        analysis = importAnalysis(Session.initializeDefaultSession(), PHOENIX_ISOLINX_1);
+        List<UserFunction> userFunctions = analysis.getUserFunctions();
+        // Cycle and Time are the first two user functions
+        List<String> infixList = List.of(
+                userFunctions.get(2).getName(), "+", userFunctions.get(3).getName(), "*", userFunctions.get(4).getName(),
+                "-", userFunctions.get(5).getName(), "*", "(", userFunctions.get(6).getName(), "+", userFunctions.get(7).getName(), ")");
+        expressionTree = (ExpressionTree) ExpressionTree.buildTree(ShuntingYard.infixToPostfix(infixList));
+        compiledExpression = CompiledExpression.compile(expressionTree);
+        columnHeaders = analysis.getMassSpecExtractedData().getColumnHeaders();
+        blocksDataLite = analysis.getMassSpecExtractedData().getBlocksDataLite();
+    }
+
+    @Benchmark
+    public Double[][] expressionTreeEval() {
+        return expressionTree.eval(analysis);
+    }
+
+    @Benchmark
+    public double[][] compiledExpressionEval() {
+        return compiledExpression.evaluateBlocks(columnHeaders, blocksDataLite);
+    }
+}
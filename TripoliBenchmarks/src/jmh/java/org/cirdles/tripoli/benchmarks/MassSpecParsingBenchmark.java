@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix.PhoenixMassSpec;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.triton.TritonMassSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.*;
+
+/**
+ * Files parsed per second by the Phoenix and Triton parsers, each file read with the parser its format selects.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MassSpecParsingBenchmark {
+
+    @Param({PHOENIX_ISOLINX_1, PHOENIX_ISOLINX_2, PHOENIX_PURDUE, PHOENIX_SYNTHETIC, TRITON_ETH, TRITON_UCDAVIS})
+    String dataSource;
+
+    private Path dataFile;
+    private MassSpecParser massSpecParser;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dataFile = extractDataSource(dataSource);
+        if (dataSource.endsWith(".exp")) {
+            massSpecParser = TritonMassSpec::extractMetaAndBlockDataFromFileTriton;
+        } else if (dataSource.endsWith(".TIMSDP")) {
+            massSpecParser = PhoenixMassSpec::extractDataFromFileVersion_2_TIMSDP;
+        } else {
+            massSpecParser = PhoenixMassSpec::extractMetaAndBlockDataFromFileVersion_1_0;
+        }
+    }
+
+    @Benchmark
+    public MassSpecExtractedData parse() throws Exception {
+        return massSpecParser.parse(dataFile);
+    }
+
+    @FunctionalInterface
+    private interface MassSpecParser {
+        MassSpecExtractedData parse(Path dataFile) throws Exception;
+    }
+}
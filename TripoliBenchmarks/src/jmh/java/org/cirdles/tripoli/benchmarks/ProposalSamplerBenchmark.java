@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import jama.Matrix;
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.cirdles.tripoli.utilities.mathUtilities.MultivariateNormalSampler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One MCMC proposal draw: the former per-iteration path (blend in Jama, cholCov, fresh secure generator)
+ * against MultivariateNormalSampler with its factor cached.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProposalSamplerBenchmark {
+
+    private static final double BETA = 0.05;
+
+    // model sizes typical of a block: log ratios + cycle intensities + faradays + gain
+    @Param({"24", "64", "160"})
+    int sizeOfModel;
+
+    @Param({"1", "10"})
+    int refactorInterval;
+
+    private Matrix covarianceMatrix_C0;
+    private double[][] xDataCovariance;
+    private double adaptiveWeight;
+    private MultivariateNormalSampler sampler;
+    private double[] delx_adapt;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(20230601L);
+
+        double[][] c0 = new double[sizeOfModel][sizeOfModel];
+        for (int i = 0; i < sizeOfModel; i++) {
+            c0[i][i] = 1.0 + randomDataGenerator.nextUniform(0.0, 1.0);
+        }
+        covarianceMatrix_C0 = new Matrix(c0);
+
+        // random SPD covariance A*A'/n + I
+        double[][] a = new double[sizeOfModel][sizeOfModel];
+        for (int i = 0; i < sizeOfModel; i++) {
+            for (int j = 0; j < sizeOfModel; j++) {
+                a[i][j] = randomDataGenerator.nextGaussian(0.0, 1.0);
+            }
+        }
+        Matrix aMatrix = new Matrix(a);
+        xDataCovariance = aMatrix.times(aMatrix.transpose()).times(1.0 / sizeOfModel).plus(Matrix.identity(sizeOfModel, sizeOfModel)).getArray();
+        adaptiveWeight = (1.0 - BETA) * 2.38 * 2.38 / sizeOfModel;
+
+        sampler = new MultivariateNormalSampler(c0, refactorInterval, randomDataGenerator);
+        delx_adapt = new double[sizeOfModel];
+    }
+
+    @Benchmark
+    public void matLabCholeskyPath(Blackhole blackhole) {
+        Matrix c_Matrix = covarianceMatrix_C0.times(BETA).plus(new Matrix(xDataCovariance).times(adaptiveWeight));
+        c_Matrix = c_Matrix.transpose().plus(c_Matrix).times(0.5);
+        Matrix delx_adapt_Matrix = MatLabCholesky.mvnrndTripoli(new double[sizeOfModel], c_Matrix.getArray(), 1).transpose();
+        blackhole.consume(delx_adapt_Matrix.getRowPackedCopy());
+    }
+
+    @Benchmark
+    public void cachedFactorPath(Blackhole blackhole) {
+        sampler.useBlendedCovariance(xDataCovariance, BETA, adaptiveWeight);
+        sampler.draw(delx_adapt);
+        blackhole.consume(delx_adapt);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.reports.Report;
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.*;
+
+/**
+ * The full CSV report of a session of bundled analyses, written to a temporary file.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReportBenchmark {
+
+    private List<AnalysisInterface> analyses;
+    private Report fullReport;
+    private File reportCSVFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Session session = Session.initializeDefaultSession();
+        analyses = new ArrayList<>();
+        for (String dataSource : List.of(PHOENIX_ISOLINX_1, PHOENIX_ISOLINX_2, PHOENIX_PURDUE)) {
+            analyses.add(importAnalysis(session, dataSource));
+        }
+        fullReport = Report.createFullReport("Full Report", analyses.get(0));
+        reportCSVFile = Files.createTempFile("tripoliBenchmarks", "-report.csv").toFile();
+        reportCSVFile.deleteOnExit();
+    }
+
+    @Benchmark
+    public File generateCSVFile() {
+        return fullReport.generateCSVFile(analyses, reportCSVFile);
+    }
+}
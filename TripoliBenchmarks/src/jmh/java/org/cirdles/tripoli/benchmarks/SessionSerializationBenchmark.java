@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSessionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.*;
+
+/**
+ * Saving and opening a session of bundled analyses, in the chunked session store and as one serialized object.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SessionSerializationBenchmark {
+
+    private Session session;
+    private String sessionStoreFileName;
+    private String serializedFileName;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        session = Session.initializeSession("Benchmark Session");
+        List<AnalysisInterface> analyses = new ArrayList<>();
+        for (String dataSource : List.of(PHOENIX_ISOLINX_1, PHOENIX_ISOLINX_2, PHOENIX_PURDUE, TRITON_ETH, TRITON_UCDAVIS)) {
+            analyses.add(importAnalysis(session, dataSource));
+        }
+        session.putAnalyses(analyses);
+
+        Path folder = Files.createTempDirectory("tripoliBenchmarks");
+        folder.toFile().deleteOnExit();
+        sessionStoreFileName = folder.resolve("benchmark.tripoli").toString();
+        serializedFileName = folder.resolve("benchmark.ser").toString();
+        // files for the load benchmarks
+        TripoliSessionStore.saveSession(session, sessionStoreFileName);
+        TripoliSerializer.serializeObjectToFile(session, serializedFileName);
+        folder.resolve("benchmark.tripoli").toFile().deleteOnExit();
+        folder.resolve("benchmark.ser").toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public void saveSessionStore() throws TripoliException {
+        TripoliSessionStore.saveSession(session, sessionStoreFileName);
+    }
+
+    @Benchmark
+    public Session loadSessionStore() throws TripoliException {
+        return TripoliSessionStore.loadSession(sessionStoreFileName, false);
+    }
+
+    @Benchmark
+    public void serializeObject() throws TripoliException {
+        TripoliSerializer.serializeObjectToFile(session, serializedFileName);
+    }
+
+    @Benchmark
+    public Object deserializeObject() throws TripoliException {
+        return TripoliSerializer.getSerializedObjectFromFile(serializedFileName, false);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.benchmarks;
+
+import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
+import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.cirdles.tripoli.benchmarks.BenchmarkData.*;
+
+/**
+ * The analysis statistics of every user function of an analysis, as recomputed when a block or cycle is toggled.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserFunctionStatsBenchmark {
+
+    @Param({PHOENIX_ISOLINX_1, TRITON_UCDAVIS})
+    String dataSource;
+
+    private AnalysisInterface analysis;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        analysis = importAnalysis(Session.initializeDefaultSession(), dataSource);
+    }
+
+    @Benchmark
+    public void calculateAnalysisStatsRecords(Blackhole blackhole) {
+        for (UserFunction userFunction : analysis.getUserFunctions()) {
+            // toggle the first block, as the statistics of unchanged blocks are kept between calls
+            Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord = userFunction.getMapBlockIdToBlockCyclesRecord();
+            if (!mapBlockIdToBlockCyclesRecord.isEmpty()) {
+                Integer blockID = mapBlockIdToBlockCyclesRecord.keySet().iterator().next();
+                mapBlockIdToBlockCyclesRecord.put(blockID, mapBlockIdToBlockCyclesRecord.get(blockID).toggleBlockIncluded());
+            }
+            blackhole.consume(userFunction.calculateAnalysisStatsRecord(analysis));
+        }
+    }
+}
@@ -92,6 +92,14 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Headless batch reduction; run with ./gradlew :TripoliCore:runBatchReduction --args="<data folder> --out <folder>"
+tasks.register<JavaExec>("runBatchReduction") {
+    group = "application"
+    description = "Reduces a batch of data files without the GUI"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.cirdles.tripoli.sessions.BatchReductionRunner")
+}
+
 val timestamp = {
     SimpleDateFormat("dd MMMM yyyy").format(Date())
 }
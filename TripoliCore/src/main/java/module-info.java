@@ -26,6 +26,7 @@ module Tripoli.TripoliCore {
     requires jblas;
     requires xstream;
     requires java.logging;
+    requires jdk.jfr;
     requires org.apache.commons.rng.simple;
     requires jxl;
     requires org.antlr.antlr4.runtime;
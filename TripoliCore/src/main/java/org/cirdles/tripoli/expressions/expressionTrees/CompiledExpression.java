@@ -0,0 +1,255 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.expressions.expressionTrees;
+
+import org.cirdles.tripoli.expressions.constants.ConstantNode;
+import org.cirdles.tripoli.expressions.operations.*;
+import org.cirdles.tripoli.expressions.userFunctions.UserFunctionNode;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression tree flattened into a postfix program over primitive columns of cycle data.
+ * Evaluating a block runs the program on a small stack of double[] columns that are reused from node to node,
+ * instead of allocating a boxed Double[][] for every node and every block; blocks are evaluated in parallel.
+ * Results are the same as ExpressionTree.eval(columnHeaders, blocksDataLite): every operation applies the same
+ * arithmetic or StrictMath function element by element, and a column missing from a short row reads as 0.0.
+ * Instances are immutable and may be shared across threads.
+ *
+ * @author James F. Bowring
+ */
+public final class CompiledExpression {
+
+    private static final int LOAD_CONSTANT = 0;
+    private static final int LOAD_COLUMN = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int POWER = 6;
+    private static final int LOG = 7;
+    private static final int EXP = 8;
+    private static final int SQRT = 9;
+
+    private final int[] opCodes;
+    private final int[] operands;
+    private final double[] constants;
+    private final String[] columnNames;
+    private final int maxStackDepth;
+
+    private CompiledExpression(List<Integer> opCodes, List<Integer> operands, List<Double> constants, List<String> columnNames, int maxStackDepth) {
+        this.opCodes = opCodes.stream().mapToInt(Integer::intValue).toArray();
+        this.operands = operands.stream().mapToInt(Integer::intValue).toArray();
+        this.constants = constants.stream().mapToDouble(Double::doubleValue).toArray();
+        this.columnNames = columnNames.toArray(new String[0]);
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    /**
+     * @param expressionTree
+     * @return the compiled program, or null if the tree holds nodes other than constants, column references
+     * and the built-in operations
+     */
+    public static CompiledExpression compile(ExpressionTreeInterface expressionTree) {
+        ProgramBuilder programBuilder = new ProgramBuilder();
+        return programBuilder.emit(expressionTree) ? programBuilder.build() : null;
+    }
+
+    private static int opCodeOf(Operation operation) {
+        int retVal = -1;
+        if (operation instanceof Add) {
+            retVal = ADD;
+        } else if (operation instanceof Subtract) {
+            retVal = SUBTRACT;
+        } else if (operation instanceof Multiply) {
+            retVal = MULTIPLY;
+        } else if (operation instanceof Divide) {
+            retVal = DIVIDE;
+        } else if (operation instanceof Power) {
+            retVal = POWER;
+        } else if (operation instanceof Log) {
+            retVal = LOG;
+        } else if (operation instanceof Exp) {
+            retVal = EXP;
+        } else if (operation instanceof Sqrt) {
+            retVal = SQRT;
+        }
+        return retVal;
+    }
+
+    /**
+     * @param columnHeaders
+     * @return column index of each referenced column, -1 where there is no such column
+     */
+    public int[] resolveColumns(String[] columnHeaders) {
+        int[] columnIndices = new int[columnNames.length];
+        for (int column = 0; column < columnNames.length; column++) {
+            columnIndices[column] = -1;
+            for (int i = 0; i < columnHeaders.length; i++) {
+                if (columnHeaders[i].equals(columnNames[column])) {
+                    columnIndices[column] = i;
+                    break;
+                }
+            }
+        }
+        return columnIndices;
+    }
+
+    public boolean referencesOnlyColumnsIn(String[] columnHeaders) {
+        boolean retVal = true;
+        for (int columnIndex : resolveColumns(columnHeaders)) {
+            retVal = retVal && (0 <= columnIndex);
+        }
+        return retVal;
+    }
+
+    /**
+     * @param cycleData     rows of one block
+     * @param columnIndices from resolveColumns
+     * @return the expression value for every row
+     */
+    public double[] evaluateBlock(double[][] cycleData, int[] columnIndices) {
+        int rowCount = cycleData.length;
+        double[][] stack = new double[maxStackDepth][rowCount];
+        int top = -1;
+        for (int instruction = 0; instruction < opCodes.length; instruction++) {
+            int opCode = opCodes[instruction];
+            if (LOAD_CONSTANT == opCode) {
+                double[] target = stack[++top];
+                double value = constants[operands[instruction]];
+                for (int row = 0; row < rowCount; row++) {
+                    target[row] = value;
+                }
+            } else if (LOAD_COLUMN == opCode) {
+                double[] target = stack[++top];
+                int columnIndex = columnIndices[operands[instruction]];
+                for (int row = 0; row < rowCount; row++) {
+                    target[row] = (columnIndex < cycleData[row].length) ? cycleData[row][columnIndex] : 0.0;
+                }
+            } else if (LOG <= opCode) {
+                double[] argument = stack[top];
+                for (int row = 0; row < rowCount; row++) {
+                    argument[row] = switch (opCode) {
+                        case LOG -> StrictMath.log10(argument[row]);
+                        case EXP -> StrictMath.exp(argument[row]);
+                        default -> StrictMath.sqrt(argument[row]);
+                    };
+                }
+            } else {
+                double[] left = stack[top - 1];
+                double[] right = stack[top];
+                switch (opCode) {
+                    case ADD -> {
+                        for (int row = 0; row < rowCount; row++) {
+                            left[row] = left[row] + right[row];
+                        }
+                    }
+                    case SUBTRACT -> {
+                        for (int row = 0; row < rowCount; row++) {
+                            left[row] = left[row] - right[row];
+                        }
+                    }
+                    case MULTIPLY -> {
+                        for (int row = 0; row < rowCount; row++) {
+                            left[row] = left[row] * right[row];
+                        }
+                    }
+                    case DIVIDE -> {
+                        for (int row = 0; row < rowCount; row++) {
+                            left[row] = left[row] / right[row];
+                        }
+                    }
+                    default -> {
+                        for (int row = 0; row < rowCount; row++) {
+                            left[row] = StrictMath.pow(left[row], right[row]);
+                        }
+                    }
+                }
+                top--;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * @param columnHeaders
+     * @param blocksDataLite keyed by blockID from 1
+     * @return the expression values indexed by blockID - 1, as from ExpressionTree.eval
+     */
+    public double[][] evaluateBlocks(String[] columnHeaders, Map<Integer, MassSpecOutputBlockRecordLite> blocksDataLite) {
+        int[] columnIndices = resolveColumns(columnHeaders);
+        double[][] retVal = new double[blocksDataLite.size()][];
+        blocksDataLite.entrySet().parallelStream().forEach(entry ->
+                retVal[entry.getKey() - 1] = evaluateBlock(entry.getValue().cycleData(), columnIndices));
+        return retVal;
+    }
+
+    public int getInstructionCount() {
+        return opCodes.length;
+    }
+
+    private static final class ProgramBuilder {
+        private final List<Integer> opCodes = new ArrayList<>();
+        private final List<Integer> operands = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final List<String> columnNames = new ArrayList<>();
+        private int stackDepth;
+        private int maxStackDepth;
+
+        private void push(int opCode, int operand) {
+            opCodes.add(opCode);
+            operands.add(operand);
+        }
+
+        private boolean emit(ExpressionTreeInterface node) {
+            boolean retVal = true;
+            if (node instanceof ConstantNode constantNode) {
+                constants.add(constantNode.getValue());
+                push(LOAD_CONSTANT, constants.size() - 1);
+                stackDepth++;
+            } else if (node instanceof UserFunctionNode userFunctionNode) {
+                // getValue is always bracketed, as UserFunctionNode.eval strips it
+                String bracketedName = userFunctionNode.getValue();
+                String columnName = bracketedName.substring(1, bracketedName.length() - 1);
+                int column = columnNames.indexOf(columnName);
+                if (0 > column) {
+                    columnNames.add(columnName);
+                    column = columnNames.size() - 1;
+                }
+                push(LOAD_COLUMN, column);
+                stackDepth++;
+            } else if ((node instanceof ExpressionTree expressionTree)
+                    && (null != expressionTree.rootOperator) && (0 <= opCodeOf(expressionTree.rootOperator))) {
+                boolean singleArg = expressionTree.rootOperator.isSingleArg();
+                retVal = emit(expressionTree.leftChildET) && (singleArg || emit(expressionTree.rightChildET));
+                push(opCodeOf(expressionTree.rootOperator), -1);
+                stackDepth -= singleArg ? 0 : 1;
+            } else {
+                retVal = false;
+            }
+            maxStackDepth = Math.max(maxStackDepth, stackDepth);
+            return retVal;
+        }
+
+        private CompiledExpression build() {
+            return new CompiledExpression(opCodes, operands, constants, columnNames, maxStackDepth);
+        }
+    }
+}
@@ -20,8 +20,10 @@ import org.cirdles.tripoli.constants.TripoliConstants;
 import org.cirdles.tripoli.expressions.expressionTrees.ExpressionTreeInterface;
 import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.AnalysisStatsEngine;
 import org.cirdles.tripoli.sessions.analysis.AnalysisStatsRecord;
 import org.cirdles.tripoli.sessions.analysis.BlockStatsRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.Serial;
@@ -51,6 +53,7 @@ public class UserFunction implements Comparable<UserFunction>, Serializable {
     private AnalysisStatsRecord analysisStatsRecord;
     private ExpressionTreeInterface customExpression;
     private Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord = new TreeMap<>();
+    private transient AnalysisStatsEngine analysisStatsEngine;
 
     public UserFunction(String name, int columnIndex) {
         this(name, columnIndex, false, true);
@@ -109,13 +112,19 @@ public class UserFunction implements Comparable<UserFunction>, Serializable {
             treatAsIsotopicRatio = testRatioStatus();
         }
 
-        analysisStatsRecord = generateAnalysisStatsRecord(generateAnalysisBlockStatsRecords(this, mapBlockIdToBlockCyclesRecord));
+        if (null == analysisStatsEngine) {
+            analysisStatsEngine = new AnalysisStatsEngine();
+        }
+        analysisStatsRecord = analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, treatAsIsotopicRatio, inverted);
         for (int i = 0; i < analysisStatsRecord.blockStatsRecords().length; i++) {
             BlockStatsRecord blockStatsRecord = analysisStatsRecord.blockStatsRecords()[i];
             int blockID = blockStatsRecord.blockID();
             boolean[] cyclesIncluded = blockStatsRecord.cyclesIncluded();
-            analysis.getMapOfBlockIdToRawDataLiteOne().put(blockID,
-                    analysis.getMapOfBlockIdToRawDataLiteOne().get(blockID).updateIncludedCycles(this, cyclesIncluded));
+            SingleBlockRawDataLiteSetRecord singleBlockRawDataLiteSetRecord = analysis.getMapOfBlockIdToRawDataLiteOne().get(blockID);
+            if (!singleBlockRawDataLiteSetRecord.matchesIncludedCycles(this, cyclesIncluded)) {
+                analysis.getMapOfBlockIdToRawDataLiteOne().put(blockID,
+                        singleBlockRawDataLiteSetRecord.updateIncludedCycles(this, cyclesIncluded));
+            }
         }
         return analysisStatsRecord;
     }
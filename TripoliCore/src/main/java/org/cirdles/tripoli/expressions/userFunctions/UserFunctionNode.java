@@ -39,7 +39,6 @@ public class UserFunctionNode extends ExpressionTree {
     }
 
     public Double[][] eval(AnalysisInterface analysis) {
-        AllBlockInitForDataLiteOne.initBlockModels(analysis);
         List<UserFunction> ufList = analysis.getUserFunctions();
 
         Optional<UserFunction> maybeUserFunction = ufList.stream()
@@ -51,6 +50,10 @@ public class UserFunctionNode extends ExpressionTree {
         }
 
         UserFunction targetFunction = maybeUserFunction.get();
+        // initBlockModels only fills user functions that have no block cycles yet
+        if (targetFunction.getMapBlockIdToBlockCyclesRecord().isEmpty()) {
+            AllBlockInitForDataLiteOne.initBlockModels(analysis);
+        }
         Map<Integer, PlotBlockCyclesRecord> cycleRecordMap = targetFunction.getMapBlockIdToBlockCyclesRecord();
 
         Double[][] retVal = new Double[cycleRecordMap.size()][];
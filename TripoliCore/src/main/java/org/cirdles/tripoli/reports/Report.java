@@ -254,7 +254,17 @@ public class Report implements Serializable, Comparable<Report> {
         File reportCSVFile =
                 (forTesting ? getReportCSVFileForTesting(listOfAnalyses, sessionName)
                         : getReportCSVFile(listOfAnalyses, sessionName));
+        return generateCSVFile(listOfAnalyses, reportCSVFile);
+    }
 
+    /**
+     * Generates a CSV output at the given location, as for generateCSVFile(listOfAnalyses, sessionName, forTesting).
+     *
+     * @param listOfAnalyses List of all loaded analyses
+     * @param reportCSVFile  where to write the report
+     * @return File of the created CSV. Null if process failed.
+     */
+    public File generateCSVFile(List<AnalysisInterface> listOfAnalyses, File reportCSVFile) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportCSVFile))) {
             Set<ReportCategory> categories = this.getCategories().stream()
                     .filter(ReportCategory::isVisible)
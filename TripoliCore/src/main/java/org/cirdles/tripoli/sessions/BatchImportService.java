@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions;
+
+import jakarta.xml.bind.JAXBException;
+import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import org.cirdles.tripoli.sessions.analysis.Analysis;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
+import org.cirdles.tripoli.utilities.callbacks.FileImportCallbackInterface;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports a batch of mass spectrometer data files into a session on a bounded pool.  Each file is parsed and its
+ * blocks initialised on a worker thread, and a file that fails, including one of a format Tripoli does not
+ * recognise, is reported and skipped without stopping the others.  Once every file is done, the analyses are put
+ * into the session together, in the order of the files, so that the session never shows part of a batch; an
+ * analysis whose name is taken is renamed rather than replacing the other.
+ *
+ * @author James F. Bowring
+ */
+public class BatchImportService implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    public static final String UNRECOGNIZED_FORMAT_MESSAGE = "Tripoli does not recognize this file format.";
+
+    private final ExecutorService executorService;
+
+    public BatchImportService(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        executorService = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "Tripoli-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Parses one data file into a new analysis and initialises its blocks, without adding it to the session.
+     *
+     * @param session    supplies the defaults of the analysis
+     * @param dataFile
+     * @return
+     * @throws TripoliException if the format is not recognised
+     */
+    public static AnalysisInterface importFile(Session session, Path dataFile)
+            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, JAXBException, TripoliException {
+        // the probe reads only the head of the file, and an unknown format cannot be set up as an analysis
+        MassSpectrometerContextEnum massSpectrometerContext = AnalysisInterface.determineMassSpectrometerContextFromDataFile(dataFile);
+        if (0 == massSpectrometerContext.compareTo(MassSpectrometerContextEnum.UNKNOWN)) {
+            throw new TripoliException(UNRECOGNIZED_FORMAT_MESSAGE);
+        }
+        AnalysisInterface analysis = AnalysisInterface.initializeNewAnalysis(0);
+        String analysisName = analysis.extractMassSpecDataFromPath(dataFile, massSpectrometerContext);
+        analysis.setAnalysisName(analysisName);
+        analysis.setAnalysisStartTime(analysis.getMassSpecExtractedData().getHeader().analysisStartTime());
+        if (analysis instanceof Analysis) {
+            // here rather than when it is put into the session, so that its user function statistics use them
+            ((Analysis) analysis).initializeDefaultsFromSessionDefaults(session);
+        }
+        // full-data (MCMC) formats carry no DataLite blocks to initialise
+        if (!analysis.getMassSpecExtractedData().getBlocksDataLite().isEmpty()) {
+            AllBlockInitForDataLiteOne.initBlockModels(analysis);
+        }
+        return analysis;
+    }
+
+    /**
+     * Imports the files and waits for the batch.
+     *
+     * @param session
+     * @param dataFiles
+     * @param fileImportCallbackInterface may be null
+     * @return
+     * @throws TripoliException if interrupted, leaving the session unchanged
+     */
+    public BatchImportRecord importFiles(
+            Session session, List<Path> dataFiles, FileImportCallbackInterface fileImportCallbackInterface) throws TripoliException {
+        try {
+            return importFilesAsync(session, dataFiles, fileImportCallbackInterface).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TripoliException("Batch import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new TripoliException("Batch import failed", e.getCause());
+        }
+    }
+
+    /**
+     * Imports the files without waiting; the future completes on a worker thread once the analyses are in the session.
+     *
+     * @param session
+     * @param dataFiles
+     * @param fileImportCallbackInterface may be null
+     * @return
+     */
+    public CompletableFuture<BatchImportRecord> importFilesAsync(
+            Session session, List<Path> dataFiles, FileImportCallbackInterface fileImportCallbackInterface) {
+        FileImportCallbackInterface callback = (null == fileImportCallbackInterface)
+                ? (dataFile, analysis, countOfFilesDone, countOfFiles) -> {
+        } : fileImportCallbackInterface;
+        List<Path> files = List.copyOf(dataFiles);
+        int countOfFiles = files.size();
+        AnalysisInterface[] analyses = new AnalysisInterface[countOfFiles];
+        Throwable[] failures = new Throwable[countOfFiles];
+        AtomicInteger countOfFilesDone = new AtomicInteger(0);
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[countOfFiles];
+        for (int fileIndex = 0; fileIndex < countOfFiles; fileIndex++) {
+            int index = fileIndex;
+            Path dataFile = files.get(index);
+            futures[index] = CompletableFuture.runAsync(() -> {
+                callback.fileStarted(dataFile);
+                try {
+                    analyses[index] = importFile(session, dataFile);
+                } catch (InvocationTargetException e) {
+                    failures[index] = e.getCause();
+                } catch (Exception e) {
+                    failures[index] = e;
+                }
+                if (null == failures[index]) {
+                    callback.fileImported(dataFile, analyses[index], countOfFilesDone.incrementAndGet(), countOfFiles);
+                } else {
+                    callback.fileFailed(dataFile, failures[index], countOfFilesDone.incrementAndGet(), countOfFiles);
+                }
+            }, executorService);
+        }
+
+        return CompletableFuture.allOf(futures).thenApply(ignored -> {
+            List<AnalysisInterface> importedAnalyses = new ArrayList<>();
+            Map<Path, Throwable> mapOfFilesToFailures = new LinkedHashMap<>();
+            for (int index = 0; index < countOfFiles; index++) {
+                if (null == failures[index]) {
+                    importedAnalyses.add(analyses[index]);
+                } else {
+                    mapOfFilesToFailures.put(files.get(index), failures[index]);
+                }
+            }
+            session.putAnalyses(importedAnalyses);
+            return new BatchImportRecord(List.copyOf(importedAnalyses), Collections.unmodifiableMap(mapOfFilesToFailures));
+        });
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * @param importedAnalyses     in the order of their files
+     * @param mapOfFilesToFailures in the order of the files
+     */
+    public record BatchImportRecord(
+            List<AnalysisInterface> importedAnalyses,
+            Map<Path, Throwable> mapOfFilesToFailures
+    ) {
+        /**
+         * @return one line per failed file, naming the file and the failure
+         */
+        public String prettyPrintFailures() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<Path, Throwable> entry : mapOfFilesToFailures.entrySet()) {
+                sb.append(entry.getKey().getFileName()).append(": ").append(entry.getValue().getMessage()).append("\n");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions;
+
+import jakarta.xml.bind.JAXBException;
+import org.cirdles.tripoli.expressions.species.IsotopicRatio;
+import org.cirdles.tripoli.plots.PlotBuilder;
+import org.cirdles.tripoli.reports.Report;
+import org.cirdles.tripoli.sessions.analysis.Analysis;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCBlockMetrics;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCBlockScheduler;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCMetricsRegistry;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
+import org.cirdles.tripoli.sessions.analysis.outputs.etRedux.ETReduxFraction;
+import org.cirdles.tripoli.utilities.IntuitiveStringComparator;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Reduces a batch of data files without the GUI, for unattended runs such as on a compute server.  The files are
+ * imported concurrently, which computes the DataLite statistics of each analysis; when MCMC is requested, the
+ * blocks of every full-data analysis are then run together on one MCMC pool.  The saved Report templates of each
+ * method, or a full report for a method without any, are written as CSV to the output folder, along with an
+ * ET_Redux fraction for each DataLite analysis and the final block models of each MCMC analysis, with the timing,
+ * acceptance and convergence metrics of every MCMC block.  One thread
+ * budget bounds both the import and the MCMC pools, and the wall time of each stage is summarised at the end.
+ * A file or block that fails is reported and skipped without stopping the batch.
+ *
+ * @author James F. Bowring
+ */
+public class BatchReductionRunner {
+
+    public static final String USAGE = """
+            Usage: BatchReductionRunner [options] <data folder or file>...
+              --method <file.TIMSAM>  analysis method for the full-data analyses
+              --out <folder>          output folder; defaults to the folder of the first data file
+              --threads <n>           thread budget; defaults to one less than the processor count
+              --mcmc                  run the per-block MCMC of the full-data analyses
+              --seed <long>           base seed for reproducible MCMC chains
+              --session <name>        session name used in the output file names
+            """;
+
+    private final BatchReductionOptions options;
+    private final List<StageTimingRecord> stageTimings = new ArrayList<>();
+    private final Map<String, Throwable> mapOfItemsToFailures = new LinkedHashMap<>();
+    private final List<File> writtenFiles = new ArrayList<>();
+    private List<MCMCBlockMetrics> mcmcBlocksMetrics = new ArrayList<>();
+
+    public BatchReductionRunner(BatchReductionOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        BatchReductionOptions options = null;
+        try {
+            options = BatchReductionOptions.parse(args);
+        } catch (TripoliException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        int exitStatus;
+        try {
+            BatchReductionRecord batchReductionRecord = new BatchReductionRunner(options).run();
+            System.out.print(batchReductionRecord.prettyPrintSummary());
+            exitStatus = batchReductionRecord.mapOfItemsToFailures().isEmpty() ? 0 : 1;
+        } catch (TripoliException e) {
+            System.err.println(e.getMessage());
+            exitStatus = 1;
+        }
+        System.exit(exitStatus);
+    }
+
+    /**
+     * Runs the stages in turn: import, method, MCMC, reports and ET_Redux export.
+     *
+     * @return the analyses, the files written and the failures, with the timing of each stage
+     * @throws TripoliException if the output folder cannot be created or the run is interrupted
+     */
+    public BatchReductionRecord run() throws TripoliException {
+        try {
+            Files.createDirectories(options.outputFolder());
+        } catch (IOException e) {
+            throw new TripoliException("Cannot create output folder " + options.outputFolder(), e);
+        }
+        Session session = (null == options.sessionName())
+                ? Session.initializeDefaultSession() : Session.initializeSession(options.sessionName());
+
+        List<AnalysisInterface> analyses = importStage(session);
+        if (null != options.methodFile()) {
+            methodStage(analyses);
+        }
+        List<AnalysisInterface> mcmcAnalyses = options.runMCMC() ? mcmcStage(analyses) : new ArrayList<>();
+        reportStage(session.getSessionName(), analyses, mcmcAnalyses);
+        exportStage(analyses);
+
+        return new BatchReductionRecord(List.copyOf(analyses), List.copyOf(writtenFiles),
+                Collections.unmodifiableMap(mapOfItemsToFailures), List.copyOf(stageTimings));
+    }
+
+    private List<AnalysisInterface> importStage(Session session) throws TripoliException {
+        long startNanos = System.nanoTime();
+        BatchImportService.BatchImportRecord batchImportRecord;
+        try (BatchImportService batchImportService = new BatchImportService(options.threadBudget())) {
+            batchImportRecord = batchImportService.importFiles(session, options.dataFiles(), null);
+        }
+        for (Map.Entry<Path, Throwable> entry : batchImportRecord.mapOfFilesToFailures().entrySet()) {
+            mapOfItemsToFailures.put(entry.getKey().getFileName().toString(), entry.getValue());
+        }
+        stageTimings.add(new StageTimingRecord("Import", options.dataFiles().size(), System.nanoTime() - startNanos));
+        return new ArrayList<>(batchImportRecord.importedAnalyses());
+    }
+
+    /**
+     * Replaces the method of each full-data analysis with the one given, as does selecting a method file in the GUI.
+     */
+    private void methodStage(List<AnalysisInterface> analyses) {
+        long startNanos = System.nanoTime();
+        int countOfAnalyses = 0;
+        Iterator<AnalysisInterface> analysisIterator = analyses.iterator();
+        while (analysisIterator.hasNext()) {
+            AnalysisInterface analysis = analysisIterator.next();
+            if (analysis.getAnalysisCaseNumber() > 1) {
+                try {
+                    analysis.setMethod(analysis.extractAnalysisMethodfromPath(options.methodFile()));
+                    ((Analysis) analysis).initializeBlockProcessing();
+                    countOfAnalyses++;
+                } catch (JAXBException e) {
+                    mapOfItemsToFailures.put(analysis.getAnalysisName(), e);
+                    analysisIterator.remove();
+                }
+            }
+        }
+        stageTimings.add(new StageTimingRecord("Method", countOfAnalyses, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Submits the blocks of all full-data analyses before waiting on any, so that the pool stays busy across
+     * analyses of different sizes.
+     *
+     * @return the analyses whose blocks were run
+     */
+    private List<AnalysisInterface> mcmcStage(List<AnalysisInterface> analyses) throws TripoliException {
+        long startNanos = System.nanoTime();
+        int countOfBlocks = 0;
+        Map<AnalysisInterface, Map<Integer, Future<PlotBuilder[][]>>> mapOfAnalysesToBlockFutures = new LinkedHashMap<>();
+        // the runner owns its process, so the registry then holds just the blocks of this stage
+        MCMCMetricsRegistry.clear();
+        try (MCMCBlockScheduler mcmcBlockScheduler = new MCMCBlockScheduler(options.threadBudget())) {
+            for (AnalysisInterface analysis : analyses) {
+                if (analysis.getAnalysisCaseNumber() > 1) {
+                    if (null == analysis.getAnalysisMethod()) {
+                        mapOfItemsToFailures.put(analysis.getAnalysisName(),
+                                new TripoliException("No analysis method found for MCMC; supply one with --method"));
+                    } else {
+                        Map<Integer, Future<PlotBuilder[][]>> mapOfBlockIdToFuture = new TreeMap<>();
+                        for (Integer blockID : MCMCBlockScheduler.findBlocksToRun(analysis)) {
+                            mapOfBlockIdToFuture.put(blockID,
+                                    mcmcBlockScheduler.submitBlock(analysis, blockID, options.mcmcSeed(), null));
+                        }
+                        countOfBlocks += mapOfBlockIdToFuture.size();
+                        mapOfAnalysesToBlockFutures.put(analysis, mapOfBlockIdToFuture);
+                    }
+                }
+            }
+
+            for (Map.Entry<AnalysisInterface, Map<Integer, Future<PlotBuilder[][]>>> entry : mapOfAnalysesToBlockFutures.entrySet()) {
+                for (Map.Entry<Integer, Future<PlotBuilder[][]>> blockEntry : entry.getValue().entrySet()) {
+                    try {
+                        blockEntry.getValue().get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new TripoliException("Batch reduction interrupted", e);
+                    } catch (ExecutionException e) {
+                        mapOfItemsToFailures.put(entry.getKey().getAnalysisName() + " BLOCK # " + blockEntry.getKey(), e.getCause());
+                    }
+                }
+            }
+        }
+        mcmcBlocksMetrics = MCMCMetricsRegistry.getCompletedBlocks();
+        stageTimings.add(new StageTimingRecord("MCMC", countOfBlocks, System.nanoTime() - startNanos));
+        return new ArrayList<>(mapOfAnalysesToBlockFutures.keySet());
+    }
+
+    private void reportStage(String sessionName, List<AnalysisInterface> analyses, List<AnalysisInterface> mcmcAnalyses) {
+        long startNanos = System.nanoTime();
+        int countOfFilesBefore = writtenFiles.size();
+
+        Map<String, List<AnalysisInterface>> mapOfMethodNamesToAnalyses = new TreeMap<>();
+        for (AnalysisInterface analysis : analyses) {
+            if (isDataLite(analysis)) {
+                mapOfMethodNamesToAnalyses.computeIfAbsent(analysis.getMethod().getMethodName(), k -> new ArrayList<>()).add(analysis);
+            }
+        }
+        for (Map.Entry<String, List<AnalysisInterface>> entry : mapOfMethodNamesToAnalyses.entrySet()) {
+            List<Report> reports = Report.getReportList(entry.getKey());
+            if (reports.isEmpty()) {
+                reports = List.of(Report.createFullReport("Full Report", entry.getValue().get(0)));
+            }
+            for (Report report : reports) {
+                File reportCSVFile = outputPath(sessionName, entry.getKey(), report.getReportName(), "report.csv").toFile();
+                if (null == report.generateCSVFile(entry.getValue(), reportCSVFile)) {
+                    mapOfItemsToFailures.put(reportCSVFile.getName(), new TripoliException("Report could not be written"));
+                } else {
+                    writtenFiles.add(reportCSVFile);
+                }
+            }
+        }
+
+        for (AnalysisInterface analysis : mcmcAnalyses) {
+            Path modelsPath = outputPath(sessionName, analysis.getAnalysisName(), "MCMCBlockModels.csv");
+            try {
+                writeMCMCBlockModels(analysis, modelsPath);
+                writtenFiles.add(modelsPath.toFile());
+            } catch (IOException e) {
+                mapOfItemsToFailures.put(modelsPath.getFileName().toString(), e);
+            }
+        }
+        if (!mcmcBlocksMetrics.isEmpty()) {
+            Path metricsPath = outputPath(sessionName, "MCMCMetrics.csv");
+            try {
+                MCMCMetricsRegistry.writeCSV(mcmcBlocksMetrics, metricsPath);
+                writtenFiles.add(metricsPath.toFile());
+            } catch (IOException e) {
+                mapOfItemsToFailures.put(metricsPath.getFileName().toString(), e);
+            }
+        }
+        stageTimings.add(new StageTimingRecord("Reports", writtenFiles.size() - countOfFilesBefore, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * One row per block holding the ratios of its final MCMC model.
+     */
+    private void writeMCMCBlockModels(AnalysisInterface analysis, Path modelsPath) throws IOException {
+        List<IsotopicRatio> isotopicRatios = analysis.getAnalysisMethod().getIsotopicRatiosList();
+        try (BufferedWriter writer = Files.newBufferedWriter(modelsPath)) {
+            StringJoiner header = new StringJoiner(",");
+            header.add("Block");
+            isotopicRatios.forEach(ratio -> header.add(ratio.prettyPrint()));
+            writer.write(header.toString());
+            writer.newLine();
+            for (Map.Entry<Integer, SingleBlockModelRecord> entry : analysis.getMapOfBlockIdToFinalModel().entrySet()) {
+                SingleBlockModelRecord singleBlockModelRecord = entry.getValue();
+                if (null != singleBlockModelRecord) {
+                    StringJoiner row = new StringJoiner(",");
+                    row.add(String.valueOf(entry.getKey()));
+                    double[] logRatios = singleBlockModelRecord.logRatios();
+                    for (int ratioIndex = 0; ratioIndex < Math.min(logRatios.length, isotopicRatios.size()); ratioIndex++) {
+                        row.add(String.valueOf(StrictMath.exp(logRatios[ratioIndex])));
+                    }
+                    writer.write(row.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Exports one fraction at a time, as serialisation stages each fraction through a file in the working folder.
+     */
+    private void exportStage(List<AnalysisInterface> analyses) {
+        long startNanos = System.nanoTime();
+        int countOfFractions = 0;
+        for (AnalysisInterface analysis : analyses) {
+            if (isDataLite(analysis) && !analysis.getUserFunctions().isEmpty()) {
+                try {
+                    ETReduxFraction etReduxFraction = analysis.prepareFractionForETReduxExport();
+                    Path fractionPath = outputPath(etReduxFraction.getSampleName() + "_" + etReduxFraction.getFractionID()
+                            + "_" + etReduxFraction.getEtReduxExportType() + ".xml");
+                    etReduxFraction.serializeXMLObject(fractionPath.toString());
+                    writtenFiles.add(fractionPath.toFile());
+                    countOfFractions++;
+                } catch (RuntimeException e) {
+                    mapOfItemsToFailures.put(analysis.getAnalysisName() + " ET_Redux", e);
+                }
+            }
+        }
+        stageTimings.add(new StageTimingRecord("ET_Redux export", countOfFractions, System.nanoTime() - startNanos));
+    }
+
+    private static boolean isDataLite(AnalysisInterface analysis) {
+        return !analysis.getMassSpecExtractedData().getBlocksDataLite().isEmpty();
+    }
+
+    private Path outputPath(String... nameParts) {
+        String fileName = String.join("-", nameParts).replaceAll("[\\\\/:*?\"<>|]", "_");
+        return options.outputFolder().resolve(fileName);
+    }
+
+    /**
+     * @param dataFiles    in the order given, each folder expanded to its files
+     * @param methodFile   null to keep the method found on import
+     * @param outputFolder
+     * @param threadBudget bounds each of the import and MCMC pools
+     * @param runMCMC
+     * @param mcmcSeed     null to seed each chain securely
+     * @param sessionName  null for the default
+     */
+    public record BatchReductionOptions(
+            List<Path> dataFiles,
+            Path methodFile,
+            Path outputFolder,
+            int threadBudget,
+            boolean runMCMC,
+            Long mcmcSeed,
+            String sessionName
+    ) {
+        public static BatchReductionOptions parse(String[] args) throws TripoliException {
+            List<Path> dataPaths = new ArrayList<>();
+            Path methodFile = null;
+            Path outputFolder = null;
+            int threadBudget = BatchImportService.DEFAULT_PARALLELISM;
+            boolean runMCMC = false;
+            Long mcmcSeed = null;
+            String sessionName = null;
+
+            try {
+                for (int argIndex = 0; argIndex < args.length; argIndex++) {
+                    String arg = args[argIndex];
+                    switch (arg) {
+                        case "--method" -> methodFile = Path.of(optionValue(args, ++argIndex, arg));
+                        case "--out" -> outputFolder = Path.of(optionValue(args, ++argIndex, arg));
+                        case "--threads" -> threadBudget = Integer.parseInt(optionValue(args, ++argIndex, arg));
+                        case "--mcmc" -> runMCMC = true;
+                        case "--seed" -> mcmcSeed = Long.parseLong(optionValue(args, ++argIndex, arg));
+                        case "--session" -> sessionName = optionValue(args, ++argIndex, arg);
+                        default -> {
+                            if (arg.startsWith("--")) {
+                                throw new TripoliException("Unknown option: " + arg);
+                            }
+                            dataPaths.add(Path.of(arg));
+                        }
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new TripoliException("Not a number: " + e.getMessage());
+            }
+
+            if (1 > threadBudget) {
+                throw new TripoliException("The thread budget must be at least 1");
+            }
+            if ((null != methodFile) && !Files.isRegularFile(methodFile)) {
+                throw new TripoliException("No such method file: " + methodFile);
+            }
+            List<Path> dataFiles = expandDataPaths(dataPaths);
+            if (dataFiles.isEmpty()) {
+                throw new TripoliException("No data files given");
+            }
+            if (null == outputFolder) {
+                outputFolder = dataFiles.get(0).toAbsolutePath().getParent();
+            }
+
+            return new BatchReductionOptions(
+                    List.copyOf(dataFiles), methodFile, outputFolder, threadBudget, runMCMC, mcmcSeed, sessionName);
+        }
+
+        private static String optionValue(String[] args, int argIndex, String option) throws TripoliException {
+            if (argIndex >= args.length) {
+                throw new TripoliException("Missing value for " + option);
+            }
+            return args[argIndex];
+        }
+
+        /**
+         * @param dataPaths files and folders; the visible files of a folder are taken in intuitive name order
+         * @return the data files
+         * @throws TripoliException if a path does not exist or a folder cannot be listed
+         */
+        static List<Path> expandDataPaths(List<Path> dataPaths) throws TripoliException {
+            IntuitiveStringComparator<String> intuitiveStringComparator = new IntuitiveStringComparator<>();
+            List<Path> dataFiles = new ArrayList<>();
+            for (Path dataPath : dataPaths) {
+                if (Files.isDirectory(dataPath)) {
+                    try (Stream<Path> folderPaths = Files.list(dataPath)) {
+                        folderPaths
+                                .filter(Files::isRegularFile)
+                                .filter(path -> !path.getFileName().toString().startsWith("."))
+                                .sorted((path1, path2) -> intuitiveStringComparator.compare(
+                                        path1.getFileName().toString(), path2.getFileName().toString()))
+                                .forEach(dataFiles::add);
+                    } catch (IOException e) {
+                        throw new TripoliException("Cannot list data folder " + dataPath, e);
+                    }
+                } else if (Files.isRegularFile(dataPath)) {
+                    dataFiles.add(dataPath);
+                } else {
+                    throw new TripoliException("No such data file or folder: " + dataPath);
+                }
+            }
+            return dataFiles;
+        }
+    }
+
+    /**
+     * @param stageName
+     * @param countOfItems files, blocks or outputs handled by the stage
+     * @param elapsedNanos wall time of the stage
+     */
+    public record StageTimingRecord(
+            String stageName,
+            int countOfItems,
+            long elapsedNanos
+    ) {
+    }
+
+    /**
+     * @param analyses             imported, in the order of their files
+     * @param writtenFiles
+     * @param mapOfItemsToFailures keyed by file, analysis or block
+     * @param stageTimings         in the order the stages ran
+     */
+    public record BatchReductionRecord(
+            List<AnalysisInterface> analyses,
+            List<File> writtenFiles,
+            Map<String, Throwable> mapOfItemsToFailures,
+            List<StageTimingRecord> stageTimings
+    ) {
+        public String prettyPrintTimingSummary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-18s%8s%12s%n", "Stage", "Items", "Seconds"));
+            long totalNanos = 0;
+            for (StageTimingRecord stageTiming : stageTimings) {
+                sb.append(String.format("%-18s%8d%12.3f%n",
+                        stageTiming.stageName(), stageTiming.countOfItems(), stageTiming.elapsedNanos() / 1.0e9));
+                totalNanos += stageTiming.elapsedNanos();
+            }
+            sb.append(String.format("%-18s%8s%12.3f%n", "Total", "", totalNanos / 1.0e9));
+            return sb.toString();
+        }
+
+        public String prettyPrintSummary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Reduced ").append(analyses.size()).append(" analyses into ").append(writtenFiles.size()).append(" files\n");
+            for (File writtenFile : writtenFiles) {
+                sb.append("\t").append(writtenFile.getPath()).append("\n");
+            }
+            if (!mapOfItemsToFailures.isEmpty()) {
+                sb.append("Failures:\n");
+                for (Map.Entry<String, Throwable> entry : mapOfItemsToFailures.entrySet()) {
+                    sb.append("\t").append(entry.getKey()).append(": ").append(entry.getValue().getMessage()).append("\n");
+                }
+            }
+            sb.append(prettyPrintTimingSummary());
+            return sb.toString();
+        }
+    }
+}
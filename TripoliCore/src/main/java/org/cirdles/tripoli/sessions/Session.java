@@ -27,6 +27,8 @@ import org.cirdles.tripoli.utilities.stateUtilities.TripoliPersistentState;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -123,6 +125,30 @@ public class Session implements Serializable {
         }
     }
 
+    /**
+     * Puts the analyses into the session in one step, so that readers of the map see all of them or none.  An
+     * analysis whose name is already taken, in the session or earlier in the batch, is renamed name-2, name-3, and
+     * so on, rather than replacing the other.
+     *
+     * @param analyses with the session defaults already applied, as by BatchImportService
+     */
+    public void putAnalyses(Collection<AnalysisInterface> analyses) {
+        Map<String, AnalysisInterface> mapOfNamesToAnalyses = new LinkedHashMap<>();
+        synchronized (mapOfAnalyses) {
+            for (AnalysisInterface analysis : analyses) {
+                String analysisName = analysis.getAnalysisName();
+                int analysisNumber = 1;
+                while (mapOfAnalyses.containsKey(analysisName) || mapOfNamesToAnalyses.containsKey(analysisName)) {
+                    analysisNumber++;
+                    analysisName = analysis.getAnalysisName() + "-" + analysisNumber;
+                }
+                analysis.setAnalysisName(analysisName);
+                mapOfNamesToAnalyses.put(analysisName, analysis);
+            }
+            mapOfAnalyses.putAllInitialized(mapOfNamesToAnalyses);
+        }
+    }
+
     public String getSessionName() {
         return sessionName;
     }
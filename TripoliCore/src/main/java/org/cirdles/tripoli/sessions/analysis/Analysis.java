@@ -37,12 +37,15 @@ import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsemblesStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockDataModelPlotter;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelDriver;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.peakShapes.PeakShapeService;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.peakShapes.SingleBlockPeakDriver;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecFileFormatProbe;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.DetectorSetupBuiltinModelFactory;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethodBuiltinFactory;
@@ -60,10 +63,10 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -93,7 +96,8 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
     private static final long serialVersionUID = 5737165372498262402L;
     // suppresses variables for testing
     public static boolean suppressContents = true;
-    private final Map<Integer, PlotBuilder[][]> mapOfBlockIdToPlots = Collections.synchronizedSortedMap(new TreeMap<>());
+    // derived from the ensembles, final models and raw data of each block, so rebuilt after reading rather than stored
+    private transient Map<Integer, PlotBuilder[][]> mapOfBlockIdToPlots = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, PlotBuilder[]> mapOfBlockIdToPeakPlots = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, String> mapOfBlockToLogs = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, Integer> mapOfBlockIdToProcessStatus = Collections.synchronizedSortedMap(new TreeMap<>());
@@ -311,17 +315,23 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
 
     public String extractMassSpecDataFromPath(Path dataFilePath)
             throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, JAXBException, TripoliException {
-        String extractedAnalysisName;
         dataFilePathString = dataFilePath.toString();
-        MassSpectrometerContextEnum massSpectrometerContext = AnalysisInterface.determineMassSpectrometerContextFromDataFile(dataFilePath);
-        if (0 != massSpectrometerContext.compareTo(UNKNOWN)) {
-            Class<?> clazz = massSpectrometerContext.getClazz();
-            Method method = clazz.getMethod(massSpectrometerContext.getMethodName(), Path.class);
-            massSpecExtractedData = (MassSpecExtractedData) method.invoke(null, dataFilePath);
-        } else {
-            massSpecExtractedData = new MassSpecExtractedData();
-        }
-        massSpecExtractedData.setMassSpectrometerContext(massSpectrometerContext);
+        // probes the head of the file and parses it in the same pass
+        massSpecExtractedData = MassSpecFileFormatProbe.extractMassSpecData(dataFilePath);
+        return processExtractedMassSpecData(dataFilePath);
+    }
+
+    public String extractMassSpecDataFromPath(Path dataFilePath, MassSpectrometerContextEnum massSpectrometerContext)
+            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, JAXBException, TripoliException {
+        dataFilePathString = dataFilePath.toString();
+        massSpecExtractedData = MassSpecFileFormatProbe.extractMassSpecData(dataFilePath, massSpectrometerContext);
+        return processExtractedMassSpecData(dataFilePath);
+    }
+
+    private String processExtractedMassSpecData(Path dataFilePath)
+            throws JAXBException, TripoliException {
+        String extractedAnalysisName;
+        MassSpectrometerContextEnum massSpectrometerContext = massSpecExtractedData.getMassSpectrometerContext();
 
         if (massSpectrometerContext.getCaseNumber() > 1) {
             // TODO: remove this temp hack for synthetic demos
@@ -475,6 +485,10 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
 
 
     public PlotBuilder[][] updatePlotsByBlock(int blockID, LoggingCallbackInterface loggingCallback) throws TripoliException {
+        return updatePlotsByBlock(blockID, loggingCallback, null);
+    }
+
+    public PlotBuilder[][] updatePlotsByBlock(int blockID, LoggingCallbackInterface loggingCallback, Long mcmcSeed) throws TripoliException {
         PlotBuilder[][] retVal = new PlotBuilder[0][];
         if (RUN == mapOfBlockIdToProcessStatus.get(blockID)) {
             mapOfBlockIdToPlots.remove(blockID);
@@ -484,7 +498,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
             loggingCallback.receiveLoggingSnippet("1000 >%");
         } else {
             PlotBuilder[][] plotBuilders;
-            plotBuilders = SingleBlockModelDriver.buildAndRunModelForSingleBlock(blockID, this, loggingCallback);
+            plotBuilders = SingleBlockModelDriver.buildAndRunModelForSingleBlock(blockID, this, loggingCallback, mcmcSeed);
             mapOfBlockIdToPlots.put(blockID, plotBuilders);
             mapOfBlockIdToProcessStatus.put(blockID, SHOW);
             retVal = mapOfBlockIdToPlots.get(blockID);
@@ -496,7 +510,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
         // PlotBuilder indices for convergence LinePlotBuilders = 5,6,8,9
         // TODO: make these indices into constants
         // PlotBuilder indices for convergence MultiLinePlotBuilders = 10
-        PlotBuilder[][] plotBuilders = mapOfBlockIdToPlots.get(blockID);
+        PlotBuilder[][] plotBuilders = getMapOfBlockIdToPlots().get(blockID);
         if (null != plotBuilders) {
             updatePlotBuildersWithShades(plotBuilders[5], shadeWidth);
             updatePlotBuildersWithShades(plotBuilders[6], shadeWidth);
@@ -512,6 +526,17 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
         }
     }
 
+    /**
+     * Starts fitting the peak centre files of every block without waiting, so that reviewing any block finds its
+     * peak shapes ready.
+     */
+    @Override
+    public void fitPeakShapesInBackground() {
+        if (!blockPeakGroups.isEmpty()) {
+            PeakShapeService.fitAllBlocksInBackground(blockPeakGroups);
+        }
+    }
+
     @Override
     public PlotBuilder[] updatePeakPlotsByBlock(int blockID) throws TripoliException {
         PlotBuilder[] retVal;
@@ -534,7 +559,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
      * @param displayed            boolean
      */
     public void updateRatiosPlotBuilderDisplayStatus(int indexOfIsotopicRatio, boolean displayed) {
-        for (Integer blockID : mapOfBlockIdToPlots.keySet()) {
+        for (Integer blockID : getMapOfBlockIdToPlots().keySet()) {
             PlotBuilder[] plotBuilder = mapOfBlockIdToPlots.get(blockID)[PLOT_INDEX_RATIOS];
             if (null != plotBuilder[indexOfIsotopicRatio]) {
                 plotBuilder[indexOfIsotopicRatio].setDisplayed(displayed);
@@ -669,7 +694,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
 
     public void analysisRatioEngine() {
         Map<IsotopicRatio, List<HistogramRecord>> mapRatioToAnalysisLogRatioRecords = new TreeMap<>();
-        for (Map.Entry<Integer, PlotBuilder[][]> entry : mapOfBlockIdToPlots.entrySet()) {
+        for (Map.Entry<Integer, PlotBuilder[][]> entry : getMapOfBlockIdToPlots().entrySet()) {
             if (SHOW == mapOfBlockIdToProcessStatus.get(entry.getKey())) {
                 PlotBuilder[] ratiosPlotBuilder = entry.getValue()[PLOT_INDEX_RATIOS];
                 for (PlotBuilder ratioPlotBuilder : ratiosPlotBuilder) {
@@ -993,6 +1018,47 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable<Ana
         return mapOfBlockIdToPlots;
     }
 
+    /**
+     * Rebuilds the plots of every block whose ensembles were read with this analysis; called by the session loader
+     * once the analysis is read, as the plots are not stored.  The ratio inversion choices, which plotting resets,
+     * are kept.
+     *
+     * @return the blocks that could not be replotted, each returned to RUN
+     */
+    public List<Integer> rebuildPlots() {
+        List<Integer> blockIDsNotReplotted = new ArrayList<>();
+        synchronized (mapOfBlockIdToPlots) {
+            Map<String, Boolean> ratioNamesToInvertedFlag = (null == analysisMethod)
+                    ? new HashMap<>() : new HashMap<>(analysisMethod.getMapOfRatioNamesToInvertedFlag());
+            for (Integer blockID : new ArrayList<>(mapBlockIDToEnsembles.keySet())) {
+                List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = mapBlockIDToEnsembles.get(blockID);
+                if ((null != analysisMethod) && (null != ensembleRecordsList) && !ensembleRecordsList.isEmpty()
+                        && (null != mapOfBlockIdToFinalModel.get(blockID)) && (null != mapOfBlockIdToRawData.get(blockID))
+                        && (null != mapOfBlockIdToModelsBurnCount.get(blockID))) {
+                    try {
+                        SingleBlockDataModelPlotter.analysisAndPlotting(blockID, this);
+                    } catch (RuntimeException e) {
+                        blockIDsNotReplotted.add(blockID);
+                        mapOfBlockIdToPlots.remove(blockID);
+                        if (SHOW == mapOfBlockIdToProcessStatus.get(blockID)) {
+                            mapOfBlockIdToProcessStatus.put(blockID, RUN);
+                        }
+                    }
+                }
+            }
+            if (null != analysisMethod) {
+                analysisMethod.getMapOfRatioNamesToInvertedFlag().putAll(ratioNamesToInvertedFlag);
+            }
+        }
+        return blockIDsNotReplotted;
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        mapOfBlockIdToPlots = Collections.synchronizedSortedMap(new TreeMap<>());
+    }
+
     public Map<Integer, PlotBuilder[]> getMapOfBlockIdToPeakPlots() {
         return mapOfBlockIdToPeakPlots;
     }
@@ -17,9 +17,6 @@
 package org.cirdles.tripoli.sessions.analysis;
 
 import jakarta.xml.bind.JAXBException;
-import jxl.Workbook;
-import jxl.WorkbookSettings;
-import jxl.read.biff.BiffException;
 import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
 import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
 import org.cirdles.tripoli.parameters.Parameters;
@@ -31,6 +28,7 @@ import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.m
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecFileFormatProbe;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
 import org.cirdles.tripoli.sessions.analysis.outputs.etRedux.ETReduxFraction;
 import org.cirdles.tripoli.settings.plots.RatiosColors;
@@ -38,8 +36,6 @@ import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
@@ -70,58 +66,38 @@ public interface AnalysisInterface {
         return result;
     }
 
+    /**
+     * Reads only the head of the file; see MassSpecFileFormatProbe.
+     *
+     * @param dataFilePath
+     * @return
+     * @throws IOException
+     */
     static MassSpectrometerContextEnum determineMassSpectrometerContextFromDataFile(Path dataFilePath) throws IOException {
-        MassSpectrometerContextEnum retVal = MassSpectrometerContextEnum.UNKNOWN;
-        if (dataFilePath.toString().endsWith(".xls")) {
-
-            Workbook workbook;
-            try {
-                WorkbookSettings workbookSettings = new WorkbookSettings();
-                workbookSettings.setSuppressWarnings(true);
-                workbook = Workbook.getWorkbook(dataFilePath.toFile(), workbookSettings);
-                if (workbook.getSheet("SUMMARY").getCell(0, 0).getContents().compareToIgnoreCase("Summary Report") == 0) {
-                    retVal = MassSpectrometerContextEnum.PHOENIX_IONVANTAGE_XLS;
-                }
-            } catch (BiffException e) {
-                //throw new RuntimeException(e);
-            }
-
-        } else {
-            List<String> contentsByLine = new ArrayList<>();
-            FileReader fileReader = new FileReader(dataFilePath.toFile());
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                // for infinity symbol
-                line = line.replace("�", "");
-                contentsByLine.add(line);
-            }
-            bufferedReader.close();
-
-            for (MassSpectrometerContextEnum massSpecContext : MassSpectrometerContextEnum.values()) {
-                List<String> keyWordList = massSpecContext.getKeyWordsList();
-                boolean keywordsMatch = true;
-                for (int keyWordIndex = 0; keyWordIndex < keyWordList.size(); keyWordIndex++) {
-                    keywordsMatch = keywordsMatch && (contentsByLine.get(keyWordIndex).startsWith(keyWordList.get(keyWordIndex).trim()));
-                }
-                if (keywordsMatch) {
-                    retVal = massSpecContext;
-                    break;
-                }
-            }
-        }
-
-        return retVal;
+        return MassSpecFileFormatProbe.probe(dataFilePath);
     }
 
     String extractMassSpecDataFromPath(Path dataFilePath) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, JAXBException, TripoliException;
 
+    /**
+     * As extractMassSpecDataFromPath, for a file whose context has already been probed.
+     *
+     * @param dataFilePath
+     * @param massSpectrometerContext
+     * @return
+     */
+    String extractMassSpecDataFromPath(Path dataFilePath, MassSpectrometerContextEnum massSpectrometerContext) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, JAXBException, TripoliException;
+
     AnalysisMethod extractAnalysisMethodfromPath(Path phoenixAnalysisMethodDataFilePath) throws JAXBException;
 
     PlotBuilder[][] updatePlotsByBlock(int blockNumber, LoggingCallbackInterface loggingCallback) throws TripoliException;
 
+    PlotBuilder[][] updatePlotsByBlock(int blockNumber, LoggingCallbackInterface loggingCallback, Long mcmcSeed) throws TripoliException;
+
     PlotBuilder[] updatePeakPlotsByBlock(int blockNumber) throws TripoliException;
 
+    void fitPeakShapesInBackground();
+
     void updateRatiosPlotBuilderDisplayStatus(int indexOfIsotopicRatio, boolean displayed);
 
     String uppdateLogsByBlock(int blockNumber, String logEntry);
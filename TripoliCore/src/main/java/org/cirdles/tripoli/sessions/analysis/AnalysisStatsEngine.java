@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis;
+
+import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the statistics of each block of a user function between calls, so that a sculpt, a Chauvenet rejection or a
+ * block toggle recomputes only the blocks it touched.  A block is recomputed when its cycle data, its block or cycle
+ * inclusion, or the ratio flags change; cycle inclusion is compared by content, since plots and Chauvenet rejection
+ * update it in place.  The analysis weighted mean, MSWD and cycle-mode statistics are then combined from the
+ * per-block terms in O(blocks).
+ * <p>
+ * The block statistics and the weighted mean and MSWD are the same as those of
+ * {@link AnalysisStatsRecord#generateAnalysisStatsRecord(BlockStatsRecord[])}; the cycle-mode mean and variance are
+ * pooled from the per-block count, mean and sum of squared deviations, and agree with it to rounding.
+ *
+ * @author James F. Bowring
+ */
+public final class AnalysisStatsEngine {
+
+    private final Map<Integer, BlockStatsState> mapBlockIdToBlockStatsState = new HashMap<>();
+    private BlockStatsState[] blockStatsStates = new BlockStatsState[0];
+    private boolean[] cycleModeIncluded = new boolean[0];
+    private double[] cycleModeData = new double[0];
+    private int countOfBlocksRecomputed;
+
+    /**
+     * @param mapBlockIdToBlockCyclesRecord in block order
+     * @param isRatio                       statistics are of log ratios
+     * @param isInverted                    statistics are of inverted log ratios
+     * @return
+     */
+    public AnalysisStatsRecord update(Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord, boolean isRatio, boolean isInverted) {
+        BlockStatsState[] states = new BlockStatsState[mapBlockIdToBlockCyclesRecord.size()];
+        int blockCount = 0;
+        boolean layoutChanged = false;
+        countOfBlocksRecomputed = 0;
+        for (Map.Entry<Integer, PlotBlockCyclesRecord> entry : mapBlockIdToBlockCyclesRecord.entrySet()) {
+            PlotBlockCyclesRecord plotBlockCyclesRecord = entry.getValue();
+            if (null != plotBlockCyclesRecord) {
+                BlockStatsState state = mapBlockIdToBlockStatsState.computeIfAbsent(entry.getKey(), blockID -> new BlockStatsState());
+                if (!state.isCurrent(plotBlockCyclesRecord, isRatio, isInverted)) {
+                    layoutChanged = layoutChanged
+                            || (state.cycleMeansData != plotBlockCyclesRecord.cycleMeansData())
+                            || (state.cyclesIncludedSnapshot.length != plotBlockCyclesRecord.cyclesIncluded().length);
+                    state.recompute(plotBlockCyclesRecord, isRatio, isInverted);
+                    countOfBlocksRecomputed++;
+                }
+                layoutChanged = layoutChanged || (blockCount >= blockStatsStates.length) || (blockStatsStates[blockCount] != state);
+                states[blockCount] = state;
+                blockCount++;
+            }
+        }
+        layoutChanged = layoutChanged || (blockCount != blockStatsStates.length);
+        blockStatsStates = (blockCount == states.length) ? states : Arrays.copyOf(states, blockCount);
+
+        if (layoutChanged) {
+            if (mapBlockIdToBlockStatsState.size() != blockCount) {
+                mapBlockIdToBlockStatsState.keySet().retainAll(mapBlockIdToBlockCyclesRecord.keySet());
+            }
+            concatenateCycles();
+        } else {
+            for (BlockStatsState state : blockStatsStates) {
+                if (state.cyclesIncludedChanged) {
+                    System.arraycopy(state.cyclesIncludedSnapshot, 0, cycleModeIncluded, state.offset, state.cyclesIncludedSnapshot.length);
+                    state.cyclesIncludedChanged = false;
+                }
+            }
+        }
+
+        return combine(isRatio);
+    }
+
+    /**
+     * @return the count of blocks whose statistics the last update recomputed
+     */
+    public int getCountOfBlocksRecomputed() {
+        return countOfBlocksRecomputed;
+    }
+
+    private void concatenateCycles() {
+        int countOfTotalCycles = 0;
+        for (BlockStatsState state : blockStatsStates) {
+            state.offset = countOfTotalCycles;
+            countOfTotalCycles += state.cyclesIncludedSnapshot.length;
+        }
+        cycleModeIncluded = new boolean[countOfTotalCycles];
+        cycleModeData = new double[countOfTotalCycles];
+        for (BlockStatsState state : blockStatsStates) {
+            System.arraycopy(state.cyclesIncludedSnapshot, 0, cycleModeIncluded, state.offset, state.cyclesIncludedSnapshot.length);
+            System.arraycopy(state.cycleMeansData, 0, cycleModeData, state.offset, state.cyclesIncludedSnapshot.length);
+            state.cyclesIncludedChanged = false;
+        }
+    }
+
+    private AnalysisStatsRecord combine(boolean isRatio) {
+        BlockStatsRecord[] blockStatsRecords = new BlockStatsRecord[blockStatsStates.length];
+        int countOfIncludedBlocks = 0;
+        double wmNumerator = 0.0;
+        double wmDenominator = 0.0;
+        // cycle mode pools the blocks pairwise (Chan et al.) to stay stable in log space
+        long countOfIncludedCycles = 0;
+        double cycleModeMean = 0.0;
+        double cycleModeSumOfSquaredDeviations = 0.0;
+        for (int blockIndex = 0; blockIndex < blockStatsStates.length; blockIndex++) {
+            BlockStatsState state = blockStatsStates[blockIndex];
+            blockStatsRecords[blockIndex] = state.blockStatsRecord;
+            if (state.blockStatsRecord.blockIncluded()) {
+                wmNumerator += state.weightedMeanNumeratorTerm;
+                wmDenominator += state.weightedMeanDenominatorTerm;
+                if (0 < state.countOfIncludedCycles) {
+                    long pooledCount = countOfIncludedCycles + state.countOfIncludedCycles;
+                    double delta = state.blockStatsRecord.mean() - cycleModeMean;
+                    cycleModeMean += delta * state.countOfIncludedCycles / pooledCount;
+                    cycleModeSumOfSquaredDeviations += state.sumOfSquaredDeviations
+                            + delta * delta * ((double) countOfIncludedCycles * state.countOfIncludedCycles / pooledCount);
+                    countOfIncludedCycles = pooledCount;
+                }
+            }
+        }
+        double weightedMeanC = wmNumerator / wmDenominator;
+        double weightedMeanOneSigmaSquaredC = 1.0 / wmDenominator;
+        double weightedMeanOneSigmaC = StrictMath.sqrt(weightedMeanOneSigmaSquaredC);
+
+        double chiSquaredTerm = 0.0;
+        for (BlockStatsRecord blockStatsRecord : blockStatsRecords) {
+            if (blockStatsRecord.blockIncluded()) {
+                chiSquaredTerm += StrictMath.pow(blockStatsRecord.mean() - weightedMeanC, 2) / weightedMeanOneSigmaSquaredC;
+                countOfIncludedBlocks++;
+            }
+        }
+        double chiSquaredC = chiSquaredTerm / (countOfIncludedBlocks - 1);
+
+        // as DescriptiveStatistics: NaN when empty and zero variance for a single value
+        double cycleModeVariance = Double.NaN;
+        if (0 == countOfIncludedCycles) {
+            cycleModeMean = Double.NaN;
+        } else {
+            cycleModeVariance = (1 == countOfIncludedCycles) ? 0.0 : cycleModeSumOfSquaredDeviations / (countOfIncludedCycles - 1);
+        }
+
+        return new AnalysisStatsRecord(
+                isRatio && (0 < blockStatsRecords.length),
+                blockStatsRecords,
+                weightedMeanC,
+                weightedMeanOneSigmaC,
+                chiSquaredC,
+                countOfIncludedBlocks,
+                cycleModeMean,
+                cycleModeVariance,
+                StrictMath.sqrt(cycleModeVariance),
+                StrictMath.sqrt(cycleModeVariance / countOfIncludedCycles),
+                // the inclusions are updated in place here, so each record keeps its own copy
+                cycleModeIncluded.clone(),
+                cycleModeData,
+                cycleModeIncluded.length,
+                (int) countOfIncludedCycles);
+    }
+
+    private static final class BlockStatsState {
+        private int blockID;
+        private boolean blockIncluded;
+        private boolean isRatio;
+        private boolean isInverted;
+        private double[] cycleMeansData;
+        private boolean[] cyclesIncluded;
+        private boolean[] cyclesIncludedSnapshot = new boolean[0];
+        private boolean cyclesIncludedChanged;
+        private int offset;
+        private BlockStatsRecord blockStatsRecord;
+        private long countOfIncludedCycles;
+        private double sumOfSquaredDeviations;
+        private double weightedMeanNumeratorTerm;
+        private double weightedMeanDenominatorTerm;
+
+        private boolean isCurrent(PlotBlockCyclesRecord plotBlockCyclesRecord, boolean isRatio, boolean isInverted) {
+            return (null != blockStatsRecord)
+                    && (blockID == plotBlockCyclesRecord.blockID())
+                    && (blockIncluded == plotBlockCyclesRecord.blockIncluded())
+                    && (this.isRatio == isRatio)
+                    && (this.isInverted == isInverted)
+                    && (cycleMeansData == plotBlockCyclesRecord.cycleMeansData())
+                    && (cyclesIncluded == plotBlockCyclesRecord.cyclesIncluded())
+                    && Arrays.equals(cyclesIncludedSnapshot, cyclesIncluded);
+        }
+
+        private void recompute(PlotBlockCyclesRecord plotBlockCyclesRecord, boolean isRatio, boolean isInverted) {
+            blockID = plotBlockCyclesRecord.blockID();
+            blockIncluded = plotBlockCyclesRecord.blockIncluded();
+            this.isRatio = isRatio;
+            this.isInverted = isInverted;
+            cycleMeansData = plotBlockCyclesRecord.cycleMeansData();
+            cyclesIncluded = plotBlockCyclesRecord.cyclesIncluded();
+            // also excludes non-positive ratios, so the snapshot is taken after
+            blockStatsRecord = BlockStatsRecord.generateBlockStatsRecord(
+                    blockID, blockIncluded, isRatio, isInverted, cycleMeansData, cyclesIncluded);
+            cyclesIncludedChanged = cyclesIncludedChanged || !Arrays.equals(cyclesIncludedSnapshot, cyclesIncluded);
+            cyclesIncludedSnapshot = cyclesIncluded.clone();
+
+            countOfIncludedCycles = 0;
+            for (boolean included : cyclesIncludedSnapshot) {
+                if (included) {
+                    countOfIncludedCycles++;
+                }
+            }
+            sumOfSquaredDeviations = (1 < countOfIncludedCycles) ? blockStatsRecord.variance() * (countOfIncludedCycles - 1) : 0.0;
+            double varianceOfMean = StrictMath.pow(blockStatsRecord.standardDeviation(), 2);
+            weightedMeanNumeratorTerm = blockStatsRecord.mean() / varianceOfMean;
+            weightedMeanDenominatorTerm = 1.0 / varianceOfMean;
+        }
+    }
+}
@@ -91,6 +91,16 @@ public record SingleBlockRawDataLiteSetRecord(
                 blockRawDataLiteIncludedArrayUpdated);
     }
 
+    public boolean matchesIncludedCycles(UserFunction userFunction, boolean[] includedCycles) {
+        int col = userFunction.getColumnIndex();
+        for (int row = 0; row < blockRawDataLiteIncludedArray.length; row++) {
+            if (blockRawDataLiteIncludedArray[row][col] != includedCycles[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public SingleBlockRawDataLiteSetRecord updateIncludedCycles(UserFunction userFunction, boolean[] includedCycles) {
         boolean[][] blockRawDataLiteIncludedArrayUpdated = blockRawDataLiteIncludedArray.clone();
         int col = userFunction.getColumnIndex();
@@ -17,7 +17,6 @@
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
 
 import com.google.common.collect.BiMap;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.cirdles.tripoli.expressions.species.IsotopicRatio;
 import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 import org.cirdles.tripoli.plots.PlotBuilder;
@@ -43,15 +42,16 @@ import static org.cirdles.tripoli.constants.TripoliConstants.*;
 public enum BlockEnsemblesPlotter {
     ;
 
-    public synchronized static void blockEnsemblePlotEngine(
+    public static void blockEnsemblePlotEngine(
             int blockID,
             AnalysisInterface analysis) {
 
         PlotBuilder[][] plotBuilders = analysis.getMapOfBlockIdToPlots().get(blockID);
         int initialModelsBurnCount = analysis.getMapOfBlockIdToModelsBurnCount().get(blockID);
 
-        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = analysis.getMapBlockIDToEnsembles().get(blockID);
-        int countOfEnsemblesUsed = ensembleRecordsList.size() - initialModelsBurnCount;
+        EnsembleColumns ensembleColumns = EnsembleColumns.ofBlock(analysis.getMapBlockIDToEnsembles(), blockID);
+        int countOfEnsembles = ensembleColumns.size();
+        int countOfEnsemblesUsed = countOfEnsembles - initialModelsBurnCount;
 
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = analysis.getMapOfBlockIdToRawData().get(blockID);
@@ -82,9 +82,9 @@ public enum BlockEnsemblesPlotter {
         double[][] ensembleSetOfLogRatios = new double[blockIsotopicRatioList.size()][countOfEnsemblesUsed];
         double[][] ensembleSetOfRatios = new double[blockIsotopicRatioList.size()][countOfEnsemblesUsed];
         for (int ratioIndex = 0; ratioIndex < blockIsotopicRatioList.size(); ratioIndex++) {
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).logRatios()[ratioIndex];
-                ensembleSetOfRatios[ratioIndex][index - initialModelsBurnCount] = exp(ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount]);
+            ensembleSetOfLogRatios[ratioIndex] = ensembleColumns.copyColumn(ensembleColumns.logRatioColumn(ratioIndex), initialModelsBurnCount, countOfEnsembles);
+            for (int index = 0; index < countOfEnsemblesUsed; index++) {
+                ensembleSetOfRatios[ratioIndex][index] = exp(ensembleSetOfLogRatios[ratioIndex][index]);
             }
             blockIsotopicRatioList.get(ratioIndex).setRatioValuesForBlockEnsembles(ensembleSetOfRatios[ratioIndex]);
             blockIsotopicRatioList.get(ratioIndex).setLogRatioValuesForBlockEnsembles(ensembleSetOfLogRatios[ratioIndex]);
@@ -131,27 +131,19 @@ public enum BlockEnsemblesPlotter {
 
         // baseLines
         int baselineSize = analysisMethod.getSequenceTable().findFaradayDetectorsUsed().size();
-        double[][] ensembleBaselines = new double[baselineSize][countOfEnsemblesUsed];
-
+        double[][] ensembleBaselines = new double[baselineSize][];
         for (int row = 0; row < baselineSize; row++) {
-            DescriptiveStatistics descriptiveStatisticsBaselines = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                // todo: fix magic number
-                ensembleBaselines[row][index - initialModelsBurnCount] = ensembleRecordsList.get(index).baseLine()[row];//TODO: Decide / 6.24e7 * 1e6;
-                descriptiveStatisticsBaselines.addValue(ensembleBaselines[row][index - initialModelsBurnCount]);
-            }
+            // todo: fix magic number
+            ensembleBaselines[row] = ensembleColumns.copyColumn(ensembleColumns.baselineColumn(row), initialModelsBurnCount, countOfEnsembles);//TODO: Decide / 6.24e7 * 1e6;
         }
 
         // dalyFaraday gains
-        double[] ensembleDalyFaradayGain = new double[countOfEnsemblesUsed];
-        DescriptiveStatistics descriptiveStatisticsDalyFaradayGain = new DescriptiveStatistics();
-        for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-            ensembleDalyFaradayGain[index - initialModelsBurnCount] = ensembleRecordsList.get(index).dfGain();
-            descriptiveStatisticsDalyFaradayGain.addValue(ensembleDalyFaradayGain[index - initialModelsBurnCount]);
-        }
-        double dalyFaradayGainMean = descriptiveStatisticsDalyFaradayGain.getMean();
+        int dfGainColumn = ensembleColumns.dfGainColumn();
+        double[] ensembleDalyFaradayGain = ensembleColumns.copyColumn(dfGainColumn, initialModelsBurnCount, countOfEnsembles);
+        double dalyFaradayGainMean = ensembleColumns.mean(dfGainColumn, initialModelsBurnCount, countOfEnsembles);
         ((Analysis) analysis).setAnalysisDalyFaradayGainMean(dalyFaradayGainMean);
-        ((Analysis) analysis).setAnalysisDalyFaradayGainMeanOneSigmaAbs(descriptiveStatisticsDalyFaradayGain.getStandardDeviation());
+        ((Analysis) analysis).setAnalysisDalyFaradayGainMeanOneSigmaAbs(
+                ensembleColumns.standardDeviation(dfGainColumn, initialModelsBurnCount, countOfEnsembles));
 
         /*
             for m=1:d0.Nblock
@@ -164,19 +156,13 @@ public enum BlockEnsemblesPlotter {
          */
 
         // Intensity
-        int knotsCount = ensembleRecordsList.get(0).I0().length;
-        double[][] ensembleIntensity = new double[knotsCount][countOfEnsemblesUsed];
+        int knotsCount = ensembleColumns.countOfIntensities();
         double[] intensityMeans = new double[knotsCount];
         double[] intensityStdDevs = new double[knotsCount];
 
         for (int knotIndex = 0; knotIndex < knotsCount; knotIndex++) {
-            DescriptiveStatistics descriptiveStatisticsIntensity = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleIntensity[knotIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).I0()[knotIndex];
-                descriptiveStatisticsIntensity.addValue(ensembleIntensity[knotIndex][index - initialModelsBurnCount]);
-            }
-            intensityMeans[knotIndex] = descriptiveStatisticsIntensity.getMean();
-            intensityStdDevs[knotIndex] = descriptiveStatisticsIntensity.getStandardDeviation();
+            intensityMeans[knotIndex] = ensembleColumns.mean(ensembleColumns.intensityColumn(knotIndex), initialModelsBurnCount, countOfEnsembles);
+            intensityStdDevs[knotIndex] = ensembleColumns.standardDeviation(ensembleColumns.intensityColumn(knotIndex), initialModelsBurnCount, countOfEnsembles);
         }
 
         // calculate mean Intensities and knots for plotting
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
+import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * The saved MCMC models of one block, held as one primitive column per value rather than one EnsembleRecord per
+ * model.  The model parameters come first, in the order of the MCMC model vector: log ratios, intensities at the
+ * knots, baselines and the Daly/Faraday gain; then the noise hyperparameters and the weighted and unweighted
+ * misfits.  append copies the values it is given, so the store never shares arrays with the model being updated.
+ * Summaries read a column as a read-only slice, such as the models after burn-in, without copying it.
+ * <p>
+ * Once the columns of all stores would hold more than HEAP_BUDGET_BYTES of heap, set by the system property
+ * tripoli.ensembles.heapBudgetBytes and by default a quarter of the maximum heap, a store that grows moves its
+ * columns to a memory-mapped temporary file instead; spillToFile moves them at once.  As a List it presents each
+ * saved model as a new EnsembleRecord, for export and for code written against lists of records.  It serialises
+ * as plain columns and is read back onto the heap.  Not thread safe.
+ *
+ * @author James F. Bowring
+ */
+public final class EnsembleColumns extends AbstractList<EnsemblesStore.EnsembleRecord> implements RandomAccess, Serializable {
+
+    public static final String HEAP_BUDGET_PROPERTY = "tripoli.ensembles.heapBudgetBytes";
+    public static final long HEAP_BUDGET_BYTES = Long.getLong(HEAP_BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 4);
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final AtomicLong heapBytesOfAllColumns = new AtomicLong(0);
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int countOfLogRatios;
+    private final int countOfIntensities;
+    private final int countOfBaselines;
+    private final int countOfSignalNoise;
+    private int size;
+    private transient int capacity;
+    private transient DoubleBuffer[] columns;
+    private transient boolean mapped;
+    private transient HeapShare heapShare;
+
+    /**
+     * @param countOfLogRatios
+     * @param countOfIntensities knots
+     * @param countOfBaselines   Faradays
+     * @param countOfSignalNoise 0 when the models carry no noise hyperparameters
+     */
+    public EnsembleColumns(int countOfLogRatios, int countOfIntensities, int countOfBaselines, int countOfSignalNoise) {
+        this.countOfLogRatios = countOfLogRatios;
+        this.countOfIntensities = countOfIntensities;
+        this.countOfBaselines = countOfBaselines;
+        this.countOfSignalNoise = countOfSignalNoise;
+        initializeStorage(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param ensembleRecordsList such as one read from a session saved before ensembles were columnar
+     * @return ensembleRecordsList itself if it is columnar, else its records copied into columns
+     */
+    public static EnsembleColumns of(List<EnsemblesStore.EnsembleRecord> ensembleRecordsList) {
+        EnsembleColumns retVal;
+        if (ensembleRecordsList instanceof EnsembleColumns ensembleColumns) {
+            retVal = ensembleColumns;
+        } else if (ensembleRecordsList.isEmpty()) {
+            retVal = new EnsembleColumns(0, 0, 0, 0);
+        } else {
+            EnsemblesStore.EnsembleRecord firstRecord = ensembleRecordsList.get(0);
+            retVal = new EnsembleColumns(firstRecord.logRatios().length, firstRecord.I0().length,
+                    firstRecord.baseLine().length, lengthOf(firstRecord.signalNoise()));
+            retVal.addAll(ensembleRecordsList);
+        }
+        return retVal;
+    }
+
+    /**
+     * @param mapBlockIDToEnsembles the analysis's ensembles by block
+     * @param blockID
+     * @return the block's ensembles as columns; a legacy list is converted once and the columns put in its place
+     */
+    public static EnsembleColumns ofBlock(Map<Integer, List<EnsemblesStore.EnsembleRecord>> mapBlockIDToEnsembles, int blockID) {
+        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = mapBlockIDToEnsembles.computeIfPresent(blockID,
+                (id, list) -> ((list instanceof EnsembleColumns) || list.isEmpty()) ? list : of(list));
+        return of(ensembleRecordsList);
+    }
+
+    static long heapBytesOfAllColumns() {
+        return heapBytesOfAllColumns.get();
+    }
+
+    private static int lengthOf(double[] values) {
+        return (null == values) ? 0 : values.length;
+    }
+
+    private void initializeStorage(int initialCapacity) {
+        heapShare = new HeapShare();
+        CLEANER.register(this, heapShare);
+        columns = new DoubleBuffer[0];
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Replaces the columns with empty ones of newCapacity, on the heap unless that would exceed the budget or the
+     * store is already mapped; a store that cannot be mapped stays on the heap.
+     */
+    private DoubleBuffer[] allocate(int newCapacity) {
+        DoubleBuffer[] oldColumns = columns;
+        long bytes = (long) newCapacity * countOfColumns() * Double.BYTES;
+        DoubleBuffer[] newColumns = null;
+        if (mapped || (heapBytesOfAllColumns.get() - heapShare.bytes + bytes > HEAP_BUDGET_BYTES)) {
+            try {
+                newColumns = mapColumns(newCapacity);
+            } catch (IOException e) {
+                // the heap will have to do
+            }
+        }
+        mapped = (null != newColumns);
+        if (!mapped) {
+            newColumns = new DoubleBuffer[countOfColumns()];
+            for (int column = 0; column < newColumns.length; column++) {
+                newColumns[column] = DoubleBuffer.wrap(new double[newCapacity]);
+            }
+        }
+        heapShare.update(mapped ? 0L : bytes);
+        columns = newColumns;
+        capacity = newCapacity;
+        return oldColumns;
+    }
+
+    private DoubleBuffer[] mapColumns(int newCapacity) throws IOException {
+        Path columnsFile = Files.createTempFile("tripoli-ensembles", ".bin");
+        // the mappings outlive the channel, and the file goes with the last of them
+        try (FileChannel channel = FileChannel.open(columnsFile, READ, WRITE, DELETE_ON_CLOSE)) {
+            long columnBytes = (long) newCapacity * Double.BYTES;
+            DoubleBuffer[] retVal = new DoubleBuffer[countOfColumns()];
+            for (int column = 0; column < retVal.length; column++) {
+                retVal[column] = channel.map(FileChannel.MapMode.READ_WRITE, column * columnBytes, columnBytes)
+                        .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+            return retVal;
+        }
+    }
+
+    private void copyRows(DoubleBuffer[] fromColumns) {
+        for (int column = 0; column < fromColumns.length; column++) {
+            columns[column].put(0, fromColumns[column], 0, size);
+        }
+    }
+
+    /**
+     * Moves the columns to a memory-mapped temporary file now, whatever the heap budget.
+     *
+     * @throws IOException if the file cannot be created or mapped; the columns are then left on the heap
+     */
+    public void spillToFile() throws IOException {
+        if (!mapped) {
+            DoubleBuffer[] newColumns = mapColumns(capacity);
+            DoubleBuffer[] oldColumns = columns;
+            columns = newColumns;
+            copyRows(oldColumns);
+            mapped = true;
+            heapShare.update(0L);
+        }
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Copies one saved model into the columns.
+     *
+     * @param logRatios
+     * @param I0
+     * @param baseLine
+     * @param dfGain
+     * @param signalNoise     null when countOfSignalNoise is 0
+     * @param errorWeighted
+     * @param errorUnWeighted
+     */
+    public void append(double[] logRatios, double[] I0, double[] baseLine, double dfGain, double[] signalNoise,
+                       double errorWeighted, double errorUnWeighted) {
+        if ((logRatios.length != countOfLogRatios) || (I0.length != countOfIntensities)
+                || (baseLine.length != countOfBaselines) || (lengthOf(signalNoise) != countOfSignalNoise)) {
+            throw new IllegalArgumentException("Model does not match the shape of the ensemble.");
+        }
+        if (size == capacity) {
+            copyRows(allocate(capacity * 2));
+        }
+        int column = 0;
+        for (double[] values : new double[][]{logRatios, I0, baseLine}) {
+            for (double value : values) {
+                columns[column++].put(size, value);
+            }
+        }
+        columns[column++].put(size, dfGain);
+        for (int index = 0; index < countOfSignalNoise; index++) {
+            columns[column++].put(size, signalNoise[index]);
+        }
+        columns[column++].put(size, errorWeighted);
+        columns[column].put(size, errorUnWeighted);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(EnsemblesStore.EnsembleRecord ensembleRecord) {
+        append(ensembleRecord.logRatios(), ensembleRecord.I0(), ensembleRecord.baseLine(), ensembleRecord.dfGain(),
+                ensembleRecord.signalNoise(), ensembleRecord.errorWeighted(), ensembleRecord.errorUnWeighted());
+        return true;
+    }
+
+    /**
+     * @param index
+     * @return a new record holding copies of the values of model index
+     */
+    @Override
+    public EnsemblesStore.EnsembleRecord get(int index) {
+        Objects.checkIndex(index, size);
+        double[] signalNoise = row(index, signalNoiseColumn(0), countOfSignalNoise);
+        return new EnsemblesStore.EnsembleRecord(
+                row(index, logRatioColumn(0), countOfLogRatios),
+                row(index, intensityColumn(0), countOfIntensities),
+                row(index, baselineColumn(0), countOfBaselines),
+                columns[dfGainColumn()].get(index),
+                (0 == countOfSignalNoise) ? null : signalNoise,
+                columns[errorWeightedColumn()].get(index),
+                columns[errorUnWeightedColumn()].get(index));
+    }
+
+    private double[] row(int index, int firstColumn, int count) {
+        double[] retVal = new double[count];
+        for (int offset = 0; offset < count; offset++) {
+            retVal[offset] = columns[firstColumn + offset].get(index);
+        }
+        return retVal;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the capacity.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    public int countOfLogRatios() {
+        return countOfLogRatios;
+    }
+
+    public int countOfIntensities() {
+        return countOfIntensities;
+    }
+
+    public int countOfBaselines() {
+        return countOfBaselines;
+    }
+
+    /**
+     * @return the length of the MCMC model vector: log ratios, intensities, baselines and Daly/Faraday gain
+     */
+    public int countOfModelParameters() {
+        return countOfLogRatios + countOfIntensities + countOfBaselines + 1;
+    }
+
+    public int countOfColumns() {
+        return countOfModelParameters() + countOfSignalNoise + 2;
+    }
+
+    public int logRatioColumn(int ratioIndex) {
+        return ratioIndex;
+    }
+
+    public int intensityColumn(int knotIndex) {
+        return countOfLogRatios + knotIndex;
+    }
+
+    public int baselineColumn(int faradayIndex) {
+        return countOfLogRatios + countOfIntensities + faradayIndex;
+    }
+
+    public int dfGainColumn() {
+        return countOfModelParameters() - 1;
+    }
+
+    public int signalNoiseColumn(int index) {
+        return countOfModelParameters() + index;
+    }
+
+    public int errorWeightedColumn() {
+        return countOfModelParameters() + countOfSignalNoise;
+    }
+
+    public int errorUnWeightedColumn() {
+        return errorWeightedColumn() + 1;
+    }
+
+    /**
+     * @param columnIndex
+     * @param fromIndex   first model, inclusive
+     * @param toIndex     last model, exclusive
+     * @return a read-only view of the column over the models, valid until the next append
+     */
+    public DoubleBuffer column(int columnIndex, int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        return columns[columnIndex].slice(fromIndex, toIndex - fromIndex).asReadOnlyBuffer();
+    }
+
+    /**
+     * @param columnIndex
+     * @param fromIndex   first model, inclusive
+     * @param toIndex     last model, exclusive
+     * @return a copy of the column over the models
+     */
+    public double[] copyColumn(int columnIndex, int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        double[] retVal = new double[toIndex - fromIndex];
+        columns[columnIndex].get(fromIndex, retVal);
+        return retVal;
+    }
+
+    /**
+     * As DescriptiveStatistics.getMean over the models, reading heap columns in place.
+     */
+    public double mean(int columnIndex, int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        DoubleBuffer columnBuffer = columns[columnIndex];
+        return columnBuffer.hasArray()
+                ? new Mean().evaluate(columnBuffer.array(), columnBuffer.arrayOffset() + fromIndex, toIndex - fromIndex)
+                : new Mean().evaluate(copyColumn(columnIndex, fromIndex, toIndex));
+    }
+
+    /**
+     * As DescriptiveStatistics.getStandardDeviation over the models, reading heap columns in place.
+     */
+    public double standardDeviation(int columnIndex, int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        DoubleBuffer columnBuffer = columns[columnIndex];
+        return columnBuffer.hasArray()
+                ? new StandardDeviation().evaluate(columnBuffer.array(), columnBuffer.arrayOffset() + fromIndex, toIndex - fromIndex)
+                : new StandardDeviation().evaluate(copyColumn(columnIndex, fromIndex, toIndex));
+    }
+
+    /**
+     * @param fromIndex first model, inclusive
+     * @param toIndex   last model, exclusive
+     * @return one row per model holding its model vector
+     */
+    public double[][] modelParameterRows(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        double[][] retVal = new double[toIndex - fromIndex][countOfModelParameters()];
+        for (int column = 0; column < countOfModelParameters(); column++) {
+            DoubleBuffer columnBuffer = columns[column];
+            for (int index = fromIndex; index < toIndex; index++) {
+                retVal[index - fromIndex][column] = columnBuffer.get(index);
+            }
+        }
+        return retVal;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int column = 0; column < countOfColumns(); column++) {
+            out.writeObject(copyColumn(column, 0, size));
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initializeStorage(Math.max(INITIAL_CAPACITY, size));
+        for (int column = 0; column < countOfColumns(); column++) {
+            columns[column].put(0, (double[]) in.readObject());
+        }
+    }
+
+    /**
+     * This store's part of heapBytesOfAllColumns, given back by the cleaner once the store is unreachable.
+     */
+    private static final class HeapShare implements Runnable {
+        private long bytes;
+
+        synchronized void update(long newBytes) {
+            heapBytesOfAllColumns.addAndGet(newBytes - bytes);
+            bytes = newBytes;
+        }
+
+        @Override
+        public void run() {
+            update(0L);
+        }
+    }
+}
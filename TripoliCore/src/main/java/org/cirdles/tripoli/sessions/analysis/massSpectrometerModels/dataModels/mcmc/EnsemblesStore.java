@@ -34,68 +34,43 @@ import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataM
  */
 public class EnsemblesStore implements Serializable {
 
-    public static synchronized void produceSummaryModelFromEnsembleStore(
+    public static void produceSummaryModelFromEnsembleStore(
             int blockID,
             AnalysisInterface analysis) {
 
-        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = analysis.getMapBlockIDToEnsembles().get(blockID);
+        EnsembleColumns ensembleColumns = EnsembleColumns.ofBlock(analysis.getMapBlockIDToEnsembles(), blockID);
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = analysis.getMapOfBlockIdToRawData().get(blockID);
         SingleBlockModelRecord singleBlockModelRecord = analysis.getMapOfBlockIdToFinalModel().get(blockID);
         List<IsotopicRatio> isotopicRatioList = analysisMethod.getIsotopicRatiosList();
 
+        // statistics over the models after burn-in, read in place from the columns
         int initialModelsBurnCount = analysis.getMapOfBlockIdToModelsBurnCount().get(blockID);
-        int countOfEnsemblesUsed = ensembleRecordsList.size() - initialModelsBurnCount;
+        int countOfEnsembles = ensembleColumns.size();
         // log ratios
-        double[][] ensembleSetOfLogRatios = new double[isotopicRatioList.size()][countOfEnsemblesUsed];
         double[] logRatioMean = new double[isotopicRatioList.size()];
         for (int ratioIndex = 0; ratioIndex < isotopicRatioList.size(); ratioIndex++) {
-            DescriptiveStatistics descriptiveStatisticsLogRatios = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).logRatios()[ratioIndex];
-                descriptiveStatisticsLogRatios.addValue(ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount]);
-            }
-            logRatioMean[ratioIndex] = descriptiveStatisticsLogRatios.getMean();
+            logRatioMean[ratioIndex] = ensembleColumns.mean(ensembleColumns.logRatioColumn(ratioIndex), initialModelsBurnCount, countOfEnsembles);
         }
 
         // baseLines
         int baselineSize = analysisMethod.getSequenceTable().findFaradayDetectorsUsed().size();
-        double[][] ensembleBaselines = new double[baselineSize][countOfEnsemblesUsed];
         double[] baselinesMeans = new double[baselineSize];
         double[] baselinesStdDev = new double[baselineSize];
-
         for (int row = 0; row < baselineSize; row++) {
-            DescriptiveStatistics descriptiveStatisticsBaselines = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                // todo: fix magic number
-                ensembleBaselines[row][index - initialModelsBurnCount] = ensembleRecordsList.get(index).baseLine()[row];//TODO: Decide / 6.24e7 * 1e6;
-                descriptiveStatisticsBaselines.addValue(ensembleBaselines[row][index - initialModelsBurnCount]);
-            }
-            baselinesMeans[row] = descriptiveStatisticsBaselines.getMean();
-            baselinesStdDev[row] = descriptiveStatisticsBaselines.getStandardDeviation();
+            // todo: fix magic number
+            baselinesMeans[row] = ensembleColumns.mean(ensembleColumns.baselineColumn(row), initialModelsBurnCount, countOfEnsembles);//TODO: Decide / 6.24e7 * 1e6;
+            baselinesStdDev[row] = ensembleColumns.standardDeviation(ensembleColumns.baselineColumn(row), initialModelsBurnCount, countOfEnsembles);
         }
 
         // dalyFaraday gains
-        double[] ensembleDalyFaradayGain = new double[countOfEnsemblesUsed];
-        DescriptiveStatistics descriptiveStatisticsDalyFaradayGain = new DescriptiveStatistics();
-        for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-            ensembleDalyFaradayGain[index - initialModelsBurnCount] = ensembleRecordsList.get(index).dfGain();
-            descriptiveStatisticsDalyFaradayGain.addValue(ensembleDalyFaradayGain[index - initialModelsBurnCount]);
-        }
-        double dalyFaradayGainMean = descriptiveStatisticsDalyFaradayGain.getMean();
+        double dalyFaradayGainMean = ensembleColumns.mean(ensembleColumns.dfGainColumn(), initialModelsBurnCount, countOfEnsembles);
 
         // Intensity
         int knotsCount = singleBlockRawDataSetRecord.blockKnotInterpolationArray()[0].length;
-        double[][] ensembleI0 = new double[knotsCount][countOfEnsemblesUsed];
         double[] meansI0 = new double[knotsCount];
-
         for (int knotIndex = 0; knotIndex < knotsCount; knotIndex++) {
-            DescriptiveStatistics descriptiveStatisticsI0 = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleI0[knotIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).I0()[knotIndex];
-                descriptiveStatisticsI0.addValue(ensembleI0[knotIndex][index - initialModelsBurnCount]);
-            }
-            meansI0[knotIndex] = descriptiveStatisticsI0.getMean();
+            meansI0[knotIndex] = ensembleColumns.mean(ensembleColumns.intensityColumn(knotIndex), initialModelsBurnCount, countOfEnsembles);
         }
 
 
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jama.CholeskyDecomposition;
+import jama.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * The multivariate Gelman-Rubin criterion of GRConverge, kept up to date as the MCMC saves each model so that it
+ * can be read at any count of models without revisiting the ensemble.  VarofMean is the variance of the group means,
+ * std(...).^2 as in the MATLAB; the grConverge this replaces had used the standard deviation.
+ * <pre>
+ *     ngroup = round(sqrt(cnt)); gsize = round(sqrt(cnt));
+ *     MeanofVar = sum(tmpxs(:,:,1:ngroup),3)/ngroup;              % mean of the group covariances
+ *     VarofMean = diag(std(tmpxm(:,1:ngroup),[],2).^2);           % variance of the group means
+ *     Rexit = sqrt((ngroup-1)/ngroup+(det(VarofMean)/det(MeanofVar))^(1/Nmod)/ngroup);
+ * </pre>
+ * The models are split into consecutive batches of equal size, whose count stays between half and twice the
+ * batch size, so both remain near sqrt(cnt).  Each batch keeps only its mean; its scatter about that mean is added
+ * into one matrix summed over the batches, from which MeanofVar follows.  The batch being filled is updated with
+ * Welford's recurrence, and when the count of batches reaches twice the batch size, neighbouring batches are merged
+ * pairwise, so a saved model costs O(Nmod^2) and reading R costs one Cholesky factorisation.  Only complete batches
+ * enter R.  Not thread safe.
+ *
+ * @author James F. Bowring
+ */
+public final class GelmanRubinMonitor {
+
+    private final int countOfParameters;
+    private final double[] modelParameters;
+    private final double[] fillingBatchMean;
+    private final double[][] fillingBatchScatter;
+    private final double[][] withinBatchScatter;
+    private double[][] batchMeans;
+    private int countOfBatches;
+    private int batchSize;
+    private int countInFillingBatch;
+    private long countOfModels;
+
+    /**
+     * @param countOfParameters Nmod, the length of the model vector
+     */
+    public GelmanRubinMonitor(int countOfParameters) {
+        this.countOfParameters = countOfParameters;
+        modelParameters = new double[countOfParameters];
+        fillingBatchMean = new double[countOfParameters];
+        fillingBatchScatter = new double[countOfParameters][countOfParameters];
+        withinBatchScatter = new double[countOfParameters][countOfParameters];
+        batchMeans = new double[16][];
+        batchSize = 1;
+    }
+
+    /**
+     * Adds a saved model given as its parts, in the order of the MCMC model vector.
+     *
+     * @param logRatios
+     * @param I0
+     * @param baseLine
+     * @param dfGain
+     */
+    public void accept(double[] logRatios, double[] I0, double[] baseLine, double dfGain) {
+        if (logRatios.length + I0.length + baseLine.length + 1 != countOfParameters) {
+            throw new IllegalArgumentException("Model has " + (logRatios.length + I0.length + baseLine.length + 1)
+                    + " parameters, not " + countOfParameters);
+        }
+        System.arraycopy(logRatios, 0, modelParameters, 0, logRatios.length);
+        System.arraycopy(I0, 0, modelParameters, logRatios.length, I0.length);
+        System.arraycopy(baseLine, 0, modelParameters, logRatios.length + I0.length, baseLine.length);
+        modelParameters[countOfParameters - 1] = dfGain;
+        accept(modelParameters);
+    }
+
+    /**
+     * Adds a saved model; the values are read, not kept.
+     *
+     * @param model the model vector
+     */
+    public void accept(double[] model) {
+        countOfModels++;
+        countInFillingBatch++;
+        // Welford: scatter += (x - previous mean)(x - updated mean)'
+        for (int row = 0; row < countOfParameters; row++) {
+            double delta = model[row] - fillingBatchMean[row];
+            fillingBatchMean[row] += delta / countInFillingBatch;
+        }
+        for (int row = 0; row < countOfParameters; row++) {
+            double deltaUpdated = model[row] - fillingBatchMean[row];
+            double deltaPrevious = deltaUpdated * countInFillingBatch / (countInFillingBatch - 1.0);
+            if (1 < countInFillingBatch) {
+                double[] scatterRow = fillingBatchScatter[row];
+                for (int col = row; col < countOfParameters; col++) {
+                    scatterRow[col] += deltaPrevious * (model[col] - fillingBatchMean[col]);
+                }
+            }
+        }
+        if (countInFillingBatch == batchSize) {
+            closeFillingBatch();
+        }
+    }
+
+    private void closeFillingBatch() {
+        if (countOfBatches == batchMeans.length) {
+            batchMeans = Arrays.copyOf(batchMeans, 2 * countOfBatches);
+        }
+        batchMeans[countOfBatches++] = fillingBatchMean.clone();
+        for (int row = 0; row < countOfParameters; row++) {
+            for (int col = row; col < countOfParameters; col++) {
+                withinBatchScatter[row][col] += fillingBatchScatter[row][col];
+            }
+            Arrays.fill(fillingBatchScatter[row], 0.0);
+        }
+        Arrays.fill(fillingBatchMean, 0.0);
+        countInFillingBatch = 0;
+        if (countOfBatches == 2 * batchSize) {
+            mergeBatchPairs();
+        }
+    }
+
+    private void mergeBatchPairs() {
+        // merging two batches of size b adds (b/2) d d' to their scatter, d the difference of their means
+        double weight = batchSize / 2.0;
+        for (int pair = 0; pair < countOfBatches / 2; pair++) {
+            double[] first = batchMeans[2 * pair];
+            double[] second = batchMeans[2 * pair + 1];
+            for (int row = 0; row < countOfParameters; row++) {
+                double weightedDelta = weight * (second[row] - first[row]);
+                for (int col = row; col < countOfParameters; col++) {
+                    withinBatchScatter[row][col] += weightedDelta * (second[col] - first[col]);
+                }
+            }
+            for (int row = 0; row < countOfParameters; row++) {
+                first[row] = (first[row] + second[row]) / 2.0;
+            }
+            batchMeans[pair] = first;
+        }
+        Arrays.fill(batchMeans, countOfBatches / 2, countOfBatches, null);
+        countOfBatches /= 2;
+        batchSize *= 2;
+    }
+
+    /**
+     * @return Rexit over the complete batches; positive infinity until there are two batches of at least two models,
+     * or when the mean batch covariance is not positive definite
+     */
+    public double rExit() {
+        if ((2 > countOfBatches) || (2 > batchSize)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // MeanofVar = mean of the batch covariances = scatter summed over the batches / (ngroup (gsize - 1))
+        double[][] meanOfVar = new double[countOfParameters][countOfParameters];
+        double divisor = countOfBatches * (batchSize - 1.0);
+        for (int row = 0; row < countOfParameters; row++) {
+            for (int col = row; col < countOfParameters; col++) {
+                meanOfVar[row][col] = withinBatchScatter[row][col] / divisor;
+                meanOfVar[col][row] = meanOfVar[row][col];
+            }
+        }
+        CholeskyDecomposition choleskyDecomposition = new CholeskyDecomposition(new Matrix(meanOfVar));
+        if (!choleskyDecomposition.isSPD()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double[][] lower = choleskyDecomposition.getL().getArray();
+
+        // log determinants, as the determinants of even small models under- or overflow
+        double logDetMeanOfVar = 0.0;
+        double logDetVarOfMean = 0.0;
+        for (int row = 0; row < countOfParameters; row++) {
+            logDetMeanOfVar += 2.0 * StrictMath.log(lower[row][row]);
+            double mean = 0.0;
+            for (int batch = 0; batch < countOfBatches; batch++) {
+                mean += batchMeans[batch][row] / countOfBatches;
+            }
+            double sumOfSquares = 0.0;
+            for (int batch = 0; batch < countOfBatches; batch++) {
+                sumOfSquares += (batchMeans[batch][row] - mean) * (batchMeans[batch][row] - mean);
+            }
+            logDetVarOfMean += StrictMath.log(sumOfSquares / (countOfBatches - 1.0));
+        }
+
+        double term1 = (countOfBatches - 1.0) / countOfBatches;
+        double term2 = StrictMath.exp((logDetVarOfMean - logDetMeanOfVar) / countOfParameters);
+        return StrictMath.sqrt(term1 + term2 / countOfBatches);
+    }
+
+    public long countOfModels() {
+        return countOfModels;
+    }
+
+    /**
+     * @return ngroup, the count of complete batches
+     */
+    public int countOfBatches() {
+        return countOfBatches;
+    }
+
+    /**
+     * @return gsize, the models in each complete batch
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+}
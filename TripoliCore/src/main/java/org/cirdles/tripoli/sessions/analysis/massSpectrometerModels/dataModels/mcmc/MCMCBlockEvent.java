@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jdk.jfr.*;
+
+/**
+ * A Flight Recorder event for each finished block MCMC, so that a recording of any run, including a headless one
+ * started with -XX:StartFlightRecording, carries the block timings.  When no recording is enabled, committing costs
+ * almost nothing.
+ *
+ * @author James F. Bowring
+ */
+@Name("org.cirdles.tripoli.MCMCBlock")
+@Label("MCMC Block")
+@Category({"Tripoli", "MCMC"})
+@Description("Timing, acceptance and convergence of one block MCMC inversion")
+@StackTrace(false)
+final class MCMCBlockEvent extends Event {
+
+    @Label("Analysis")
+    String analysisName;
+
+    @Label("Block")
+    int blockID;
+
+    @Label("Iterations")
+    long iterations;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Iterations per Second")
+    double iterationsPerSecond;
+
+    @Label("Acceptance Rate")
+    double acceptanceRate;
+
+    @Label("Proposal")
+    @Timespan(Timespan.NANOSECONDS)
+    long proposal;
+
+    @Label("Forward Model")
+    @Timespan(Timespan.NANOSECONDS)
+    long forwardModel;
+
+    @Label("Likelihood")
+    @Timespan(Timespan.NANOSECONDS)
+    long likelihood;
+
+    @Label("Covariance Update")
+    @Timespan(Timespan.NANOSECONDS)
+    long covarianceUpdate;
+
+    @Label("Convergence Check")
+    @Timespan(Timespan.NANOSECONDS)
+    long convergenceCheck;
+
+    @Label("Saved Models")
+    int savedModels;
+
+    @Label("Gelman-Rubin R")
+    double rExit;
+
+    @Label("Converged")
+    boolean converged;
+
+    static void commit(MCMCBlockMetrics blockMetrics) {
+        MCMCBlockEvent event = new MCMCBlockEvent();
+        if (event.shouldCommit()) {
+            event.analysisName = blockMetrics.getAnalysisName();
+            event.blockID = blockMetrics.getBlockID();
+            event.iterations = blockMetrics.getIterations();
+            event.elapsed = blockMetrics.getElapsedNanos();
+            event.iterationsPerSecond = blockMetrics.iterationsPerSecond();
+            event.acceptanceRate = blockMetrics.acceptanceRate();
+            event.proposal = blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.PROPOSAL);
+            event.forwardModel = blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.FORWARD_MODEL);
+            event.likelihood = blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.LIKELIHOOD);
+            event.covarianceUpdate = blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.COVARIANCE_UPDATE);
+            event.convergenceCheck = blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.CONVERGENCE_CHECK);
+            event.savedModels = blockMetrics.getCountOfSavedModels();
+            event.rExit = blockMetrics.getRExit();
+            event.converged = blockMetrics.isConverged();
+            event.commit();
+        }
+    }
+}
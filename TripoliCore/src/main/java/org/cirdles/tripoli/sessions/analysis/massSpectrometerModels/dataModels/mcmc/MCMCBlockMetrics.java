@@ -0,0 +1,289 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Performance counters of one block MCMC inversion: the time spent in each phase of an iteration, as a total and as
+ * a histogram, the proposals and acceptances of each update operation, and the convergence tests.  Each duration
+ * lands in a power-of-two bucket of nanoseconds, so recording costs a clock read and two array increments, and the
+ * counters are cheap enough to stay on in every run.  Written by the one thread running the chain; read it once the
+ * block is done.
+ *
+ * @author James F. Bowring
+ */
+public final class MCMCBlockMetrics {
+
+    /**
+     * Bucket b holds durations in [2^b, 2^(b+1)) nanoseconds, and the last bucket everything longer.
+     */
+    public static final int COUNT_OF_BUCKETS = 40;
+
+    private final String analysisName;
+    private final int blockID;
+    private final List<String> operations;
+    private final long[] phaseNanos;
+    private final long[][] phaseHistograms;
+    private final long[] proposedByOperation;
+    private final long[] acceptedByOperation;
+    private final long startNanos;
+    private long elapsedNanos;
+    private int countOfSavedModels;
+    private int countOfConvergenceTests;
+    private double rExit = Double.POSITIVE_INFINITY;
+    private double exitCriterion = Double.NaN;
+    private long convergedAtIteration;
+
+    /**
+     * @param analysisName
+     * @param blockID
+     * @param operations   the update operations of SingleBlockModelUpdater, in its order
+     */
+    public MCMCBlockMetrics(String analysisName, int blockID, List<String> operations) {
+        this.analysisName = analysisName;
+        this.blockID = blockID;
+        this.operations = List.copyOf(operations);
+        int countOfPhases = Phase.values().length;
+        phaseNanos = new long[countOfPhases];
+        phaseHistograms = new long[countOfPhases][COUNT_OF_BUCKETS];
+        proposedByOperation = new long[operations.size()];
+        acceptedByOperation = new long[operations.size()];
+        startNanos = System.nanoTime();
+    }
+
+    static int bucketOf(long nanos) {
+        return (1L >= nanos) ? 0 : Math.min(COUNT_OF_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Records the phase as ending now.
+     *
+     * @param phase
+     * @param lapStartNanos when the phase began
+     * @return now, the start of the next phase
+     */
+    public long lap(Phase phase, long lapStartNanos) {
+        long nowNanos = System.nanoTime();
+        record(phase, nowNanos - lapStartNanos);
+        return nowNanos;
+    }
+
+    public void record(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        phaseHistograms[phase.ordinal()][bucketOf(nanos)]++;
+    }
+
+    public void recordProposal(int operationIndex, boolean accepted) {
+        proposedByOperation[operationIndex]++;
+        if (accepted) {
+            acceptedByOperation[operationIndex]++;
+        }
+    }
+
+    public void recordSavedModel() {
+        countOfSavedModels++;
+    }
+
+    /**
+     * @param rExit         the Gelman-Rubin R of the saved models
+     * @param exitCriterion R at or below which the chain has converged
+     * @param iteration
+     */
+    public void recordConvergenceTest(double rExit, double exitCriterion, long iteration) {
+        countOfConvergenceTests++;
+        this.rExit = rExit;
+        this.exitCriterion = exitCriterion;
+        if ((rExit <= exitCriterion) && (0 == convergedAtIteration)) {
+            convergedAtIteration = iteration;
+        }
+    }
+
+    /**
+     * Stops the wall clock of the block.
+     */
+    public void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    public String getAnalysisName() {
+        return analysisName;
+    }
+
+    public int getBlockID() {
+        return blockID;
+    }
+
+    public List<String> getOperations() {
+        return operations;
+    }
+
+    public long getIterations() {
+        long iterations = 0;
+        for (long proposed : proposedByOperation) {
+            iterations += proposed;
+        }
+        return iterations;
+    }
+
+    public long getAccepted() {
+        long accepted = 0;
+        for (long acceptedCount : acceptedByOperation) {
+            accepted += acceptedCount;
+        }
+        return accepted;
+    }
+
+    public long getProposed(int operationIndex) {
+        return proposedByOperation[operationIndex];
+    }
+
+    public long getAccepted(int operationIndex) {
+        return acceptedByOperation[operationIndex];
+    }
+
+    /**
+     * @param operationIndex
+     * @return accepted over proposed, or NaN if the operation was never proposed
+     */
+    public double acceptanceRate(int operationIndex) {
+        return (0 == proposedByOperation[operationIndex])
+                ? Double.NaN : (double) acceptedByOperation[operationIndex] / proposedByOperation[operationIndex];
+    }
+
+    public double acceptanceRate() {
+        long iterations = getIterations();
+        return (0 == iterations) ? Double.NaN : (double) getAccepted() / iterations;
+    }
+
+    /**
+     * @return the wall time of the block, up to now if it has not finished
+     */
+    public long getElapsedNanos() {
+        return (0 == elapsedNanos) ? System.nanoTime() - startNanos : elapsedNanos;
+    }
+
+    public double iterationsPerSecond() {
+        long nanos = getElapsedNanos();
+        return (0 == nanos) ? 0.0 : getIterations() * 1.0e9 / nanos;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getPhaseCount(Phase phase) {
+        long count = 0;
+        for (long bucketCount : phaseHistograms[phase.ordinal()]) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return a copy of the histogram of the phase, indexed by bucket
+     */
+    public long[] getPhaseHistogram(Phase phase) {
+        return phaseHistograms[phase.ordinal()].clone();
+    }
+
+    public double meanPhaseMicros(Phase phase) {
+        long count = getPhaseCount(phase);
+        return (0 == count) ? 0.0 : phaseNanos[phase.ordinal()] / 1000.0 / count;
+    }
+
+    /**
+     * @param phase
+     * @param quantile in [0, 1]
+     * @return the upper edge of the bucket holding the quantile, in nanoseconds, so within a factor of two above it
+     */
+    public long phaseQuantileNanos(Phase phase, double quantile) {
+        long[] histogram = phaseHistograms[phase.ordinal()];
+        long target = (long) Math.ceil(quantile * getPhaseCount(phase));
+        long cumulative = 0;
+        int bucket = 0;
+        while (bucket < COUNT_OF_BUCKETS - 1) {
+            cumulative += histogram[bucket];
+            if (cumulative >= Math.max(1, target)) {
+                break;
+            }
+            bucket++;
+        }
+        return 1L << (bucket + 1);
+    }
+
+    public int getCountOfSavedModels() {
+        return countOfSavedModels;
+    }
+
+    public int getCountOfConvergenceTests() {
+        return countOfConvergenceTests;
+    }
+
+    /**
+     * @return the R of the last convergence test, or +Infinity before the first
+     */
+    public double getRExit() {
+        return rExit;
+    }
+
+    public double getExitCriterion() {
+        return exitCriterion;
+    }
+
+    public boolean isConverged() {
+        return 0 != convergedAtIteration;
+    }
+
+    /**
+     * @return the iteration at which R first met the exit criterion, or 0
+     */
+    public long getConvergedAtIteration() {
+        return convergedAtIteration;
+    }
+
+    /**
+     * @return the mean microseconds of each phase, on one line
+     */
+    public String prettyPrintPhases() {
+        StringJoiner phases = new StringJoiner(", ", "Phase means in microseconds: ", "");
+        for (Phase phase : Phase.values()) {
+            phases.add(phase.getPhaseName() + " " + String.format(Locale.ENGLISH, "%.3f", meanPhaseMicros(phase)));
+        }
+        return phases.toString();
+    }
+
+    public enum Phase {
+        PROPOSAL("Proposal"),
+        FORWARD_MODEL("Forward model"),
+        LIKELIHOOD("Likelihood"),
+        COVARIANCE_UPDATE("Covariance update"),
+        CONVERGENCE_CHECK("Convergence check");
+
+        private final String phaseName;
+
+        Phase(String phaseName) {
+            this.phaseName = phaseName;
+        }
+
+        public String getPhaseName() {
+            return phaseName;
+        }
+    }
+}
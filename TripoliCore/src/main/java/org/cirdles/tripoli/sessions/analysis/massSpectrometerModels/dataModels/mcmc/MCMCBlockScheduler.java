@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.plots.PlotBuilder;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.utilities.callbacks.BlockProgressCallbackInterface;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.cirdles.tripoli.sessions.analysis.Analysis.RUN;
+import static org.cirdles.tripoli.utilities.mathUtilities.RandomSeeds.seedForStream;
+
+/**
+ * Runs the per-block MCMC inversions of an analysis concurrently on a bounded pool.
+ * Each block gets its own chain and, when a base seed is supplied, its own seed derived from the block ID,
+ * so results do not depend on the order in which blocks are scheduled.
+ *
+ * @author James F. Bowring
+ */
+public class MCMCBlockScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final String BLOCK_THREAD_NAME_PREFIX = "Tripoli-MCMC-block-";
+
+    private final int parallelism;
+    private final ExecutorService executorService;
+
+    public MCMCBlockScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threadCount = new AtomicInteger(0);
+        executorService = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, BLOCK_THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Work inside a block should stay on its thread when this is true, as the pool already holds the cores it may
+     * use; handing it to the common ForkJoinPool would oversubscribe them.
+     *
+     * @return true if the current thread runs blocks for a scheduler
+     */
+    public static boolean isBlockThread() {
+        return Thread.currentThread().getName().startsWith(BLOCK_THREAD_NAME_PREFIX);
+    }
+
+    public static List<Integer> findBlocksToRun(AnalysisInterface analysis) {
+        List<Integer> blocksToRun = new ArrayList<>();
+        synchronized (analysis.getMapOfBlockIdToProcessStatus()) {
+            for (Map.Entry<Integer, Integer> entry : analysis.getMapOfBlockIdToProcessStatus().entrySet()) {
+                if (RUN == entry.getValue()) {
+                    blocksToRun.add(entry.getKey());
+                }
+            }
+        }
+        return blocksToRun;
+    }
+
+    /**
+     * Runs every block of the analysis whose status is RUN and waits for all of them.
+     *
+     * @param analysis
+     * @param baseSeed                       null to seed each chain securely
+     * @param blockProgressCallbackInterface may be null
+     * @return plot builders by block ID
+     * @throws TripoliException carrying the first block failure, after all blocks have finished
+     */
+    public Map<Integer, PlotBuilder[][]> runAllBlocks(
+            AnalysisInterface analysis, Long baseSeed, BlockProgressCallbackInterface blockProgressCallbackInterface) throws TripoliException {
+        return runBlocks(analysis, findBlocksToRun(analysis), baseSeed, blockProgressCallbackInterface);
+    }
+
+    public Map<Integer, PlotBuilder[][]> runBlocks(
+            AnalysisInterface analysis, List<Integer> blockIDs, Long baseSeed,
+            BlockProgressCallbackInterface blockProgressCallbackInterface) throws TripoliException {
+        Map<Integer, Future<PlotBuilder[][]>> mapOfBlockIdToFuture = new TreeMap<>();
+        for (Integer blockID : blockIDs) {
+            mapOfBlockIdToFuture.put(blockID, submitBlock(analysis, blockID, baseSeed, blockProgressCallbackInterface));
+        }
+
+        Map<Integer, PlotBuilder[][]> mapOfBlockIdToPlots = new TreeMap<>();
+        TripoliException firstFailure = null;
+        for (Map.Entry<Integer, Future<PlotBuilder[][]>> entry : mapOfBlockIdToFuture.entrySet()) {
+            try {
+                mapOfBlockIdToPlots.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mapOfBlockIdToFuture.values().forEach(future -> future.cancel(true));
+                throw new TripoliException("MCMC block scheduling interrupted", e);
+            } catch (ExecutionException e) {
+                if (null == firstFailure) {
+                    firstFailure = new TripoliException("MCMC failed for BLOCK # " + entry.getKey(), e.getCause());
+                }
+            }
+        }
+        if (null != firstFailure) {
+            throw firstFailure;
+        }
+
+        return mapOfBlockIdToPlots;
+    }
+
+    public Future<PlotBuilder[][]> submitBlock(
+            AnalysisInterface analysis, int blockID, Long baseSeed, BlockProgressCallbackInterface blockProgressCallbackInterface) {
+        BlockProgressCallbackInterface callback = (null == blockProgressCallbackInterface)
+                ? (id, snippet) -> {
+        } : blockProgressCallbackInterface;
+        return executorService.submit(() -> {
+            callback.blockStarted(blockID);
+            try {
+                PlotBuilder[][] plotBuilders = analysis.updatePlotsByBlock(
+                        blockID,
+                        loggingSnippet -> {
+                            analysis.uppdateLogsByBlock(blockID, loggingSnippet);
+                            callback.blockProgress(blockID, loggingSnippet);
+                        },
+                        seedForStream(baseSeed, blockID));
+                callback.blockCompleted(blockID);
+                return plotBuilders;
+            } catch (Exception e) {
+                callback.blockFailed(blockID, e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * For callers such as JavaFX services that manage their own tasks but should share this pool's bound.
+     *
+     * @return the bounded executor
+     */
+    public Executor getExecutor() {
+        return executorService;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Collects the metrics of each block MCMC as it finishes, from every analysis and thread, and writes them as CSV
+ * for sizing hardware from headless runs.  Each block is also committed as a Flight Recorder event.  Only the most
+ * recent blocks are retained.
+ *
+ * @author James F. Bowring
+ */
+public enum MCMCMetricsRegistry {
+    ;
+
+    public static final int MAXIMUM_RETAINED_BLOCKS = 10_000;
+    private static final double[] REPORTED_QUANTILES = {0.5, 0.99};
+    private static final Deque<MCMCBlockMetrics> completedBlocks = new ArrayDeque<>();
+
+    public static void record(MCMCBlockMetrics blockMetrics) {
+        MCMCBlockEvent.commit(blockMetrics);
+        synchronized (completedBlocks) {
+            if (MAXIMUM_RETAINED_BLOCKS == completedBlocks.size()) {
+                completedBlocks.removeFirst();
+            }
+            completedBlocks.addLast(blockMetrics);
+        }
+    }
+
+    /**
+     * @return the retained blocks in the order they finished
+     */
+    public static List<MCMCBlockMetrics> getCompletedBlocks() {
+        synchronized (completedBlocks) {
+            return List.copyOf(completedBlocks);
+        }
+    }
+
+    public static void clear() {
+        synchronized (completedBlocks) {
+            completedBlocks.clear();
+        }
+    }
+
+    /**
+     * One row per block: throughput, acceptance by operation, convergence, and for each phase its total seconds
+     * and its mean, median and 99th percentile in microseconds; the percentiles are bucket edges, within a factor
+     * of two.
+     *
+     * @param blocksMetrics
+     * @param metricsPath
+     * @throws IOException
+     */
+    public static void writeCSV(List<MCMCBlockMetrics> blocksMetrics, Path metricsPath) throws IOException {
+        List<String> operations = blocksMetrics.isEmpty() ? List.of() : blocksMetrics.get(0).getOperations();
+        try (BufferedWriter writer = Files.newBufferedWriter(metricsPath)) {
+            StringJoiner header = new StringJoiner(",");
+            header.add("Analysis").add("Block").add("Iterations").add("Seconds").add("Iterations per second")
+                    .add("Acceptance rate");
+            operations.forEach(operation -> header.add(csvField(operation + " acceptance rate")));
+            header.add("Saved models").add("Convergence tests").add("R").add("Exit criterion").add("Converged at iteration");
+            for (MCMCBlockMetrics.Phase phase : MCMCBlockMetrics.Phase.values()) {
+                header.add(csvField(phase.getPhaseName() + " seconds")).add(csvField(phase.getPhaseName() + " mean us"));
+                for (double quantile : REPORTED_QUANTILES) {
+                    header.add(csvField(phase.getPhaseName() + " p" + Math.round(quantile * 100) + " us"));
+                }
+            }
+            writer.write(header.toString());
+            writer.newLine();
+
+            for (MCMCBlockMetrics blockMetrics : blocksMetrics) {
+                StringJoiner row = new StringJoiner(",");
+                row.add(csvField(blockMetrics.getAnalysisName()))
+                        .add(String.valueOf(blockMetrics.getBlockID()))
+                        .add(String.valueOf(blockMetrics.getIterations()))
+                        .add(String.valueOf(blockMetrics.getElapsedNanos() / 1.0e9))
+                        .add(String.valueOf(blockMetrics.iterationsPerSecond()))
+                        .add(String.valueOf(blockMetrics.acceptanceRate()));
+                for (int operationIndex = 0; operationIndex < operations.size(); operationIndex++) {
+                    row.add(String.valueOf(blockMetrics.acceptanceRate(operationIndex)));
+                }
+                row.add(String.valueOf(blockMetrics.getCountOfSavedModels()))
+                        .add(String.valueOf(blockMetrics.getCountOfConvergenceTests()))
+                        .add(String.valueOf(blockMetrics.getRExit()))
+                        .add(String.valueOf(blockMetrics.getExitCriterion()))
+                        .add(String.valueOf(blockMetrics.getConvergedAtIteration()));
+                for (MCMCBlockMetrics.Phase phase : MCMCBlockMetrics.Phase.values()) {
+                    row.add(String.valueOf(blockMetrics.getPhaseNanos(phase) / 1.0e9))
+                            .add(String.valueOf(blockMetrics.meanPhaseMicros(phase)));
+                    for (double quantile : REPORTED_QUANTILES) {
+                        row.add(String.valueOf(blockMetrics.phaseQuantileNanos(phase, quantile) / 1000.0));
+                    }
+                }
+                writer.write(row.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @param field
+     * @return the field, quoted as RFC 4180 requires if it holds a comma, quote or line break
+     */
+    static String csvField(String field) {
+        String retVal = field;
+        if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+            retVal = "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return retVal;
+    }
+}
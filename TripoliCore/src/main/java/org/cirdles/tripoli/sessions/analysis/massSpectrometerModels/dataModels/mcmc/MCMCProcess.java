@@ -25,20 +25,17 @@ import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
 import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
-import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.cirdles.tripoli.utilities.mathUtilities.AdaptiveProposalCovariance;
+import org.cirdles.tripoli.utilities.mathUtilities.MultivariateNormalSampler;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
 
 import static java.lang.Math.min;
-import static java.lang.Math.pow;
 import static java.lang.StrictMath.exp;
 import static org.apache.commons.math3.special.Gamma.gamma;
-import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC.modelInitData;
 
 /**
  * @author James F. Bowring
@@ -48,13 +45,18 @@ public class MCMCProcess {
     private static final int maxIterationCount = 10000;
     private static final int stepCountForcedSave = 10;
     private static final int modelCount = maxIterationCount * stepCountForcedSave;
+    // the adaptive covariance moves by O(1/m) per step, so its Cholesky factor is refreshed on this schedule
+    private static final int proposalRefactorInterval = stepCountForcedSave;
     private final SingleBlockModelRecord singleBlockInitialModelRecord_X0;
     private final Matrix covarianceMatrix_C0;
     private final SingleBlockRawDataSetRecord singleBlockRawDataSetRecord;
     private final AnalysisInterface analysis;
     private final ProposedModelParameters.ProposalRangesRecord proposalRangesRecord;
     private final boolean useAverageNotBestModel;
-    private List<EnsemblesStore.EnsembleRecord> ensembleRecordsList;
+    private final RandomDataGenerator randomDataGenerator;
+    private EnsembleColumns ensembleColumns;
+    private GelmanRubinMonitor convergenceMonitor;
+    private MCMCBlockMetrics blockMetrics;
     private boolean hierarchical;
     private double tempering;
     private double[] baselineMultiplier;
@@ -63,8 +65,14 @@ public class MCMCProcess {
     private double initialModelErrorUnWeighted_E0;
     private int[][] keptUpdates;
     private int sizeOfModel;
-    private double[] xDataMean;
-    private double[][] xDataCovariance;
+    private AdaptiveProposalCovariance adaptiveProposalCovariance;
+    private MultivariateNormalSampler proposalSampler;
+    private SingleBlockLikelihood likelihood;
+    private double[] initialModelResiduals;
+    private double initialModelErrorNoiseWeighted_E;
+    private double sumLogDataSignalNoise;
+    private double initialModelErrorWeightedTemperature = Double.NaN;
+    private double initialModelErrorWeightedAtTemperature;
     private Matrix TT;
     private double effectSamp;
     private double ExitCrit;
@@ -72,7 +80,7 @@ public class MCMCProcess {
     private MCMCProcess(
             AnalysisInterface analysis,
             SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
-            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov, boolean useAverageNotBestModel) {
+            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov, boolean useAverageNotBestModel, Long seed) {
         this.analysis = analysis;
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         this.singleBlockRawDataSetRecord = singleBlockRawDataSetRecord;
@@ -80,15 +88,44 @@ public class MCMCProcess {
         proposalRangesRecord = singleBlockInitialModelRecordWithCov.proposalRangesRecord();
         covarianceMatrix_C0 = singleBlockInitialModelRecordWithCov.covarianceMatrix_C0();
         this.useAverageNotBestModel = useAverageNotBestModel;
+        randomDataGenerator = new RandomDataGenerator();
+        if (null == seed) {
+            randomDataGenerator.reSeedSecure();
+        } else {
+            randomDataGenerator.reSeed(seed);
+        }
     }
 
     public static int getModelCount() {
         return modelCount;
     }
 
-    public static synchronized MCMCProcess createMCMCProcess(
+    /**
+     * @return iterations between saved models
+     */
+    public static int getStepCountForcedSave() {
+        return stepCountForcedSave;
+    }
+
+    public static MCMCProcess createMCMCProcess(
             AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
             SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov) {
+        return createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, null);
+    }
+
+    /**
+     * Each process owns its random generator, so blocks can run concurrently and a non-null seed
+     * reproduces the same chain regardless of scheduling.
+     *
+     * @param analysis
+     * @param singleBlockRawDataSetRecord
+     * @param singleBlockInitialModelRecordWithCov
+     * @param seed                                 null to seed securely
+     * @return
+     */
+    public static MCMCProcess createMCMCProcess(
+            AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
+            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov, Long seed) {
         /*
             % MCMC Parameters
             maxcnt = 2000;  % Maximum number of models to save
@@ -107,7 +144,7 @@ public class MCMCProcess {
             Ndata=d0.Ndata; % Number of picks
             Nsig = d0.Nsig; % Number of noise variables
          */
-        MCMCProcess mcmcProcess = new MCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, true);
+        MCMCProcess mcmcProcess = new MCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, true, seed);
         return mcmcProcess;
     }
 
@@ -157,7 +194,9 @@ public class MCMCProcess {
 //        }
 
         keptUpdates = new int[5][4];
-        ensembleRecordsList = new ArrayList<>();
+        ensembleColumns = new EnsembleColumns(singleBlockInitialModelRecord_X0.logRatios().length,
+                singleBlockInitialModelRecord_X0.I0().length, singleBlockInitialModelRecord_X0.baselineMeansArray().length, 0);
+        convergenceMonitor = new GelmanRubinMonitor(ensembleColumns.countOfModelParameters());
         sizeOfModel = singleBlockInitialModelRecord_X0.sizeOfModel();
 
         /*
@@ -179,8 +218,8 @@ public class MCMCProcess {
         double mchain = 1.0; // Number of Chains
         ExitCrit = StrictMath.sqrt(1.0 + mchain / effectSamp); //Exit when G-R criterium less than this
 
-        xDataMean = new double[sizeOfModel];
-        xDataCovariance = new double[sizeOfModel][sizeOfModel];
+        adaptiveProposalCovariance = new AdaptiveProposalCovariance(sizeOfModel);
+        proposalSampler = new MultivariateNormalSampler(covarianceMatrix_C0.getArray(), proposalRefactorInterval, randomDataGenerator);
 
         buildForwardModel();
     }
@@ -249,21 +288,52 @@ public class MCMCProcess {
                 initialModelErrorUnWeighted_E0 += calculatedValue;
             }
         }
+
+        // E in the acceptance test is always measured against this initial model and Dsig, so its terms are fixed
+        double[] dataArray_D0 = singleBlockRawDataSetRecord.blockRawDataArray();
+        initialModelResiduals = new double[dataModelArrayInitial.length];
+        initialModelErrorNoiseWeighted_E = 0.0;
+        sumLogDataSignalNoise = 0.0;
+        for (int row = 0; row < dataModelArrayInitial.length; row++) {
+            initialModelResiduals[row] = Math.pow(dataArray_D0[row] - dataModelArrayInitial[row], 2);
+            initialModelErrorNoiseWeighted_E += initialModelResiduals[row] / dataSignalNoiseArray[row];
+            sumLogDataSignalNoise += -1.0 * Math.log(dataSignalNoiseArray[row]);
+        }
+
+        likelihood = new SingleBlockLikelihood(
+                SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, singleBlockInitialModelRecord_X0.mapDetectorOrdinalToFaradayIndex()),
+                dataArray_D0, baselineMultiplier, dataSignalNoiseArray, singleBlockInitialModelRecord_X0);
+    }
+
+    /**
+     * E=sum(restmp.*blmult./Dsig/TT(m)) for the initial model, recomputed only when TT(m) changes
+     */
+    private double initialModelErrorWeighted(double temperature) {
+        if (temperature != initialModelErrorWeightedTemperature) {
+            double sum = 0.0;
+            for (int row = 0; row < initialModelResiduals.length; row++) {
+                sum += initialModelResiduals[row] * baselineMultiplier[row] / dataSignalNoiseArray[row] / temperature;
+            }
+            initialModelErrorWeightedAtTemperature = sum;
+            initialModelErrorWeightedTemperature = temperature;
+        }
+        return initialModelErrorWeightedAtTemperature;
     }
 
     public synchronized PlotBuilder[][] applyInversionWithAdaptiveMCMC(LoggingCallbackInterface loggingCallback) {
 
         SingleBlockModelRecord singleBlockCurrentModelRecord_X = singleBlockInitialModelRecord_X0;
 
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
-
         DecimalFormat statsFormat = new DecimalFormat("#0.000000", new DecimalFormatSymbols(Locale.ENGLISH));
 
         int counter = 0;
         SingleBlockModelUpdater singleBlockModelUpdater = new SingleBlockModelUpdater();
+        blockMetrics = new MCMCBlockMetrics(
+                analysis.getAnalysisName(), singleBlockCurrentModelRecord_X.blockID(), singleBlockModelUpdater.getOperations());
+        long logStartNanos = System.nanoTime();
         int countOfData = singleBlockCurrentModelRecord_X.dataModelArray().length;
         double beta = 0.05;
+        double[] delx_adapt = new double[sizeOfModel];
         boolean notConverged = true;
         String loggingSnippet;
 
@@ -273,13 +343,12 @@ public class MCMCProcess {
         SingleBlockModelRecord bestSingleBlockModelRecord = null;
         for (long modelIndex = 1; modelCount >= modelIndex; modelIndex++) {//********************************************
             if (notConverged) {
-                long prev = System.nanoTime();
-                long startTime = System.nanoTime();
+                long lapNanos = System.nanoTime();
                 boolean allFlag = true;
                 tempering = 1.0;
 
                 // Scott's new way April 2023
-                String operation = singleBlockModelUpdater.randomOperMS(hierarchical);
+                String operation = singleBlockModelUpdater.randomOperMS(hierarchical, randomDataGenerator);
             /*
                    if m<=2*Nmod   % Use initial covariance until 2*N
                     C = C0;
@@ -289,15 +358,10 @@ public class MCMCProcess {
                     C=(C'+C)/2; % Make sure it's symmetrical
                    end
             */
-                Matrix xDataCovarianceMatrix = new Matrix(xDataCovariance);
-                Matrix c0_Matrix = covarianceMatrix_C0;
-                Matrix c_Matrix;
-
                 if (modelIndex <= 2L * sizeOfModel) {
-                    c_Matrix = (Matrix) c0_Matrix.clone();
+                    proposalSampler.useInitialCovariance();
                 } else {
-                    c_Matrix = c0_Matrix.times(beta).plus(xDataCovarianceMatrix.times((1.0 - beta) * 2.38 * 2.38 / sizeOfModel));
-                    c_Matrix = c_Matrix.transpose().plus(c_Matrix).times(0.5);
+                    proposalSampler.useBlendedCovariance(adaptiveProposalCovariance, beta, (1.0 - beta) * 2.38 * 2.38 / sizeOfModel);
                 }
 
                 /*
@@ -307,14 +371,14 @@ public class MCMCProcess {
                     % Update model and save proposed update values (delx)
                     [x2,delx] = UpdateMSv2(oper,x,psig,prior,ensemble,xcov,delx_adapt,adaptflag,allflag);
                 */
-                Matrix delx_adapt_Matrix = MatLabCholesky.mvnrndTripoli(new double[sizeOfModel], c_Matrix.getArray(), 1).transpose();
+                proposalSampler.draw(delx_adapt);
 
                 SingleBlockModelRecord singleBlockUpdatedModelRecord_x2 =
                         singleBlockModelUpdater.updateMSv2(
                                 operation,
                                 singleBlockCurrentModelRecord_X,
                                 proposalRangesRecord,
-                                delx_adapt_Matrix.getRowPackedCopy(),
+                                delx_adapt,
                                 allFlag
                         );
                 boolean noiseOperation = operation.toLowerCase(Locale.ROOT).startsWith("n");
@@ -337,18 +401,7 @@ public class MCMCProcess {
                 end
              */
 
-                double[] baseLineMeansArray = singleBlockUpdatedModelRecord_x2.baselineMeansArray();
-                double[] updatedBaseLineMeansArray = new double[baseLineMeansArray.length + 1];
-                System.arraycopy(baseLineMeansArray, 0, updatedBaseLineMeansArray, 0, updatedBaseLineMeansArray.length - 1);
-
-                double[] updatedDetectorFaradayArray = new double[countOfData];
-                Arrays.fill(updatedDetectorFaradayArray, 1.0);
-
-                long interval1 = System.nanoTime() - prev;
-                prev = interval1 + prev;
-
-                long interval2 = System.nanoTime() - prev;
-                prev = interval2 + prev;
+                lapNanos = blockMetrics.lap(MCMCBlockMetrics.Phase.PROPOSAL, lapNanos);
 
                 /*
                 dnobl2 = tmpDF.*tmpLR.*tmpI;
@@ -372,30 +425,25 @@ public class MCMCProcess {
                     dE=temp^-1*(E2-E); % Change in misfit
                 end
              */
-                double[] dataArray_D2 = modelInitData(singleBlockUpdatedModelRecord_x2, singleBlockRawDataSetRecord);
+                // only the row groups whose parameters changed are recomputed
+                likelihood.propose(singleBlockUpdatedModelRecord_x2);
 
-                double[] dataSignalNoiseArray2;
-                double E02 = 0.0;
-                double E = 0.0;
-                double E2 = 0.0;
+                double E02;
+                double E;
+                double E2;
                 double dE;
-                double sumLogDSignalNoise = 0.0;
-                double sumLogDSignalNoise2 = 0.0;
+                double sumLogDSignalNoise;
+                double sumLogDSignalNoise2;
                 double keep;
 
-                long interval3 = System.nanoTime() - prev;
-                prev = interval3 + prev;
+                lapNanos = blockMetrics.lap(MCMCBlockMetrics.Phase.FORWARD_MODEL, lapNanos);
 
             /*
             Dsig2 = x2.sig(d0.det_vec).^2 + x2.sig(d0.iso_vec+d0.Ndet).*dnobl2;
              */
-                dataSignalNoiseArray2 = dataSignalNoiseArray.clone();
-                double[] dataArray_D0 = singleBlockRawDataSetRecord.blockRawDataArray();
-                for (int row = 0; row < countOfData; row++) {
-                    double residualValue = pow(dataArray_D0[row] - dataModelArrayInitial[row], 2);
-                    double residualValue2 = pow(dataArray_D0[row] - dataArray_D2[row], 2);
-                    E02 += residualValue2;
-
+                // the noise hyperparameters are not updated, so Dsig2 is Dsig
+                double[] dataSignalNoiseArray2 = dataSignalNoiseArray;
+                E02 = likelihood.getProposedUnWeightedMisfit();
 
                 /*
                 if strcmp(oper,'noise')
@@ -410,19 +458,18 @@ public class MCMCProcess {
                     dE=temp^-1*(E2-E); % Change in misfit
                 end
                  */
-                    if (noiseOperation) {
-                        E += residualValue / dataSignalNoiseArray[row];
-                        E2 += residualValue2 / dataSignalNoiseArray2[row];
-                        sumLogDSignalNoise += -1.0 * Math.log(dataSignalNoiseArray[row]);
-                        sumLogDSignalNoise2 += -1.0 * Math.log(dataSignalNoiseArray2[row]);
-                    } else {
-                        E += residualValue * baselineMultiplier[row] / dataSignalNoiseArray[row] / TT.get((int) modelIndex, 0);
-                        E2 += residualValue2 * baselineMultiplier[row] / dataSignalNoiseArray2[row] / TT.get((int) modelIndex, 0);
-                    }
-                } //rows loop
-
-                long interval4 = System.nanoTime() - prev;
-                prev = interval4 + prev;
+                if (noiseOperation) {
+                    E = initialModelErrorNoiseWeighted_E;
+                    E2 = likelihood.getProposedNoiseWeightedMisfit();
+                    sumLogDSignalNoise = sumLogDataSignalNoise;
+                    sumLogDSignalNoise2 = sumLogDataSignalNoise;
+                } else {
+                    double temperature = TT.get((int) modelIndex, 0);
+                    E = initialModelErrorWeighted(temperature);
+                    E2 = likelihood.getProposedWeightedMisfit(temperature);
+                    sumLogDSignalNoise = 0.0;
+                    sumLogDSignalNoise2 = 0.0;
+                }
 
                /*
                     % Decide whether to accept or reject model
@@ -463,9 +510,12 @@ public class MCMCProcess {
                 keptUpdates[operationIndex][1] = keptUpdates[operationIndex][1] + 1;
                 keptUpdates[operationIndex][3] = keptUpdates[operationIndex][3] + 1;
 
-                if (keep >= randomDataGenerator.nextUniform(0, 1)) {
+                boolean accepted = keep >= randomDataGenerator.nextUniform(0, 1);
+                blockMetrics.recordProposal(operationIndex, accepted);
+                if (accepted) {
                     E = E2;
                     initialModelErrorUnWeighted_E0 = E02;
+                    likelihood.acceptProposal();
 
                     singleBlockCurrentModelRecord_X = new SingleBlockModelRecord(
                             singleBlockUpdatedModelRecord_x2.blockID(),
@@ -480,7 +530,7 @@ public class MCMCProcess {
                             singleBlockUpdatedModelRecord_x2.logRatios().clone(),
                             singleBlockUpdatedModelRecord_x2.mapOfSpeciesToActiveCycles(),
                             singleBlockUpdatedModelRecord_x2.mapLogRatiosToCycleStats(),
-                            dataArray_D2.clone(),
+                            likelihood.getCurrentDataModel().clone(),
                             dataSignalNoiseArray2.clone(),
                             singleBlockUpdatedModelRecord_x2.I0().clone(),
                             singleBlockUpdatedModelRecord_x2.intensities()//intensity2.toRawCopy1D()
@@ -489,23 +539,18 @@ public class MCMCProcess {
                     keptUpdates[operationIndex][0] = keptUpdates[operationIndex][0] + 1;
                     keptUpdates[operationIndex][2] = keptUpdates[operationIndex][2] + 1;
                 }
+                lapNanos = blockMetrics.lap(MCMCBlockMetrics.Phase.LIKELIHOOD, lapNanos);
 
             /*
                 [xmean,xcov] = UpdateMeanCovMS(x,xmean,xcov,m);
                  */
-                SingleBlockModelUpdater.UpdatedCovariancesRecord updatedCovariancesRecord =
-                        singleBlockModelUpdater.updateMeanCovMS2(
-                                singleBlockCurrentModelRecord_X,
-                                xDataCovariance,
-                                xDataMean,
-                                modelIndex
-                        );
-
-                xDataCovariance = updatedCovariancesRecord.dataCov();
-                xDataMean = updatedCovariancesRecord.dataMean();
-
-                long interval5 = System.nanoTime() - prev;
-                prev = interval4 + prev;
+                // in place; called once per model, so its count of models is modelIndex
+                adaptiveProposalCovariance.update(
+                        singleBlockCurrentModelRecord_X.logRatios(),
+                        singleBlockCurrentModelRecord_X.I0(),
+                        singleBlockCurrentModelRecord_X.baselineMeansArray(),
+                        singleBlockCurrentModelRecord_X.detectorFaradayGain());
+                lapNanos = blockMetrics.lap(MCMCBlockMetrics.Phase.COVARIANCE_UPDATE, lapNanos);
 
                 if (0 == modelIndex % (stepCountForcedSave)) {
                 /*
@@ -523,14 +568,21 @@ public class MCMCProcess {
                  */
                     counter++;
 
-                    ensembleRecordsList.add(new EnsemblesStore.EnsembleRecord(
+                    // copied, as the current model's arrays change with it
+                    ensembleColumns.append(
                             singleBlockCurrentModelRecord_X.logRatios(),
                             singleBlockCurrentModelRecord_X.I0(),
                             singleBlockCurrentModelRecord_X.baselineMeansArray(),
                             singleBlockCurrentModelRecord_X.detectorFaradayGain(),
                             null,
                             E,
-                            initialModelErrorUnWeighted_E0));
+                            initialModelErrorUnWeighted_E0);
+                    convergenceMonitor.accept(
+                            singleBlockCurrentModelRecord_X.logRatios(),
+                            singleBlockCurrentModelRecord_X.I0(),
+                            singleBlockCurrentModelRecord_X.baselineMeansArray(),
+                            singleBlockCurrentModelRecord_X.detectorFaradayGain());
+                    blockMetrics.recordSavedModel();
                     if (E < minE) {
                         minE = E;
                         bestSingleBlockModelRecord = new SingleBlockModelRecord(
@@ -578,27 +630,23 @@ public class MCMCProcess {
                             modelsTotal += keptUpdates[row][3];
                         }
 
-                        long totalTime = System.nanoTime() - startTime;
+                        long totalTime = System.nanoTime() - logStartNanos;
+                        logStartNanos = System.nanoTime();
                         loggingSnippet =
                                 modelIndex + " >%%%%%%%%%%%%%%%%%%%%%%% Tripoli in Java test %%%%%%%%%%%%%%%%%%%%%%%"
                                         + "  BLOCK # " + singleBlockCurrentModelRecord_X.blockID()
                                         + "\nElapsed time = " + statsFormat.format(totalTime / 1000000000.0) + " seconds for " + 10 * stepCountForcedSave + " realizations of total = " + modelIndex
                                         + "\nError function = " + statsFormat.format(StrictMath.sqrt(initialModelErrorUnWeighted_E0 / countOfData))
                                         + "\nChange All Variables: " + modelsKeptLocal + " of " + modelsTotalLocal + " accepted (" + statsFormat.format(100.0 * modelsKept / modelsTotal) + "% total)"
-                                        + ("\nIntervals: in microseconds, each from prev or zero time till new interval"
-                                        + " Interval1 " + (interval1 / 1000)
-                                        + " Interval2 " + (interval2 / 1000)
-                                        + " Interval3 " + (interval3 / 1000)
-                                        + " Interval4 " + (interval4 / 1000)
-                                        + " Interval5 " + (interval5 / 1000));
-
-                        System.err.println("\n" + loggingSnippet + "\n");
+                                        + "\n" + blockMetrics.prettyPrintPhases();
+
                         loggingCallback.receiveLoggingSnippet(loggingSnippet);
 
                         for (int i = 0; 5 > i; i++) {
                             keptUpdates[i][0] = 0;
                             keptUpdates[i][1] = 0;
                         }
+                    }
                     /*
                      % If number of iterations is square number, larger than effective
                         % sample size, test for convergence
@@ -615,27 +663,30 @@ public class MCMCProcess {
                             end
                         end
                      */
-
-                        if ((0 == Math.sqrt(counter) % 1) && (counter >= effectSamp / stepCountForcedSave)) {
-                            double rExit = singleBlockModelUpdater.grConverge(ensembleRecordsList);
-
-                            if (rExit <= ExitCrit) {
-                                notConverged = false;
-                                String exitMessage = "Alert:  for BLOCK # " + singleBlockCurrentModelRecord_X.blockID() + ",  MCMC has converged after " + modelIndex + " iterations, with R = " + rExit;
-                                System.err.println("\n" + exitMessage + "\n");
-                                loggingCallback.receiveLoggingSnippet(exitMessage);
-                            }
+                    // the monitor keeps R current, so convergence is tested at every saved model, not only at square counts
+                    if (counter >= effectSamp / stepCountForcedSave) {
+                        double rExit = convergenceMonitor.rExit();
+                        blockMetrics.recordConvergenceTest(rExit, ExitCrit, modelIndex);
+
+                        if (rExit <= ExitCrit) {
+                            notConverged = false;
+                            String exitMessage = "Alert:  for BLOCK # " + singleBlockCurrentModelRecord_X.blockID() + ",  MCMC has converged after " + modelIndex + " iterations, with R = " + rExit;
+                            loggingCallback.receiveLoggingSnippet(exitMessage);
                         }
                     }
+                    // saving the model, the periodic log and the Gelman-Rubin test
+                    blockMetrics.lap(MCMCBlockMetrics.Phase.CONVERGENCE_CHECK, lapNanos);
                 }
             }// end model loop
         }// convergence check
+        blockMetrics.finish();
+        MCMCMetricsRegistry.record(blockMetrics);
 
         // for analysis plotting
         // TODO: move to analysis class?
         analysis.getMapOfBlockIdToRawData().put(singleBlockCurrentModelRecord_X.blockID(), singleBlockRawDataSetRecord);
-        analysis.getMapBlockIDToEnsembles().put(singleBlockCurrentModelRecord_X.blockID(), ensembleRecordsList);
-        analysis.getMapOfBlockIdToModelsBurnCount().put(singleBlockCurrentModelRecord_X.blockID(), ensembleRecordsList.size() / 2);
+        analysis.getMapBlockIDToEnsembles().put(singleBlockCurrentModelRecord_X.blockID(), ensembleColumns);
+        analysis.getMapOfBlockIdToModelsBurnCount().put(singleBlockCurrentModelRecord_X.blockID(), ensembleColumns.size() / 2);
 
         // default strategy
         analysis.getMapOfBlockIdToFinalModel()
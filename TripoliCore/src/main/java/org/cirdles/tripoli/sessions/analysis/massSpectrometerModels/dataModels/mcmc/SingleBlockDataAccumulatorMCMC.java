@@ -32,27 +32,22 @@ import java.util.*;
 import static org.cirdles.tripoli.utilities.mathUtilities.MathUtilities.roundedToSize;
 
 /**
+ * Accumulates the baseline and on-peak rows of a block, as specified by the baseline and sequence tables of the
+ * analysis method, into SingleBlockDataColumns.
+ *
  * @author James F. Bowring
  */
 public enum SingleBlockDataAccumulatorMCMC {
     ;
 
-    public static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord accumulateBaselineDataPerBaselineTableSpecs(
-            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod) {
+    public static void accumulateBaselineDataPerBaselineTableSpecs(
+            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod, SingleBlockDataColumns blockDataColumns) {
 
         BaselineTable baselineTable = analysisMethod.getBaselineTable();
-        List<Integer> detectorOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Integer> cycleAccumulatorList = new ArrayList<>();
-        List<Double> intensityAccumulatorList = new ArrayList<>();
-        List<Double> timeAccumulatorList = new ArrayList<>();
-        List<Integer> timeIndexAccumulatorList = new ArrayList<>();
-        List<Integer> isotopeOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Boolean> includedIntensitiesList = new ArrayList<>();
-        Map<String, List<Double>> blockMapOfSequenceIdsToData = new TreeMap<>();
+        blockDataColumns.startSegment(SingleBlockDataColumns.BASELINE_SEGMENT);
 
         int[] baseLineCycleNumbers = massSpecOutputBlockRecordFull.baselineCycleNumbers();
         double[][] baselineIntensities = massSpecOutputBlockRecordFull.baselineIntensities();
-        double[] baseLineTimeStamps = massSpecOutputBlockRecordFull.baselineTimeStamps();
         Map<String, List<Integer>> mapOfBaselineIdsToIndices = massSpecOutputBlockRecordFull.mapOfBaselineIdsToIndices();
 
         // this map is in ascending detector order
@@ -60,58 +55,33 @@ public enum SingleBlockDataAccumulatorMCMC {
         for (Detector detector : detectorToBaselineCellMap.keySet()) {
             if (detector.isFaraday()) {
                 int detectorDataColumnIndex = detector.getOrdinalIndex();
+                double amplifierResistance = detector.getAmplifierResistanceInOhms();
                 List<BaselineCell> baselineCells = detectorToBaselineCellMap.get(detector);
                 for (BaselineCell baselineCell : baselineCells) {
                     String baselineID = baselineCell.getBaselineID();
                     List<Integer> baselineIndices = mapOfBaselineIdsToIndices.get(baselineID);
                     Collections.sort(baselineIndices);
-                    for (Integer index : baselineIndices) {
-                        detectorOrdinalIndicesAccumulatorList.add(detectorDataColumnIndex);
+                    for (int index : baselineIndices) {
                         // TODO: Revisit this
                         double intensity = roundedToSize(baselineIntensities[index][detectorDataColumnIndex], 12);
-                        double amplifierResistance = detector.getAmplifierResistanceInOhms();
                         if (MassSpectrometerContextEnum.PHOENIX_FULL == analysisMethod.getMassSpectrometerContext()) {
                             // convert all volts to counts to bring all files into alignment
                             intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
                         }
-                        cycleAccumulatorList.add(baseLineCycleNumbers[index]);
-                        intensityAccumulatorList.add(intensity);
-                        timeAccumulatorList.add(0.0);//TODO: Scott's code has 0s here baseLineTimeStamps[index]);
-                        timeIndexAccumulatorList.add(index);
-                        isotopeOrdinalIndicesAccumulatorList.add(0);
-                        includedIntensitiesList.add(false);
+                        //TODO: Scott's code has 0s for time here baseLineTimeStamps[index]);
+                        blockDataColumns.add(detectorDataColumnIndex, baseLineCycleNumbers[index], intensity, 0.0, index, 0, false, -1);
                     }
                 }
             }
         }
-
-        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
-                massSpecOutputBlockRecordFull.blockID(),
-                detectorOrdinalIndicesAccumulatorList,
-                cycleAccumulatorList,
-                intensityAccumulatorList,
-                timeAccumulatorList,
-                timeIndexAccumulatorList,
-                isotopeOrdinalIndicesAccumulatorList,
-                includedIntensitiesList,
-                blockMapOfSequenceIdsToData
-        );
     }
 
-    public static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord accumulateOnPeakDataPerSequenceTableSpecs(
-            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod, boolean isFaraday) {
+    public static void accumulateOnPeakDataPerSequenceTableSpecs(
+            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod, boolean isFaraday, SingleBlockDataColumns blockDataColumns) {
 
         SequenceTable sequenceTable = analysisMethod.getSequenceTable();
         List<SpeciesRecordInterface> speciesList = analysisMethod.getSpeciesList();
-
-        List<Integer> detectorOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Integer> cycleAccumulatorList = new ArrayList<>();
-        List<Double> intensityAccumulatorList = new ArrayList<>();
-        List<Double> timeAccumulatorList = new ArrayList<>();
-        List<Integer> timeIndexAccumulatorList = new ArrayList<>();
-        List<Integer> isotopeOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Boolean> includedIntensitiesList = new ArrayList<>();
-        Map<String, List<Double>> blockMapOfSequenceIdsToData = new TreeMap<>();
+        blockDataColumns.startSegment(isFaraday ? SingleBlockDataColumns.ONPEAK_FARADAY_SEGMENT : SingleBlockDataColumns.ONPEAK_PHOTOMULTIPLIER_SEGMENT);
 
         int[] onPeakCycleNumbers = massSpecOutputBlockRecordFull.onPeakCycleNumbers();
         double[][] onPeakIntensities = massSpecOutputBlockRecordFull.onPeakIntensities();
@@ -123,48 +93,28 @@ public enum SingleBlockDataAccumulatorMCMC {
         for (Detector detector : detectorToSequenceCellMap.keySet()) {
             if (detector.isFaraday() == isFaraday) {
                 int detectorDataColumnIndex = detector.getOrdinalIndex();
+                double amplifierResistance = detector.getAmplifierResistanceInOhms();
                 List<SequenceCell> sequenceCells = detectorToSequenceCellMap.get(detector);
                 for (SequenceCell sequenceCell : sequenceCells) {
                     String onPeakID = sequenceCell.getSequenceId();
-                    if (!blockMapOfSequenceIdsToData.containsKey(onPeakID)) {
-                        blockMapOfSequenceIdsToData.put(onPeakID, new ArrayList<>());
-                    }
+                    int sequenceIdIndex = blockDataColumns.sequenceIdIndex(onPeakID);
                     SpeciesRecordInterface targetSpecies = sequenceCell.getTargetSpecies();
                     int speciesOrdinalIndex = speciesList.indexOf(targetSpecies) + 1;
                     List<Integer> onPeakIndices = mapOfOnPeakIdsToIndices.get(onPeakID);
                     Collections.sort(onPeakIndices);
-                    for (Integer index : onPeakIndices) {
-                        detectorOrdinalIndicesAccumulatorList.add(detectorDataColumnIndex);
+                    for (int index : onPeakIndices) {
                         // TODO: revisit this
                         double intensity = roundedToSize(onPeakIntensities[index][detectorDataColumnIndex], 12);
-                        cycleAccumulatorList.add(onPeakCycleNumbers[index]);
-                        double amplifierResistance = detector.getAmplifierResistanceInOhms();
                         if (MassSpectrometerContextEnum.PHOENIX_FULL == analysisMethod.getMassSpectrometerContext() && isFaraday) {
                             // convert all volts to counts to bring all files into alignment
                             intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
                         }
-                        intensityAccumulatorList.add(intensity);
-                        timeAccumulatorList.add(onPeakTimeStamps[index]);
-                        timeIndexAccumulatorList.add(index);
-                        isotopeOrdinalIndicesAccumulatorList.add(speciesOrdinalIndex);
-                        blockMapOfSequenceIdsToData.get(onPeakID).add(onPeakTimeStamps[index]);
-                        includedIntensitiesList.add(true);
+                        blockDataColumns.add(detectorDataColumnIndex, onPeakCycleNumbers[index], intensity,
+                                onPeakTimeStamps[index], index, speciesOrdinalIndex, true, sequenceIdIndex);
                     }
                 }
             }
         }
-
-        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
-                massSpecOutputBlockRecordFull.blockID(),
-                detectorOrdinalIndicesAccumulatorList,
-                cycleAccumulatorList,
-                intensityAccumulatorList,
-                timeAccumulatorList,
-                timeIndexAccumulatorList,
-                isotopeOrdinalIndicesAccumulatorList,
-                includedIntensitiesList,
-                blockMapOfSequenceIdsToData
-        );
     }
 
 }
\ No newline at end of file
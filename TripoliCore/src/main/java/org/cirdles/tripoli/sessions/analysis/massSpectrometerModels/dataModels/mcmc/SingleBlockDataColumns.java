@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
+
+import java.util.*;
+
+/**
+ * Growable primitive columns that accumulate the MCMC data set of one block: baseline rows, then on-peak Faraday
+ * rows, then on-peak photomultiplier rows, each section begun with startSegment.  Included intensities are kept
+ * in a BitSet and each on-peak row remembers its sequence ID, so nothing is boxed while accumulating.
+ * toRawDataSetRecord copies each column once into the arrays of a SingleBlockRawDataSetRecord, whose per-segment
+ * lists are unmodifiable views over those same arrays.  clear() keeps the capacity, so one instance can be reused
+ * for every block prepared on a thread.  Not thread safe.
+ *
+ * @author James F. Bowring
+ */
+public final class SingleBlockDataColumns {
+
+    public static final int BASELINE_SEGMENT = 0;
+    public static final int ONPEAK_FARADAY_SEGMENT = 1;
+    public static final int ONPEAK_PHOTOMULTIPLIER_SEGMENT = 2;
+    private static final int SEGMENT_COUNT = 3;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final BitSet includedIntensities = new BitSet();
+    private final List<String> sequenceIds = new ArrayList<>();
+    private final Map<String, Integer> mapOfSequenceIdsToIndices = new HashMap<>();
+    private final BitSet[] segmentSequenceIds = {new BitSet(), new BitSet(), new BitSet()};
+    private final int[] segmentStarts = new int[SEGMENT_COUNT];
+    private int[] detectorOrdinalIndices = new int[INITIAL_CAPACITY];
+    private int[] cycles = new int[INITIAL_CAPACITY];
+    private double[] intensities = new double[INITIAL_CAPACITY];
+    private double[] times = new double[INITIAL_CAPACITY];
+    private int[] timeIndices = new int[INITIAL_CAPACITY];
+    private int[] isotopeOrdinalIndices = new int[INITIAL_CAPACITY];
+    private int[] sequenceIdIndices = new int[INITIAL_CAPACITY];
+    private int size;
+    private int currentSegment = -1;
+
+    public void clear() {
+        size = 0;
+        currentSegment = -1;
+        includedIntensities.clear();
+        sequenceIds.clear();
+        mapOfSequenceIdsToIndices.clear();
+        for (BitSet sequenceIdsOfSegment : segmentSequenceIds) {
+            sequenceIdsOfSegment.clear();
+        }
+    }
+
+    /**
+     * Rows added from here on belong to segment, which must follow the segment before it.
+     *
+     * @param segment BASELINE_SEGMENT, ONPEAK_FARADAY_SEGMENT or ONPEAK_PHOTOMULTIPLIER_SEGMENT
+     */
+    public void startSegment(int segment) {
+        if (segment != currentSegment + 1) {
+            throw new IllegalStateException("Segment " + segment + " started out of order.");
+        }
+        currentSegment = segment;
+        segmentStarts[segment] = size;
+    }
+
+    /**
+     * Registers sequenceId with the current segment, even if no rows are added for it.
+     *
+     * @param sequenceId
+     * @return the index to pass to add
+     */
+    public int sequenceIdIndex(String sequenceId) {
+        int retVal = mapOfSequenceIdsToIndices.computeIfAbsent(sequenceId, id -> {
+            sequenceIds.add(id);
+            return sequenceIds.size() - 1;
+        });
+        segmentSequenceIds[currentSegment].set(retVal);
+        return retVal;
+    }
+
+    /**
+     * @param detectorOrdinalIndex
+     * @param cycle
+     * @param intensity
+     * @param time
+     * @param timeIndex
+     * @param isotopeOrdinalIndex 0 for baselines
+     * @param included
+     * @param sequenceIdIndex     from sequenceIdIndex, or -1 when the row has none
+     */
+    public void add(int detectorOrdinalIndex, int cycle, double intensity, double time, int timeIndex,
+                    int isotopeOrdinalIndex, boolean included, int sequenceIdIndex) {
+        if (size == intensities.length) {
+            int capacity = size * 2;
+            detectorOrdinalIndices = Arrays.copyOf(detectorOrdinalIndices, capacity);
+            cycles = Arrays.copyOf(cycles, capacity);
+            intensities = Arrays.copyOf(intensities, capacity);
+            times = Arrays.copyOf(times, capacity);
+            timeIndices = Arrays.copyOf(timeIndices, capacity);
+            isotopeOrdinalIndices = Arrays.copyOf(isotopeOrdinalIndices, capacity);
+            sequenceIdIndices = Arrays.copyOf(sequenceIdIndices, capacity);
+        }
+        detectorOrdinalIndices[size] = detectorOrdinalIndex;
+        cycles[size] = cycle;
+        intensities[size] = intensity;
+        times[size] = time;
+        timeIndices[size] = timeIndex;
+        isotopeOrdinalIndices[size] = isotopeOrdinalIndex;
+        sequenceIdIndices[size] = sequenceIdIndex;
+        includedIntensities.set(size, included);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int segmentEnd(int segment) {
+        return (segment < SEGMENT_COUNT - 1) ? segmentStarts[segment + 1] : size;
+    }
+
+    /**
+     * @param blockID
+     * @param blockKnotInterpolationArray
+     * @param onPeakStartingIndicesOfCycles
+     * @param mapOfSpeciesToActiveCycles
+     * @return the data set of the rows accumulated, with all three segments started
+     */
+    public SingleBlockRawDataSetRecord toRawDataSetRecord(
+            int blockID, double[][] blockKnotInterpolationArray, int[] onPeakStartingIndicesOfCycles,
+            Map<SpeciesRecordInterface, boolean[]> mapOfSpeciesToActiveCycles) {
+        if (ONPEAK_PHOTOMULTIPLIER_SEGMENT != currentSegment) {
+            throw new IllegalStateException("All segments must be started before the data set is built.");
+        }
+        int[] blockDetectorOrdinalIndicesArray = Arrays.copyOf(detectorOrdinalIndices, size);
+        int[] blockCycleArray = Arrays.copyOf(cycles, size);
+        double[] blockRawDataArray = Arrays.copyOf(intensities, size);
+        double[] blockTimeArray = Arrays.copyOf(times, size);
+        int[] blockTimeIndicesArray = Arrays.copyOf(timeIndices, size);
+        int[] blockIsotopeOrdinalIndicesArray = Arrays.copyOf(isotopeOrdinalIndices, size);
+        boolean[] blockIncludedIntensitiesArray = new boolean[size];
+        for (int row = includedIntensities.nextSetBit(0); (0 <= row) && (row < size); row = includedIntensities.nextSetBit(row + 1)) {
+            blockIncludedIntensitiesArray[row] = true;
+        }
+
+        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord[] segmentRecords = new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord[SEGMENT_COUNT];
+        for (int segment = 0; segment < SEGMENT_COUNT; segment++) {
+            int from = segmentStarts[segment];
+            int to = segmentEnd(segment);
+            segmentRecords[segment] = new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
+                    blockID,
+                    Collections.unmodifiableList(Ints.asList(blockDetectorOrdinalIndicesArray).subList(from, to)),
+                    Collections.unmodifiableList(Ints.asList(blockCycleArray).subList(from, to)),
+                    Collections.unmodifiableList(Doubles.asList(blockRawDataArray).subList(from, to)),
+                    Collections.unmodifiableList(Doubles.asList(blockTimeArray).subList(from, to)),
+                    Collections.unmodifiableList(Ints.asList(blockTimeIndicesArray).subList(from, to)),
+                    Collections.unmodifiableList(Ints.asList(blockIsotopeOrdinalIndicesArray).subList(from, to)),
+                    // its own copy, as the block array is handed to the analysis for sculpting
+                    Collections.unmodifiableList(Booleans.asList(Arrays.copyOfRange(blockIncludedIntensitiesArray, from, to))),
+                    mapOfSequenceIdsToTimes(segmentSequenceIds[segment], from, to));
+        }
+
+        BitSet onPeakSequenceIds = (BitSet) segmentSequenceIds[ONPEAK_FARADAY_SEGMENT].clone();
+        onPeakSequenceIds.or(segmentSequenceIds[ONPEAK_PHOTOMULTIPLIER_SEGMENT]);
+        Map<String, List<Double>> blockMapIdsToDataTimes =
+                mapOfSequenceIdsToTimes(onPeakSequenceIds, segmentStarts[ONPEAK_FARADAY_SEGMENT], size);
+
+        return new SingleBlockRawDataSetRecord(blockID,
+                segmentRecords[BASELINE_SEGMENT], segmentRecords[ONPEAK_FARADAY_SEGMENT], segmentRecords[ONPEAK_PHOTOMULTIPLIER_SEGMENT],
+                blockKnotInterpolationArray, blockTimeArray, blockCycleArray, blockRawDataArray, blockIncludedIntensitiesArray,
+                blockDetectorOrdinalIndicesArray, blockIsotopeOrdinalIndicesArray, blockTimeIndicesArray,
+                onPeakStartingIndicesOfCycles, mapOfSpeciesToActiveCycles, blockMapIdsToDataTimes);
+    }
+
+    private Map<String, List<Double>> mapOfSequenceIdsToTimes(BitSet sequenceIdsOfRows, int from, int to) {
+        int[] counts = new int[sequenceIds.size()];
+        for (int row = from; row < to; row++) {
+            if (0 <= sequenceIdIndices[row]) {
+                counts[sequenceIdIndices[row]]++;
+            }
+        }
+        double[][] timesOfSequenceIds = new double[counts.length][];
+        for (int index = sequenceIdsOfRows.nextSetBit(0); 0 <= index; index = sequenceIdsOfRows.nextSetBit(index + 1)) {
+            timesOfSequenceIds[index] = new double[counts[index]];
+            counts[index] = 0;
+        }
+        for (int row = from; row < to; row++) {
+            int index = sequenceIdIndices[row];
+            if ((0 <= index) && (null != timesOfSequenceIds[index])) {
+                timesOfSequenceIds[index][counts[index]++] = times[row];
+            }
+        }
+        Map<String, List<Double>> retVal = new TreeMap<>();
+        for (int index = sequenceIdsOfRows.nextSetBit(0); 0 <= index; index = sequenceIdsOfRows.nextSetBit(index + 1)) {
+            retVal.put(sequenceIds.get(index), Collections.unmodifiableList(Doubles.asList(timesOfSequenceIds[index])));
+        }
+        return retVal;
+    }
+}
@@ -36,11 +36,12 @@ import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataM
 public enum SingleBlockDataModelPlotter {
     ;
 
-    public synchronized static PlotBuilder[][] analysisAndPlotting(
+    public static PlotBuilder[][] analysisAndPlotting(
             int blockID,
             AnalysisInterface analysis) {
 
-        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = analysis.getMapBlockIDToEnsembles().get(blockID);
+        EnsembleColumns ensembleColumns = EnsembleColumns.ofBlock(analysis.getMapBlockIDToEnsembles(), blockID);
+        int countOfEnsembles = ensembleColumns.size();
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         SingleBlockModelRecord singleBlockCurrentModelRecord_X = analysis.getMapOfBlockIdToFinalModel().get(blockID);
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = analysis.getMapOfBlockIdToRawData().get(blockID);
@@ -50,35 +51,33 @@ public enum SingleBlockDataModelPlotter {
         blockEnsemblePlotEngine(blockID, analysis);
 
         List<IsotopicRatio> isotopicRatioList = analysisMethod.getIsotopicRatiosList();
-        int knotsCount = ensembleRecordsList.get(0).I0().length;
+        int knotsCount = ensembleColumns.countOfIntensities();
         int baselineSize = analysisMethod.getSequenceTable().findFaradayDetectorsUsed().size();
         double[] baselinesMeans = singleBlockCurrentModelRecord_X.baselineMeansArray();
         int initialModelsBurnCount = analysis.getMapOfBlockIdToModelsBurnCount().get(blockID);
         List<Detector> faradayDetectorsUsed = analysisMethod.getSequenceTable().findFaradayDetectorsUsed();
 
         // visualization converge ratio and others TABS
-        double[][] convergeIntensities = new double[knotsCount][ensembleRecordsList.size()];
-        for (int index = 0; index < ensembleRecordsList.size(); index++) {
-            for (int knotsIndex = 0; knotsIndex < knotsCount; knotsIndex++) {
-                convergeIntensities[knotsIndex][index] = ensembleRecordsList.get(index).I0()[knotsIndex];
-            }
+        double[][] convergeIntensities = new double[knotsCount][];
+        for (int knotsIndex = 0; knotsIndex < knotsCount; knotsIndex++) {
+            convergeIntensities[knotsIndex] = ensembleColumns.copyColumn(ensembleColumns.intensityColumn(knotsIndex), 0, countOfEnsembles);
         }
 
         // new converge plots
-        double[][] convergeSetOfLogRatios = new double[isotopicRatioList.size()][ensembleRecordsList.size()];
-        double[][] convergeSetOfBaselines = new double[baselineSize][ensembleRecordsList.size()];
-        double[] convergeErrWeightedMisfit = new double[ensembleRecordsList.size()];
-        double[] convergeErrRawMisfit = new double[ensembleRecordsList.size()];
-        double[] xDataConvergeSavedIterations = new double[ensembleRecordsList.size()];
-        for (int ensembleIndex = 0; ensembleIndex < ensembleRecordsList.size(); ensembleIndex++) {
-            for (int ratioIndex = 0; ratioIndex < isotopicRatioList.size(); ratioIndex++) {
-                convergeSetOfLogRatios[ratioIndex][ensembleIndex] = ensembleRecordsList.get(ensembleIndex).logRatios()[ratioIndex];
-            }
-            for (int faradayIndex = 0; faradayIndex < baselineSize; faradayIndex++) {
-                convergeSetOfBaselines[faradayIndex][ensembleIndex] = ensembleRecordsList.get(ensembleIndex).baseLine()[faradayIndex];
-            }
-            convergeErrWeightedMisfit[ensembleIndex] = StrictMath.sqrt(ensembleRecordsList.get(ensembleIndex).errorWeighted());
-            convergeErrRawMisfit[ensembleIndex] = StrictMath.sqrt(ensembleRecordsList.get(ensembleIndex).errorUnWeighted());
+        double[][] convergeSetOfLogRatios = new double[isotopicRatioList.size()][];
+        for (int ratioIndex = 0; ratioIndex < isotopicRatioList.size(); ratioIndex++) {
+            convergeSetOfLogRatios[ratioIndex] = ensembleColumns.copyColumn(ensembleColumns.logRatioColumn(ratioIndex), 0, countOfEnsembles);
+        }
+        double[][] convergeSetOfBaselines = new double[baselineSize][];
+        for (int faradayIndex = 0; faradayIndex < baselineSize; faradayIndex++) {
+            convergeSetOfBaselines[faradayIndex] = ensembleColumns.copyColumn(ensembleColumns.baselineColumn(faradayIndex), 0, countOfEnsembles);
+        }
+        double[] convergeErrWeightedMisfit = ensembleColumns.copyColumn(ensembleColumns.errorWeightedColumn(), 0, countOfEnsembles);
+        double[] convergeErrRawMisfit = ensembleColumns.copyColumn(ensembleColumns.errorUnWeightedColumn(), 0, countOfEnsembles);
+        double[] xDataConvergeSavedIterations = new double[countOfEnsembles];
+        for (int ensembleIndex = 0; ensembleIndex < countOfEnsembles; ensembleIndex++) {
+            convergeErrWeightedMisfit[ensembleIndex] = StrictMath.sqrt(convergeErrWeightedMisfit[ensembleIndex]);
+            convergeErrRawMisfit[ensembleIndex] = StrictMath.sqrt(convergeErrRawMisfit[ensembleIndex]);
 
             xDataConvergeSavedIterations[ensembleIndex] = ensembleIndex + 1;
         }
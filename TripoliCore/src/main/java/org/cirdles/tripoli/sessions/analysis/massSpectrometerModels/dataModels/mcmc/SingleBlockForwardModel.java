@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compiled form of SingleBlockModelInitForMCMC.modelInitData for one SingleBlockRawDataSetRecord.
+ * The knot interpolation matrix is held in compressed sparse rows, per-row Faraday, isotope and time indices
+ * are unboxed once, and exp(logRatio) is evaluated once per isotope and reused while the log ratios are unchanged.
+ * Produces the same data model as modelInitData, written into a caller-supplied array.
+ * Not thread safe - one instance per chain.
+ *
+ * @author James F. Bowring
+ */
+public class SingleBlockForwardModel {
+
+    private final int baselineCount;
+    private final int faradayEnd;
+    private final int countOfData;
+    private final int[] faradayIndices;
+    private final int[] isotopeIndices;
+    private final int[] timeIndices;
+
+    // CSR interpolation matrix: rows are on-peak times, columns are knots
+    private final int[] rowPointers;
+    private final int[] knotIndices;
+    private final double[] knotWeights;
+
+    private final double[] intensityFn;
+    private final double[] ratioFactors;
+    private double[] cachedLogRatios;
+
+    private SingleBlockForwardModel(SingleBlockRawDataSetRecord singleBlockRawDataSetRecord, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex) {
+        baselineCount = singleBlockRawDataSetRecord.getCountOfBaselineIntensities();
+        faradayEnd = baselineCount + singleBlockRawDataSetRecord.getCountOfOnPeakFaradayIntensities();
+        countOfData = faradayEnd + singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList().size();
+
+        int[] detectorOrdinalIndices = singleBlockRawDataSetRecord.blockDetectorOrdinalIndicesArray();
+        int[] isotopeOrdinalIndices = singleBlockRawDataSetRecord.blockIsotopeOrdinalIndicesArray();
+        faradayIndices = new int[faradayEnd];
+        isotopeIndices = new int[countOfData];
+        timeIndices = new int[countOfData];
+        int maxIsotopeIndex = 0;
+        for (int row = 0; row < countOfData; row++) {
+            if (row < faradayEnd) {
+                faradayIndices[row] = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndices[row]);
+            }
+            isotopeIndices[row] = isotopeOrdinalIndices[row] - 1;
+            timeIndices[row] = singleBlockRawDataSetRecord.blockTimeIndicesArray()[row];
+            maxIsotopeIndex = Math.max(maxIsotopeIndex, isotopeIndices[row]);
+        }
+        ratioFactors = new double[maxIsotopeIndex + 1];
+
+        double[][] interpolationMatrix = singleBlockRawDataSetRecord.blockKnotInterpolationArray();
+        int nonZeroCount = 0;
+        for (double[] interpolationRow : interpolationMatrix) {
+            for (double weight : interpolationRow) {
+                if (0.0 != weight) {
+                    nonZeroCount++;
+                }
+            }
+        }
+        rowPointers = new int[interpolationMatrix.length + 1];
+        knotIndices = new int[nonZeroCount];
+        knotWeights = new double[nonZeroCount];
+        int entry = 0;
+        for (int row = 0; row < interpolationMatrix.length; row++) {
+            for (int knot = 0; knot < interpolationMatrix[row].length; knot++) {
+                if (0.0 != interpolationMatrix[row][knot]) {
+                    knotIndices[entry] = knot;
+                    knotWeights[entry] = interpolationMatrix[row][knot];
+                    entry++;
+                }
+            }
+            rowPointers[row + 1] = entry;
+        }
+        intensityFn = new double[interpolationMatrix.length];
+    }
+
+    public static SingleBlockForwardModel compile(
+            SingleBlockRawDataSetRecord singleBlockRawDataSetRecord, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex) {
+        return new SingleBlockForwardModel(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+    }
+
+    public double[] modelData(SingleBlockModelRecord singleBlockModelRecord_x) {
+        double[] dataModel = new double[countOfData];
+        modelData(singleBlockModelRecord_x, dataModel);
+        return dataModel;
+    }
+
+    public void modelData(SingleBlockModelRecord singleBlockModelRecord_x, double[] dataModel) {
+        modelData(singleBlockModelRecord_x.logRatios(), singleBlockModelRecord_x.I0(),
+                singleBlockModelRecord_x.baselineMeansArray(), singleBlockModelRecord_x.detectorFaradayGain(), dataModel);
+    }
+
+    /**
+     * @param logRatios
+     * @param intensities_I0      knot intensities
+     * @param baselineMeans       by Faraday index
+     * @param detectorFaradayGain
+     * @param dataModel           receives countOfData values
+     */
+    public void modelData(double[] logRatios, double[] intensities_I0, double[] baselineMeans, double detectorFaradayGain, double[] dataModel) {
+        updateRatioFactors(logRatios);
+        updateIntensityFn(intensities_I0);
+
+        for (int row = 0; row < baselineCount; row++) {
+            dataModel[row] = baselineMeans[faradayIndices[row]];
+        }
+        double inverseGain = 1.0 / detectorFaradayGain;
+        for (int row = baselineCount; row < faradayEnd; row++) {
+            dataModel[row] = ratioFactors[isotopeIndices[row]] * inverseGain * intensityFn[timeIndices[row]]
+                    + baselineMeans[faradayIndices[row]];
+        }
+        for (int row = faradayEnd; row < countOfData; row++) {
+            dataModel[row] = ratioFactors[isotopeIndices[row]] * intensityFn[timeIndices[row]];
+        }
+    }
+
+    void updateIntensityFn(double[] intensities_I0) {
+        for (int row = 0; row < intensityFn.length; row++) {
+            intensityFn[row] = intensityAt(row, intensities_I0);
+        }
+    }
+
+    /**
+     * Stateless, so safe to share between threads.
+     *
+     * @param timeRow        row of the interpolation matrix
+     * @param intensities_I0 knot intensities
+     * @return the intensity function at timeRow
+     */
+    double intensityAt(int timeRow, double[] intensities_I0) {
+        double sum = 0.0;
+        for (int entry = rowPointers[timeRow]; entry < rowPointers[timeRow + 1]; entry++) {
+            sum += knotWeights[entry] * intensities_I0[knotIndices[entry]];
+        }
+        return sum;
+    }
+
+    /**
+     * @param timeRow row of the interpolation matrix
+     * @return the knots with a non-zero weight at timeRow
+     */
+    int[] knotsAt(int timeRow) {
+        return Arrays.copyOfRange(knotIndices, rowPointers[timeRow], rowPointers[timeRow + 1]);
+    }
+
+    /**
+     * Single-row form of modelData for incremental evaluation; updateRatioFactors and updateIntensityFn
+     * must already reflect the model being evaluated.
+     */
+    double modelRow(int row, double[] baselineMeans, double inverseGain) {
+        double retVal;
+        if (row < baselineCount) {
+            retVal = baselineMeans[faradayIndices[row]];
+        } else if (row < faradayEnd) {
+            retVal = ratioFactors[isotopeIndices[row]] * inverseGain * intensityFn[timeIndices[row]] + baselineMeans[faradayIndices[row]];
+        } else {
+            retVal = ratioFactors[isotopeIndices[row]] * intensityFn[timeIndices[row]];
+        }
+        return retVal;
+    }
+
+    void updateRatioFactors(double[] logRatios) {
+        if ((null != cachedLogRatios) && (cachedLogRatios.length == logRatios.length)) {
+            boolean unchanged = true;
+            for (int i = 0; unchanged && (i < logRatios.length); i++) {
+                unchanged = (Double.doubleToRawLongBits(cachedLogRatios[i]) == Double.doubleToRawLongBits(logRatios[i]));
+            }
+            if (unchanged) {
+                return;
+            }
+        }
+        // isotopes beyond the log ratios are the denominator isotope, with a ratio of one
+        for (int isotopeIndex = 0; isotopeIndex < ratioFactors.length; isotopeIndex++) {
+            ratioFactors[isotopeIndex] = (isotopeIndex < logRatios.length) ? StrictMath.exp(logRatios[isotopeIndex]) : 1.0;
+        }
+        cachedLogRatios = logRatios.clone();
+    }
+
+    public int getCountOfData() {
+        return countOfData;
+    }
+
+    int getCountOfBaselineData() {
+        return baselineCount;
+    }
+
+    int getCountOfBaselineAndFaradayData() {
+        return faradayEnd;
+    }
+
+    int getFaradayIndex(int row) {
+        return faradayIndices[row];
+    }
+
+    int getIsotopeIndex(int row) {
+        return isotopeIndices[row];
+    }
+
+    int getTimeIndex(int row) {
+        return timeIndices[row];
+    }
+
+    int getCountOfTimes() {
+        return intensityFn.length;
+    }
+}
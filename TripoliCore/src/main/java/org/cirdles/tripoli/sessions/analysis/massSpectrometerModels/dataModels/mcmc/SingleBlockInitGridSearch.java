@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.Arrays;
+
+/**
+ * Misfit grids behind the initial proposal variances of SingleBlockModelInitForMCMC.  Each model parameter is
+ * offset across a grid while every other parameter keeps its initial value, and each offset is scored by
+ * sum((d0 - d).^2 ./ Dsig).  Only the data rows that depend on the parameter are modelled again, so a grid point
+ * costs a handful of rows instead of a full forward model.  The misfit of the other rows is the same at every
+ * offset and is left out, as the variance estimate only uses misfits relative to their minimum.
+ * Parameters are indexed in the order of the proposal covariance: log ratios, intensity knots, baselines and
+ * then the Daly/Faraday gain.  Grids of different parameters may be scored concurrently, as each call works in
+ * its own scratch arrays.
+ *
+ * @author James F. Bowring
+ */
+public final class SingleBlockInitGridSearch {
+
+    private final SingleBlockForwardModel forwardModel;
+    private final double[] dataArray_D0;
+    private final double[] dataSignalNoiseArray;
+    private final double[] logRatios;
+    private final double[] intensities_I0;
+    private final double[] baselineMeans;
+    private final double detectorFaradayGain;
+
+    private final double[] ratioFactors;
+    private final double[] intensityFn;
+    private final int[][] rowsOfParameters;
+
+    /**
+     * @param forwardModel         compiled for this block; only its immutable state is used
+     * @param dataArray_D0         observed data
+     * @param dataSignalNoiseArray Dsig
+     * @param logRatios            initial model
+     * @param intensities_I0       initial model
+     * @param baselineMeans        initial model, by Faraday index
+     * @param detectorFaradayGain  initial model
+     */
+    public SingleBlockInitGridSearch(
+            SingleBlockForwardModel forwardModel, double[] dataArray_D0, double[] dataSignalNoiseArray,
+            double[] logRatios, double[] intensities_I0, double[] baselineMeans, double detectorFaradayGain) {
+        this.forwardModel = forwardModel;
+        this.dataArray_D0 = dataArray_D0;
+        this.dataSignalNoiseArray = dataSignalNoiseArray;
+        this.logRatios = logRatios.clone();
+        this.intensities_I0 = intensities_I0.clone();
+        this.baselineMeans = baselineMeans.clone();
+        this.detectorFaradayGain = detectorFaradayGain;
+
+        int baselineCount = forwardModel.getCountOfBaselineData();
+        int faradayEnd = forwardModel.getCountOfBaselineAndFaradayData();
+        int countOfData = forwardModel.getCountOfData();
+
+        int maxIsotopeIndex = 0;
+        for (int row = baselineCount; row < countOfData; row++) {
+            maxIsotopeIndex = Math.max(maxIsotopeIndex, forwardModel.getIsotopeIndex(row));
+        }
+        // isotopes beyond the log ratios are the denominator isotope, with a ratio of one
+        ratioFactors = new double[maxIsotopeIndex + 1];
+        for (int isotopeIndex = 0; isotopeIndex < ratioFactors.length; isotopeIndex++) {
+            ratioFactors[isotopeIndex] = (isotopeIndex < logRatios.length) ? StrictMath.exp(logRatios[isotopeIndex]) : 1.0;
+        }
+        intensityFn = new double[forwardModel.getCountOfTimes()];
+        for (int timeRow = 0; timeRow < intensityFn.length; timeRow++) {
+            intensityFn[timeRow] = forwardModel.intensityAt(timeRow, intensities_I0);
+        }
+
+        int knotStart = logRatios.length;
+        int baselineStart = knotStart + intensities_I0.length;
+        int gainIndex = baselineStart + baselineMeans.length;
+        int[] counts = new int[gainIndex + 1];
+        int[][] parametersOfRows = new int[countOfData][];
+        for (int row = 0; row < countOfData; row++) {
+            int[] parameters;
+            if (row < baselineCount) {
+                parameters = new int[]{baselineStart + forwardModel.getFaradayIndex(row)};
+            } else {
+                int isotopeIndex = forwardModel.getIsotopeIndex(row);
+                int[] knots = forwardModel.knotsAt(forwardModel.getTimeIndex(row));
+                parameters = new int[knots.length + 3];
+                int count = 0;
+                if (isotopeIndex < logRatios.length) {
+                    parameters[count++] = isotopeIndex;
+                }
+                for (int knot : knots) {
+                    parameters[count++] = knotStart + knot;
+                }
+                if (row < faradayEnd) {
+                    parameters[count++] = baselineStart + forwardModel.getFaradayIndex(row);
+                    parameters[count++] = gainIndex;
+                }
+                parameters = Arrays.copyOf(parameters, count);
+            }
+            for (int parameterIndex : parameters) {
+                counts[parameterIndex]++;
+            }
+            parametersOfRows[row] = parameters;
+        }
+        rowsOfParameters = new int[gainIndex + 1][];
+        for (int parameterIndex = 0; parameterIndex < rowsOfParameters.length; parameterIndex++) {
+            rowsOfParameters[parameterIndex] = new int[counts[parameterIndex]];
+            counts[parameterIndex] = 0;
+        }
+        for (int row = 0; row < countOfData; row++) {
+            for (int parameterIndex : parametersOfRows[row]) {
+                rowsOfParameters[parameterIndex][counts[parameterIndex]++] = row;
+            }
+        }
+    }
+
+    public int getCountOfParameters() {
+        return rowsOfParameters.length;
+    }
+
+    /**
+     * @param parameterIndex in proposal covariance order
+     * @return the number of data rows modelled again for each offset of the parameter
+     */
+    public int getCountOfRows(int parameterIndex) {
+        return rowsOfParameters[parameterIndex].length;
+    }
+
+    /**
+     * Scores the parameter at its initial value plus each offset.
+     *
+     * @param parameterIndex in proposal covariance order
+     * @param offsets        added to the initial value of the parameter
+     * @return misfit of the rows depending on the parameter, for each offset
+     */
+    public double[] misfits(int parameterIndex, double[] offsets) {
+        int knotStart = logRatios.length;
+        int baselineStart = knotStart + intensities_I0.length;
+        int gainIndex = baselineStart + baselineMeans.length;
+        int[] rows = rowsOfParameters[parameterIndex];
+
+        // scratch copies for this call only
+        double[] testRatioFactors = ratioFactors.clone();
+        double[] testIntensities = intensities_I0.clone();
+        double[] testBaselineMeans = baselineMeans.clone();
+        double[] retVal = new double[offsets.length];
+        for (int offsetIndex = 0; offsetIndex < offsets.length; offsetIndex++) {
+            double offset = offsets[offsetIndex];
+            double testGain = detectorFaradayGain;
+            if (parameterIndex < knotStart) {
+                testRatioFactors[parameterIndex] = StrictMath.exp(logRatios[parameterIndex] + offset);
+            } else if (parameterIndex < baselineStart) {
+                testIntensities[parameterIndex - knotStart] = intensities_I0[parameterIndex - knotStart] + offset;
+            } else if (parameterIndex < gainIndex) {
+                testBaselineMeans[parameterIndex - baselineStart] = baselineMeans[parameterIndex - baselineStart] + offset;
+            } else {
+                testGain = detectorFaradayGain + offset;
+            }
+            retVal[offsetIndex] = misfitOfRows(rows, testRatioFactors,
+                    (parameterIndex >= knotStart) && (parameterIndex < baselineStart) ? testIntensities : null,
+                    testBaselineMeans, 1.0 / testGain);
+        }
+        return retVal;
+    }
+
+    private double misfitOfRows(int[] rows, double[] testRatioFactors, double[] testIntensities, double[] testBaselineMeans, double inverseGain) {
+        int baselineCount = forwardModel.getCountOfBaselineData();
+        int faradayEnd = forwardModel.getCountOfBaselineAndFaradayData();
+        double sum = 0.0;
+        for (int row : rows) {
+            double dataModel;
+            if (row < baselineCount) {
+                dataModel = testBaselineMeans[forwardModel.getFaradayIndex(row)];
+            } else {
+                int timeRow = forwardModel.getTimeIndex(row);
+                double intensity = (null == testIntensities) ? intensityFn[timeRow] : forwardModel.intensityAt(timeRow, testIntensities);
+                if (row < faradayEnd) {
+                    dataModel = testRatioFactors[forwardModel.getIsotopeIndex(row)] * inverseGain * intensity
+                            + testBaselineMeans[forwardModel.getFaradayIndex(row)];
+                } else {
+                    dataModel = testRatioFactors[forwardModel.getIsotopeIndex(row)] * intensity;
+                }
+            }
+            sum += Math.pow((dataArray_D0[row] - dataModel), 2.0) / dataSignalNoiseArray[row];
+        }
+        return sum;
+    }
+}
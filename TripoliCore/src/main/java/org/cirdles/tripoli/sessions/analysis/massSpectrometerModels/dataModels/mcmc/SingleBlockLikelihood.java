@@ -0,0 +1,324 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.pow;
+
+/**
+ * Delta-likelihood evaluation of MCMC proposals.  Data rows are grouped by the parameters they depend on:
+ * baseline rows by Faraday, on-peak Faraday rows by Faraday and isotope, and photomultiplier rows by isotope.
+ * Misfit partial sums are kept per group for the current model, and a proposal recomputes only the groups whose
+ * parameters it actually changed - for example only one Faraday's baseline and on-peak rows when just that
+ * baseline moved.  Totals are then summed group by group, so they can differ from a single full pass in the last
+ * bits.  A proposal that changes every group, as most do while MCMCProcess perturbs all parameters, is instead
+ * evaluated in one full pass in row order, exactly as before.
+ * The signal noise array is assumed fixed for the life of the chain, as it is in MCMCProcess.
+ * Not thread safe - one instance per chain.
+ *
+ * @author James F. Bowring
+ */
+public class SingleBlockLikelihood {
+
+    private static final int BASELINE_GROUP = 0;
+    private static final int FARADAY_GROUP = 1;
+    private static final int PHOTOMULTIPLIER_GROUP = 2;
+
+    private final SingleBlockForwardModel forwardModel;
+    private final double[] dataArray_D0;
+    private final double[] baselineMultiplier;
+    private final double[] dataSignalNoiseArray;
+
+    private final int[][] groupRows;
+    private final int[] groupKinds;
+    private final int[] groupFaradayIndices;
+    private final int[] groupIsotopeIndices;
+
+    private final double[] currentDataModel;
+    private final double[] currentWeighted;
+    private final double[] currentNoiseWeighted;
+    private final double[] currentUnWeighted;
+    private final double[] proposedDataModel;
+    private final double[] proposedWeighted;
+    private final double[] proposedNoiseWeighted;
+    private final double[] proposedUnWeighted;
+    private final double[] proposedResiduals;
+    private final boolean[] dirtyGroups;
+    private boolean everyGroupDirty;
+    private double proposedNoiseWeightedFullPass;
+    private double proposedUnWeightedFullPass;
+
+    private double[] currentLogRatios;
+    private double[] currentIntensities;
+    private double[] currentBaselineMeans;
+    private double currentDetectorFaradayGain;
+    private SingleBlockModelRecord proposedModelRecord;
+    private int countOfRowsRecomputed;
+
+    /**
+     * @param forwardModel         compiled for this block
+     * @param dataArray_D0         observed data
+     * @param baselineMultiplier   blmult
+     * @param dataSignalNoiseArray Dsig, not modified during the chain
+     * @param currentModelRecord   starting model
+     */
+    public SingleBlockLikelihood(
+            SingleBlockForwardModel forwardModel, double[] dataArray_D0, double[] baselineMultiplier,
+            double[] dataSignalNoiseArray, SingleBlockModelRecord currentModelRecord) {
+        this.forwardModel = forwardModel;
+        this.dataArray_D0 = dataArray_D0;
+        this.baselineMultiplier = baselineMultiplier;
+        this.dataSignalNoiseArray = dataSignalNoiseArray;
+
+        Map<List<Integer>, List<Integer>> mapGroupKeyToRows = new LinkedHashMap<>();
+        for (int row = 0; row < forwardModel.getCountOfData(); row++) {
+            List<Integer> groupKey;
+            if (row < forwardModel.getCountOfBaselineData()) {
+                groupKey = List.of(BASELINE_GROUP, forwardModel.getFaradayIndex(row), -1);
+            } else if (row < forwardModel.getCountOfBaselineAndFaradayData()) {
+                groupKey = List.of(FARADAY_GROUP, forwardModel.getFaradayIndex(row), forwardModel.getIsotopeIndex(row));
+            } else {
+                groupKey = List.of(PHOTOMULTIPLIER_GROUP, -1, forwardModel.getIsotopeIndex(row));
+            }
+            mapGroupKeyToRows.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(row);
+        }
+        int countOfGroups = mapGroupKeyToRows.size();
+        groupRows = new int[countOfGroups][];
+        groupKinds = new int[countOfGroups];
+        groupFaradayIndices = new int[countOfGroups];
+        groupIsotopeIndices = new int[countOfGroups];
+        int groupIndex = 0;
+        for (Map.Entry<List<Integer>, List<Integer>> entry : mapGroupKeyToRows.entrySet()) {
+            groupKinds[groupIndex] = entry.getKey().get(0);
+            groupFaradayIndices[groupIndex] = entry.getKey().get(1);
+            groupIsotopeIndices[groupIndex] = entry.getKey().get(2);
+            groupRows[groupIndex] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            groupIndex++;
+        }
+
+        currentDataModel = new double[forwardModel.getCountOfData()];
+        proposedDataModel = new double[forwardModel.getCountOfData()];
+        proposedResiduals = new double[forwardModel.getCountOfData()];
+        currentWeighted = new double[countOfGroups];
+        currentNoiseWeighted = new double[countOfGroups];
+        currentUnWeighted = new double[countOfGroups];
+        proposedWeighted = new double[countOfGroups];
+        proposedNoiseWeighted = new double[countOfGroups];
+        proposedUnWeighted = new double[countOfGroups];
+        dirtyGroups = new boolean[countOfGroups];
+
+        forwardModel.modelData(currentModelRecord, currentDataModel);
+        for (int group = 0; group < countOfGroups; group++) {
+            double weighted = 0.0;
+            double noiseWeighted = 0.0;
+            double unWeighted = 0.0;
+            for (int row : groupRows[group]) {
+                double residualValue = pow(dataArray_D0[row] - currentDataModel[row], 2);
+                unWeighted += residualValue;
+                noiseWeighted += residualValue / dataSignalNoiseArray[row];
+                weighted += residualValue * baselineMultiplier[row] / dataSignalNoiseArray[row];
+            }
+            currentWeighted[group] = weighted;
+            currentNoiseWeighted[group] = noiseWeighted;
+            currentUnWeighted[group] = unWeighted;
+        }
+        setCurrentParameters(currentModelRecord);
+    }
+
+    private static boolean differs(double a, double b) {
+        return Double.doubleToRawLongBits(a) != Double.doubleToRawLongBits(b);
+    }
+
+    private void setCurrentParameters(SingleBlockModelRecord modelRecord) {
+        currentLogRatios = modelRecord.logRatios().clone();
+        currentIntensities = modelRecord.I0().clone();
+        currentBaselineMeans = modelRecord.baselineMeansArray().clone();
+        currentDetectorFaradayGain = modelRecord.detectorFaradayGain();
+    }
+
+    /**
+     * Evaluates the proposal against the current model, recomputing only the row groups it touches.
+     *
+     * @param proposedModelRecord x2
+     */
+    public void propose(SingleBlockModelRecord proposedModelRecord) {
+        this.proposedModelRecord = proposedModelRecord;
+        double[] logRatios = proposedModelRecord.logRatios();
+        double[] intensities = proposedModelRecord.I0();
+        double[] baselineMeans = proposedModelRecord.baselineMeansArray();
+
+        boolean intensitiesChanged = false;
+        for (int i = 0; !intensitiesChanged && (i < intensities.length); i++) {
+            intensitiesChanged = differs(intensities[i], currentIntensities[i]);
+        }
+        boolean gainChanged = differs(proposedModelRecord.detectorFaradayGain(), currentDetectorFaradayGain);
+
+        boolean anyOnPeakDirty = false;
+        everyGroupDirty = true;
+        for (int group = 0; group < groupRows.length; group++) {
+            int faradayIndex = groupFaradayIndices[group];
+            int isotopeIndex = groupIsotopeIndices[group];
+            boolean ratioChanged = (isotopeIndex >= 0) && (isotopeIndex < logRatios.length)
+                    && differs(logRatios[isotopeIndex], currentLogRatios[isotopeIndex]);
+            boolean dirty = switch (groupKinds[group]) {
+                case BASELINE_GROUP -> differs(baselineMeans[faradayIndex], currentBaselineMeans[faradayIndex]);
+                case FARADAY_GROUP -> intensitiesChanged || gainChanged || ratioChanged
+                        || differs(baselineMeans[faradayIndex], currentBaselineMeans[faradayIndex]);
+                default -> intensitiesChanged || ratioChanged;
+            };
+            dirtyGroups[group] = dirty;
+            anyOnPeakDirty = anyOnPeakDirty || (dirty && (BASELINE_GROUP != groupKinds[group]));
+            everyGroupDirty = everyGroupDirty && dirty;
+        }
+
+        if (everyGroupDirty) {
+            proposeEveryGroup();
+        } else {
+            proposeDirtyGroups(anyOnPeakDirty);
+        }
+    }
+
+    private void proposeDirtyGroups(boolean anyOnPeakDirty) {
+        double[] logRatios = proposedModelRecord.logRatios();
+        double[] intensities = proposedModelRecord.I0();
+        double[] baselineMeans = proposedModelRecord.baselineMeansArray();
+        if (anyOnPeakDirty) {
+            forwardModel.updateRatioFactors(logRatios);
+            forwardModel.updateIntensityFn(intensities);
+        }
+        double inverseGain = 1.0 / proposedModelRecord.detectorFaradayGain();
+        countOfRowsRecomputed = 0;
+        for (int group = 0; group < groupRows.length; group++) {
+            if (dirtyGroups[group]) {
+                double weighted = 0.0;
+                double noiseWeighted = 0.0;
+                double unWeighted = 0.0;
+                for (int row : groupRows[group]) {
+                    proposedDataModel[row] = forwardModel.modelRow(row, baselineMeans, inverseGain);
+                    double residualValue = pow(dataArray_D0[row] - proposedDataModel[row], 2);
+                    unWeighted += residualValue;
+                    noiseWeighted += residualValue / dataSignalNoiseArray[row];
+                    weighted += residualValue * baselineMultiplier[row] / dataSignalNoiseArray[row];
+                }
+                proposedWeighted[group] = weighted;
+                proposedNoiseWeighted[group] = noiseWeighted;
+                proposedUnWeighted[group] = unWeighted;
+                countOfRowsRecomputed += groupRows[group].length;
+            }
+        }
+    }
+
+    /**
+     * The full pass of MCMCProcess, in row order, with the group sums kept for later proposals.
+     */
+    private void proposeEveryGroup() {
+        forwardModel.modelData(proposedModelRecord, proposedDataModel);
+        proposedNoiseWeightedFullPass = 0.0;
+        proposedUnWeightedFullPass = 0.0;
+        for (int row = 0; row < proposedDataModel.length; row++) {
+            proposedResiduals[row] = pow(dataArray_D0[row] - proposedDataModel[row], 2);
+            proposedUnWeightedFullPass += proposedResiduals[row];
+            proposedNoiseWeightedFullPass += proposedResiduals[row] / dataSignalNoiseArray[row];
+        }
+        for (int group = 0; group < groupRows.length; group++) {
+            double weighted = 0.0;
+            double noiseWeighted = 0.0;
+            double unWeighted = 0.0;
+            for (int row : groupRows[group]) {
+                unWeighted += proposedResiduals[row];
+                noiseWeighted += proposedResiduals[row] / dataSignalNoiseArray[row];
+                weighted += proposedResiduals[row] * baselineMultiplier[row] / dataSignalNoiseArray[row];
+            }
+            proposedWeighted[group] = weighted;
+            proposedNoiseWeighted[group] = noiseWeighted;
+            proposedUnWeighted[group] = unWeighted;
+        }
+        countOfRowsRecomputed = proposedDataModel.length;
+    }
+
+    private double sumOfGroups(double[] current, double[] proposed) {
+        double sum = 0.0;
+        for (int group = 0; group < groupRows.length; group++) {
+            sum += dirtyGroups[group] ? proposed[group] : current[group];
+        }
+        return sum;
+    }
+
+    /**
+     * @param temperature the tempering TT(m)
+     * @return E2=sum(restmp2.*blmult./Dsig2/TT(m)) for the last proposal
+     */
+    public double getProposedWeightedMisfit(double temperature) {
+        double retVal;
+        if (everyGroupDirty) {
+            retVal = 0.0;
+            for (int row = 0; row < proposedResiduals.length; row++) {
+                retVal += proposedResiduals[row] * baselineMultiplier[row] / dataSignalNoiseArray[row] / temperature;
+            }
+        } else {
+            retVal = sumOfGroups(currentWeighted, proposedWeighted) / temperature;
+        }
+        return retVal;
+    }
+
+    /**
+     * @return sum(restmp2./Dsig2) for the last proposal
+     */
+    public double getProposedNoiseWeightedMisfit() {
+        return everyGroupDirty ? proposedNoiseWeightedFullPass : sumOfGroups(currentNoiseWeighted, proposedNoiseWeighted);
+    }
+
+    /**
+     * @return E02, the unweighted misfit of the last proposal
+     */
+    public double getProposedUnWeightedMisfit() {
+        return everyGroupDirty ? proposedUnWeightedFullPass : sumOfGroups(currentUnWeighted, proposedUnWeighted);
+    }
+
+    /**
+     * Makes the last proposal the current model.
+     */
+    public void acceptProposal() {
+        for (int group = 0; group < groupRows.length; group++) {
+            if (dirtyGroups[group]) {
+                for (int row : groupRows[group]) {
+                    currentDataModel[row] = proposedDataModel[row];
+                }
+                currentWeighted[group] = proposedWeighted[group];
+                currentNoiseWeighted[group] = proposedNoiseWeighted[group];
+                currentUnWeighted[group] = proposedUnWeighted[group];
+                dirtyGroups[group] = false;
+            }
+        }
+        setCurrentParameters(proposedModelRecord);
+    }
+
+    /**
+     * @return data model of the current model; callers that keep it must copy it
+     */
+    public double[] getCurrentDataModel() {
+        return currentDataModel;
+    }
+
+    public int getCountOfRowsRecomputed() {
+        return countOfRowsRecomputed;
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
 
-import com.google.common.primitives.Doubles;
 import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
@@ -42,16 +41,33 @@ import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataM
 public enum SingleBlockModelDriver {
     ;
 
-    public synchronized static PlotBuilder[][] buildAndRunModelForSingleBlock(
+    // columns are reused for every block prepared on a thread
+    private static final ThreadLocal<SingleBlockDataColumns> BLOCK_DATA_COLUMNS = ThreadLocal.withInitial(SingleBlockDataColumns::new);
+
+    public static PlotBuilder[][] buildAndRunModelForSingleBlock(
             int blockID, AnalysisInterface analysis, LoggingCallbackInterface loggingCallback) throws TripoliException {
+        return buildAndRunModelForSingleBlock(blockID, analysis, loggingCallback, null);
+    }
+
+    /**
+     * Runs the MCMC inversion for one block. There is no shared static state, so blocks of the same analysis
+     * may be run concurrently (see {@link MCMCBlockScheduler}).
+     *
+     * @param blockID
+     * @param analysis
+     * @param loggingCallback
+     * @param seed            seed for this block's chain, or null to seed securely
+     * @return
+     * @throws TripoliException
+     */
+    public static PlotBuilder[][] buildAndRunModelForSingleBlock(
+            int blockID, AnalysisInterface analysis, LoggingCallbackInterface loggingCallback, Long seed) throws TripoliException {
         MassSpecExtractedData massSpecExtractedData = analysis.getMassSpecExtractedData();
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         PlotBuilder[][] plotBuilder = new PlotBuilder[0][0];
 
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = prepareSingleBlockDataForMCMC(blockID, massSpecExtractedData, analysisMethod);
-        if (null == ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().get(blockID)) {
-            ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().put(blockID, singleBlockRawDataSetRecord.blockIncludedIntensitiesArray());
-        }
+        ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().computeIfAbsent(blockID, k -> singleBlockRawDataSetRecord.blockIncludedIntensitiesArray());
 
         SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov;
         try {
@@ -62,14 +78,14 @@ public enum SingleBlockModelDriver {
         }
 
         if (null != singleBlockInitialModelRecordWithCov) {
-            MCMCProcess mcmcProcess = MCMCProcess.createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov);
+            MCMCProcess mcmcProcess = MCMCProcess.createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, seed);
             mcmcProcess.initializeMCMCProcess();
             plotBuilder = mcmcProcess.applyInversionWithAdaptiveMCMC(loggingCallback);
         }
         return plotBuilder;
     }
 
-    public synchronized static SingleBlockRawDataSetRecord prepareSingleBlockDataForMCMC(int blockNumber, MassSpecExtractedData massSpecExtractedData, AnalysisMethod analysisMethod) {
+    public static SingleBlockRawDataSetRecord prepareSingleBlockDataForMCMC(int blockNumber, MassSpecExtractedData massSpecExtractedData, AnalysisMethod analysisMethod) {
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord;
         MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull = massSpecExtractedData.getBlocksDataFull().get(blockNumber);
 
@@ -80,80 +96,14 @@ public enum SingleBlockModelDriver {
         } else {
             blockKnotInterpolationStore = generateKnotsMatrixForBlock(massSpecOutputBlockRecordFull, 3);
         }
-        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord baselineDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateBaselineDataPerBaselineTableSpecs(massSpecOutputBlockRecordFull, analysisMethod);
-        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakFaradayDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, true);
-        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakPhotoMultiplierDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, false);
-
-        List<Integer> cycleList = new ArrayList<>();
-        cycleList.addAll(baselineDataSetMCMC.cycleAccumulatorList());
-        cycleList.addAll(onPeakFaradayDataSetMCMC.cycleAccumulatorList());
-        cycleList.addAll(onPeakPhotoMultiplierDataSetMCMC.cycleAccumulatorList());
-        int[] blockCycleArray = cycleList.stream().mapToInt(i -> i).toArray();
-
-        List<Double> blockIntensityList = new ArrayList<>();
-        blockIntensityList.addAll(baselineDataSetMCMC.intensityAccumulatorList());
-        blockIntensityList.addAll(onPeakFaradayDataSetMCMC.intensityAccumulatorList());
-        blockIntensityList.addAll(onPeakPhotoMultiplierDataSetMCMC.intensityAccumulatorList());
-        double[] blockRawDataArray = Doubles.toArray(blockIntensityList);
-
-        List<Boolean> blockIncludedIntensityList = new ArrayList<>();
-        blockIncludedIntensityList.addAll(baselineDataSetMCMC.includedIntensitiesList());
-        blockIncludedIntensityList.addAll(onPeakFaradayDataSetMCMC.includedIntensitiesList());
-        blockIncludedIntensityList.addAll(onPeakPhotoMultiplierDataSetMCMC.includedIntensitiesList());
-        boolean[] blockIncludedIntensitiesArray = new boolean[blockIncludedIntensityList.size()];
-        for (int i = 0; i < blockIncludedIntensitiesArray.length; i++) {
-            blockIncludedIntensitiesArray[i] = blockIncludedIntensityList.get(i);
-        }
-
-        List<Integer> blockDetectorOrdinalIndicesList = new ArrayList<>();
-        blockDetectorOrdinalIndicesList.addAll(baselineDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        blockDetectorOrdinalIndicesList.addAll(onPeakFaradayDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        blockDetectorOrdinalIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        int[] blockDetectorOrdinalIndicesArray = blockDetectorOrdinalIndicesList.stream().mapToInt(i -> i).toArray();
-
-        List<Integer> blockIsotopeOrdinalIndicesList = new ArrayList<>();
-        blockIsotopeOrdinalIndicesList.addAll(baselineDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        blockIsotopeOrdinalIndicesList.addAll(onPeakFaradayDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        blockIsotopeOrdinalIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        int[] blockIsotopeOrdinalIndicesArray = blockIsotopeOrdinalIndicesList.stream().mapToInt(i -> i).toArray();
-
-        List<Double> blockTimeList = new ArrayList<>();
-        blockTimeList.addAll(baselineDataSetMCMC.timeAccumulatorList());
-        blockTimeList.addAll(onPeakFaradayDataSetMCMC.timeAccumulatorList());
-        blockTimeList.addAll(onPeakPhotoMultiplierDataSetMCMC.timeAccumulatorList());
-        double[] blockTimeArray = blockTimeList.stream().mapToDouble(i -> i).toArray();
-
-        List<Integer> blockTimeIndicesList = new ArrayList<>();
-        blockTimeIndicesList.addAll(baselineDataSetMCMC.timeIndexAccumulatorList());
-        blockTimeIndicesList.addAll(onPeakFaradayDataSetMCMC.timeIndexAccumulatorList());
-        blockTimeIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.timeIndexAccumulatorList());
-        int[] blockTimeIndicesArray = blockTimeIndicesList.stream().mapToInt(i -> i).toArray();
+        SingleBlockDataColumns blockDataColumns = BLOCK_DATA_COLUMNS.get();
+        blockDataColumns.clear();
+        SingleBlockDataAccumulatorMCMC.accumulateBaselineDataPerBaselineTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, blockDataColumns);
+        SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, true, blockDataColumns);
+        SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, false, blockDataColumns);
 
         int[] onPeakStartingIndicesOfCycles = massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles();
 
-        Map<String, List<Double>> blockMapIdsToDataTimes = new TreeMap<>();
-        for (String id : onPeakFaradayDataSetMCMC.blockMapOfIdsToData().keySet()) {
-            if (!blockMapIdsToDataTimes.containsKey(id)) {
-                blockMapIdsToDataTimes.put(id, new ArrayList<>());
-            }
-        }
-        for (String id : onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().keySet()) {
-            if (!blockMapIdsToDataTimes.containsKey(id)) {
-                blockMapIdsToDataTimes.put(id, new ArrayList<>());
-            }
-        }
-        for (String id : blockMapIdsToDataTimes.keySet()) {
-            if (onPeakFaradayDataSetMCMC.blockMapOfIdsToData().get(id) != null) {
-                blockMapIdsToDataTimes.get(id).addAll(onPeakFaradayDataSetMCMC.blockMapOfIdsToData().get(id));
-            }
-            if (onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().get(id) != null) {
-                blockMapIdsToDataTimes.get(id).addAll(onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().get(id));
-            }
-        }
-
         boolean[] activeCycles = new boolean[onPeakStartingIndicesOfCycles.length];
         Arrays.fill(activeCycles, true);
         List<SpeciesRecordInterface> species = analysisMethod.getSpeciesList();
@@ -162,14 +112,12 @@ public enum SingleBlockModelDriver {
             mapOfSpeciesToActiveCycles.put(specie, activeCycles.clone());
         }
 
-        singleBlockRawDataSetRecord =
-                new SingleBlockRawDataSetRecord(blockNumber, baselineDataSetMCMC, onPeakFaradayDataSetMCMC, onPeakPhotoMultiplierDataSetMCMC, blockKnotInterpolationStore.toRawCopy2D(),
-                        blockTimeArray, blockCycleArray, blockRawDataArray, blockIncludedIntensitiesArray, blockDetectorOrdinalIndicesArray, blockIsotopeOrdinalIndicesArray, blockTimeIndicesArray,
-                        onPeakStartingIndicesOfCycles, mapOfSpeciesToActiveCycles, blockMapIdsToDataTimes);
+        singleBlockRawDataSetRecord = blockDataColumns.toRawDataSetRecord(
+                blockNumber, blockKnotInterpolationStore.toRawCopy2D(), onPeakStartingIndicesOfCycles, mapOfSpeciesToActiveCycles);
         return singleBlockRawDataSetRecord;
     }
 
-    private synchronized static Primitive64Store generateKnotsMatrixForBlock(
+    private static Primitive64Store generateKnotsMatrixForBlock(
             MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, int basisDegree) {
 
         int knotCount = massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles().length + 1;
@@ -186,7 +134,7 @@ public enum SingleBlockModelDriver {
         return bBaseOutput;
     }
 
-    private synchronized static Primitive64Store generateLinearKnotsMatrixReplicaOfBurdickMatLab(MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull) {
+    private static Primitive64Store generateLinearKnotsMatrixReplicaOfBurdickMatLab(MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull) {
         // build InterpMat for block using linear approach
         // the general approach for a block is to create a knot at the start of each cycle and
         // linearly interpolate between knots to create fractional placement of each recorded timestamp
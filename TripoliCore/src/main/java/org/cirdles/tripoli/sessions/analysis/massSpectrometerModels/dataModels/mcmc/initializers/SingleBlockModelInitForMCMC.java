@@ -22,7 +22,10 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.cirdles.tripoli.expressions.species.IsotopicRatio;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCBlockScheduler;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.ProposedModelParameters;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockForwardModel;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockInitGridSearch;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
@@ -31,6 +34,7 @@ import org.ojalgo.RecoverableCondition;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.ProposedModelParameters.buildProposalRangesRecord;
 import static org.cirdles.tripoli.utilities.comparators.SerializableIntegerComparator.SERIALIZABLE_COMPARATOR;
@@ -74,19 +78,16 @@ public enum SingleBlockModelInitForMCMC {
                 x0.BLstd(m,1) = std(d0.data(d0.blflag & d0.det_ind(:,m)));
             end
          */
-        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord baselineDataSetMCMC = singleBlockRawDataSetRecord.baselineDataSetMCMC();
-        List<Integer> detectorOrdinalIndicesAccumulatorList = baselineDataSetMCMC.detectorOrdinalIndicesAccumulatorList();
-        List<Double> intensityAccumulatorList = baselineDataSetMCMC.intensityAccumulatorList();
+        // baselines are the first rows of the block arrays
+        int[] baselineDetectorOrdinalIndices = singleBlockRawDataSetRecord.blockDetectorOrdinalIndicesArray();
+        double[] baselineIntensities = singleBlockRawDataSetRecord.blockRawDataArray();
         Map<Integer, DescriptiveStatistics> mapBaselineDetectorIndicesToStatistics = new TreeMap<>(SERIALIZABLE_COMPARATOR);
         Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = new TreeMap<>(SERIALIZABLE_COMPARATOR);
 
-        int intensityIndex = 0;
-        for (Integer detectorOrdinalIndex : detectorOrdinalIndicesAccumulatorList) {
-            if (!mapBaselineDetectorIndicesToStatistics.containsKey(detectorOrdinalIndex)) {
-                mapBaselineDetectorIndicesToStatistics.put(detectorOrdinalIndex, new DescriptiveStatistics());
-            }
-            mapBaselineDetectorIndicesToStatistics.get(detectorOrdinalIndex).addValue(intensityAccumulatorList.get(intensityIndex));
-            intensityIndex++;
+        int intensityIndex;
+        for (intensityIndex = 0; intensityIndex < baselineCount; intensityIndex++) {
+            mapBaselineDetectorIndicesToStatistics.computeIfAbsent(baselineDetectorOrdinalIndices[intensityIndex], k -> new DescriptiveStatistics())
+                    .addValue(baselineIntensities[intensityIndex]);
         }
 
         double[] baselineMeansArray = new double[mapBaselineDetectorIndicesToStatistics.size()];
@@ -439,6 +440,14 @@ public enum SingleBlockModelInitForMCMC {
 
         Matrix covarianceMatrix_C0 = null;
         if (provideCovariance) {
+            // each parameter's grid re-models only the data rows that depend on it, and parameters are scored in parallel
+            SingleBlockForwardModel forwardModel = SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+            SingleBlockInitGridSearch gridSearch = new SingleBlockInitGridSearch(forwardModel,
+                    singleBlockRawDataSetRecord.blockRawDataArray(), dataSignalNoiseArray_Dsig,
+                    logRatios, intensity_I, baselineMeansArray, detectorFaradayGain);
+            int countOfParameters = gridSearch.getCountOfParameters();
+            double[][] testOffsets = new double[countOfParameters][];
+            int parameterIndex = 0;
             // Covariance Matrix
         /*
             %%  Initialize Diagonal Model Covariance Matrix
@@ -461,45 +470,9 @@ public enum SingleBlockModelInitForMCMC {
 
             end
          */
-
-            double[] logRatioVar = new double[logRatios.length];
+            double[] testLR = MatLab.linspace(-0.5, 0.5, 101).toRawCopy1D();
             for (int logRatioIndex = 0; logRatioIndex < logRatios.length; logRatioIndex++) {
-                double[] testLR = MatLab.linspace(-0.5, 0.5, 101).toRawCopy1D();
-                double delta_testLR = testLR[1] - testLR[0];
-                double minvarLR = Math.pow(delta_testLR / 2.0, 2.0);
-                double[] eTmp = new double[testLR.length];
-                double minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testLR.length; ii++) {
-                    double[] testLogRatios = logRatios.clone();
-                    testLogRatios[logRatioIndex] = logRatios[logRatioIndex] + testLR[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(),
-                            cycleCount,
-                            countOfIsotopes,
-                            analysisMethod.retrieveHighestAbundanceSpecies(),
-                            baselineMeansArray,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            testLogRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            intensity_I,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    try {
-                        dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                        eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                        minETmp = Math.min(eTmp[ii], minETmp);
-                    } catch (Exception e) {
-                        System.err.println("Dsig error during init line 476");
-                    }
-                }
-                logRatioVar[logRatioIndex] = Math.max(calcVariance(eTmp, minETmp, testLR), minvarLR);
+                testOffsets[parameterIndex++] = testLR;
             }
 
         /*
@@ -524,36 +497,9 @@ public enum SingleBlockModelInitForMCMC {
         end
 
          */
-            double[] intensityVar = new double[intensity_I.length];
+            double[] testI = MatLab.linspace(-meanOfBaseLineMeansStdDev, meanOfBaseLineMeansStdDev, 101).toRawCopy1D();
             for (intensityIndex = 0; intensityIndex < intensity_I.length; intensityIndex++) {
-                double[] testI = MatLab.linspace(-meanOfBaseLineMeansStdDev, meanOfBaseLineMeansStdDev, 101).toRawCopy1D();
-                double delta_testI = testI[1] - testI[0];
-                double minvarI = Math.pow(delta_testI / 2.0, 2.0);
-                double[] eTmp = new double[testI.length];
-                double minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testI.length; ii++) {
-                    double[] testIntensity = intensity_I.clone();
-                    testIntensity[intensityIndex] = intensity_I[intensityIndex] + testI[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(), cycleCount, countOfIsotopes, analysisMethod.retrieveHighestAbundanceSpecies(), baselineMeansArray,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            logRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            testIntensity,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                    eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                    minETmp = Math.min(eTmp[ii], minETmp);
-                }
-                intensityVar[intensityIndex] = Math.max(calcVariance(eTmp, minETmp, testI), minvarI);
+                testOffsets[parameterIndex++] = testI;
             }
 
         /*
@@ -573,33 +519,6 @@ public enum SingleBlockModelInitForMCMC {
             x0.DFgainVar = max(sum(p.*(testDF-0).^2),minvarDF);%sb629
         */
             double[] testDF = MatLab.linspace(-.1, .1, 1001).toRawCopy1D();
-            double delta_testDF = testDF[1] - testDF[0];
-            double minvarDF = Math.pow(delta_testDF / 2.0, 2.0);
-            double[] eTmp = new double[testDF.length];
-            double minETmp = Double.MAX_VALUE;
-            for (int ii = 0; ii < testDF.length; ii++) {
-                double testDFGain = detectorFaradayGain + testDF[ii];
-
-                SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                        singleBlockRawDataSetRecord.blockID(),
-                        mapDetectorOrdinalToFaradayIndex.size(), cycleCount, countOfIsotopes, analysisMethod.retrieveHighestAbundanceSpecies(), baselineMeansArray,
-                        baselineStandardDeviationsArray,
-                        testDFGain,
-                        mapDetectorOrdinalToFaradayIndex,
-                        logRatios,
-                        singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                        mapLogRatiosToCycleStats,
-                        singleBlockRawDataSetRecord.blockRawDataArray(),
-                        dataSignalNoiseArray_Dsig,
-                        intensity_I,
-                        intensityFn.getColumnPackedCopy()
-                );
-
-                dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                minETmp = Math.min(eTmp[ii], minETmp);
-            }
-            double dfGainVar = Math.max(calcVariance(eTmp, minETmp, testDF), minvarDF);
 
         /*
             for m = 1:d0.Nfar
@@ -620,60 +539,35 @@ public enum SingleBlockModelInitForMCMC {
 
             end
          */
-            double[] baseLineVar = new double[baselineMeansArray.length];
             for (int baseLineIndex = 0; baseLineIndex < baselineMeansArray.length; baseLineIndex++) {
-                double[] testBL = MatLab.linspace(-baselineStandardDeviationsArray[baseLineIndex], baselineStandardDeviationsArray[baseLineIndex], 1001).toRawCopy1D();
-                double delta_testBL = testBL[1] - testBL[0];
-                double minvarBL = Math.pow(delta_testBL / 2.0, 2.0);
-                eTmp = new double[testBL.length];
-                minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testBL.length; ii++) {
-                    double[] testBaseLineMeans = baselineMeansArray.clone();
-                    testBaseLineMeans[baseLineIndex] = baselineMeansArray[baseLineIndex] + testBL[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(),
-                            cycleCount,
-                            countOfIsotopes,
-                            analysisMethod.retrieveHighestAbundanceSpecies(),
-                            testBaseLineMeans,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            logRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            intensity_I,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                    eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                    minETmp = Math.min(eTmp[ii], minETmp);
-                }
-                baseLineVar[baseLineIndex] = Math.max(calcVariance(eTmp, minETmp, testBL), minvarBL);
+                testOffsets[parameterIndex++] = MatLab.linspace(
+                        -baselineStandardDeviationsArray[baseLineIndex], baselineStandardDeviationsArray[baseLineIndex], 1001).toRawCopy1D();
             }
+            // the DF gain is the last parameter of the covariance matrix
+            testOffsets[parameterIndex] = testDF;
+
+            double[] parameterVariances = new double[countOfParameters];
+            // a block already running on the scheduler's bounded pool searches its grid on its own thread
+            IntStream parameterIndices = IntStream.range(0, countOfParameters);
+            if (!MCMCBlockScheduler.isBlockThread()) {
+                parameterIndices = parameterIndices.parallel();
+            }
+            parameterIndices.forEach(index -> {
+                double[] testArray = testOffsets[index];
+                double[] eTmp = gridSearch.misfits(index, testArray);
+                double minETmp = Double.MAX_VALUE;
+                for (double e : eTmp) {
+                    minETmp = Math.min(e, minETmp);
+                }
+                double minVar = Math.pow((testArray[1] - testArray[0]) / 2.0, 2.0);
+                parameterVariances[index] = Math.max(calcVariance(eTmp, minETmp, testArray), minVar);
+            });
 
-
-            int countOfParameters = logRatioVar.length + intensityVar.length + baseLineVar.length + 1;
             double covarianceFactor = Math.pow(0.1, 2) * (1.0 / countOfParameters);
             double[][] diagC0 = new double[countOfParameters][countOfParameters];
-            int diagIndex = 0;
-            for (double v : logRatioVar) {
-                diagC0[diagIndex][diagIndex] = StrictMath.sqrt(v) * covarianceFactor;
-                diagIndex++;
-            }
-            for (double v : intensityVar) {
-                diagC0[diagIndex][diagIndex] = StrictMath.sqrt(v) * covarianceFactor;
-                diagIndex++;
+            for (int diagIndex = 0; diagIndex < countOfParameters; diagIndex++) {
+                diagC0[diagIndex][diagIndex] = StrictMath.sqrt(parameterVariances[diagIndex]) * covarianceFactor;
             }
-            for (double v : baseLineVar) {
-                diagC0[diagIndex][diagIndex] = StrictMath.sqrt(v) * covarianceFactor;
-                diagIndex++;
-            }
-            diagC0[diagIndex][diagIndex] = StrictMath.sqrt(dfGainVar) * covarianceFactor;
 
             covarianceMatrix_C0 = new Matrix(diagC0);
         }
@@ -681,7 +575,7 @@ public enum SingleBlockModelInitForMCMC {
         return new SingleBlockModelRecordWithCov(calculatedX0, proposalRangesRecord, covarianceMatrix_C0);
     }
 
-    private static synchronized double calculateDFGain(int iden, double[] baselineMeansArray, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
+    private static double calculateDFGain(int iden, double[] baselineMeansArray, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
         // new DFGain calculator
         /*
         %x0.DFgain = user_DFgain;  %sb629 Now going to set according to data(?)
@@ -811,7 +705,7 @@ public enum SingleBlockModelInitForMCMC {
 
     }
 
-    public synchronized static double[] modelInitData(SingleBlockModelRecord singleBlockModelRecord_x, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord_d0) {
+    public static double[] modelInitData(SingleBlockModelRecord singleBlockModelRecord_x, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord_d0) {
         int baselineCount = singleBlockRawDataSetRecord_d0.baselineDataSetMCMC().intensityAccumulatorList().size();
         int onPeakFaradayCount = singleBlockRawDataSetRecord_d0.onPeakFaradayDataSetMCMC().intensityAccumulatorList().size();
         int onPeakPhotoMultCount = singleBlockRawDataSetRecord_d0.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList().size();
@@ -863,15 +757,7 @@ public enum SingleBlockModelInitForMCMC {
         return dataModel;
     }
 
-    private synchronized static double calcError(double[] origData, double[] modelData, double[] dataSignalNoiseArray_Dsig) {
-        double sum = 0.0;
-        for (int i = 0; i < origData.length; i++) {
-            sum += Math.pow((origData[i] - modelData[i]), 2.0) / dataSignalNoiseArray_Dsig[i];
-        }
-        return sum;
-    }
-
-    private synchronized static double calcVariance(double[] eTmp, double minETmp, double[] testArray) {
+    private static double calcVariance(double[] eTmp, double minETmp, double[] testArray) {
         double[] ee = new double[eTmp.length];
         double sumExpEE = 0.0;
         for (int i = 0; i < ee.length; i++) {
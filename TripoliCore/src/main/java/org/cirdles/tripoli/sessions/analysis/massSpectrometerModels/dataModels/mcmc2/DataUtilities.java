@@ -20,14 +20,12 @@ import jama.Matrix;
 import org.apache.commons.math3.random.RandomDataGenerator;
 
 import java.util.Arrays;
-import java.util.Random;
 
 import static java.lang.Math.max;
 import static java.lang.StrictMath.*;
 import static org.apache.commons.math3.stat.StatUtils.mean;
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.MathUtilities.*;
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.TestDriver.*;
-import static org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky.mvnrndTripoli;
 
 public enum DataUtilities {
     ;
@@ -106,6 +104,13 @@ public enum DataUtilities {
     }
 
     static MCMC2ChainRecord initializeChains(MCMC2SetupRecord setup, MCMC2DataRecord data, MaxLikelihoodRecord maxLik) {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeedSecure();
+        return initializeChains(setup, data, maxLik, randomDataGenerator);
+    }
+
+    static MCMC2ChainRecord initializeChains(
+            MCMC2SetupRecord setup, MCMC2DataRecord data, MaxLikelihoodRecord maxLik, RandomDataGenerator randomDataGenerator) {
         /*
             function [initModels, initLogLiks] = initializeChains(setup, data, maxlik)
 
@@ -127,12 +132,10 @@ public enum DataUtilities {
         double[] initLogLiks = new double[setup.chainsCount()];
 //        UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create();
 
-        Random ran = new Random();
-
         for (int iChain = 0; iChain < setup.chainsCount(); iChain++) {
             for (int iParameter = 0; iParameter < setup.modelParameterCount(); iParameter++) {
 //                double random = rng.nextDouble(-setup.modelParameterCount(), setup.modelParameterCount());
-                double nextGaussian = ran.nextGaussian();
+                double nextGaussian = randomDataGenerator.nextGaussian(0.0, 1.0);
                 initModels[iParameter][iChain]
                         = maxLik.model().parameters()[iParameter]
                         + setup.pertubation() * nextGaussian
@@ -200,7 +203,7 @@ public enum DataUtilities {
      * <p>
      * end % function evaluateModel
      */
-    private static double[] evaluateModel(double[] modelParameters, MCMC2SetupRecord setup) {
+    static double[] evaluateModel(double[] modelParameters, MCMC2SetupRecord setup) {
         double lograb = modelParameters[0];
         double[] logCb = new double[setup.nOPIntegrations()];
         Arrays.fill(logCb, modelParameters[1]);
@@ -372,45 +375,17 @@ end % updateDataCovariance
      */
 
     static MetropolisHastingsRecord metropolisHastings(int iChain, double[] modelInitial, double llInitial, MCMC2DataRecord data, MCMC2SetupRecord setup) {
-        double[] modelCurrent = modelInitial.clone();
-        double llCurrent = llInitial;
-
-        double[][] outputModels = new double[setup.modelParameterCount()][setup.MCMCTrialsCount() / setup.seive()];
-        for (int i = 0; i < setup.modelParameterCount(); i++) {
-            Arrays.fill(outputModels[i], Double.NaN);
-        }
-        double[] outputLogLiks = new double[setup.MCMCTrialsCount() / setup.seive()];
-        Arrays.fill(outputLogLiks, Double.NaN);
-
         RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
         randomDataGenerator.reSeedSecure();
+        return metropolisHastings(modelInitial, llInitial, data, setup, randomDataGenerator);
+    }
 
-        for (int iMC = 1; iMC < setup.MCMCTrialsCount() + 1; iMC++) {
-            if (0 == iMC % setup.seive()) {
-                int outputIndex = iMC / setup.seive();
-                outputModels = writeColumn(modelCurrent, outputModels, outputIndex - 1);
-                outputLogLiks[outputIndex - 1] = llCurrent;
-            }
-
-            double[] modelRandom = mvnrndTripoli(new double[setup.modelParameterCount()], setup.proposalCovariance(), 1).getRowPackedCopy();
-            double[] modelProposed = new double[setup.modelParameterCount()];
-            for (int i = 0; i < setup.modelParameterCount(); i++) {
-                modelProposed[i] = modelCurrent[i] + modelRandom[i];
-            }
-
-            double[] dhatProposed = evaluateModel(modelProposed, setup);
-            double[] dvarProposed = updateDataVariance(modelProposed, setup);
-            double llProposed = logLik(dhatProposed, data, dvarProposed);
-            double delta_ll = llProposed - llCurrent;
-            double keep = min(1, exp(delta_ll));
-
-            if (keep >= randomDataGenerator.nextUniform(0, 1)) {
-                modelCurrent = modelProposed;
-                llCurrent = llProposed;
-            }
-        }
+    static MetropolisHastingsRecord metropolisHastings(
+            double[] modelInitial, double llInitial, MCMC2DataRecord data, MCMC2SetupRecord setup, RandomDataGenerator randomDataGenerator) {
+        MCMC2Chain mcmc2Chain = new MCMC2Chain(modelInitial, llInitial, data, setup, randomDataGenerator);
+        mcmc2Chain.runUntilSaved(Integer.MAX_VALUE);
 
-        return new MetropolisHastingsRecord(outputModels, outputLogLiks);
+        return new MetropolisHastingsRecord(mcmc2Chain.getOutputModels(), mcmc2Chain.getOutputLogLiks());
         /*
         for iMC = 1:setup.nMC
             % save off current model
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.utilities.mathUtilities.MultivariateNormalSampler;
+
+import java.util.Arrays;
+
+import static java.lang.Math.min;
+import static java.lang.StrictMath.exp;
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.DataUtilities.*;
+
+/**
+ * One Metropolis-Hastings chain of the MCMC2 engine that can be advanced in segments, so that all chains
+ * can pause together for a between-chain convergence check.  Each chain owns its generator, and the
+ * proposal covariance is fixed, so its Cholesky factor is computed once.
+ *
+ * @author James F. Bowring
+ */
+class MCMC2Chain {
+
+    private final MCMC2DataRecord data;
+    private final MCMC2SetupRecord setup;
+    private final RandomDataGenerator randomDataGenerator;
+    private final MultivariateNormalSampler proposalSampler;
+    private final double[] modelRandom;
+    private final double[][] outputModels;
+    private final double[] outputLogLiks;
+    private double[] modelCurrent;
+    private double[] modelProposed;
+    private double llCurrent;
+    private int iMC;
+    private int savedCount;
+
+    MCMC2Chain(double[] modelInitial, double llInitial, MCMC2DataRecord data, MCMC2SetupRecord setup, RandomDataGenerator randomDataGenerator) {
+        this.data = data;
+        this.setup = setup;
+        this.randomDataGenerator = randomDataGenerator;
+        proposalSampler = new MultivariateNormalSampler(setup.proposalCovariance(), 1, randomDataGenerator);
+        modelRandom = new double[setup.modelParameterCount()];
+
+        outputModels = new double[setup.modelParameterCount()][setup.MCMCTrialsCount() / setup.seive()];
+        for (int i = 0; i < setup.modelParameterCount(); i++) {
+            Arrays.fill(outputModels[i], Double.NaN);
+        }
+        outputLogLiks = new double[setup.MCMCTrialsCount() / setup.seive()];
+        Arrays.fill(outputLogLiks, Double.NaN);
+
+        modelCurrent = modelInitial.clone();
+        modelProposed = new double[setup.modelParameterCount()];
+        llCurrent = llInitial;
+        iMC = 1;
+        savedCount = 0;
+    }
+
+    /**
+     * Continues the chain until targetSavedCount models have been saved or the trials are exhausted.
+     *
+     * @param targetSavedCount
+     */
+    void runUntilSaved(int targetSavedCount) {
+        int target = Math.min(targetSavedCount, outputLogLiks.length);
+        while ((savedCount < target) && (iMC < setup.MCMCTrialsCount() + 1)) {
+            if (0 == iMC % setup.seive()) {
+                int outputIndex = iMC / setup.seive();
+                for (int i = 0; i < modelCurrent.length; i++) {
+                    outputModels[i][outputIndex - 1] = modelCurrent[i];
+                }
+                outputLogLiks[outputIndex - 1] = llCurrent;
+                savedCount = outputIndex;
+            }
+
+            proposalSampler.draw(modelRandom);
+            for (int i = 0; i < setup.modelParameterCount(); i++) {
+                modelProposed[i] = modelCurrent[i] + modelRandom[i];
+            }
+
+            double[] dhatProposed = evaluateModel(modelProposed, setup);
+            double[] dvarProposed = updateDataVariance(modelProposed, setup);
+            double llProposed = logLik(dhatProposed, data, dvarProposed);
+            double delta_ll = llProposed - llCurrent;
+            double keep = min(1, exp(delta_ll));
+
+            if (keep >= randomDataGenerator.nextUniform(0, 1)) {
+                // the rejected or superseded model becomes the next proposal buffer
+                double[] modelPrevious = modelCurrent;
+                modelCurrent = modelProposed;
+                modelProposed = modelPrevious;
+                llCurrent = llProposed;
+            }
+            iMC++;
+        }
+    }
+
+    boolean isFinished() {
+        return iMC > setup.MCMCTrialsCount();
+    }
+
+    int getSavedCount() {
+        return savedCount;
+    }
+
+    double[][] getOutputModels() {
+        return outputModels;
+    }
+
+    double[] getOutputLogLiks() {
+        return outputLogLiks;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2;
+
+import jama.Matrix;
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.DataUtilities.initializeChains;
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.DataUtilities.maxLikelihood;
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.MathUtilities.extractColumn;
+import static org.cirdles.tripoli.utilities.mathUtilities.RandomSeeds.seedForStream;
+
+/**
+ * Runs the chains of an MCMC2 simulation concurrently on a fork-join pool.
+ * Chains advance together in segments of convergenceCheckInterval saved models; after each segment the
+ * between-chain Gelman-Rubin R-hat of every model parameter is computed over the post burn-in models,
+ * and all chains stop once every R-hat is below the threshold.  R-hat needs at least two chains, so a
+ * single-chain simulation always runs the fixed count of trials.
+ * With a base seed, every chain draws from its own stream derived from the seed, the simulation index and
+ * the chain index, and the stopping checks fall at fixed points, so results do not depend on scheduling.
+ *
+ * @author James F. Bowring
+ */
+public class MCMC2Engine implements AutoCloseable {
+
+    public static final double DEFAULT_R_HAT_THRESHOLD = 1.01;
+    public static final int DEFAULT_CONVERGENCE_CHECK_INTERVAL = 100;
+
+    private final ForkJoinPool forkJoinPool;
+    private final double rHatThreshold;
+    private final int convergenceCheckInterval;
+
+    public MCMC2Engine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_R_HAT_THRESHOLD, DEFAULT_CONVERGENCE_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param parallelism              worker threads
+     * @param rHatThreshold            stop when every parameter's R-hat is below this; use 0 to always run all trials
+     * @param convergenceCheckInterval saved models per chain between convergence checks
+     */
+    public MCMC2Engine(int parallelism, double rHatThreshold, int convergenceCheckInterval) {
+        forkJoinPool = new ForkJoinPool(Math.max(1, parallelism));
+        this.rHatThreshold = rHatThreshold;
+        this.convergenceCheckInterval = Math.max(1, convergenceCheckInterval);
+    }
+
+    /**
+     * Gelman-Rubin potential scale reduction factor across chains.
+     *
+     * @param chainModels [chain][parameter][saved model]
+     * @param from        first saved model included
+     * @param to          one past the last saved model included
+     * @return R-hat by parameter, NaN where the within-chain variance is zero
+     */
+    public static double[] gelmanRubinRHat(double[][][] chainModels, int from, int to) {
+        int chainCount = chainModels.length;
+        int parameterCount = chainModels[0].length;
+        int n = to - from;
+        double[] rHat = new double[parameterCount];
+        for (int parameter = 0; parameter < parameterCount; parameter++) {
+            double[] chainMeans = new double[chainCount];
+            double meanOfChainVariances = 0.0;
+            for (int chain = 0; chain < chainCount; chain++) {
+                double[] samples = chainModels[chain][parameter];
+                double sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    sum += samples[i];
+                }
+                chainMeans[chain] = sum / n;
+                double sumSquares = 0.0;
+                for (int i = from; i < to; i++) {
+                    sumSquares += (samples[i] - chainMeans[chain]) * (samples[i] - chainMeans[chain]);
+                }
+                meanOfChainVariances += sumSquares / (n - 1) / chainCount;
+            }
+            double grandMean = 0.0;
+            for (double chainMean : chainMeans) {
+                grandMean += chainMean / chainCount;
+            }
+            double betweenOverN = 0.0;
+            for (double chainMean : chainMeans) {
+                betweenOverN += (chainMean - grandMean) * (chainMean - grandMean) / (chainCount - 1);
+            }
+            double pooledVariance = (n - 1.0) / n * meanOfChainVariances + betweenOverN;
+            rHat[parameter] = (0.0 < meanOfChainVariances) ? StrictMath.sqrt(pooledVariance / meanOfChainVariances) : Double.NaN;
+        }
+        return rHat;
+    }
+
+    /**
+     * @param simulationIndex
+     * @param data
+     * @param setup
+     * @param truthModel      may be null
+     * @param baseSeed        null to seed every chain securely
+     * @return with a null rHat when there is one chain or too few post burn-in models
+     * @throws TripoliException
+     */
+    public MCMC2ResultsRecord runSimulation(
+            int simulationIndex, MCMC2DataRecord data, MCMC2SetupRecord setup, double[] truthModel, Long baseSeed) throws TripoliException {
+        Long simulationSeed = seedForStream(baseSeed, simulationIndex);
+
+        MaxLikelihoodRecord maxLikelihoodRecord = maxLikelihood(data, setup);
+        setup = setup.updateRecordWithCovariance(maxLikelihoodRecord.covarianceMatrix());
+        MCMC2ChainRecord mcmc2ChainRecord = initializeChains(setup, data, maxLikelihoodRecord, generatorFor(simulationSeed, 0));
+
+        int chainsCount = setup.chainsCount();
+        MCMC2Chain[] chains = new MCMC2Chain[chainsCount];
+        for (int iChain = 0; iChain < chainsCount; iChain++) {
+            chains[iChain] = new MCMC2Chain(
+                    extractColumn(mcmc2ChainRecord.initModels(), iChain),
+                    mcmc2ChainRecord.initLogLiks()[iChain],
+                    data,
+                    setup,
+                    generatorFor(simulationSeed, iChain + 1));
+        }
+
+        int nSavedModels = setup.MCMCTrialsCount() / setup.seive();
+        double[] rHat = null;
+        int targetSavedCount = 0;
+        boolean converged = false;
+        while (!converged && (targetSavedCount < nSavedModels)) {
+            // a single chain has no between-chain variance, so it runs to the end in one segment
+            targetSavedCount = (2 > chainsCount) ? nSavedModels : Math.min(nSavedModels, targetSavedCount + convergenceCheckInterval);
+            runChainsUntilSaved(chains, targetSavedCount);
+            if ((2 <= chainsCount) && (targetSavedCount - setup.burnIn() > 1)) {
+                rHat = gelmanRubinRHat(chainModels(chains), setup.burnIn(), targetSavedCount);
+                converged = true;
+                for (double value : rHat) {
+                    converged = converged && (value < rHatThreshold);
+                }
+            }
+        }
+
+        return aggregateChains(simulationIndex, chains, targetSavedCount, setup, truthModel, rHat);
+    }
+
+    private static RandomDataGenerator generatorFor(Long simulationSeed, int streamIndex) {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        if (null == simulationSeed) {
+            randomDataGenerator.reSeedSecure();
+        } else {
+            randomDataGenerator.reSeed(seedForStream(simulationSeed, streamIndex));
+        }
+        return randomDataGenerator;
+    }
+
+    private static double[][][] chainModels(MCMC2Chain[] chains) {
+        double[][][] chainModels = new double[chains.length][][];
+        for (int iChain = 0; iChain < chains.length; iChain++) {
+            chainModels[iChain] = chains[iChain].getOutputModels();
+        }
+        return chainModels;
+    }
+
+    private void runChainsUntilSaved(MCMC2Chain[] chains, int targetSavedCount) throws TripoliException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (MCMC2Chain chain : chains) {
+            tasks.add(() -> {
+                chain.runUntilSaved(targetSavedCount);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : forkJoinPool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TripoliException("MCMC2 chains interrupted", e);
+        } catch (ExecutionException e) {
+            throw new TripoliException("MCMC2 chain failed", e.getCause());
+        }
+    }
+
+    private static MCMC2ResultsRecord aggregateChains(
+            int simulationIndex, MCMC2Chain[] chains, int savedCount, MCMC2SetupRecord setup, double[] truthModel, double[] rHat) {
+        /*
+            % aggregate chains
+                setup.nPostBurnIn = size(postBurnInChains, 2);
+                mAll = reshape(postBurnInChains, [setup.nmodel, setup.nPostBurnIn*setup.nChains]);
+                result(iSim).modelMean = mean(mAll,2);
+                result(iSim).modelCov = cov(mAll');
+
+                % calculate chiSqare with true values
+                result(iSim).r = result(iSim).modelMean - truth.model;
+                result(iSim).ChiSq = result(iSim).r' * inv(result(iSim).modelCov) * result(iSim).r;
+         */
+        setup = setup.updateRecordWithPostBurnIn(savedCount - setup.burnIn());
+        int postBurnInCount = setup.postBurnInCount();
+        double[][] allModels = new double[setup.modelParameterCount()][postBurnInCount * setup.chainsCount()];
+        double[] sums = new double[setup.modelParameterCount()];
+        for (int i = 0; i < setup.modelParameterCount(); i++) {
+            for (int k = 0; k < setup.chainsCount(); k++) {
+                double[] chainParameterModels = chains[k].getOutputModels()[i];
+                for (int j = 0; j < postBurnInCount; j++) {
+                    allModels[i][j + k * postBurnInCount] = chainParameterModels[j + setup.burnIn()];
+                    sums[i] += chainParameterModels[j + setup.burnIn()];
+                }
+            }
+        }
+        double[] modelMeans = new double[setup.modelParameterCount()];
+        for (int i = 0; i < setup.modelParameterCount(); i++) {
+            modelMeans[i] = sums[i] / (postBurnInCount * setup.chainsCount());
+        }
+
+        Matrix allModelsTranspose = new Matrix(allModels).transpose();
+        double[][] modelCov = (new Covariance(allModelsTranspose.getArray())).getCovarianceMatrix().getData();
+
+        double[] rArray = null;
+        double chiSquare = Double.NaN;
+        if (null != truthModel) {
+            rArray = new double[setup.modelParameterCount()];
+            for (int i = 0; i < setup.modelParameterCount(); i++) {
+                rArray[i] = modelMeans[i] - truthModel[i];
+            }
+            Matrix rMatrix = new Matrix(rArray, rArray.length);
+            chiSquare = rMatrix.transpose().times(new Matrix(modelCov).inverse()).times(rMatrix).get(0, 0);
+        }
+
+        return new MCMC2ResultsRecord(simulationIndex, modelMeans, modelCov, rArray, chiSquare, rHat, savedCount, allModels);
+    }
+
+    public int getParallelism() {
+        return forkJoinPool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        forkJoinPool.shutdownNow();
+    }
+}
@@ -16,12 +16,22 @@
 
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2;
 
+/**
+ * @param r                   model means less truth, null when no truth model is known
+ * @param ChiSq               NaN when no truth model is known
+ * @param rHat                between-chain Gelman-Rubin statistic by model parameter, null for a single chain
+ * @param savedModelsPerChain saved models per chain, fewer than MCMCTrialsCount / seive when stopped early
+ * @param allModels           post burn-in models of all chains, by model parameter
+ */
 public record MCMC2ResultsRecord(
         int simulationIndex,
         double[] modelMeans,
         double[][] modelCov,
         double[] r,
-        double ChiSq
+        double ChiSq,
+        double[] rHat,
+        int savedModelsPerChain,
+        double[][] allModels
 
 ) {
 }
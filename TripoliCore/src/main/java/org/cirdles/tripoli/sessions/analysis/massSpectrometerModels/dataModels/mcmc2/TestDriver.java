@@ -17,13 +17,12 @@
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2;
 
 import com.google.common.primitives.Doubles;
-import jama.Matrix;
-import org.apache.commons.math3.stat.correlation.Covariance;
 import org.cirdles.commons.util.ResourceExtractor;
 import org.cirdles.tripoli.Tripoli;
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.plots.histograms.HistogramBuilder;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.Detector;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 
 import java.nio.charset.Charset;
 import java.nio.file.Files;
@@ -34,12 +33,11 @@ import java.util.List;
 
 import static java.lang.StrictMath.log;
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.DataUtilities.*;
-import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2.MathUtilities.extractColumn;
 
 public enum TestDriver {
     ;
 
-    public static PlotBuilder[] simulationsOfMCMC2() {
+    public static PlotBuilder[] simulationsOfMCMC2() throws TripoliException {
         // TODO: https://stackoverflow.com/questions/1881172/matlab-matrix-functions-in-java
 
         double[] truthModel = {log(0.3), log(2e6), -1e2, 2e2};
@@ -55,105 +53,21 @@ public enum TestDriver {
 
         double[][] allModels = new double[0][];
 
-        for (int simulationIndex = 0; simulationIndex < setup.simulationsCount(); simulationIndex++) {
-            // todo: research thread safe time handlers
-//            long startTime = System.nanoTime();
-            long startTime = System.currentTimeMillis();
-            MCMC2DataRecord mcmc2DataRecord = syntheticData(simulationIndex + 1);
-
-            MaxLikelihoodRecord maxLikelihoodRecord = maxLikelihood(mcmc2DataRecord, setup);
-            setup = setup.updateRecordWithCovariance(maxLikelihoodRecord.covarianceMatrix());
-
-            MCMC2ChainRecord mcmc2ChainRecord = initializeChains(setup, mcmc2DataRecord, maxLikelihoodRecord);
-            double[][] initModels = mcmc2ChainRecord.initModels();
-            double[] initLogLiks = mcmc2ChainRecord.initLogLiks();
-
-            int nSavedModels = setup.MCMCTrialsCount() / setup.seive();
-            double[][][] modelChains = new double[setup.modelParameterCount()][nSavedModels][setup.chainsCount()];
-            for (int i = 0; i < setup.modelParameterCount(); i++) {
-                for (int j = 0; j < nSavedModels; j++) {
-                    Arrays.fill(modelChains[i][j], Double.NaN);
-                }
-            }
-            double[][] loglikChains = new double[nSavedModels][setup.chainsCount()];
-            for (int j = 0; j < nSavedModels; j++) {
-                Arrays.fill(loglikChains[j], Double.NaN);
-            }
-
 //        parfor iChain = 1:setup.nChains
-            double[][] outputModels;
-            double[] outputLogLiks;
-
-            for (int iChain = 0; iChain < setup.chainsCount(); iChain++) {
-                MetropolisHastingsRecord metropolisHastingsRecord = metropolisHastings(
-                        iChain,
-                        extractColumn(initModels, iChain),
-                        initLogLiks[iChain],
-                        mcmc2DataRecord,
-                        setup);
-
-                outputModels = metropolisHastingsRecord.outputModels();
-                outputLogLiks = metropolisHastingsRecord.outputLogLiks();
-
-                for (int i = 0; i < setup.modelParameterCount(); i++) {
-                    for (int j = 0; j < nSavedModels; j++) {
-                        modelChains[i][j][iChain] = outputModels[i][j];
-                        loglikChains[j][iChain] = outputLogLiks[j];
-                    }
-                }
-            } // iChain
+        try (MCMC2Engine mcmc2Engine = new MCMC2Engine()) {
+            for (int simulationIndex = 0; simulationIndex < setup.simulationsCount(); simulationIndex++) {
+                long startTime = System.currentTimeMillis();
+                MCMC2DataRecord mcmc2DataRecord = syntheticData(simulationIndex + 1);
 
-            double[][][] postBurnInChains = new double[setup.modelParameterCount()][modelChains[0].length - setup.burnIn()][setup.chainsCount()];
-            for (int i = 0; i < setup.modelParameterCount(); i++) {
-                for (int j = 0; j < nSavedModels - setup.burnIn(); j++) {
-                    System.arraycopy(modelChains[i][j + setup.burnIn()], 0, postBurnInChains[i][j], 0, setup.chainsCount());
-                }
-            }
+                allResults[simulationIndex] = mcmc2Engine.runSimulation(simulationIndex, mcmc2DataRecord, setup, truthModel, null);
+                allModels = allResults[simulationIndex].allModels();
 
-            /*
-                % aggregate chains
-                    setup.nPostBurnIn = size(postBurnInChains, 2);
-                    mAll = reshape(postBurnInChains, [setup.nmodel, setup.nPostBurnIn*setup.nChains]);
-                    result(iSim).modelMean = mean(mAll,2);
-                    result(iSim).modelCov = cov(mAll');
-
-                    % calculate chiSqare with true values
-                    result(iSim).r = result(iSim).modelMean - truth.model;
-                    result(iSim).ChiSq = result(iSim).r' * inv(result(iSim).modelCov) * result(iSim).r;
-             */
-
-            setup = setup.updateRecordWithPostBurnIn(nSavedModels - setup.burnIn());
-            allModels = new double[setup.modelParameterCount()][setup.postBurnInCount() * setup.chainsCount()];
-            double[] sums = new double[setup.modelParameterCount()];
-            for (int i = 0; i < setup.modelParameterCount(); i++) {
-                for (int j = 0; j < setup.postBurnInCount(); j++) {
-                    for (int k = 0; k < setup.chainsCount(); k++) {
-                        allModels[i][j + k * setup.postBurnInCount()] = postBurnInChains[i][j][k];
-                        sums[i] += postBurnInChains[i][j][k];
-                    }
+                if ((1 + simulationIndex) % 10 == 0) {
+                    System.out.println("simulation " + simulationIndex + "   millisecs: " + (System.currentTimeMillis() - startTime)
+                            + "   saved models per chain: " + allResults[simulationIndex].savedModelsPerChain());
                 }
-            }
-            double[] modelMeans = new double[setup.modelParameterCount()];
-            double[] rArray = new double[setup.modelParameterCount()];
-            for (int i = 0; i < setup.modelParameterCount(); i++) {
-                modelMeans[i] = sums[i] / (setup.postBurnInCount() * setup.chainsCount());
-                rArray[i] = modelMeans[i] - truthModel[i];
-            }
-
-            // todo: review this
-            Matrix allModelsTranspose = new Matrix(allModels).transpose();
-            double[][] modelCov = (new Covariance(allModelsTranspose.getArray())).getCovarianceMatrix().getData();
-
-            Matrix modelCovMatrix = new Matrix(modelCov);
-            Matrix rMatrix = new Matrix(rArray, rArray.length);
-            double chiSquare = rMatrix.transpose().times(modelCovMatrix.inverse()).times(rMatrix).get(0, 0);
-
-            allResults[simulationIndex] = new MCMC2ResultsRecord(simulationIndex, modelMeans, modelCov, rArray, chiSquare);
-
-            if ((1 + simulationIndex) % 10 == 0) {
-                System.out.println("simulation " + simulationIndex + "   millisecs: " + (System.currentTimeMillis() - startTime));//              ((System.nanoTime() - startTime) / 1000000000));
-            }
-        } // simulationIndex
+            } // simulationIndex
+        }
 
         PlotBuilder histogramBuilderA = HistogramBuilder.initializeHistogram(1, allModels[0],
                 100, new String[]{"IsoA"}, "Counts", "Frequency", true);
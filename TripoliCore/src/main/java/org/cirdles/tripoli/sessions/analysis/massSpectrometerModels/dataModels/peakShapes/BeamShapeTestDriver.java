@@ -23,8 +23,9 @@ import org.cirdles.tripoli.plots.linePlots.GBeamLinePlotBuilder;
 import org.cirdles.tripoli.plots.linePlots.LinePlotBuilder;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix.PeakShapeProcessor_PhoenixTextFile;
 import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
+import org.cirdles.tripoli.utilities.mathUtilities.BandedSplineBasis;
 import org.cirdles.tripoli.utilities.mathUtilities.MatLab;
-import org.cirdles.tripoli.utilities.mathUtilities.SplineBasisModel;
+import org.cirdles.tripoli.utilities.mathUtilities.PrimitiveKernels;
 import org.ojalgo.RecoverableCondition;
 import org.ojalgo.matrix.decomposition.Cholesky;
 import org.ojalgo.matrix.store.MatrixStore;
@@ -73,7 +74,8 @@ public enum BeamShapeTestDriver {
         double xUpper = peakShapeOutputDataRecord.peakCenterMass() + peakShapeOutputDataRecord.beamWindow() / 2;
 
         Primitive64Store beamMassInterp = MatLab.linspace(xLower, xUpper, nInterp);
-        Primitive64Store Basis = SplineBasisModel.bBase(beamMassInterp, xLower, xUpper, beamKnots, basisDegree);
+        // banded and shared by every file with this peak centre mass
+        BandedSplineBasis basis = BandedSplineBasis.onLinspace(xLower, xUpper, nInterp, beamKnots, basisDegree);
         double deltaBeamMassInterp = beamMassInterp.get(0, 1) - beamMassInterp.get(0, 0);
 
         // Calculate integration matrix G, depends on matrix B and peakShapeOutputDataRecord
@@ -81,34 +83,31 @@ public enum BeamShapeTestDriver {
         double[][] aGMatrix = new double[numMagnetMasses][nInterp];
 
 
+        // the collector limits as index bounds into the interpolated masses
+        double[] beamMasses = beamMassInterp.toRawCopy1D();
+        double[][] collectorLimits = peakShapeOutputDataRecord.collectorLimits().toRawCopy2D();
         for (int iMass = 0; iMass < numMagnetMasses; iMass++) {
-            Primitive64Store term1 = MatLab.greaterOrEqual(beamMassInterp, peakShapeOutputDataRecord.collectorLimits().get(iMass, 0));
-            Primitive64Store term2 = MatLab.lessOrEqual(beamMassInterp, peakShapeOutputDataRecord.collectorLimits().get(iMass, 1));
-            Primitive64Store massesInCollector = MatLab.arrayMultiply(term1, term2);
-            Primitive64Store firstMassIndexInside;
-            Primitive64Store lastMassIndexInside;
-            if (!(0 == MatLab.find(massesInCollector, 1, "first").get(0, 0) && 0 == MatLab.find(massesInCollector, 1, "last").get(0, 0))) {
-                firstMassIndexInside = MatLab.find(massesInCollector, 1, "first");
-                lastMassIndexInside = MatLab.find(massesInCollector, 1, "last");
-                for (int i = (int) (firstMassIndexInside.get(0, 0) + 1); i < (int) (lastMassIndexInside.get(0, 0) + 0); i++) {
+            int firstMassIndexInside = PrimitiveKernels.firstIndexInRange(beamMasses, collectorLimits[iMass][0], collectorLimits[iMass][1]);
+            int lastMassIndexInside = PrimitiveKernels.lastIndexInRange(beamMasses, collectorLimits[iMass][0], collectorLimits[iMass][1]);
+            // as with MatLab.find, which gives 0 for none, a collector holding only the first mass is left out
+            if (0 < lastMassIndexInside) {
+                for (int i = firstMassIndexInside + 1; i < lastMassIndexInside; i++) {
                     aGMatrix[iMass][i] = deltaBeamMassInterp;
                 }
 
-                aGMatrix[iMass][(int) (firstMassIndexInside.get(0, 0) + 0)] = deltaBeamMassInterp / 2;
-                aGMatrix[iMass][(int) (lastMassIndexInside.get(0, 0) + 0)] = deltaBeamMassInterp / 2;
+                aGMatrix[iMass][firstMassIndexInside] = deltaBeamMassInterp / 2;
+                aGMatrix[iMass][lastMassIndexInside] = deltaBeamMassInterp / 2;
 
             }
         }
 
-        Primitive64Store gMatrix = storeFactory.rows(aGMatrix);
         // Trim peakShapeOutputDataRecord
         int newDataSet = 0;
-        Primitive64Store hasModelBeam = MatLab.any(gMatrix, 2);
-        for (int i = 0; i < hasModelBeam.getRowDim(); i++) {
-            for (int j = 0; j < hasModelBeam.getColDim(); j++) {
-                if (1 == hasModelBeam.get(i, 0)) {
-                    newDataSet++;
-                }
+        boolean[] hasModelBeam = new boolean[numMagnetMasses];
+        for (int i = 0; i < numMagnetMasses; i++) {
+            hasModelBeam[i] = PrimitiveKernels.hasPositiveSum(aGMatrix[i]);
+            if (hasModelBeam[i]) {
+                newDataSet++;
             }
         }
 
@@ -117,11 +116,12 @@ public enum BeamShapeTestDriver {
             newDataSet = 65;
         }
 
-        double[][] gMatrixTrim = new double[newDataSet][gMatrix.getColDim()];
+        // rows are taken from the arrays behind the stores, which toRawCopy2D would copy whole for every row
+        double[][] gMatrixTrim = new double[newDataSet][nInterp];
         int j = 0;
-        for (int i = 0; i < gMatrix.getRowDim(); i++) {
-            if (0 < hasModelBeam.get(i, 0)) {
-                gMatrixTrim[j] = gMatrix.toRawCopy2D()[i];
+        for (int i = 0; i < numMagnetMasses; i++) {
+            if (hasModelBeam[i]) {
+                gMatrixTrim[j] = aGMatrix[i];
                 j++;
             }
         }
@@ -130,10 +130,10 @@ public enum BeamShapeTestDriver {
 
         double[][] trimMagnetMasses = new double[newDataSet][peakShapeOutputDataRecord.magnetMasses().getRowDim()];
         int h = 0;
-
+        double[][] magnetMassesRows = peakShapeOutputDataRecord.magnetMasses().toRawCopy2D();
         for (int i = 0; i < peakShapeOutputDataRecord.magnetMasses().getRowDim(); i++) {
-            if (0 < hasModelBeam.get(i, 0)) {
-                trimMagnetMasses[h] = peakShapeOutputDataRecord.magnetMasses().toRawCopy2D()[i];
+            if (hasModelBeam[i]) {
+                trimMagnetMasses[h] = magnetMassesRows[i];
 
                 h++;
             }
@@ -141,9 +141,10 @@ public enum BeamShapeTestDriver {
 
         double[][] trimPeakIntensity = new double[newDataSet][peakShapeOutputDataRecord.magnetMasses().getRowDim()];
         int k = 0;
+        double[][] measuredPeakIntensitiesRows = peakShapeOutputDataRecord.measuredPeakIntensities().toRawCopy2D();
         for (int i = 0; i < peakShapeOutputDataRecord.measuredPeakIntensities().getRowDim(); i++) {
-            if (0 < hasModelBeam.get(i, 0)) {
-                trimPeakIntensity[k] = peakShapeOutputDataRecord.measuredPeakIntensities().toRawCopy2D()[i];
+            if (hasModelBeam[i]) {
+                trimPeakIntensity[k] = measuredPeakIntensitiesRows[i];
                 k++;
             }
         }
@@ -154,8 +155,8 @@ public enum BeamShapeTestDriver {
         double[] intensityData = measuredPeakIntensities.transpose().toRawCopy2D()[0];
 
         // WLS and NNLS
-        MatrixStore<Double> GB = trimGMatrix.multiply(Basis);
-        MatrixStore<Double> wData = MatLab.diag(MatLab.rDivide(1, MatLab.max(measuredPeakIntensities, 1)));
+        MatrixStore<Double> GB = storeFactory.rows(basis.premultiply(gMatrixTrim));
+        MatrixStore<Double> wData = MatLab.diag(storeFactory.columns(PrimitiveKernels.divideByAtLeast(1.0, intensityData, 1.0, new double[intensityData.length])));
 
         Cholesky<Double> decompChol = Cholesky.PRIMITIVE.make();
         decompChol.decompose(wData);
@@ -164,7 +165,8 @@ public enum BeamShapeTestDriver {
         MatrixStore<Double> beamWNNLS = MatLab.solveNNLS(test1OJ, test2OJ);
 
         // Determine peak width
-        MatrixStore<Double> beamShape = Basis.multiply(beamWNNLS);
+        double[] beamShapeValues = basis.multiply(beamWNNLS.toRawCopy1D());
+        MatrixStore<Double> beamShape = storeFactory.columns(beamShapeValues);
         double MaxBeam = MatLab.normInf(beamShape);
         maxBeamIndex = 0;
         int index = 0;
@@ -193,50 +195,10 @@ public enum BeamShapeTestDriver {
 
             measBeamWidthAMU = 0;
         } else {
-            double[][] leftPeak = new double[(int) maxBeamIndex][1];
-            for (int i = 0; i < maxBeamIndex; i++) {
-                leftPeak[i][0] = beamShape.get(i, 0);
-            }
-
-            Primitive64Store peakLeft = storeFactory.rows(leftPeak);
-            Primitive64Store leftAboveThreshold = MatLab.greaterThan(peakLeft, thresholdIntensity);
-            double[][] thresholdLeft1 = new double[leftAboveThreshold.getRowDim() - 1][1];
-            double[][] thresholdLeft2 = new double[leftAboveThreshold.getRowDim() - 1][1];
-            for (int i = 0; i < leftAboveThreshold.getRowDim() - 1; i++) {
-                thresholdLeft1[i][0] = leftAboveThreshold.get(i + 1, 0);
-            }
-
-            for (int i = 0; i < leftAboveThreshold.getRowDim() - 1; i++) {
-                thresholdLeft2[i][0] = leftAboveThreshold.get(i, 0);
-            }
-            Primitive64Store leftT1 = storeFactory.rows(thresholdLeft1);
-            Primitive64Store leftT2 = storeFactory.rows(thresholdLeft2);
-
-            MatrixStore<Double> leftThresholdChange = leftT1.subtract(leftT2);
-            int leftBoundary = (int) (MatLab.find(leftThresholdChange, 1, "last").get(0, 0) + 1);
-
-
-            double[][] rightPeak = new double[beamShape.getRowDim() - (int) maxBeamIndex][1];
-            for (int i = 0; i < beamShape.getRowDim() - (int) maxBeamIndex; i++) {
-                rightPeak[i][0] = beamShape.get(i + (int) maxBeamIndex, 0);
-            }
-
-            Primitive64Store peakRight = storeFactory.rows(rightPeak);
-            Primitive64Store rightAboveThreshold = MatLab.greaterThan(peakRight, thresholdIntensity);
-
-            double[][] thresholdRight1 = new double[rightAboveThreshold.getRowDim() - 1][1];
-            double[][] thresholdRight2 = new double[rightAboveThreshold.getRowDim() - 1][1];
-            for (int i = 0; i < rightAboveThreshold.getRowDim() - 1; i++) {
-                thresholdRight1[i][0] = rightAboveThreshold.get(i + 1, 0);
-            }
-
-            for (int i = 0; i < rightAboveThreshold.getRowDim() - 1; i++) {
-                thresholdRight2[i][0] = rightAboveThreshold.get(i, 0);
-            }
-            Primitive64Store rightT1 = storeFactory.rows(thresholdRight1);
-            Primitive64Store rightT2 = storeFactory.rows(thresholdRight2);
-            MatrixStore<Double> rightThresholdChange = rightT2.subtract(rightT1);
-            int rightBoundary = (int) (MatLab.find(rightThresholdChange, 1, "first").get(0, 0) + maxBeamIndex);
+            // the last rise through the threshold left of the peak and the first fall right of it
+            int leftBoundary = Math.max(0, PrimitiveKernels.lastRisingCrossing(beamShapeValues, 0, (int) maxBeamIndex, thresholdIntensity)) + 1;
+            int firstFallingIndex = PrimitiveKernels.firstFallingCrossing(beamShapeValues, (int) maxBeamIndex, beamShapeValues.length, thresholdIntensity);
+            int rightBoundary = (-1 == firstFallingIndex) ? (int) maxBeamIndex : firstFallingIndex;
 
             MatrixStore<Double> gBeam = trimGMatrix.multiply(beamShape);
 
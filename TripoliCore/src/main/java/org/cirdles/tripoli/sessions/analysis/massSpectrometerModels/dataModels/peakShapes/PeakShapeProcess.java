@@ -43,16 +43,29 @@ public class PeakShapeProcess {
     }
 
     public void initializePeakShapeProcess() throws IOException {
-        PeakShapeProcessor_PhoenixTextFile peakShapeProcessor_PhoenixTextFile
-                = PeakShapeProcessor_PhoenixTextFile.initializeWithMassSpectrometer(massSpectrometerModelBuiltinMap.get(MassSpectrometerContextEnum.PHOENIX_FULL.getMassSpectrometerName()));
-        peakShapeOutputDataRecord = peakShapeProcessor_PhoenixTextFile.prepareInputDataModelFromFile(dataFile);
+        peakShapeOutputDataRecord = createPeakShapeProcessor().prepareInputDataModelFromFile(dataFile);
     }
 
-    public synchronized PlotBuilder beamShapeCollectorWidth(int blockID) throws RecoverableCondition {
+    static PeakShapeProcessor_PhoenixTextFile createPeakShapeProcessor() {
+        return PeakShapeProcessor_PhoenixTextFile.initializeWithMassSpectrometer(massSpectrometerModelBuiltinMap.get(MassSpectrometerContextEnum.PHOENIX_FULL.getMassSpectrometerName()));
+    }
+
+    /**
+     * Fits the beam shape of a parsed peak centre file and builds its overlay plot.
+     *
+     * @param blockID
+     * @param peakShapeOutputDataRecord
+     * @return
+     */
+    static PeakShapesOverlayBuilder beamShapeCollectorWidth(int blockID, PeakShapeOutputDataRecord peakShapeOutputDataRecord) {
         return PeakShapesOverlayBuilder.initializePeakShape(blockID, peakShapeOutputDataRecord,
                 new String[]{peakShapeOutputDataRecord.massID() + " / Peak Mass: " + peakShapeOutputDataRecord.peakCenterMass(), peakShapeOutputDataRecord.massID()},
                 "Mass (amu)",
                 "Peak Intensities");
     }
 
+    public synchronized PlotBuilder beamShapeCollectorWidth(int blockID) throws RecoverableCondition {
+        return beamShapeCollectorWidth(blockID, peakShapeOutputDataRecord);
+    }
+
 }
\ No newline at end of file
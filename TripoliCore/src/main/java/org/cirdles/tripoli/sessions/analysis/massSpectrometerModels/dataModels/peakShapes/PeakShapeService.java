@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.peakShapes;
+
+import org.cirdles.tripoli.plots.PlotBuilder;
+import org.cirdles.tripoli.plots.linePlots.PeakShapesOverlayBuilder;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Parses peak centre files and fits their beam shapes on a shared pool, one task per file, caching the parsed
+ * records and the fitted plots by the SHA-256 of each file's content, so a file is fitted once however often its
+ * block is reviewed or re-imported.  The fits of a whole PeakCentres folder can be started in the background when
+ * the blocks are to be reviewed, so that reviewing any block finds its plots ready.  The most recently used
+ * entries are kept, and callers are given copies of the cached plots, which they may change.
+ *
+ * @author James F. Bowring
+ */
+public enum PeakShapeService {
+    ;
+
+    public static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    public static final int MAXIMUM_CACHED_FILES = 4096;
+
+    private static final ExecutorService executorService = createExecutorService();
+    private static final Map<String, CompletableFuture<PeakShapeOutputDataRecord>> mapOfContentHashToPeakRecord = createCache();
+    private static final Map<String, CompletableFuture<PeakShapesOverlayBuilder>> mapOfContentHashAndBlockToPeakPlot = createCache();
+
+    private static ExecutorService createExecutorService() {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+            Thread thread = new Thread(runnable, "Tripoli-peak-shape-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> Map<String, T> createCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > MAXIMUM_CACHED_FILES;
+            }
+        });
+    }
+
+    static String contentHash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts fitting every block, without waiting.
+     *
+     * @param blockPeakGroups peak centre files by block ID
+     */
+    public static void fitAllBlocksInBackground(Map<Integer, List<File>> blockPeakGroups) {
+        Map<Integer, List<File>> blockPeakGroupsCopy = new TreeMap<>();
+        synchronized (blockPeakGroups) {
+            for (Map.Entry<Integer, List<File>> entry : blockPeakGroups.entrySet()) {
+                blockPeakGroupsCopy.put(entry.getKey(), List.copyOf(entry.getValue()));
+            }
+        }
+        blockPeakGroupsCopy.forEach(PeakShapeService::fitBlockAsync);
+    }
+
+    /**
+     * @param blockID
+     * @param peakFiles in plot order
+     * @return completes with a copy of one plot per file, in the order of the files
+     */
+    public static CompletableFuture<PlotBuilder[]> fitBlockAsync(int blockID, List<File> peakFiles) {
+        List<CompletableFuture<PeakShapesOverlayBuilder>> peakPlotFutures = new ArrayList<>(peakFiles.size());
+        for (File peakFile : peakFiles) {
+            peakPlotFutures.add(CompletableFuture
+                    .supplyAsync(() -> readContent(peakFile), executorService)
+                    .thenCompose(content -> fitPeakFileAsync(blockID, content)));
+        }
+        return CompletableFuture.allOf(peakPlotFutures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    PlotBuilder[] plotBuilders = new PlotBuilder[peakPlotFutures.size()];
+                    for (int index = 0; index < plotBuilders.length; index++) {
+                        plotBuilders[index] = peakPlotFutures.get(index).join().copy();
+                    }
+                    return plotBuilders;
+                });
+    }
+
+    /**
+     * Fits the block, or collects the fits already made or under way, and waits for them.
+     *
+     * @param blockID
+     * @param peakFiles in plot order
+     * @return one plot per file
+     * @throws TripoliException if a file cannot be read or parsed, or the wait is interrupted
+     */
+    public static PlotBuilder[] fitBlock(int blockID, List<File> peakFiles) throws TripoliException {
+        try {
+            return fitBlockAsync(blockID, peakFiles).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TripoliException("Peak shape fitting interrupted", e);
+        } catch (ExecutionException e) {
+            throw new TripoliException("Peak shapes failed for BLOCK # " + blockID, e.getCause());
+        }
+    }
+
+    /**
+     * Called when the session is closed; fits under way complete but are not kept.
+     */
+    public static void clearCache() {
+        mapOfContentHashToPeakRecord.clear();
+        mapOfContentHashAndBlockToPeakPlot.clear();
+    }
+
+    private static PeakFileContent readContent(File peakFile) {
+        try {
+            byte[] content = Files.readAllBytes(peakFile.toPath());
+            return new PeakFileContent(contentHash(content), content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static CompletableFuture<PeakShapesOverlayBuilder> fitPeakFileAsync(int blockID, PeakFileContent peakFileContent) {
+        // the plot carries its block ID, so a fit is shared only within a block
+        return cached(mapOfContentHashAndBlockToPeakPlot, peakFileContent.contentHash() + "#" + blockID,
+                () -> parsePeakFileAsync(peakFileContent)
+                        .thenApplyAsync(peakShapeOutputDataRecord ->
+                                PeakShapeProcess.beamShapeCollectorWidth(blockID, peakShapeOutputDataRecord), executorService));
+    }
+
+    private static CompletableFuture<PeakShapeOutputDataRecord> parsePeakFileAsync(PeakFileContent peakFileContent) {
+        return cached(mapOfContentHashToPeakRecord, peakFileContent.contentHash(),
+                () -> CompletableFuture.supplyAsync(() -> {
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new ByteArrayInputStream(peakFileContent.content()), Charset.defaultCharset()))) {
+                        return PeakShapeProcess.createPeakShapeProcessor().prepareInputDataModel(reader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executorService));
+    }
+
+    /**
+     * A failed future is dropped from the cache, so that the file is tried again the next time it is asked for.
+     */
+    private static <T> CompletableFuture<T> cached(
+            Map<String, CompletableFuture<T>> cache, String key, Supplier<CompletableFuture<T>> futureFactory) {
+        CompletableFuture<T> future = cache.computeIfAbsent(key, k -> futureFactory.get());
+        future.whenComplete((result, throwable) -> {
+            if (null != throwable) {
+                cache.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    private record PeakFileContent(String contentHash, byte[] content) {
+    }
+}
@@ -18,10 +18,8 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.
 
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
-import org.ojalgo.RecoverableCondition;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -35,17 +33,8 @@ public enum SingleBlockPeakDriver {
         if (null == peakGroups.get(blockNumber)) {
             plotBuilders = PLOT_BUILDERS;
         } else {
-            plotBuilders = new PlotBuilder[peakGroups.get(blockNumber).size()];
-            try {
-                for (int i = 0; i < peakGroups.get(blockNumber).size(); ++i) {
-                    File peakFile = peakGroups.get(blockNumber).get(i);
-                    PeakShapeProcess peakShapeProcess = PeakShapeProcess.createPeakShapeProcess(peakFile.toPath());
-                    peakShapeProcess.initializePeakShapeProcess();
-                    plotBuilders[i] = peakShapeProcess.beamShapeCollectorWidth(blockNumber);
-                }
-            } catch (RecoverableCondition | IOException e) {
-                throw new TripoliException("Ojalgo RecoverableCondition");
-            }
+            // the files are fitted in parallel, or were already fitted in the background at import
+            plotBuilders = PeakShapeService.fitBlock(blockNumber, peakGroups.get(blockNumber));
         }
 
         return plotBuilders;
@@ -18,6 +18,7 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceP
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import org.cirdles.tripoli.expressions.expressionTrees.CompiledExpression;
 import org.cirdles.tripoli.expressions.expressionTrees.ExpressionTreeInterface;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.Detector;
@@ -283,12 +284,17 @@ public class MassSpecExtractedData implements Serializable {
      * @param customExpressionTree valid expression tree with name set to expected header name
      */
     public void populateCycleDataForCustomExpression(ExpressionTreeInterface customExpressionTree) {
-        Double[][] expressionData = customExpressionTree.eval(columnHeaders, blocksDataLite);
-
         String newColumnHeader = customExpressionTree.getName().split(" \\( = ")[0];
         int columnIndex = Arrays.asList(columnHeaders).indexOf(newColumnHeader);
 
-        blocksDataLite.replaceAll((b, v) -> blocksDataLite.get(b).populateColumnForCustomExpression(expressionData[b - 1], columnIndex));
+        CompiledExpression compiledExpression = CompiledExpression.compile(customExpressionTree);
+        if ((null != compiledExpression) && compiledExpression.referencesOnlyColumnsIn(columnHeaders)) {
+            double[][] expressionData = compiledExpression.evaluateBlocks(columnHeaders, blocksDataLite);
+            blocksDataLite.replaceAll((b, v) -> v.populateColumnForCustomExpression(expressionData[b - 1], columnIndex));
+        } else {
+            Double[][] expressionData = customExpressionTree.eval(columnHeaders, blocksDataLite);
+            blocksDataLite.replaceAll((b, v) -> blocksDataLite.get(b).populateColumnForCustomExpression(expressionData[b - 1], columnIndex));
+        }
 
         if (columnIndex == -1) {
             String[] columnHeadersExpanded = new String[columnHeaders.length + 1];
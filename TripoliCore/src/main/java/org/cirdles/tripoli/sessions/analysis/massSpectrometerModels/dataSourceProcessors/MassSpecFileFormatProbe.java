@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors;
+
+import jxl.Sheet;
+import jxl.Workbook;
+import jxl.WorkbookSettings;
+import jxl.read.biff.BiffException;
+import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix.PhoenixMassSpec;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.file.DelimitedDataFileReader;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.cirdles.tripoli.constants.MassSpectrometerContextEnum.PHOENIX_IONVANTAGE_XLS;
+import static org.cirdles.tripoli.constants.MassSpectrometerContextEnum.UNKNOWN;
+
+/**
+ * Identifies the format of a mass spectrometer data file from its head alone.  The first lines are matched, in
+ * the order of MassSpectrometerContextEnum, against the keyword signature of each context, where keyword n must
+ * begin line n.  No more than MAX_PROBE_BYTES are taken from the head, however long the file.  IonVantage
+ * workbooks are recognised by their summary sheet instead.
+ * extractMassSpecData hands the reader or workbook opened for the probe on to the parser of the format when the
+ * parser has an overload accepting it, so that the file is read once; the other parsers are given the path.
+ *
+ * @author James F. Bowring
+ */
+public enum MassSpecFileFormatProbe {
+    ;
+
+    public static final int MAX_PROBE_BYTES = 64 * 1024;
+    private static final Map<MassSpectrometerContextEnum, String[]> SIGNATURES = new EnumMap<>(MassSpectrometerContextEnum.class);
+    private static final Map<MassSpectrometerContextEnum, Method> READER_PARSERS = new EnumMap<>(MassSpectrometerContextEnum.class);
+    private static final int MAX_SIGNATURE_LINES;
+
+    static {
+        int maxSignatureLines = 0;
+        for (MassSpectrometerContextEnum massSpecContext : MassSpectrometerContextEnum.values()) {
+            String[] signature = massSpecContext.getKeyWordsList().stream().map(String::trim).toArray(String[]::new);
+            SIGNATURES.put(massSpecContext, signature);
+            maxSignatureLines = Math.max(maxSignatureLines, signature.length);
+            if (null != massSpecContext.getClazz()) {
+                try {
+                    READER_PARSERS.put(massSpecContext,
+                            massSpecContext.getClazz().getMethod(massSpecContext.getMethodName(), DelimitedDataFileReader.class));
+                } catch (NoSuchMethodException e) {
+                    // this parser reads from the path
+                }
+            }
+        }
+        MAX_SIGNATURE_LINES = maxSignatureLines;
+    }
+
+    private static boolean isWorkbookFile(Path dataFilePath) {
+        return dataFilePath.toString().endsWith(".xls");
+    }
+
+    private static Workbook openWorkbook(Path dataFilePath) throws IOException {
+        Workbook workbook = null;
+        try {
+            WorkbookSettings workbookSettings = new WorkbookSettings();
+            workbookSettings.setSuppressWarnings(true);
+            workbook = Workbook.getWorkbook(dataFilePath.toFile(), workbookSettings);
+        } catch (BiffException e) {
+            // not a workbook this release of jxl can read
+        }
+        return workbook;
+    }
+
+    /**
+     * @param dataFilePath
+     * @return the context of the file, or UNKNOWN
+     * @throws IOException
+     */
+    public static MassSpectrometerContextEnum probe(Path dataFilePath) throws IOException {
+        MassSpectrometerContextEnum retVal;
+        if (isWorkbookFile(dataFilePath)) {
+            Workbook workbook = openWorkbook(dataFilePath);
+            retVal = probe(workbook);
+            if (null != workbook) {
+                workbook.close();
+            }
+        } else {
+            try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFilePath, Charset.defaultCharset())) {
+                retVal = probe(reader);
+            }
+        }
+        return retVal;
+    }
+
+    private static MassSpectrometerContextEnum probe(Workbook workbook) {
+        MassSpectrometerContextEnum retVal = UNKNOWN;
+        Sheet summarySheet = (null == workbook) ? null : workbook.getSheet("SUMMARY");
+        if ((null != summarySheet) && (0 == summarySheet.getCell(0, 0).getContents().compareToIgnoreCase("Summary Report"))) {
+            retVal = PHOENIX_IONVANTAGE_XLS;
+        }
+        return retVal;
+    }
+
+    /**
+     * Reads no further than the lines of the longest signature, or MAX_PROBE_BYTES.
+     *
+     * @param reader positioned before the first line
+     * @return the context of the file, or UNKNOWN
+     * @throws IOException
+     */
+    public static MassSpectrometerContextEnum probe(DelimitedDataFileReader reader) throws IOException {
+        List<String> headLines = new ArrayList<>(MAX_SIGNATURE_LINES);
+        int countOfBytes = 0;
+        while ((headLines.size() < MAX_SIGNATURE_LINES) && (countOfBytes < MAX_PROBE_BYTES)
+                && reader.nextLine(MAX_PROBE_BYTES - countOfBytes)) {
+            String line = reader.line();
+            countOfBytes += line.length() + 1;
+            // for infinity symbol
+            headLines.add(line.replace("�", ""));
+        }
+        return matchSignatures(headLines);
+    }
+
+    /**
+     * @param headLines the first lines of a file
+     * @return the first context whose signature begins headLines, or UNKNOWN
+     */
+    static MassSpectrometerContextEnum matchSignatures(List<String> headLines) {
+        MassSpectrometerContextEnum retVal = UNKNOWN;
+        for (MassSpectrometerContextEnum massSpecContext : MassSpectrometerContextEnum.values()) {
+            String[] signature = SIGNATURES.get(massSpecContext);
+            boolean keywordsMatch = (signature.length <= headLines.size());
+            for (int keyWordIndex = 0; keywordsMatch && (keyWordIndex < signature.length); keyWordIndex++) {
+                keywordsMatch = headLines.get(keyWordIndex).startsWith(signature[keyWordIndex]);
+            }
+            if (keywordsMatch) {
+                retVal = massSpecContext;
+                break;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Probes the file and parses it with the parser of its context.
+     *
+     * @param dataFilePath
+     * @return the extracted data with its context set; empty if the context is UNKNOWN
+     * @throws NoSuchMethodException
+     * @throws InvocationTargetException
+     * @throws IllegalAccessException
+     * @throws IOException
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractMassSpecData(Path dataFilePath)
+            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, TripoliException {
+        MassSpecExtractedData retVal = null;
+        MassSpectrometerContextEnum massSpectrometerContext;
+        if (isWorkbookFile(dataFilePath)) {
+            Workbook workbook = openWorkbook(dataFilePath);
+            massSpectrometerContext = probe(workbook);
+            if (null != workbook) {
+                try {
+                    if (PHOENIX_IONVANTAGE_XLS == massSpectrometerContext) {
+                        retVal = PhoenixMassSpec.extractMetaDataAndBlockDataFromIonvantageXLS(workbook, dataFilePath);
+                    }
+                } finally {
+                    workbook.close();
+                }
+            }
+        } else {
+            try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFilePath, Charset.defaultCharset())) {
+                massSpectrometerContext = probe(reader);
+                Method readerParser = READER_PARSERS.get(massSpectrometerContext);
+                if (null != readerParser) {
+                    reader.rewind();
+                    retVal = (MassSpecExtractedData) readerParser.invoke(null, reader);
+                }
+            }
+            if ((null == retVal) && (UNKNOWN != massSpectrometerContext)) {
+                Method pathParser = massSpectrometerContext.getClazz().getMethod(massSpectrometerContext.getMethodName(), Path.class);
+                retVal = (MassSpecExtractedData) pathParser.invoke(null, dataFilePath);
+            }
+        }
+        if (null == retVal) {
+            retVal = new MassSpecExtractedData();
+        }
+        retVal.setMassSpectrometerContext(massSpectrometerContext);
+        return retVal;
+    }
+
+    /**
+     * Parses the file with the parser of a context already probed, without reading the head again.
+     *
+     * @param dataFilePath
+     * @param massSpectrometerContext as returned by probe for this file
+     * @return the extracted data with its context set; empty if the context is UNKNOWN
+     * @throws NoSuchMethodException
+     * @throws InvocationTargetException
+     * @throws IllegalAccessException
+     * @throws IOException
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractMassSpecData(Path dataFilePath, MassSpectrometerContextEnum massSpectrometerContext)
+            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, IOException, TripoliException {
+        MassSpecExtractedData retVal = null;
+        if (PHOENIX_IONVANTAGE_XLS == massSpectrometerContext) {
+            Workbook workbook = openWorkbook(dataFilePath);
+            if (null != workbook) {
+                try {
+                    retVal = PhoenixMassSpec.extractMetaDataAndBlockDataFromIonvantageXLS(workbook, dataFilePath);
+                } finally {
+                    workbook.close();
+                }
+            }
+        } else if (UNKNOWN != massSpectrometerContext) {
+            Method readerParser = READER_PARSERS.get(massSpectrometerContext);
+            if (null != readerParser) {
+                try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFilePath, Charset.defaultCharset())) {
+                    retVal = (MassSpecExtractedData) readerParser.invoke(null, reader);
+                }
+            } else {
+                Method pathParser = massSpectrometerContext.getClazz().getMethod(massSpectrometerContext.getMethodName(), Path.class);
+                retVal = (MassSpecExtractedData) pathParser.invoke(null, dataFilePath);
+            }
+        }
+        if (null == retVal) {
+            retVal = new MassSpecExtractedData();
+        }
+        retVal.setMassSpectrometerContext(massSpectrometerContext);
+        return retVal;
+    }
+}
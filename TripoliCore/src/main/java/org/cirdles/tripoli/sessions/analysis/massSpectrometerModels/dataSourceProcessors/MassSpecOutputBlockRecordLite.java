@@ -17,6 +17,7 @@
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * @param blockID
@@ -26,18 +27,30 @@ public record MassSpecOutputBlockRecordLite(
         int blockID,
         double[][] cycleData
 ) implements Serializable {
+    /**
+     * @param row
+     * @param r270_267ColumnIndex
+     * @param r265_267ColumnIndex
+     * @param r18O_16O
+     * @return a copy of row followed by the oxide corrected 265/267, 270/267 and their ratio
+     */
+    public static double[] expandRowForUraniumOxideCorrection(double[] row, int r270_267ColumnIndex, int r265_267ColumnIndex, double r18O_16O) {
+        double[] rowExpand = new double[row.length + 3];
+        System.arraycopy(row, 0, rowExpand, 0, row.length);
+
+        rowExpand[row.length]
+                = row[r265_267ColumnIndex] / (1.0 - 2.0 * r18O_16O * row[r265_267ColumnIndex]);
+        rowExpand[row.length + 1]
+                = row[r270_267ColumnIndex] / (1.0 - 2.0 * r18O_16O * row[r270_267ColumnIndex]);
+        rowExpand[row.length + 2]
+                = rowExpand[row.length + 1] / rowExpand[row.length];
+        return rowExpand;
+    }
+
     public MassSpecOutputBlockRecordLite expandForUraniumOxideCorrection(int r270_267ColumnIndex, int r265_267ColumnIndex, double r18O_16O) {
         double[][] cycleDataExpand = new double[cycleData.length][];
         for (int row = 0; row < cycleData.length; row++) {
-            cycleDataExpand[row] = new double[cycleData[row].length + 3];
-            System.arraycopy(cycleData[row], 0, cycleDataExpand[row], 0, cycleData[row].length);
-
-            cycleDataExpand[row][cycleData[row].length]
-                    = cycleData[row][r265_267ColumnIndex] / (1.0 - 2.0 * r18O_16O * cycleData[row][r265_267ColumnIndex]);
-            cycleDataExpand[row][cycleData[row].length + 1]
-                    = cycleData[row][r270_267ColumnIndex] / (1.0 - 2.0 * r18O_16O * cycleData[row][r270_267ColumnIndex]);
-            cycleDataExpand[row][cycleData[row].length + 2]
-                    = cycleDataExpand[row][cycleData[row].length + 1] / cycleDataExpand[row][cycleData[row].length];
+            cycleDataExpand[row] = expandRowForUraniumOxideCorrection(cycleData[row], r270_267ColumnIndex, r265_267ColumnIndex, r18O_16O);
         }
         return new MassSpecOutputBlockRecordLite(blockID, cycleDataExpand);
     }
@@ -64,6 +77,26 @@ public record MassSpecOutputBlockRecordLite(
         }
     }
 
+    public MassSpecOutputBlockRecordLite populateColumnForCustomExpression(double[] expressionData, int columnIndex) {
+        if (columnIndex == -1) { // New column
+            double[][] cycleDataExpand = new double[cycleData.length][];
+            for (int row = 0; row < cycleData.length; row++) {
+                cycleDataExpand[row] = Arrays.copyOf(cycleData[row], cycleData[row].length + 1);
+                cycleDataExpand[row][cycleData[row].length] = expressionData[row];
+            }
+
+            return new MassSpecOutputBlockRecordLite(blockID, cycleDataExpand);
+
+        } else { // Existing column
+            for (int row = 0; row < cycleData.length; row++) {
+                cycleData[row][columnIndex] = expressionData[row];
+            }
+
+            return new MassSpecOutputBlockRecordLite(blockID, cycleData);
+
+        }
+    }
+
     public MassSpecOutputBlockRecordLite removeColumnForCustomExpression(int columnIndex) {
         double[][] cycleDataReduce = new double[cycleData.length][];
         for (int row = 0; row < cycleData.length; row++) {
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix;
+
+import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
+import org.cirdles.tripoli.plots.compoundPlotBuilders.BlockCyclesBuilder;
+import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
+import org.cirdles.tripoli.sessions.analysis.BlockStatsRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.cirdles.tripoli.constants.TripoliConstants.R18O_16O_DEFAULT_OXIDE_CORRECTION;
+
+/**
+ * Growable cycle buffer for the Phoenix live data block being acquired.
+ * Cycles are appended as their files arrive; the block record and each user function's block cycles record are
+ * then extended by the new cycles only, keeping the cycle selections made by the user, and each user function keeps
+ * running block statistics over its included cycles.  These follow the rules of
+ * BlockStatsRecord.generateBlockStatsRecord, including leaving out, and marking excluded, the non-positive cycles
+ * of a ratio, but are accumulated one cycle at a time, so they agree with it to within rounding rather than
+ * bit for bit.
+ *
+ * @author James F. Bowring
+ */
+final class LiveDataBlockBuffer implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, LiveDataColumn> mapOfUserFunctionNameToColumn = new HashMap<>();
+    private int blockID;
+    private double[][] rows = new double[16][];
+    private double[][] expandedRows = new double[16][];
+    private int cycleCount;
+    // first row changed since the last publish
+    private int changedFrom;
+
+    int getBlockID() {
+        return blockID;
+    }
+
+    void setBlockID(int blockID) {
+        this.blockID = blockID;
+    }
+
+    int getCycleCount() {
+        return cycleCount;
+    }
+
+    boolean hasChanges() {
+        return changedFrom < cycleCount;
+    }
+
+    /**
+     * Extends the block to cycleIndex cycles when needed, with zeroed rows for any cycles skipped.
+     *
+     * @param cycleIndex  one-based, at least 1
+     * @param columnCount
+     * @return the row of cycleIndex, to be filled in place
+     */
+    double[] cycleRow(int cycleIndex, int columnCount) {
+        if (cycleIndex > rows.length) {
+            int capacity = Math.max(cycleIndex, rows.length * 2);
+            rows = Arrays.copyOf(rows, capacity);
+            expandedRows = Arrays.copyOf(expandedRows, capacity);
+        }
+        for (int row = cycleCount; row < cycleIndex; row++) {
+            rows[row] = new double[columnCount];
+        }
+        cycleCount = Math.max(cycleCount, cycleIndex);
+        if (rows[cycleIndex - 1].length < columnCount) {
+            rows[cycleIndex - 1] = Arrays.copyOf(rows[cycleIndex - 1], columnCount);
+        }
+        changedFrom = Math.min(changedFrom, cycleIndex - 1);
+        return rows[cycleIndex - 1];
+    }
+
+    /**
+     * @param r270_267ColumnIndex -1 when there is no oxide correction
+     * @param r265_267ColumnIndex -1 when there is no oxide correction
+     * @return the block record for all cycles so far, equal to what a rebuild from every cycle would give
+     */
+    MassSpecOutputBlockRecordLite blockRecordLite(int r270_267ColumnIndex, int r265_267ColumnIndex) {
+        double[][] cycleData;
+        if ((-1 != r270_267ColumnIndex) && (-1 != r265_267ColumnIndex)) {
+            for (int row = changedFrom; row < cycleCount; row++) {
+                expandedRows[row] = MassSpecOutputBlockRecordLite.expandRowForUraniumOxideCorrection(
+                        rows[row], r270_267ColumnIndex, r265_267ColumnIndex, R18O_16O_DEFAULT_OXIDE_CORRECTION);
+            }
+            cycleData = Arrays.copyOf(expandedRows, cycleCount);
+        } else {
+            cycleData = Arrays.copyOf(rows, cycleCount);
+        }
+        return new MassSpecOutputBlockRecordLite(blockID, cycleData);
+    }
+
+    /**
+     * Brings the user function's column up to the block's cycles.  Cycles already published keep their selection
+     * from existingRecord and new cycles are included.
+     *
+     * @param userFunction
+     * @param cycleData      from blockRecordLite
+     * @param existingRecord the user function's current record for this block, or null
+     * @return the new block cycles record
+     */
+    PlotBlockCyclesRecord updateBlockCyclesRecord(UserFunction userFunction, double[][] cycleData, PlotBlockCyclesRecord existingRecord) {
+        LiveDataColumn column = mapOfUserFunctionNameToColumn.computeIfAbsent(userFunction.getName(), name -> new LiveDataColumn());
+        return column.update(blockID, userFunction, cycleData, Math.min(changedFrom, column.count), existingRecord);
+    }
+
+    void markPublished() {
+        changedFrom = cycleCount;
+    }
+
+    /**
+     * @param userFunction
+     * @return running statistics of the included cycles, with the non-positive cycles of a ratio marked excluded, or
+     * null if the user function has not been published
+     */
+    BlockStatsRecord blockStatsRecord(UserFunction userFunction) {
+        LiveDataColumn column = mapOfUserFunctionNameToColumn.get(userFunction.getName());
+        return (null == column) ? null : column.blockStatsRecord(blockID, userFunction);
+    }
+
+    private static final class LiveDataColumn implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private double[] cycleMeans = new double[16];
+        private boolean[] cyclesIncluded = new boolean[16];
+        private int count;
+        private boolean isRatio;
+        // Welford accumulators over included cycles, of log values for ratios
+        private int statisticsCount;
+        private double statisticsMean;
+        private double statisticsSumOfSquares;
+
+        private PlotBlockCyclesRecord update(int blockID, UserFunction userFunction, double[][] cycleData, int from, PlotBlockCyclesRecord existingRecord) {
+            int newCount = cycleData.length;
+            if (newCount > cycleMeans.length) {
+                int capacity = Math.max(newCount, cycleMeans.length * 2);
+                cycleMeans = Arrays.copyOf(cycleMeans, capacity);
+                cyclesIncluded = Arrays.copyOf(cyclesIncluded, capacity);
+            }
+            int columnIndex = userFunction.getColumnIndex();
+            for (int row = from; row < newCount; row++) {
+                cycleMeans[row] = cycleData[row][columnIndex];
+                if (row >= count) {
+                    cyclesIncluded[row] = true;
+                }
+            }
+
+            boolean recompute = (from < count) || (isRatio != userFunction.isTreatAsIsotopicRatio());
+            if (null != existingRecord) {
+                // selections made since the last publish, including Chauvenet and by plots
+                int publishedCount = Math.min(count, existingRecord.cyclesIncluded().length);
+                if (!Arrays.equals(existingRecord.cyclesIncluded(), 0, publishedCount, cyclesIncluded, 0, publishedCount)) {
+                    System.arraycopy(existingRecord.cyclesIncluded(), 0, cyclesIncluded, 0, publishedCount);
+                    recompute = true;
+                }
+            }
+            isRatio = userFunction.isTreatAsIsotopicRatio();
+            if (recompute) {
+                statisticsCount = 0;
+                statisticsMean = 0.0;
+                statisticsSumOfSquares = 0.0;
+                from = 0;
+            } else {
+                from = count;
+            }
+            for (int row = from; row < newCount; row++) {
+                if (cyclesIncluded[row]) {
+                    accumulate(cycleMeans[row]);
+                }
+            }
+            count = newCount;
+
+            boolean blockIncluded = false;
+            for (int row = 0; !blockIncluded && (row < count); row++) {
+                blockIncluded = cyclesIncluded[row];
+            }
+
+            return BlockCyclesBuilder.initializeBlockCycles(
+                    blockID,
+                    blockIncluded,
+                    true,
+                    Arrays.copyOf(cyclesIncluded, count),
+                    Arrays.copyOf(cycleMeans, count),
+                    new double[count],
+                    new String[]{userFunction.getName()},
+                    true,
+                    isRatio).getBlockCyclesRecord();
+        }
+
+        private void accumulate(double value) {
+            // as BlockStatsRecord, ratios are averaged as logs and non-positive ratios are left out
+            if (!isRatio || (0.0 < value)) {
+                double x = isRatio ? StrictMath.log(value) : value;
+                statisticsCount++;
+                double delta = x - statisticsMean;
+                statisticsMean += delta / statisticsCount;
+                statisticsSumOfSquares += delta * (x - statisticsMean);
+            }
+        }
+
+        private BlockStatsRecord blockStatsRecord(int blockID, UserFunction userFunction) {
+            boolean isInverted = userFunction.isInverted();
+            double mean = (0 == statisticsCount) ? Double.NaN : ((isRatio && isInverted) ? -statisticsMean : statisticsMean);
+            double variance = switch (statisticsCount) {
+                case 0 -> Double.NaN;
+                case 1 -> 0.0;
+                default -> statisticsSumOfSquares / (statisticsCount - 1);
+            };
+            boolean[] included = Arrays.copyOf(cyclesIncluded, count);
+            boolean blockIncluded = false;
+            for (int row = 0; row < count; row++) {
+                blockIncluded = blockIncluded || included[row];
+                // as generateBlockStatsRecord, a ratio that has no log is excluded
+                if (isRatio && (0.0 >= cycleMeans[row])) {
+                    included[row] = false;
+                }
+            }
+            return new BlockStatsRecord(
+                    blockID,
+                    blockIncluded,
+                    isRatio,
+                    isInverted,
+                    Arrays.copyOf(cycleMeans, count),
+                    included,
+                    mean,
+                    variance,
+                    StrictMath.sqrt(variance),
+                    StrictMath.sqrt(variance / statisticsCount));
+        }
+    }
+}
@@ -22,11 +22,13 @@ import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.p
 import org.ojalgo.matrix.store.PhysicalStore;
 import org.ojalgo.matrix.store.Primitive64Store;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -44,31 +46,67 @@ public class PeakShapeProcessor_PhoenixTextFile {
         return new PeakShapeProcessor_PhoenixTextFile(massSpectrometerModel);
     }
 
+    /**
+     * Splits on commas and trims each field, dropping trailing empty fields, as did split("\\s*,\\s*").
+     */
+    static String[] splitFields(String line) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        int comma;
+        while (-1 != (comma = line.indexOf(',', start))) {
+            fields.add(line.substring(start, comma).trim());
+            start = comma + 1;
+        }
+        fields.add(line.substring(start).trim());
+        int countOfFields = fields.size();
+        while (countOfFields > 1 && fields.get(countOfFields - 1).isEmpty()) {
+            countOfFields--;
+        }
+        return fields.subList(0, countOfFields).toArray(new String[0]);
+    }
+
     public PeakShapeOutputDataRecord prepareInputDataModelFromFile(Path inputDataFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(inputDataFile, Charset.defaultCharset())) {
+            return prepareInputDataModel(reader);
+        }
+    }
+
+    /**
+     * Parses a peak centre file line by line; the data rows are read straight into primitive arrays.
+     *
+     * @param reader positioned at the start of the file
+     * @return
+     * @throws IOException
+     */
+    public PeakShapeOutputDataRecord prepareInputDataModel(BufferedReader reader) throws IOException {
 
         // Store Factory
         PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
-        List<String> contentsByLine = new ArrayList<>(Files.readAllLines(inputDataFile, Charset.defaultCharset()));
 
         List<String[]> headerLine = new ArrayList<>();
         List<String[]> columnNames = new ArrayList<>();
-        List<Double> masses = new ArrayList<>();
-        List<Double> intensity = new ArrayList<>();
+        double[] magMasses = new double[128];
+        double[] mPeakIntensity = new double[128];
+        int countOfMasses = 0;
 
         int phase = 0;
-        for (String line : contentsByLine) {
+        String line;
+        while (null != (line = reader.readLine())) {
             if (!line.isEmpty()) {
                 switch (phase) {
-                    case 0 -> headerLine.add(line.split("\\s*,\\s*"));
-                    case 1 -> columnNames.add(line.split("\\s*,\\s*"));
-                    case 2 -> {
-                        String[] cols = line.split("\\s*,\\s*");
-                        masses.add(Double.parseDouble(cols[0]));
-                        intensity.add(Double.parseDouble(cols[1]));
-                    }
+                    case 0 -> headerLine.add(splitFields(line));
+                    case 1 -> columnNames.add(splitFields(line));
                     default -> {
-                        masses = null;
-                        intensity = null;
+                        int comma = line.indexOf(',');
+                        int nextComma = line.indexOf(',', comma + 1);
+                        if (countOfMasses == magMasses.length) {
+                            magMasses = Arrays.copyOf(magMasses, 2 * countOfMasses);
+                            mPeakIntensity = Arrays.copyOf(mPeakIntensity, 2 * countOfMasses);
+                        }
+                        magMasses[countOfMasses] = Double.parseDouble(line.substring(0, comma).trim());
+                        mPeakIntensity[countOfMasses] = Double.parseDouble(
+                                line.substring(comma + 1, (-1 == nextComma) ? line.length() : nextComma).trim());
+                        countOfMasses++;
                     }
                 }
 
@@ -85,11 +123,8 @@ public class PeakShapeProcessor_PhoenixTextFile {
         double peakCenterMass = Double.parseDouble(headerLine.get(4)[1]);
         double integrationPeriodMS = Double.parseDouble(headerLine.get(10)[1].replaceFirst("ms", ""));
 
-        double[] magMasses = masses.stream().mapToDouble(d -> d).toArray();
-        Primitive64Store magnetMasses = storeFactory.columns(magMasses);
-
-        double[] mPeakIntensity = intensity.stream().mapToDouble(d -> d).toArray();
-        Primitive64Store measuredPeakIntensities = storeFactory.columns(mPeakIntensity);
+        Primitive64Store magnetMasses = storeFactory.columns(Arrays.copyOf(magMasses, countOfMasses));
+        Primitive64Store measuredPeakIntensities = storeFactory.columns(Arrays.copyOf(mPeakIntensity, countOfMasses));
 
         double collectorWidthAMU = peakCenterMass / massSpectrometerModel.getEffectiveRadiusMagnetMM() * massSpectrometerModel.getCollectorWidthMM();
         double theoreticalBeamWidthAMU = peakCenterMass / massSpectrometerModel.getEffectiveRadiusMagnetMM() * massSpectrometerModel.getTheoreticalBeamWidthMM();
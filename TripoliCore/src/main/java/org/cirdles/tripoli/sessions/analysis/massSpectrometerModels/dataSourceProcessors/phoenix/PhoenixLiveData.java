@@ -19,27 +19,27 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceP
 import org.apache.commons.lang3.time.DateUtils;
 import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
 import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
-import org.cirdles.tripoli.plots.compoundPlotBuilders.BlockCyclesBuilder;
 import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
+import org.cirdles.tripoli.sessions.analysis.BlockStatsRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
 import org.cirdles.tripoli.utilities.comparators.LiveDataEntryComparator;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.file.DelimitedDataFileReader;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static org.cirdles.tripoli.constants.TripoliConstants.R18O_16O_DEFAULT_OXIDE_CORRECTION;
 import static org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod.createAnalysisMethodFromCase1;
 
 
@@ -51,7 +51,7 @@ public class PhoenixLiveData implements Serializable {
     boolean initMetaData = true;
     MassSpecOutputBlockRecordLite blockRecordLite;
     MassSpecExtractedData massSpecExtractedData;
-    double[][] cycleData;
+    LiveDataBlockBuffer blockBuffer;
     int numOfFunctions = 0;
     int cycleIndex = 0;
     int blockIndex = 0;
@@ -62,6 +62,7 @@ public class PhoenixLiveData implements Serializable {
     private transient TreeSet<Path> pendingFiles = new TreeSet<>(LiveDataEntryComparator.blockCycleComparator);
     private int lastProcessedBlock = -1;
     private int lastProcessedCycle = 0;
+    private transient List<LiveDataListener> liveDataListeners;
 
     /**
      * Contains all the logic for operating on live data files output by Phoenix mass spectrometer.
@@ -190,26 +191,77 @@ public class PhoenixLiveData implements Serializable {
         return false;
     }
 
+    private boolean isAlreadyProcessed(int block, int cycle) {
+        return (lastProcessedBlock != -1)
+                && ((block < lastProcessedBlock) || ((block == lastProcessedBlock) && (cycle <= lastProcessedCycle)));
+    }
+
+    /**
+     * Adds a listener notified after each batch of cycles is published, on the thread reading the files.
+     *
+     * @param liveDataListener
+     */
+    public void addLiveDataListener(LiveDataListener liveDataListener) {
+        if (liveDataListeners == null) {
+            liveDataListeners = new CopyOnWriteArrayList<>();
+        }
+        liveDataListeners.add(liveDataListener);
+    }
+
+    public void removeLiveDataListener(LiveDataListener liveDataListener) {
+        if (liveDataListeners != null) {
+            liveDataListeners.remove(liveDataListener);
+        }
+    }
+
     public AnalysisInterface readLiveDataFile(Path filePath) {
+        return readLiveDataFiles(List.of(filePath));
+    }
+
+    /**
+     * Appends the cycles of every file that is next in block and cycle order, holding back the others until the
+     * files before them arrive.  The block records and user function records are updated once for the batch.
+     *
+     * @param filePaths cycle files in any order
+     * @return the live data analysis, or null if no file was processed
+     */
+    public synchronized AnalysisInterface readLiveDataFiles(Collection<Path> filePaths) {
         if (pendingFiles == null) {
             pendingFiles = new TreeSet<>(LiveDataEntryComparator.blockCycleComparator);
         }
-        pendingFiles.add(filePath);
-        AnalysisInterface result = null;
+        pendingFiles.addAll(filePaths);
+        int cyclesAppended = 0;
         while (!pendingFiles.isEmpty()) {
             Path next = pendingFiles.first();
             int[] blockCycle = extractBlockCycle(next);
+            if (blockCycle != null && isAlreadyProcessed(blockCycle[0], blockCycle[1])) {
+                // delivered again, as after lost watch events
+                pendingFiles.remove(next);
+                continue;
+            }
             if (blockCycle == null || !isNextExpected(blockCycle[0], blockCycle[1])) {
                 break;
             }
             pendingFiles.remove(next);
-            result = processFile(next);
-            if (result != null) {
+            // a block of fewer cycles than the next block's first cycle number would not be seen as ended
+            if (blockBuffer != null && blockBuffer.getCycleCount() > 0 && blockCycle[0] != lastProcessedBlock) {
+                startNewBlock();
+            }
+            if (processFile(next) != null) {
                 lastProcessedBlock = blockCycle[0];
                 lastProcessedCycle = blockCycle[1];
+                cyclesAppended++;
             }
         }
-        return result;
+        if (cyclesAppended > 0) {
+            publishBlock(blockBuffer);
+            if (liveDataListeners != null) {
+                for (LiveDataListener liveDataListener : liveDataListeners) {
+                    liveDataListener.liveDataUpdated(liveDataAnalysis, cyclesAppended);
+                }
+            }
+        }
+        return (cyclesAppended > 0) ? liveDataAnalysis : null;
     }
 
     private AnalysisInterface processFile(Path filePath) {
@@ -217,10 +269,9 @@ public class PhoenixLiveData implements Serializable {
         analysisNumber = liveDataFile.getName().split("-")[0];
 
         if (liveDataFile.exists() && liveDataFile.isFile()) {
-            try {
-                String[] lines = Files.readAllLines(filePath).toArray(new String[0]);
-                for (String line : lines) {
-                    readLiveDataLine(line);
+            try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(filePath, StandardCharsets.UTF_8, false)) {
+                while (reader.nextLine()) {
+                    readLiveDataLine(reader);
                 }
                 if (initMetaData) {
                     setAnalysisHeader();
@@ -260,49 +311,8 @@ public class PhoenixLiveData implements Serializable {
                     }
                     initMetaData = false;
                 }
-
-                blockRecordLite = new MassSpecOutputBlockRecordLite(blockIndex, cycleData);
-                if (r270_267ColumnIndex != -1 && r265_267ColumnIndex != -1) {
-                    blockRecordLite = blockRecordLite.expandForUraniumOxideCorrection(r270_267ColumnIndex, r265_267ColumnIndex, R18O_16O_DEFAULT_OXIDE_CORRECTION);
-                }
-                massSpecExtractedData.addBlockLiteRecord(blockRecordLite);
-
-                // Add data to UF map (For use in plots)
-                for (UserFunction userFunction : liveDataAnalysis.getUserFunctions()) {
-                    SingleBlockRawDataLiteSetRecord singleBlockRawDataLiteSetRecord = AllBlockInitForDataLiteOne.prepareSingleBlockDataLiteCaseOne(
-                            blockIndex,
-                            massSpecExtractedData
-                    );
-
-                    boolean[] cyclesIncluded = singleBlockRawDataLiteSetRecord.assembleCyclesIncludedForUserFunction(userFunction);
-
-                    // Preserve existing rejection state when refreshing live data
-                    PlotBlockCyclesRecord existingRecord = userFunction.getMapBlockIdToBlockCyclesRecord().get(blockIndex);
-                    if (existingRecord != null) {
-                        boolean[] existingCyclesIncluded = existingRecord.cyclesIncluded();
-                        int copyLen = Math.min(existingCyclesIncluded.length, cyclesIncluded.length);
-                        System.arraycopy(existingCyclesIncluded, 0, cyclesIncluded, 0, copyLen);
-                    }
-                    // Recompute blockIncluded: block is included if any cycle is included
-                    boolean blockIncluded = false;
-                    for (boolean included : cyclesIncluded) {
-                        if (included) {
-                            blockIncluded = true;
-                            break;
-                        }
-                    }
-
-                    userFunction.getMapBlockIdToBlockCyclesRecord().put(blockIndex, BlockCyclesBuilder.initializeBlockCycles(
-                            blockIndex,
-                            blockIncluded,
-                            true,
-                            cyclesIncluded,
-                            singleBlockRawDataLiteSetRecord.assembleCycleMeansForUserFunction(userFunction),
-                            singleBlockRawDataLiteSetRecord.assembleCycleStdDevForUserFunction(),
-                            new String[]{userFunction.getName()},
-                            true,
-                            userFunction.isTreatAsIsotopicRatio()).getBlockCyclesRecord()
-                    );
+                if (blockBuffer != null) {
+                    blockBuffer.setBlockID(blockIndex);
                 }
 
                 return liveDataAnalysis;
@@ -314,10 +324,50 @@ public class PhoenixLiveData implements Serializable {
         return null;
     }
 
-    private void readLiveDataLine(String dataLine) {
-        String[] dataLineSplit = dataLine.split(",");
+    private void startNewBlock() {
+        // Starting a new block, set the CPB and redo the header
+        if (blockBuffer != null && cyclesPerBlock == 0) {
+            cyclesPerBlock = blockBuffer.getCycleCount();
+            setAnalysisHeader();
+        }
+        publishBlock(blockBuffer);
+        blockBuffer = new LiveDataBlockBuffer();
+    }
+
+    /**
+     * Extends the block record and each user function's block cycles record (used by plots) by the cycles
+     * appended since the last publish.
+     *
+     * @param liveDataBlockBuffer
+     */
+    private void publishBlock(LiveDataBlockBuffer liveDataBlockBuffer) {
+        if ((liveDataBlockBuffer == null) || !liveDataBlockBuffer.hasChanges()) {
+            return;
+        }
+        int blockID = liveDataBlockBuffer.getBlockID();
+        blockRecordLite = liveDataBlockBuffer.blockRecordLite(r270_267ColumnIndex, r265_267ColumnIndex);
+        massSpecExtractedData.addBlockLiteRecord(blockRecordLite);
+
+        for (UserFunction userFunction : liveDataAnalysis.getUserFunctions()) {
+            // Preserves existing rejection state when refreshing live data
+            PlotBlockCyclesRecord existingRecord = userFunction.getMapBlockIdToBlockCyclesRecord().get(blockID);
+            userFunction.getMapBlockIdToBlockCyclesRecord().put(blockID,
+                    liveDataBlockBuffer.updateBlockCyclesRecord(userFunction, blockRecordLite.cycleData(), existingRecord));
+        }
+        liveDataBlockBuffer.markPublished();
+    }
+
+    /**
+     * @param userFunction
+     * @return running statistics of the block being acquired, as BlockStatsRecord.generateBlockStatsRecord,
+     * or null before its first cycle
+     */
+    public synchronized BlockStatsRecord getLiveBlockStatsRecord(UserFunction userFunction) {
+        return (blockBuffer == null) ? null : blockBuffer.blockStatsRecord(userFunction);
+    }
 
-        switch (dataLineSplit[0]) {
+    private void readLiveDataLine(DelimitedDataFileReader reader) {
+        switch (reader.field(0)) {
             case "Version":
             case "Serial No":
             case "Sample No":
@@ -326,7 +376,8 @@ public class PhoenixLiveData implements Serializable {
                 break;
             case "Method":
                 if (initMetaData) {
-                    String analysisName = dataLineSplit[1].substring(dataLineSplit[1].lastIndexOf("\\") + 1, dataLineSplit[1].length() - 1);
+                    String methodField = reader.field(1);
+                    String analysisName = methodField.substring(methodField.lastIndexOf("\\") + 1, methodField.length() - 1);
                     liveDataAnalysis.setAnalysisName(analysisName + (" (Live Data)"));
                     liveDataAnalysis.setAnalysisSampleName(analysisName.split(" ")[0]);
                     liveDataAnalysis.setAnalysisFractionName(analysisName.split(" ")[1].split("-")[0]);
@@ -337,7 +388,7 @@ public class PhoenixLiveData implements Serializable {
                     DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
                     Date date;
                     try {
-                        date = DateUtils.parseDate(dataLineSplit[1].trim(),
+                        date = DateUtils.parseDate(reader.field(1).trim(),
                                 "dd/MM/yyyy HH:mm:ss",
                                 "yyyy-MM-dd hh:mm:ss",
                                 "yyyy-MM-dd h:mm:ss a",
@@ -358,10 +409,10 @@ public class PhoenixLiveData implements Serializable {
                 }
                 break;
             case "Functions":
-                numOfFunctions = Integer.parseInt(dataLineSplit[1]);
+                numOfFunctions = reader.intField(1);
                 break;
             case "Cycle":
-                cycleIndex = Integer.parseInt(dataLineSplit[1]);
+                cycleIndex = reader.intField(1);
 
                 if (initMetaData) {
                     UserFunction userFunction = new UserFunction("Cycle", 0);
@@ -370,30 +421,26 @@ public class PhoenixLiveData implements Serializable {
                     liveDataAnalysis.getUserFunctions().add(userFunction);
                 }
 
-                if (cycleData == null || cycleData.length > cycleIndex) {
-                    // Starting a new block, set the CPB and redo the header
-                    if (cycleData != null && cyclesPerBlock == 0) {
-                        cyclesPerBlock = cycleData.length;
-                        setAnalysisHeader();
-                    }
-                    cycleData = new double[cycleIndex][numOfFunctions + 2];
-                } else { // Copy old data to new array
-                    double[][] expandedCycleData = new double[cycleIndex][numOfFunctions + 2];
-                    for (int row = 0; row < cycleData.length; row++) {
-                        System.arraycopy(cycleData[row], 0, expandedCycleData[row], 0, cycleData[row].length);
-                    }
-                    cycleData = expandedCycleData;
-
+                if (blockBuffer == null || blockBuffer.getCycleCount() > cycleIndex) {
+                    startNewBlock();
+                }
+                if (cycleIndex > 0) {
+                    blockBuffer.cycleRow(cycleIndex, numOfFunctions + 2);
                 }
                 break;
             case "Block":
-                blockIndex = Integer.parseInt(dataLineSplit[1]);
+                blockIndex = reader.intField(1);
                 break;
             default:
+                if (blockBuffer == null || cycleIndex < 1) {
+                    break;
+                }
+                double[] cycleRow = blockBuffer.cycleRow(cycleIndex, numOfFunctions + 2);
                 try {
-                    int columnIndex = Integer.parseInt(dataLineSplit[0]) + 1;
-                    String userFunctionName = dataLineSplit[1].substring(1, dataLineSplit[1].length() - 1);
-                    double userFunctionValue = Double.parseDouble(dataLineSplit[2]);
+                    int columnIndex = reader.intField(0) + 1;
+                    String userFunctionField = reader.field(1);
+                    String userFunctionName = userFunctionField.substring(1, userFunctionField.length() - 1);
+                    double userFunctionValue = reader.doubleField(2);
                     if (initMetaData) {
                         UserFunction userFunction = new UserFunction(userFunctionName, columnIndex);
                         liveDataAnalysis.getUserFunctions().add(userFunction);
@@ -402,11 +449,11 @@ public class PhoenixLiveData implements Serializable {
                         headersExpanded[columnIndex] = userFunctionName;
                         massSpecExtractedData.setColumnHeaders(headersExpanded);
                     }
-                    cycleData[cycleIndex - 1][columnIndex] = userFunctionValue;
+                    cycleRow[columnIndex] = userFunctionValue;
                 } catch (Exception ignore) {
                 }
-                cycleData[cycleIndex - 1][0] = cycleIndex;//Cycle
-                cycleData[cycleIndex - 1][1] = cycleIndex;//Time - not present in file
+                cycleRow[0] = cycleIndex;//Cycle
+                cycleRow[1] = cycleIndex;//Time - not present in file
         }
     }
 
@@ -492,4 +539,12 @@ public class PhoenixLiveData implements Serializable {
         );
 
     }
+
+    public interface LiveDataListener {
+        /**
+         * @param liveDataAnalysis
+         * @param cyclesAppended   count of cycle files in the batch
+         */
+        void liveDataUpdated(AnalysisInterface liveDataAnalysis, int cyclesAppended);
+    }
 }
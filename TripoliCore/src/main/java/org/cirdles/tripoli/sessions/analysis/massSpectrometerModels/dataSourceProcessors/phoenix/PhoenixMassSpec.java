@@ -23,15 +23,14 @@ import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourcePr
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.file.DelimitedDataFileReader;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static java.lang.StrictMath.ceil;
 
@@ -43,24 +42,35 @@ public enum PhoenixMassSpec {
 
     @SuppressWarnings("unused")
     public static MassSpecExtractedData extractMetaDataAndBlockDataFromIonvantageXLS(Path inputDataFile) throws IOException, TripoliException {
-        MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
-        String[] lines = null;
-
         Workbook workbook;
-        Sheet cycleSheet;
-        Sheet ctrlSheet;
-        Sheet blockSheet;
-        int cycleCount;
-        int countOfHeaderLines = 16;
-
         try {
             WorkbookSettings workbookSettings = new WorkbookSettings();
             workbookSettings.setSuppressWarnings(true);
             workbook = Workbook.getWorkbook(inputDataFile.toFile(), workbookSettings);
-            cycleSheet = workbook.getSheet("CYCLE");
         } catch (BiffException e) {
             throw new RuntimeException(e);
         }
+        try {
+            return extractMetaDataAndBlockDataFromIonvantageXLS(workbook, inputDataFile);
+        } finally {
+            workbook.close();
+        }
+    }
+
+    /**
+     * Parses a workbook already opened, as by MassSpecFileFormatProbe.
+     *
+     * @param workbook      left open
+     * @param inputDataFile the file of the workbook, naming the analysis
+     * @return
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractMetaDataAndBlockDataFromIonvantageXLS(Workbook workbook, Path inputDataFile) throws TripoliException {
+        MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
+        Sheet cycleSheet = workbook.getSheet("CYCLE");
+        Sheet ctrlSheet;
+        int countOfHeaderLines = 16;
+
         List<String> columnNamesFixedList = new ArrayList<>();
         columnNamesFixedList.add("Cycle");
         columnNamesFixedList.add("Time");
@@ -161,76 +171,93 @@ public enum PhoenixMassSpec {
      * Full Synthetic v 1 will be abandoned
      */
     public static MassSpecExtractedData extractMetaAndBlockDataFromFileVersion_1_0(Path inputDataFile) throws TripoliException {
-        MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
-        List<String> contentsByLine;
-        try {
-            contentsByLine = new ArrayList<>(Files.readAllLines(inputDataFile, Charset.defaultCharset()));
+        try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(inputDataFile, Charset.defaultCharset())) {
+            return extractMetaAndBlockDataFromFileVersion_1_0(reader);
         } catch (IOException e) {
             throw new TripoliException(e);
         }
-        // test for version 1.00
-        if (0 != contentsByLine.get(0).trim().compareToIgnoreCase("Version,1.00")) {
-            //  throw new IOException("Expecting Version 1.0 of data file.");
-        } else {
-            List<String[]> headerByLineSplit = new ArrayList<>();
-            List<String[]> columnNamesSplit = new ArrayList<>();
-            List<String[]> detectorsByLineSplit = new ArrayList<>();
-            List<String> dataByBlock = new ArrayList<>();
-
-            int phase = 0;
-            int currentBlockNumber = 1;
-            int cyclesPerBlock = 1;
-            contentsByLine.add("#END,0,");
-            for (String line : contentsByLine) {
-                if (!line.trim().isBlank()) {
-                    if (line.startsWith("#START")) {
-                        massSpecExtractedData.populateHeader(headerByLineSplit);
-                        massSpecExtractedData.populateDetectors(detectorsByLineSplit);
-                        phase = 1;
-                    } else if (line.startsWith("#END")) {
-                        phase = 4;
-                    }
+    }
 
-                    switch (phase) {
-                        case 0 -> headerByLineSplit.add(line.split(","));
-                        case 1 -> phase = 2;
-                        case 2 -> {
-                            columnNamesSplit.add(line.split(","));
-                            massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
-                            phase = 3;
+    /**
+     * @param reader positioned before the first line and left open
+     * @return
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractMetaAndBlockDataFromFileVersion_1_0(DelimitedDataFileReader reader) throws TripoliException {
+        MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
+        try {
+            // test for version 1.00
+            if (reader.nextLine() && (0 == reader.line().trim().compareToIgnoreCase("Version,1.00"))) {
+                List<String[]> headerByLineSplit = new ArrayList<>();
+                List<String[]> columnNamesSplit = new ArrayList<>();
+                List<String[]> detectorsByLineSplit = new ArrayList<>();
+                BlockDataAccumulator dataByBlock = new BlockDataAccumulator();
+
+                int phase = 0;
+                int currentBlockNumber = 1;
+                boolean moreLines = true;
+                while (moreLines) {
+                    if (!reader.isBlank()) {
+                        if (reader.startsWith("#START")) {
+                            massSpecExtractedData.populateHeader(headerByLineSplit);
+                            massSpecExtractedData.populateDetectors(detectorsByLineSplit);
+                            phase = 1;
+                        } else if (reader.startsWith("#END")) {
+                            phase = 4;
                         }
-                        case 3 -> {
-                            try {
-                                String[] lineSplit = line.split(",");
-                                // each block gets treated as a singleton block #1
-                                int blockNumber = Integer.parseInt(lineSplit[1].trim());
-                                if (blockNumber != currentBlockNumber) {
-                                    //  save off block and prepare for next block
-                                    massSpecExtractedData.addBlockRecord(
-                                            parseAndBuildSingleBlockRecord(1, currentBlockNumber, dataByBlock));
-                                    dataByBlock = new ArrayList<>();
-                                    currentBlockNumber = blockNumber;
-                                }
-                                dataByBlock.add(line);
-                            } catch (Exception e) {
-                                System.out.println("HELP");
+
+                        switch (phase) {
+                            case 0 -> headerByLineSplit.add(reader.line().split(","));
+                            case 1 -> phase = 2;
+                            case 2 -> {
+                                columnNamesSplit.add(reader.line().split(","));
+                                massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
+                                phase = 3;
                             }
-                        }
-                        case 4 -> {
-                            // test if complete block by checking last entry's cycle number != 0
-                            boolean isComplete = 0 < Integer.parseInt(dataByBlock.get(dataByBlock.size() - 1).split(",")[2].trim());
-                            if (isComplete) {
-                                massSpecExtractedData.addBlockRecord(
-                                        parseAndBuildSingleBlockRecord(1, currentBlockNumber, dataByBlock));
+                            case 3 -> {
+                                try {
+                                    // each block gets treated as a singleton block #1
+                                    int blockNumber = reader.intField(1);
+                                    if (blockNumber != currentBlockNumber) {
+                                        //  save off block and prepare for next block
+                                        massSpecExtractedData.addBlockRecord(dataByBlock.buildSingleBlockRecord(currentBlockNumber));
+                                        dataByBlock = new BlockDataAccumulator();
+                                        currentBlockNumber = blockNumber;
+                                    }
+                                    dataByBlock.addLine(1, reader);
+                                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                                    throw new TripoliException("Malformed data on line " + (reader.getLineNumber() + 1)
+                                            + ": " + reader.line(), e);
+                                }
                             }
+                            case 4 -> addBlockRecordIfComplete(massSpecExtractedData, dataByBlock, currentBlockNumber);
                         }
                     }
+                    moreLines = reader.nextLine();
                 }
+                // the end of the file serves as the closing #END line
+                addBlockRecordIfComplete(massSpecExtractedData, dataByBlock, currentBlockNumber);
             }
+        } catch (IOException e) {
+            throw new TripoliException(e);
         }
         return massSpecExtractedData;
     }
 
+    private static void addBlockRecordIfComplete(MassSpecExtractedData massSpecExtractedData, BlockDataAccumulator dataByBlock, int blockNumber) {
+        // test if complete block by checking last entry's cycle number != 0
+        if (!dataByBlock.isEmpty() && (0 < dataByBlock.lastCycleNumber())) {
+            massSpecExtractedData.addBlockRecord(dataByBlock.buildSingleBlockRecord(blockNumber));
+        }
+    }
+
+    private static void checkVersionLine(DelimitedDataFileReader reader) throws IOException {
+        if ((2 == reader.getLineNumber())
+                && (!reader.line().trim().startsWith("Version,1.")) && (!reader.line().trim().startsWith("Version,2."))) {
+            throw new IOException("Expecting Version 1.2.n of data file.");
+        }
+    }
+
     /**
      * Called by reflection from Analysis.extractMassSpecDataFromPath
      *
@@ -240,86 +267,95 @@ public enum PhoenixMassSpec {
      */
     @SuppressWarnings("unused")
     public static MassSpecExtractedData extractMetaAndBlockDataFromFileVersion_1_2(Path inputDataFile) throws IOException, TripoliException {
+        try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(inputDataFile, Charset.defaultCharset())) {
+            return extractMetaAndBlockDataFromFileVersion_1_2(reader);
+        }
+    }
+
+    /**
+     * @param reader positioned before the first line and left open
+     * @return
+     * @throws IOException
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractMetaAndBlockDataFromFileVersion_1_2(DelimitedDataFileReader reader) throws IOException, TripoliException {
         MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
-        List<String> contentsByLine = new ArrayList<>(Files.readAllLines(inputDataFile, Charset.defaultCharset()));
-        // test for version 1.20
-        if ((!contentsByLine.get(2).trim().startsWith("Version,1.")) && (!contentsByLine.get(2).trim().startsWith("Version,2."))) {
-            throw new IOException("Expecting Version 1.2.n of data file.");
-        } else {
-            // first pass is to assemble data by blocks
-            List<String[]> headerByLineSplit = new ArrayList<>();
-            List<String[]> detectorsByLineSplit = new ArrayList<>();
-            List<String[]> columnNamesSplit = new ArrayList<>();
-            List<List<String>> dataByBlocks = new ArrayList<>();
-            List<String> dataByBlock = new ArrayList<>();
-
-            int phase = 0;
-            int currentBlockID = 1;
-            int cyclesPerBlock = 1;
-            for (String line : contentsByLine) {
-                if (!line.trim().isBlank()) {
-                    if (line.startsWith("#COLLECTORS")) {
-                        massSpecExtractedData.populateHeader(headerByLineSplit);
-                        phase = 1;
-                    } else if (line.startsWith("#BASELINES")) {
-                        massSpecExtractedData.populateDetectors(detectorsByLineSplit);
-                        phase = 3;
-                    } else if (line.startsWith("#ONPEAK")) {
-                        phase = 6;
-                    } else if (line.startsWith("#END")) {
-                        phase = 9;
-                    }
+        // first pass is to assemble data by blocks
+        List<String[]> headerByLineSplit = new ArrayList<>();
+        List<String[]> detectorsByLineSplit = new ArrayList<>();
+        List<String[]> columnNamesSplit = new ArrayList<>();
+        List<BlockDataAccumulator> dataByBlocks = new ArrayList<>();
+        BlockDataAccumulator dataByBlock = new BlockDataAccumulator();
+
+        int phase = 0;
+        int currentBlockID = 1;
+        while (reader.nextLine()) {
+            // test for version 1.20
+            checkVersionLine(reader);
+            if (!reader.isBlank()) {
+                if (reader.startsWith("#COLLECTORS")) {
+                    massSpecExtractedData.populateHeader(headerByLineSplit);
+                    phase = 1;
+                } else if (reader.startsWith("#BASELINES")) {
+                    massSpecExtractedData.populateDetectors(detectorsByLineSplit);
+                    phase = 3;
+                } else if (reader.startsWith("#ONPEAK")) {
+                    phase = 6;
+                } else if (reader.startsWith("#END")) {
+                    phase = 9;
+                }
 
-                    switch (phase) {
-                        case 0 -> headerByLineSplit.add(line.split(","));
-                        case 1 -> phase = 2;
-                        case 2 -> detectorsByLineSplit.add(line.split(","));
-                        case 3 -> phase = 4;
-                        case 4 -> {
-                            columnNamesSplit.add(line.split(","));
-                            massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
-                            phase = 5;
-                        }
-                        case 6 -> phase = 7;
-                        case 7 -> phase = 8;
-
-                        case 5, 8 -> {
-                            String[] lineSplit = line.split(",");
-                            // each block gets treated as a singleton block #1
-                            int blockID = Integer.parseInt(lineSplit[1].trim());
-                            if (blockID != currentBlockID) {
-                                //  save off block and prepare for next block new for BL and add to for OPeak
-                                if (8 == phase) {
-                                    dataByBlocks.get(currentBlockID - 1).addAll(dataByBlock);
-                                    massSpecExtractedData.addBlockRecord(
-                                            parseAndBuildSingleBlockRecord(2, currentBlockID, dataByBlocks.get(currentBlockID - 1)));
-                                } else {
-                                    dataByBlocks.add(dataByBlock);
-                                }
-                                dataByBlock = new ArrayList<>();
-                                currentBlockID = blockID;
+                switch (phase) {
+                    case 0 -> headerByLineSplit.add(reader.line().split(","));
+                    case 1 -> phase = 2;
+                    case 2 -> detectorsByLineSplit.add(reader.line().split(","));
+                    case 3 -> phase = 4;
+                    case 4 -> {
+                        columnNamesSplit.add(reader.line().split(","));
+                        massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
+                        phase = 5;
+                    }
+                    case 6 -> phase = 7;
+                    case 7 -> phase = 8;
+
+                    case 5, 8 -> {
+                        // each block gets treated as a singleton block #1
+                        int blockID = reader.intField(1);
+                        if (blockID != currentBlockID) {
+                            //  save off block and prepare for next block new for BL and add to for OPeak
+                            if (8 == phase) {
+                                dataByBlocks.get(currentBlockID - 1).addAll(dataByBlock);
+                                massSpecExtractedData.addBlockRecord(
+                                        dataByBlocks.get(currentBlockID - 1).buildSingleBlockRecord(currentBlockID));
+                            } else {
+                                dataByBlocks.add(dataByBlock);
                             }
-                            dataByBlock.add(line);
+                            dataByBlock = new BlockDataAccumulator();
+                            currentBlockID = blockID;
                         }
+                        dataByBlock.addLine(2, reader);
                     }
-                } else if ((5 == phase) && !dataByBlock.isEmpty()) {
-                    // clean up last block
+                }
+            } else if ((5 == phase) && !dataByBlock.isEmpty()) {
+                // clean up last block
+                dataByBlocks.add(dataByBlock);
+                dataByBlock = new BlockDataAccumulator();
+                currentBlockID = 1;
+            } else if ((8 == phase) && !dataByBlock.isEmpty()) {
+                // clean up last block
+                // check for missing baseline action
+                if (dataByBlocks.isEmpty()) {
                     dataByBlocks.add(dataByBlock);
-                    dataByBlock = new ArrayList<>();
-                    currentBlockID = 1;
-                } else if ((8 == phase) && !dataByBlock.isEmpty()) {
-                    // clean up last block
-                    // check for missing baseline action
-                    if (dataByBlocks.isEmpty()) {
-                        dataByBlocks.add(dataByBlock);
-                    } else {
-                        dataByBlocks.get(currentBlockID - 1).addAll(dataByBlock);
-                    }
-                    massSpecExtractedData.addBlockRecord(
-                            parseAndBuildSingleBlockRecord(2, currentBlockID, dataByBlocks.get(currentBlockID - 1)));
+                } else {
+                    dataByBlocks.get(currentBlockID - 1).addAll(dataByBlock);
                 }
+                massSpecExtractedData.addBlockRecord(
+                        dataByBlocks.get(currentBlockID - 1).buildSingleBlockRecord(currentBlockID));
             }
         }
+        if (2 > reader.getLineNumber()) {
+            throw new IOException("Expecting Version 1.2.n of data file.");
+        }
         return massSpecExtractedData;
     }
 
@@ -332,311 +368,230 @@ public enum PhoenixMassSpec {
      */
     @SuppressWarnings("unused")
     public static MassSpecExtractedData extractDataFromFileVersion_2_TIMSDP(Path inputDataFile) throws IOException, TripoliException {
+        try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(inputDataFile, Charset.defaultCharset())) {
+            return extractDataFromFileVersion_2_TIMSDP(reader);
+        }
+    }
+
+    /**
+     * @param reader positioned before the first line and left open
+     * @return
+     * @throws IOException
+     * @throws TripoliException
+     */
+    public static MassSpecExtractedData extractDataFromFileVersion_2_TIMSDP(DelimitedDataFileReader reader) throws IOException, TripoliException {
         MassSpecExtractedData massSpecExtractedData = new MassSpecExtractedData();
-        List<String> contentsByLine = new ArrayList<>(Files.readAllLines(inputDataFile, Charset.defaultCharset()));
-        List<List<String>> dataByBlocks = new ArrayList<>();
-        // test for version 1.20
-        if ((!contentsByLine.get(2).trim().startsWith("Version,1.")) && (!contentsByLine.get(2).trim().startsWith("Version,2."))) {
-            throw new IOException("Expecting Version 1.2.n of data file.");
-        } else {
-            // first pass is to assemble data by blocks
-            List<String[]> headerByLineSplit = new ArrayList<>();
-            List<String[]> detectorsByLineSplit = new ArrayList<>();
-            List<String[]> columnNamesSplit = new ArrayList<>();
-            List<String> dataByBlock = new ArrayList<>();
-
-            int phase = 0;
-            int currentBlockID = 1;
-            int cyclesPerBlock = 1;
-            for (String line : contentsByLine) {
-                if (!line.trim().isBlank()) {
-                    if (line.startsWith("#COLLECTORS")) {
-//                        massSpecExtractedData.populateHeader(headerByLineSplit);
-                        phase = 1;
-                    } else if (line.startsWith("#USERTABLES")) {
-                        massSpecExtractedData.populateDetectors(detectorsByLineSplit); // indeterminate location
-                        phase = -1;
-                    } else if (line.startsWith("#SAMPLELIST")) {
-                        massSpecExtractedData.populateDetectors(detectorsByLineSplit); // indeterminate location
-                        phase = 9;
-                    } else if (line.startsWith("#BASELINES")) {
-                        massSpecExtractedData.populateHeader(headerByLineSplit);
-                        phase = -1;
-                    } else if (line.startsWith("#CYCLES")) {
-                        phase = 3;
-                    } else if (line.startsWith("#BLOCKS")) {
-                        phase = 8;
-                    } else if (line.startsWith("#SUMMARY")) {
-                        phase = -1;
-                    } else if (line.startsWith("#FUNCTIONS")) {
-                        phase = -1;
-                    } else if (line.startsWith("#END")) {
-                        phase = -1;
-                    }
+        List<String[]> headerByLineSplit = new ArrayList<>();
+        List<String[]> detectorsByLineSplit = new ArrayList<>();
+        List<String[]> columnNamesSplit = new ArrayList<>();
+        List<double[]> dataByBlock = new ArrayList<>();
+
+        int phase = 0;
+        int currentBlockID = 1;
+        int cyclesPerBlock;
+        while (reader.nextLine()) {
+            // test for version 1.20
+            checkVersionLine(reader);
+            if (!reader.isBlank()) {
+                if (reader.startsWith("#COLLECTORS")) {
+                    phase = 1;
+                } else if (reader.startsWith("#USERTABLES")) {
+                    massSpecExtractedData.populateDetectors(detectorsByLineSplit); // indeterminate location
+                    phase = -1;
+                } else if (reader.startsWith("#SAMPLELIST")) {
+                    massSpecExtractedData.populateDetectors(detectorsByLineSplit); // indeterminate location
+                    phase = 9;
+                } else if (reader.startsWith("#BASELINES")) {
+                    massSpecExtractedData.populateHeader(headerByLineSplit);
+                    phase = -1;
+                } else if (reader.startsWith("#CYCLES")) {
+                    phase = 3;
+                } else if (reader.startsWith("#BLOCKS")) {
+                    phase = 8;
+                } else if (reader.startsWith("#SUMMARY")) {
+                    phase = -1;
+                } else if (reader.startsWith("#FUNCTIONS")) {
+                    phase = -1;
+                } else if (reader.startsWith("#END")) {
+                    phase = -1;
+                }
 
-                    switch (phase) {
-                        case -1 -> {
-                        }
-                        case 0 -> headerByLineSplit.add(line.split(","));
-                        case 1 -> phase = 2;
-                        case 2 -> detectorsByLineSplit.add(line.split(","));
-                        case 3 -> phase = 4;
-                        case 4 -> {
-                            columnNamesSplit.add(line.split(","));
-                            massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
-                            phase = 5;
-                        }
-                        case 6 -> phase = 7;
-                        case 7 -> phase = 8;
-                        case 5 -> {
-                            cyclesPerBlock = massSpecExtractedData.getHeader().cyclesPerBlock();
-                            String[] lineSplit = line.split(",");
-                            int blockID = (Integer.parseInt(lineSplit[0].trim()) - 1) / cyclesPerBlock + 1;
-                            if (blockID != currentBlockID) {
-                                dataByBlocks.add(dataByBlock);
-                                massSpecExtractedData.addBlockLiteRecord(
-                                        parseAndBuildSingleBlockTIMSDPRecord(currentBlockID, dataByBlocks.get(currentBlockID - 1)));
-                                currentBlockID++;
-                                dataByBlock = new ArrayList<>();
-                                dataByBlock.add(line);
-                            } else {
-                                dataByBlock.add(line);
-                            }
-                        }
-                        case 8 -> {
-                            dataByBlocks.add(dataByBlock);
-                            massSpecExtractedData.addBlockLiteRecord(
-                                    parseAndBuildSingleBlockTIMSDPRecord(currentBlockID, dataByBlocks.get(currentBlockID - 1)));
-                            phase = -1;
+                switch (phase) {
+                    case -1 -> {
+                    }
+                    case 0 -> headerByLineSplit.add(reader.line().split(","));
+                    case 1 -> phase = 2;
+                    case 2 -> detectorsByLineSplit.add(reader.line().split(","));
+                    case 3 -> phase = 4;
+                    case 4 -> {
+                        columnNamesSplit.add(reader.line().split(","));
+                        massSpecExtractedData.populateColumnNamesList(columnNamesSplit);
+                        phase = 5;
+                    }
+                    case 6 -> phase = 7;
+                    case 7 -> phase = 8;
+                    case 5 -> {
+                        // version 1:  PhoenixTIMSDP Cycle,Time, DATA[custom fields]
+                        cyclesPerBlock = massSpecExtractedData.getHeader().cyclesPerBlock();
+                        int blockID = (reader.intField(0) - 1) / cyclesPerBlock + 1;
+                        if (blockID != currentBlockID) {
+                            massSpecExtractedData.addBlockLiteRecord(new MassSpecOutputBlockRecordLite(
+                                    currentBlockID, dataByBlock.toArray(new double[0][])));
+                            currentBlockID++;
+                            dataByBlock = new ArrayList<>();
                         }
-                        case 9 -> headerByLineSplit.add(line.split(","));
+                        dataByBlock.add(reader.doubleFields(0));
                     }
+                    case 8 -> {
+                        massSpecExtractedData.addBlockLiteRecord(new MassSpecOutputBlockRecordLite(
+                                currentBlockID, dataByBlock.toArray(new double[0][])));
+                        phase = -1;
+                    }
+                    case 9 -> headerByLineSplit.add(reader.line().split(","));
                 }
             }
         }
-        return massSpecExtractedData;
-    }
-
-    private static MassSpecOutputBlockRecordFull parseAndBuildSingleBlockRecord(int version, int blockNumber, List<String> blockData) {
-        List<String> sequenceIDByLineSplit = new ArrayList<>();
-        List<String> cycleNumberByLineSplit = new ArrayList<>();
-        List<String> integrationNumberByLineSplit = new ArrayList<>();
-        List<String> timeStampByLineSplit = new ArrayList<>();
-        List<String> massByLineSplit = new ArrayList<>();
-        List<String[]> detectorDataByLineSplit = new ArrayList<>();
-
-        // version 1:  PhoenixFull_Synthetic ID,Block,Cycle,Integ,Time,Mass,DATA[Low5,Low4,Low3,Low2,Ax Fara,Axial,High1,High2,High3,High4]
-        // version 2:  PhoenixFull ID,Block,Cycle,Integ,PeakID,AxMass,Time,DATA[PM,RS,L5,L4,L3,L2,Ax,H1,H2,H3,H4]
-//        int count = 0;
-        for (String line : blockData) {
-            String[] lineSplit = line.split(",");
-            sequenceIDByLineSplit.add(lineSplit[0].trim());
-            cycleNumberByLineSplit.add(lineSplit[2].trim());
-            integrationNumberByLineSplit.add(lineSplit[3].trim());
-            timeStampByLineSplit.add(lineSplit[(1 == version) ? 4 : 6].trim());
-            massByLineSplit.add(lineSplit[5].trim());
-            detectorDataByLineSplit.add(Arrays.copyOfRange(lineSplit, ((1 == version) ? 6 : 7), lineSplit.length));
-//            count++;
-        }
-
-        return buildSingleBlockRecord(
-                blockNumber,
-                sequenceIDByLineSplit,
-                cycleNumberByLineSplit,
-                integrationNumberByLineSplit,
-                timeStampByLineSplit,
-                massByLineSplit,
-                detectorDataByLineSplit);
-    }
-
-    private static MassSpecOutputBlockRecordLite parseAndBuildSingleBlockTIMSDPRecord(int blockNumber, List<String> blockData) {
-        List<String> cycleNumberByLineSplit = new ArrayList<>();
-        List<String> timeStampByLineSplit = new ArrayList<>();
-        List<String[]> cycleDataByLineSplitList = new ArrayList<>();
-        // version 1:  PhoenixTIMSDP Cycle,Time, DATA[custom fields]
-        for (String line : blockData) {
-            String[] lineSplit = line.split(",");
-            cycleNumberByLineSplit.add(lineSplit[0].trim());
-            timeStampByLineSplit.add(lineSplit[1].trim());
-            cycleDataByLineSplitList.add(Arrays.copyOfRange(lineSplit, 0, lineSplit.length));
+        if (2 > reader.getLineNumber()) {
+            throw new IOException("Expecting Version 1.2.n of data file.");
         }
-
-        return buildSingleBlockTIMSDPRecord(
-                blockNumber,
-                cycleDataByLineSplitList);
+        return massSpecExtractedData;
     }
 
-    private static MassSpecOutputBlockRecordLite buildSingleBlockTIMSDPRecord(
-            int blockID,
-            List<String[]> cycleDataByLineSplit) {
-
-        double[][] cycleData = new double[cycleDataByLineSplit.size()][];
-        int index = 0;
-        for (String[] numbersAsStrings : cycleDataByLineSplit) {
-            cycleData[index] = Arrays.stream(numbersAsStrings)
-                    .mapToDouble(Double::parseDouble)
-                    .toArray();
-            index++;
+    private static Map<String, List<Integer>> buildMapOfIdsToIndices(String[] ids) {
+        Map<String, List<Integer>> mapOfIdsToIndices = new TreeMap<>();
+        for (int index = 0; index < ids.length; index++) {
+            if (mapOfIdsToIndices.containsKey(ids[index])) {
+                mapOfIdsToIndices.get(ids[index]).add(index);
+            } else {
+                mapOfIdsToIndices.put(ids[index], new ArrayList<>());
+                mapOfIdsToIndices.get(ids[index]).add(index);
+            }
         }
-
-        return new MassSpecOutputBlockRecordLite(
-                blockID,
-                cycleData
-        );
+        return mapOfIdsToIndices;
     }
 
-    private static MassSpecOutputBlockRecordFull buildSingleBlockRecord(
-            int blockID,
-            List<String> sequenceIDByLineSplit,
-            List<String> cycleNumberByLineSplit,
-            List<String> integrationNumberByLineSplit,
-            List<String> timeStampByLineSplit,
-            List<String> massByLineSplit,
-            List<String[]> detectorDataByLineSplit) {
-
-        // process sequenceIDByLineSplit to learn break between Baselines and Onpeaks
-        int startingOnPeakIndex = 0;
-        for (int lineIndex = 0; lineIndex < sequenceIDByLineSplit.size(); lineIndex++) {
-            if (!sequenceIDByLineSplit.get(lineIndex).startsWith("B")) {
-                startingOnPeakIndex = lineIndex;
-                break;
+    /**
+     * Rows of one Phoenix full-data block, parsed into growing primitive arrays as the lines stream by.
+     */
+    private static final class BlockDataAccumulator {
+        private final List<String> sequenceIDs = new ArrayList<>();
+        private int[] cycleNumbers = new int[256];
+        private int[] integrationNumbers = new int[256];
+        private double[] timeStamps = new double[256];
+        private double[] masses = new double[256];
+        private double[][] detectorData = new double[256][];
+        private int count;
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > cycleNumbers.length) {
+                int newLength = Math.max(capacity, cycleNumbers.length * 2);
+                cycleNumbers = Arrays.copyOf(cycleNumbers, newLength);
+                integrationNumbers = Arrays.copyOf(integrationNumbers, newLength);
+                timeStamps = Arrays.copyOf(timeStamps, newLength);
+                masses = Arrays.copyOf(masses, newLength);
+                detectorData = Arrays.copyOf(detectorData, newLength);
             }
         }
 
-        List<List<String>> splitIDs = splitStringListIntoBaselineAndOnPeak(sequenceIDByLineSplit, startingOnPeakIndex);
-        String[] baselineIDs = splitIDs.get(0).toArray(new String[0]);
-        String[] onPeakIDs = splitIDs.get(1).toArray(new String[0]);
-
-        // build maps of IDs to indices
-        Map<String, List<Integer>> mapOfBaselineIDsToIndices = buildMapOfIdsToIndices(baselineIDs);
-        Map<String, List<Integer>> mapOfOnPeakIDsToIndices = buildMapOfIdsToIndices(onPeakIDs);
-
-        List<List<String>> splitCycleNums = splitStringListIntoBaselineAndOnPeak(cycleNumberByLineSplit, startingOnPeakIndex);
-        int[] baselineCycleNumbers = convertListOfNumbersAsStringsToIntegerArray(splitCycleNums.get(0));
-        int[] onPeakCycleNumbers = convertListOfNumbersAsStringsToIntegerArray(splitCycleNums.get(1));
-
-        List<List<String>> splitIntegrationNums = splitStringListIntoBaselineAndOnPeak(integrationNumberByLineSplit, startingOnPeakIndex);
-        int[] baselineIntegrationNumbers = convertListOfNumbersAsStringsToIntegerArray(splitIntegrationNums.get(0));
-        int[] onPeakIntegrationNumbers = convertListOfNumbersAsStringsToIntegerArray(splitIntegrationNums.get(1));
-
-        List<List<String>> splitTimeStamps = splitStringListIntoBaselineAndOnPeak(timeStampByLineSplit, startingOnPeakIndex);
-        double[] baselineTimeStamps = convertListOfNumbersAsStringsToDoubleArray(splitTimeStamps.get(0));
-        double[] onPeakTimeStamps = convertListOfNumbersAsStringsToDoubleArray(splitTimeStamps.get(1));
-
-        List<List<String>> splitMasses = splitStringListIntoBaselineAndOnPeak(massByLineSplit, startingOnPeakIndex);
-        double[] baselineMasses = convertListOfNumbersAsStringsToDoubleArray(splitMasses.get(0));
-        double[] onPeakMasses = convertListOfNumbersAsStringsToDoubleArray(splitMasses.get(1));
-
-        List<List<String[]>> splitDetectorData = splitStringArrayListIntoBaselineAndOnPeak(detectorDataByLineSplit, startingOnPeakIndex);
-        double[][] baselineIntensities = new double[splitDetectorData.get(0).size()][];
-        int index = 0;
-        for (String[] numbersAsStrings : splitDetectorData.get(0)) {
-            baselineIntensities[index] = Arrays.stream(numbersAsStrings)
-                    .mapToDouble(Double::parseDouble)
-                    .toArray();
-            index++;
+        void addLine(int version, DelimitedDataFileReader reader) {
+            // version 1:  PhoenixFull_Synthetic ID,Block,Cycle,Integ,Time,Mass,DATA[Low5,Low4,Low3,Low2,Ax Fara,Axial,High1,High2,High3,High4]
+            // version 2:  PhoenixFull ID,Block,Cycle,Integ,PeakID,AxMass,Time,DATA[PM,RS,L5,L4,L3,L2,Ax,H1,H2,H3,H4]
+            // the whole row is parsed before any column grows, so a malformed row cannot misalign them
+            String sequenceID = reader.field(0).trim();
+            int cycleNumber = reader.intField(2);
+            int integrationNumber = reader.intField(3);
+            double timeStamp = reader.doubleField((1 == version) ? 4 : 6);
+            double mass = reader.doubleField(5);
+            double[] detectorValues = reader.doubleFields((1 == version) ? 6 : 7);
+
+            ensureCapacity(count + 1);
+            sequenceIDs.add(sequenceID);
+            cycleNumbers[count] = cycleNumber;
+            integrationNumbers[count] = integrationNumber;
+            timeStamps[count] = timeStamp;
+            masses[count] = mass;
+            detectorData[count] = detectorValues;
+            count++;
         }
-        double[][] onPeakIntensities = new double[splitDetectorData.get(1).size()][];
-        index = 0;
-        for (String[] numbersAsStrings : splitDetectorData.get(1)) {
-            onPeakIntensities[index] = Arrays.stream(numbersAsStrings)
-                    .mapToDouble(Double::parseDouble)
-                    .toArray();
-            index++;
-        }
-
 
-        // baseline cycles are all 0 and onpeak cycles start at 1
-        int nCycle = onPeakCycleNumbers[onPeakCycleNumbers.length - 1];
-
-        // collect the starting indices of each onPeak cycle
-        int currentCycleNumber = 1;
-        int currentIndex = 0;
-        int currentRecordNumber = 0;
-        int row;
-        boolean cycleStartRecorded = false;
-        int[] onPeakStartingIndicesOfCycles = new int[nCycle];
-        for (row = 0; row < onPeakCycleNumbers.length; row++) {
-            if (!cycleStartRecorded) {
-                onPeakStartingIndicesOfCycles[currentRecordNumber] = currentIndex;
-                cycleStartRecorded = true;
-            }
-            if (onPeakCycleNumbers[row] > currentCycleNumber) {
-                currentRecordNumber++;
-                currentCycleNumber++;
-                currentIndex = row;
-                onPeakStartingIndicesOfCycles[currentRecordNumber] = currentIndex;
-            }
+        void addAll(BlockDataAccumulator other) {
+            ensureCapacity(count + other.count);
+            sequenceIDs.addAll(other.sequenceIDs);
+            System.arraycopy(other.cycleNumbers, 0, cycleNumbers, count, other.count);
+            System.arraycopy(other.integrationNumbers, 0, integrationNumbers, count, other.count);
+            System.arraycopy(other.timeStamps, 0, timeStamps, count, other.count);
+            System.arraycopy(other.masses, 0, masses, count, other.count);
+            System.arraycopy(other.detectorData, 0, detectorData, count, other.count);
+            count += other.count;
         }
 
-        return new MassSpecOutputBlockRecordFull(
-                blockID,
-                baselineIntensities,
-                baselineIDs,
-                mapOfBaselineIDsToIndices,
-                baselineCycleNumbers,
-                baselineIntegrationNumbers,
-                baselineTimeStamps,
-                baselineMasses,
-                onPeakIntensities,
-                onPeakIDs,
-                mapOfOnPeakIDsToIndices,
-                onPeakCycleNumbers,
-                onPeakIntegrationNumbers,
-                onPeakTimeStamps,
-                onPeakMasses,
-                onPeakStartingIndicesOfCycles);
-    }
-
-    // helper methods **************************************************************************************************
-    private static double[] convertListOfNumbersAsStringsToDoubleArray(List<String> listToConvert) {
-        double[] retVal = new double[listToConvert.size()];
-        int index = 0;
-        for (String blockNumberAsString : listToConvert) {
-            retVal[index] = Double.parseDouble(blockNumberAsString);
-            index++;
+        boolean isEmpty() {
+            return 0 == count;
         }
 
-        return retVal;
-    }
-
-    private static int[] convertListOfNumbersAsStringsToIntegerArray(List<String> listToConvert) {
-        int[] retVal = new int[listToConvert.size()];
-        int index = 0;
-        for (String blockNumberAsString : listToConvert) {
-            retVal[index] = Integer.parseInt(blockNumberAsString);
-            index++;
+        int lastCycleNumber() {
+            return cycleNumbers[count - 1];
         }
 
-        return retVal;
-    }
-
-    private static List<List<String>> splitStringListIntoBaselineAndOnPeak(List<String> sourceList, int splitIndex) {
-        int size = sourceList.size();
-        List<List<String>> retVal = new ArrayList<>();
-        retVal.add(new ArrayList<>(sourceList.subList(0, splitIndex)));
-        retVal.add(new ArrayList<>(sourceList.subList(splitIndex, size)));
-        return retVal;
-    }
-
-    private static List<List<String[]>> splitStringArrayListIntoBaselineAndOnPeak(List<String[]> sourceList, int splitIndex) {
-        return new ArrayList<>(
-                sourceList.stream()
-                        .collect(Collectors.partitioningBy(s -> sourceList.indexOf(s) >= splitIndex))
-                        .values()
-        );
-    }
+        MassSpecOutputBlockRecordFull buildSingleBlockRecord(int blockID) {
+            // process sequenceIDs to learn break between Baselines and Onpeaks
+            int startingOnPeakIndex = 0;
+            for (int lineIndex = 0; lineIndex < count; lineIndex++) {
+                if (!sequenceIDs.get(lineIndex).startsWith("B")) {
+                    startingOnPeakIndex = lineIndex;
+                    break;
+                }
+            }
 
-    private static Map<String, List<Integer>> buildMapOfIdsToIndices(String[] ids) {
-        Map<String, List<Integer>> mapOfIdsToIndices = new TreeMap<>();
-        for (int index = 0; index < ids.length; index++) {
-            if (mapOfIdsToIndices.containsKey(ids[index])) {
-                mapOfIdsToIndices.get(ids[index]).add(index);
-            } else {
-                mapOfIdsToIndices.put(ids[index], new ArrayList<>());
-                mapOfIdsToIndices.get(ids[index]).add(index);
+            String[] baselineIDs = sequenceIDs.subList(0, startingOnPeakIndex).toArray(new String[0]);
+            String[] onPeakIDs = sequenceIDs.subList(startingOnPeakIndex, count).toArray(new String[0]);
+
+            // build maps of IDs to indices
+            Map<String, List<Integer>> mapOfBaselineIDsToIndices = buildMapOfIdsToIndices(baselineIDs);
+            Map<String, List<Integer>> mapOfOnPeakIDsToIndices = buildMapOfIdsToIndices(onPeakIDs);
+
+            int[] onPeakCycleNumbers = Arrays.copyOfRange(cycleNumbers, startingOnPeakIndex, count);
+
+            // baseline cycles are all 0 and onpeak cycles start at 1
+            int nCycle = onPeakCycleNumbers[onPeakCycleNumbers.length - 1];
+
+            // collect the starting indices of each onPeak cycle
+            int currentCycleNumber = 1;
+            int currentIndex = 0;
+            int currentRecordNumber = 0;
+            int row;
+            boolean cycleStartRecorded = false;
+            int[] onPeakStartingIndicesOfCycles = new int[nCycle];
+            for (row = 0; row < onPeakCycleNumbers.length; row++) {
+                if (!cycleStartRecorded) {
+                    onPeakStartingIndicesOfCycles[currentRecordNumber] = currentIndex;
+                    cycleStartRecorded = true;
+                }
+                if (onPeakCycleNumbers[row] > currentCycleNumber) {
+                    currentRecordNumber++;
+                    currentCycleNumber++;
+                    currentIndex = row;
+                    onPeakStartingIndicesOfCycles[currentRecordNumber] = currentIndex;
+                }
             }
+
+            return new MassSpecOutputBlockRecordFull(
+                    blockID,
+                    Arrays.copyOfRange(detectorData, 0, startingOnPeakIndex),
+                    baselineIDs,
+                    mapOfBaselineIDsToIndices,
+                    Arrays.copyOfRange(cycleNumbers, 0, startingOnPeakIndex),
+                    Arrays.copyOfRange(integrationNumbers, 0, startingOnPeakIndex),
+                    Arrays.copyOfRange(timeStamps, 0, startingOnPeakIndex),
+                    Arrays.copyOfRange(masses, 0, startingOnPeakIndex),
+                    Arrays.copyOfRange(detectorData, startingOnPeakIndex, count),
+                    onPeakIDs,
+                    mapOfOnPeakIDsToIndices,
+                    onPeakCycleNumbers,
+                    Arrays.copyOfRange(integrationNumbers, startingOnPeakIndex, count),
+                    Arrays.copyOfRange(timeStamps, startingOnPeakIndex, count),
+                    Arrays.copyOfRange(masses, startingOnPeakIndex, count),
+                    onPeakStartingIndicesOfCycles);
         }
-        return mapOfIdsToIndices;
     }
-}
\ No newline at end of file
+}
@@ -16,9 +16,19 @@
 
 package org.cirdles.tripoli.utilities.callbacks;
 
-import java.nio.file.Path;
-import java.nio.file.WatchEvent;
+/**
+ * Receives per-block events from work that runs several blocks of an analysis at once.
+ * Calls arrive on worker threads; GUI listeners must hop to their own thread.
+ */
+public interface BlockProgressCallbackInterface {
+    void blockProgress(int blockID, String loggingSnippet);
+
+    default void blockStarted(int blockID) {
+    }
+
+    default void blockCompleted(int blockID) {
+    }
 
-public interface FileWatcherCallbackInterface {
-    void onFileEvent(Path fullPath, WatchEvent.Kind<?> kind);
+    default void blockFailed(int blockID, Throwable throwable) {
+    }
 }
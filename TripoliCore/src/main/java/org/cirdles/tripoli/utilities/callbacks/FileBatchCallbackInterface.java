@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.callbacks;
+
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.List;
+
+/**
+ * Receives files from LiveDataWatchService once they are complete.
+ * Calls for one watched folder never overlap and arrive on a worker thread; GUI listeners must hop to their own thread.
+ */
+public interface FileBatchCallbackInterface {
+    /**
+     * @param fullPaths files in the order they became complete, or in the requested order for existing files
+     * @param kind      ENTRY_CREATE for files created since they were last delivered, otherwise ENTRY_MODIFY
+     */
+    void onFilesReady(List<Path> fullPaths, WatchEvent.Kind<?> kind);
+
+    /**
+     * @param folder    the watched folder
+     * @param exception from rescanning the folder or thrown by onFilesReady
+     */
+    default void onFailure(Path folder, Exception exception) {
+    }
+}
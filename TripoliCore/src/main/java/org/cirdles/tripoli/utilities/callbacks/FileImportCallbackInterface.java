@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.callbacks;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+
+import java.nio.file.Path;
+
+/**
+ * Receives per-file events from BatchImportService.
+ * Calls arrive on worker threads; GUI listeners must hop to their own thread.
+ */
+public interface FileImportCallbackInterface {
+    /**
+     * @param dataFile
+     * @param analysis         parsed and initialised, but not yet in the session
+     * @param countOfFilesDone imported or failed so far, including this one
+     * @param countOfFiles     in the batch
+     */
+    void fileImported(Path dataFile, AnalysisInterface analysis, int countOfFilesDone, int countOfFiles);
+
+    default void fileStarted(Path dataFile) {
+    }
+
+    default void fileFailed(Path dataFile, Throwable throwable, int countOfFilesDone, int countOfFiles) {
+    }
+}
@@ -19,16 +19,30 @@ package org.cirdles.tripoli.utilities.collections;
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Analyses of a session by name.  A session opened lazily from a session store holds its analyses as names
+ * mapped to null until first use; get loads a single analysis, and values, entrySet and containsValue load all
+ * that are still pending, in parallel.
+ */
 public class TripoliSessionAnalysisMap implements Map<String, AnalysisInterface>, Serializable {
 
+    @Serial
+    private static final long serialVersionUID = -3779708608543504079L;
     private final Map<String, AnalysisInterface> sessionMapOfAnalyses;
     private Session session;
+    private transient AnalysisLoader analysisLoader;
+    private transient Map<String, Object> analysisLoadLocks;
 
     public TripoliSessionAnalysisMap() {
         super();
@@ -39,6 +53,83 @@ public class TripoliSessionAnalysisMap implements Map<String, AnalysisInterface>
         this.session = session;
     }
 
+    /**
+     * @return a copy holding the same names, each mapped to null, for a session store to write in place of this map
+     */
+    public TripoliSessionAnalysisMap detachedCopy() {
+        TripoliSessionAnalysisMap detachedCopy = new TripoliSessionAnalysisMap();
+        detachedCopy.session = session;
+        for (String analysisName : new ArrayList<>(sessionMapOfAnalyses.keySet())) {
+            detachedCopy.sessionMapOfAnalyses.put(analysisName, null);
+        }
+        return detachedCopy;
+    }
+
+    /**
+     * @param analysisLoader loads the analyses that are mapped to null
+     */
+    public void setAnalysisLoader(AnalysisLoader analysisLoader) {
+        this.analysisLoader = analysisLoader;
+        analysisLoadLocks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds an analysis that has been read from storage, without applying the session defaults as put does.
+     *
+     * @param analysisName
+     * @param analysis
+     */
+    public void putLoadedAnalysis(String analysisName, AnalysisInterface analysis) {
+        sessionMapOfAnalyses.put(analysisName, analysis);
+    }
+
+    /**
+     * Adds analyses in one step without applying the session defaults as putAll does, for analyses that had them
+     * applied when they were imported.
+     *
+     * @param mapOfNamesToAnalyses
+     */
+    public void putAllInitialized(Map<String, ? extends AnalysisInterface> mapOfNamesToAnalyses) {
+        sessionMapOfAnalyses.putAll(mapOfNamesToAnalyses);
+    }
+
+    public boolean isLoaded(String analysisName) {
+        return null != sessionMapOfAnalyses.get(analysisName);
+    }
+
+    public void loadPendingAnalyses() {
+        if (null != analysisLoader) {
+            List<String> pendingAnalysisNames = new ArrayList<>();
+            synchronized (sessionMapOfAnalyses) {
+                for (Entry<String, AnalysisInterface> entry : sessionMapOfAnalyses.entrySet()) {
+                    if (null == entry.getValue()) {
+                        pendingAnalysisNames.add(entry.getKey());
+                    }
+                }
+            }
+            pendingAnalysisNames.parallelStream().forEach(this::loadAnalysis);
+        }
+    }
+
+    private AnalysisInterface loadAnalysis(String analysisName) {
+        synchronized (analysisLoadLocks.computeIfAbsent(analysisName, k -> new Object())) {
+            if ((null == sessionMapOfAnalyses.get(analysisName)) && sessionMapOfAnalyses.containsKey(analysisName)) {
+                try {
+                    sessionMapOfAnalyses.replace(analysisName, null, analysisLoader.loadAnalysis(analysisName));
+                } catch (TripoliException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+            return sessionMapOfAnalyses.get(analysisName);
+        }
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        loadPendingAnalyses();
+        stream.defaultWriteObject();
+    }
+
     @Override
     public int size() {
         return sessionMapOfAnalyses.size();
@@ -56,12 +147,17 @@ public class TripoliSessionAnalysisMap implements Map<String, AnalysisInterface>
 
     @Override
     public boolean containsValue(Object value) {
+        loadPendingAnalyses();
         return sessionMapOfAnalyses.containsValue(value);
     }
 
     @Override
     public AnalysisInterface get(Object key) {
-        return sessionMapOfAnalyses.get(key);
+        AnalysisInterface analysis = sessionMapOfAnalyses.get(key);
+        if ((null == analysis) && (null != analysisLoader) && (key instanceof String analysisName)) {
+            analysis = loadAnalysis(analysisName);
+        }
+        return analysis;
     }
 
     @Nullable
@@ -104,13 +200,21 @@ public class TripoliSessionAnalysisMap implements Map<String, AnalysisInterface>
     @NotNull
     @Override
     public Collection<AnalysisInterface> values() {
+        loadPendingAnalyses();
         return sessionMapOfAnalyses.values();
     }
 
     @NotNull
     @Override
     public Set<Entry<String, AnalysisInterface>> entrySet() {
+        loadPendingAnalyses();
         return sessionMapOfAnalyses.entrySet();
     }
 
+    /**
+     * Reads one analysis of a session from storage.
+     */
+    public interface AnalysisLoader {
+        AnalysisInterface loadAnalysis(String analysisName) throws TripoliException;
+    }
 }
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Single-pass, line-at-a-time reader for comma-separated mass spectrometer data files.
+ * Lines are read as bytes, either through a fixed read buffer or from a memory-mapped view of the file, and
+ * numeric fields are parsed in place without creating a String per line or per field.
+ * Line breaks follow Files.readAllLines (\n, \r or \r\n), and fields follow String.split(","): trailing empty
+ * fields are dropped.  Numeric fields give the same values as Double.parseDouble and Integer.parseInt on the
+ * trimmed field text; anything outside the simple decimal forms is handed to those methods.
+ * The charset must be ASCII-compatible, as are the default charsets the instruments write.
+ * Not thread safe.
+ *
+ * @author James F. Bowring
+ */
+public class DelimitedDataFileReader implements AutoCloseable {
+
+    public static final long MEMORY_MAP_THRESHOLD_BYTES = 64L * 1024L * 1024L;
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final FileChannel fileChannel;
+    private final ByteBuffer byteBuffer;
+    private final boolean memoryMapped;
+    private final Charset charset;
+
+    private byte[] lineBytes = new byte[256];
+    private int lineLength;
+    private int lineNumber = -1;
+    private boolean skipLineFeed;
+    private boolean endOfInput;
+    private long bufferFileOffset;
+
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int fieldCount = -1;
+
+    private DelimitedDataFileReader(Path dataFile, Charset charset, boolean memoryMapped) throws IOException {
+        this.charset = charset;
+        fileChannel = FileChannel.open(dataFile, StandardOpenOption.READ);
+        long size = fileChannel.size();
+        this.memoryMapped = memoryMapped && (size <= Integer.MAX_VALUE);
+        if (this.memoryMapped) {
+            byteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } else {
+            byteBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            byteBuffer.flip();
+        }
+    }
+
+    /**
+     * Opens the file memory-mapped when it is at least MEMORY_MAP_THRESHOLD_BYTES long.
+     *
+     * @param dataFile
+     * @param charset
+     * @return
+     * @throws IOException
+     */
+    public static DelimitedDataFileReader open(Path dataFile, Charset charset) throws IOException {
+        return open(dataFile, charset, dataFile.toFile().length() >= MEMORY_MAP_THRESHOLD_BYTES);
+    }
+
+    /**
+     * @param dataFile
+     * @param charset
+     * @param memoryMapped ignored for files over 2 GB, which are always read through the buffer
+     * @return
+     * @throws IOException
+     */
+    public static DelimitedDataFileReader open(Path dataFile, Charset charset, boolean memoryMapped) throws IOException {
+        return new DelimitedDataFileReader(dataFile, charset, memoryMapped);
+    }
+
+    private static boolean isBlankByte(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    private boolean fillBuffer() throws IOException {
+        boolean retVal = false;
+        if (!memoryMapped && !endOfInput) {
+            bufferFileOffset = fileChannel.position();
+            byteBuffer.clear();
+            int count = fileChannel.read(byteBuffer);
+            byteBuffer.flip();
+            endOfInput = (-1 == count);
+            retVal = (0 < count);
+        }
+        return retVal;
+    }
+
+    /**
+     * Returns to before the first line, so that a reader that has probed the head of the file can be handed on
+     * to a parser.  The head is not read again while it is still in the read buffer.
+     *
+     * @throws IOException
+     */
+    public void rewind() throws IOException {
+        if (memoryMapped || ((0 == bufferFileOffset) && (0 < byteBuffer.limit()))) {
+            byteBuffer.position(0);
+        } else {
+            fileChannel.position(0);
+            bufferFileOffset = 0;
+            byteBuffer.clear();
+            byteBuffer.flip();
+            endOfInput = false;
+        }
+        lineLength = 0;
+        lineNumber = -1;
+        fieldCount = -1;
+        skipLineFeed = false;
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return false at the end of the file
+     * @throws IOException
+     */
+    public boolean nextLine() throws IOException {
+        return nextLine(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Advances to the next line, or to the next maxLineBytes of a longer line.
+     *
+     * @param maxLineBytes the most bytes taken into the line
+     * @return false at the end of the file
+     * @throws IOException
+     */
+    public boolean nextLine(int maxLineBytes) throws IOException {
+        lineLength = 0;
+        fieldCount = -1;
+        boolean lineFound = false;
+        boolean lineEnded = false;
+        while (!lineEnded && (lineLength < maxLineBytes)) {
+            if (!byteBuffer.hasRemaining() && !fillBuffer()) {
+                break;
+            }
+            byte b = byteBuffer.get();
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if ('\n' == b) {
+                    continue;
+                }
+            }
+            lineFound = true;
+            if ('\n' == b) {
+                lineEnded = true;
+            } else if ('\r' == b) {
+                skipLineFeed = true;
+                lineEnded = true;
+            } else {
+                if (lineLength == lineBytes.length) {
+                    lineBytes = Arrays.copyOf(lineBytes, lineLength * 2);
+                }
+                lineBytes[lineLength++] = b;
+            }
+        }
+        if (lineFound) {
+            lineNumber++;
+        }
+        return lineFound;
+    }
+
+    /**
+     * @return zero-based index of the current line, counting blank lines
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String line() {
+        return new String(lineBytes, 0, lineLength, charset);
+    }
+
+    /**
+     * @return the same as line().trim().isBlank()
+     */
+    public boolean isBlank() {
+        boolean retVal = true;
+        for (int i = 0; retVal && (i < lineLength); i++) {
+            if (0 > lineBytes[i]) {
+                return line().trim().isBlank();
+            }
+            retVal = isBlankByte(lineBytes[i]);
+        }
+        return retVal;
+    }
+
+    /**
+     * @param prefix ASCII text
+     * @return the same as line().startsWith(prefix)
+     */
+    public boolean startsWith(String prefix) {
+        boolean retVal = prefix.length() <= lineLength;
+        for (int i = 0; retVal && (i < prefix.length()); i++) {
+            retVal = (lineBytes[i] == (byte) prefix.charAt(i));
+        }
+        return retVal;
+    }
+
+    private void splitFields() {
+        if (0 > fieldCount) {
+            fieldCount = 0;
+            int start = 0;
+            for (int i = 0; i <= lineLength; i++) {
+                if ((i == lineLength) || (',' == lineBytes[i])) {
+                    if (fieldCount == fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                        fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                    }
+                    fieldStarts[fieldCount] = start;
+                    fieldEnds[fieldCount] = i;
+                    fieldCount++;
+                    start = i + 1;
+                }
+            }
+            // String.split drops trailing empty fields, but keeps the one field of an empty line
+            while ((0 < fieldCount) && (fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1])) {
+                fieldCount--;
+            }
+            if (0 == lineLength) {
+                fieldCount = 1;
+            }
+        }
+    }
+
+    public int fieldCount() {
+        splitFields();
+        return fieldCount;
+    }
+
+    private void checkField(int fieldIndex) {
+        splitFields();
+        if ((0 > fieldIndex) || (fieldIndex >= fieldCount)) {
+            throw new ArrayIndexOutOfBoundsException("Index " + fieldIndex + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    /**
+     * @param fieldIndex
+     * @return the field text, untrimmed
+     */
+    public String field(int fieldIndex) {
+        checkField(fieldIndex);
+        return new String(lineBytes, fieldStarts[fieldIndex], fieldEnds[fieldIndex] - fieldStarts[fieldIndex], charset);
+    }
+
+    /**
+     * @param fieldIndex
+     * @return the same as Integer.parseInt(field(fieldIndex).trim())
+     */
+    public int intField(int fieldIndex) {
+        checkField(fieldIndex);
+        int start = fieldStarts[fieldIndex];
+        int end = fieldEnds[fieldIndex];
+        while ((start < end) && isBlankByte(lineBytes[start])) {
+            start++;
+        }
+        while ((end > start) && isBlankByte(lineBytes[end - 1])) {
+            end--;
+        }
+        boolean negative = (start < end) && ('-' == lineBytes[start]);
+        int position = negative ? start + 1 : start;
+        long value = 0;
+        boolean simple = (position < end) && (end - position <= 9);
+        for (int i = position; simple && (i < end); i++) {
+            int digit = lineBytes[i] - '0';
+            simple = (0 <= digit) && (9 >= digit);
+            value = value * 10 + digit;
+        }
+        return simple ? (int) (negative ? -value : value) : Integer.parseInt(field(fieldIndex).trim());
+    }
+
+    /**
+     * Plain decimals with up to 15 significant digits and a power of ten within 10^22 are converted with
+     * a single exact operation, which is correctly rounded; all else goes to Double.parseDouble.
+     *
+     * @param fieldIndex
+     * @return the same as Double.parseDouble(field(fieldIndex))
+     */
+    public double doubleField(int fieldIndex) {
+        checkField(fieldIndex);
+        int start = fieldStarts[fieldIndex];
+        int end = fieldEnds[fieldIndex];
+        while ((start < end) && isBlankByte(lineBytes[start])) {
+            start++;
+        }
+        while ((end > start) && isBlankByte(lineBytes[end - 1])) {
+            end--;
+        }
+
+        int position = start;
+        boolean negative = (position < end) && ('-' == lineBytes[position]);
+        if (negative) {
+            position++;
+        }
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean digitFound = false;
+        boolean simple = true;
+        while (simple && (position < end) && ('e' != (lineBytes[position] | 0x20))) {
+            byte b = lineBytes[position];
+            if (('.' == b) && !inFraction) {
+                inFraction = true;
+            } else if (('0' <= b) && ('9' >= b)) {
+                digitFound = true;
+                if ((0 < mantissa) || ('0' != b)) {
+                    digitCount++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (inFraction) {
+                    fractionDigits++;
+                }
+                simple = (15 >= digitCount);
+            } else {
+                simple = false;
+            }
+            position++;
+        }
+        simple = simple && digitFound;
+
+        int exponent = 0;
+        if (simple && (position < end)) {
+            // exponent marker
+            position++;
+            boolean negativeExponent = (position < end) && ('-' == lineBytes[position]);
+            if ((position < end) && (('-' == lineBytes[position]) || ('+' == lineBytes[position]))) {
+                position++;
+            }
+            simple = (position < end) && (end - position <= 4);
+            for (int i = position; simple && (i < end); i++) {
+                int digit = lineBytes[i] - '0';
+                simple = (0 <= digit) && (9 >= digit);
+                exponent = exponent * 10 + digit;
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+
+        double retVal;
+        int powerOfTen = exponent - fractionDigits;
+        if (simple && (mantissa < MAX_EXACT_MANTISSA) && (22 >= Math.abs(powerOfTen))) {
+            retVal = (0 > powerOfTen) ? mantissa / POWERS_OF_TEN[-powerOfTen] : mantissa * POWERS_OF_TEN[powerOfTen];
+            retVal = negative ? -retVal : retVal;
+        } else {
+            retVal = Double.parseDouble(field(fieldIndex));
+        }
+        return retVal;
+    }
+
+    /**
+     * @param fromFieldIndex
+     * @return doubleField of every field from fromFieldIndex to the end of the line
+     */
+    public double[] doubleFields(int fromFieldIndex) {
+        splitFields();
+        double[] retVal = new double[Math.max(0, fieldCount - fromFieldIndex)];
+        for (int i = 0; i < retVal.length; i++) {
+            retVal[i] = doubleField(fromFieldIndex + i);
+        }
+        return retVal;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -1,104 +0,0 @@
-/*
- * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package org.cirdles.tripoli.utilities.file;
-
-import org.cirdles.tripoli.utilities.callbacks.FileWatcherCallbackInterface;
-
-import java.io.IOException;
-import java.nio.file.*;
-import java.util.Comparator;
-import java.util.List;
-
-import static java.nio.file.StandardWatchEventKinds.*;
-
-public class FileWatcher implements Runnable {
-
-    private final Path pathToWatch;
-    private final FileWatcherCallbackInterface callback;
-    private final long timeoutSeconds;
-    private volatile boolean running = true;
-    private long lastEventTime;
-
-    public FileWatcher(Path pathToWatch, FileWatcherCallbackInterface callback) {
-        this.pathToWatch = pathToWatch;
-        this.callback = callback;
-        this.timeoutSeconds = 0;
-        lastEventTime = System.currentTimeMillis();
-    }
-
-    public Path getPath() {
-        return pathToWatch;
-    }
-
-    public void processExistingFiles(Comparator<Path> comparator) {
-        try {
-            List<Path> existingFiles = FileUtilities.listRegularFiles(pathToWatch);
-
-            if (comparator != null) {
-                existingFiles.sort(comparator);
-            }
-
-            for (Path entry : existingFiles) {
-                callback.onFileEvent(entry, ENTRY_CREATE);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    @Override
-    public void run() {
-        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-            pathToWatch.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
-            System.out.println("Started watching: " + pathToWatch);
-
-            while (running) {
-                // Idle check
-                if (timeoutSeconds > 0) {
-                    long now = System.currentTimeMillis();
-                    if (now - lastEventTime >= timeoutSeconds && callback != null) {
-                        callback.onFileEvent(null, null); // Idle signal
-                    }
-                }
-
-                WatchKey key = watchService.poll(500, java.util.concurrent.TimeUnit.MILLISECONDS);
-                if (key == null) continue;
-
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    Path fileName = (Path) event.context();
-                    Path fullPath = pathToWatch.resolve(fileName);
-
-                    if (callback != null) {
-                        callback.onFileEvent(fullPath, event.kind());
-                        lastEventTime = System.currentTimeMillis();
-                    }
-                }
-
-                if (!key.reset()) break;
-            }
-
-            System.out.println("Stopped watching.");
-
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void stop() {
-        running = false;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.file;
+
+import org.cirdles.tripoli.utilities.callbacks.FileBatchCallbackInterface;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches any number of folders from a single thread and hands each completed file to its folder's callback once.
+ * The events for a file are coalesced until the file has been quiet for the quiet period with its size and
+ * modification time unchanged and it can be opened for reading, so a file the instrument is still writing is not
+ * read.  Completed files are delivered in batches on a bounded pool of worker threads, one batch at a time per
+ * folder and in the order they completed; files completing while their folder's batch runs join the next batch.
+ * When the pool's queue is full, files wait and submission is retried, which is counted in the metrics.
+ * A file deleted before its delivery is dropped, and failures are passed to the folder's callback.
+ * Does not need the GUI, so live data can be reduced headless.
+ *
+ * @author James F. Bowring
+ */
+public class LiveDataWatchService implements AutoCloseable {
+
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 250;
+    public static final int DEFAULT_WORKER_THREADS = 2;
+    public static final int DEFAULT_MAX_QUEUED_BATCHES = 64;
+
+    private final WatchService watchService;
+    private final ThreadPoolExecutor executor;
+    private final long quietPeriodNanos;
+    private final Map<WatchKey, Registration> mapOfWatchKeyToRegistration = new ConcurrentHashMap<>();
+    private final Thread watchThread;
+    private volatile boolean running = true;
+
+    private final AtomicInteger pendingFileCount = new AtomicInteger();
+    private final AtomicLong deliveredFileCount = new AtomicLong();
+    private final AtomicLong coalescedEventCount = new AtomicLong();
+    private final AtomicLong rejectedSubmissionCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    public LiveDataWatchService() throws IOException {
+        this(DEFAULT_QUIET_PERIOD_MILLIS, DEFAULT_WORKER_THREADS, DEFAULT_MAX_QUEUED_BATCHES);
+    }
+
+    /**
+     * @param quietPeriodMillis time without events after which a file is checked for completion
+     * @param workerThreads     threads running callbacks
+     * @param maxQueuedBatches  batches waiting for a worker before submission is held back
+     * @throws IOException
+     */
+    public LiveDataWatchService(long quietPeriodMillis, int workerThreads, int maxQueuedBatches) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        quietPeriodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, quietPeriodMillis));
+        int threads = Math.max(1, workerThreads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedBatches)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Tripoli live data worker " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        watchThread = new Thread(this::watchLoop, "Tripoli live data watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Starts watching a folder for created and modified files.
+     *
+     * @param folder
+     * @param callback
+     * @return handle used to stop watching the folder
+     * @throws IOException
+     */
+    public Registration watch(Path folder, FileBatchCallbackInterface callback) throws IOException {
+        WatchKey watchKey = folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        Registration registration = new Registration(folder, callback, watchKey);
+        mapOfWatchKeyToRegistration.put(watchKey, registration);
+        return registration;
+    }
+
+    /**
+     * Stops watching; files not yet delivered are dropped and a batch already running finishes.
+     *
+     * @param registration may be null
+     */
+    public void unwatch(Registration registration) {
+        if (registration != null) {
+            registration.active = false;
+            registration.watchKey.cancel();
+            mapOfWatchKeyToRegistration.remove(registration.watchKey);
+            synchronized (registration) {
+                registration.readyFiles.clear();
+            }
+        }
+    }
+
+    /**
+     * Delivers the files already in the folder as created, in one batch ahead of any later ones.
+     *
+     * @param registration
+     * @param comparator   order of delivery, or null for folder order
+     * @throws IOException
+     */
+    public void processExistingFiles(Registration registration, Comparator<Path> comparator) throws IOException {
+        List<Path> existingFiles = FileUtilities.listRegularFiles(registration.folder);
+        if (comparator != null) {
+            existingFiles.sort(comparator);
+        }
+        long now = System.nanoTime();
+        synchronized (registration) {
+            for (Path existingFile : existingFiles) {
+                registration.readyFiles.putIfAbsent(existingFile, new PendingFile(ENTRY_CREATE, now));
+            }
+        }
+        submit(registration);
+    }
+
+    public LiveDataWatchMetricsRecord getMetrics() {
+        return new LiveDataWatchMetricsRecord(
+                mapOfWatchKeyToRegistration.size(),
+                pendingFileCount.get(),
+                executor.getQueue().size(),
+                deliveredFileCount.get(),
+                coalescedEventCount.get(),
+                rejectedSubmissionCount.get(),
+                failureCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+    }
+
+    private void watchLoop() {
+        Map<Path, PendingFile> pendingFiles = new LinkedHashMap<>();
+        Map<Path, Registration> mapOfPendingFileToRegistration = new HashMap<>();
+        long pollNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), quietPeriodNanos / 2);
+        while (running) {
+            try {
+                WatchKey watchKey = watchService.poll(pollNanos, TimeUnit.NANOSECONDS);
+                while (watchKey != null) {
+                    coalesceEvents(watchKey, pendingFiles, mapOfPendingFileToRegistration);
+                    watchKey = watchService.poll();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            promoteCompletedFiles(pendingFiles, mapOfPendingFileToRegistration);
+            pendingFileCount.set(pendingFiles.size());
+            for (Registration registration : mapOfWatchKeyToRegistration.values()) {
+                submit(registration);
+            }
+        }
+    }
+
+    private void coalesceEvents(WatchKey watchKey, Map<Path, PendingFile> pendingFiles, Map<Path, Registration> mapOfPendingFileToRegistration) {
+        Registration registration = mapOfWatchKeyToRegistration.get(watchKey);
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (registration == null) {
+                continue;
+            }
+            if (event.kind() == OVERFLOW) {
+                // events were lost, so every file in the folder is checked again
+                try {
+                    for (Path file : FileUtilities.listRegularFiles(registration.folder)) {
+                        addPendingFile(file, ENTRY_CREATE, now, registration, pendingFiles, mapOfPendingFileToRegistration);
+                    }
+                } catch (IOException e) {
+                    reportFailure(registration, e);
+                }
+            } else {
+                Path file = registration.folder.resolve((Path) event.context());
+                if (event.kind() == ENTRY_DELETE) {
+                    pendingFiles.remove(file);
+                    mapOfPendingFileToRegistration.remove(file);
+                    // a file completed but not yet handed to the callback is no longer there to read
+                    synchronized (registration) {
+                        registration.readyFiles.remove(file);
+                    }
+                } else {
+                    addPendingFile(file, event.kind(), now, registration, pendingFiles, mapOfPendingFileToRegistration);
+                }
+            }
+        }
+        if (!watchKey.reset() && (registration != null)) {
+            // folder is gone
+            unwatch(registration);
+        }
+    }
+
+    private void addPendingFile(Path file, WatchEvent.Kind<?> kind, long now, Registration registration,
+                                Map<Path, PendingFile> pendingFiles, Map<Path, Registration> mapOfPendingFileToRegistration) {
+        PendingFile pendingFile = pendingFiles.get(file);
+        if (pendingFile == null) {
+            pendingFile = new PendingFile(kind, now);
+            pendingFiles.put(file, pendingFile);
+            mapOfPendingFileToRegistration.put(file, registration);
+        } else {
+            coalescedEventCount.incrementAndGet();
+            if (kind == ENTRY_CREATE) {
+                pendingFile.kind = ENTRY_CREATE;
+            }
+        }
+        pendingFile.lastEventNanos = now;
+        pendingFile.recordAttributes(file);
+    }
+
+    private void promoteCompletedFiles(Map<Path, PendingFile> pendingFiles, Map<Path, Registration> mapOfPendingFileToRegistration) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path file = entry.getKey();
+            PendingFile pendingFile = entry.getValue();
+            Registration registration = mapOfPendingFileToRegistration.get(file);
+            if (!registration.active) {
+                iterator.remove();
+                mapOfPendingFileToRegistration.remove(file);
+            } else if (now - pendingFile.lastEventNanos >= quietPeriodNanos) {
+                long size = pendingFile.size;
+                long lastModified = pendingFile.lastModified;
+                pendingFile.recordAttributes(file);
+                if (pendingFile.size < 0) {
+                    // deleted or not a regular file
+                    iterator.remove();
+                    mapOfPendingFileToRegistration.remove(file);
+                } else if ((size == pendingFile.size) && (lastModified == pendingFile.lastModified) && isReadable(file)) {
+                    iterator.remove();
+                    mapOfPendingFileToRegistration.remove(file);
+                    synchronized (registration) {
+                        PendingFile readyFile = registration.readyFiles.get(file);
+                        if (readyFile == null) {
+                            registration.readyFiles.put(file, pendingFile);
+                        } else if (pendingFile.kind == ENTRY_CREATE) {
+                            readyFile.kind = ENTRY_CREATE;
+                        }
+                    }
+                } else {
+                    // still being written
+                    pendingFile.lastEventNanos = now;
+                }
+            }
+        }
+    }
+
+    private static boolean isReadable(Path file) {
+        // on Windows a file held open for writing by the instrument cannot be opened
+        boolean retVal;
+        try (FileChannel ignored = FileChannel.open(file, StandardOpenOption.READ)) {
+            retVal = true;
+        } catch (IOException e) {
+            retVal = false;
+        }
+        return retVal;
+    }
+
+    private void submit(Registration registration) {
+        synchronized (registration) {
+            if (registration.active && !registration.batchInProgress && !registration.readyFiles.isEmpty()) {
+                registration.batchInProgress = true;
+                try {
+                    executor.execute(() -> deliverBatches(registration));
+                } catch (RejectedExecutionException e) {
+                    // retried by the watch loop
+                    registration.batchInProgress = false;
+                    rejectedSubmissionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void deliverBatches(Registration registration) {
+        while (true) {
+            Map<Path, PendingFile> batch;
+            synchronized (registration) {
+                if (!registration.active || registration.readyFiles.isEmpty()) {
+                    registration.batchInProgress = false;
+                    return;
+                }
+                batch = new LinkedHashMap<>(registration.readyFiles);
+                registration.readyFiles.clear();
+            }
+            long now = System.nanoTime();
+            List<Path> createdFiles = new ArrayList<>();
+            List<Path> modifiedFiles = new ArrayList<>();
+            for (Map.Entry<Path, PendingFile> entry : batch.entrySet()) {
+                (entry.getValue().kind == ENTRY_CREATE ? createdFiles : modifiedFiles).add(entry.getKey());
+                long lagNanos = now - entry.getValue().firstEventNanos;
+                lastLagNanos.set(lagNanos);
+                maxLagNanos.accumulateAndGet(lagNanos, Math::max);
+            }
+            deliveredFileCount.addAndGet(batch.size());
+            try {
+                if (!createdFiles.isEmpty()) {
+                    registration.callback.onFilesReady(createdFiles, ENTRY_CREATE);
+                }
+                if (!modifiedFiles.isEmpty()) {
+                    registration.callback.onFilesReady(modifiedFiles, ENTRY_MODIFY);
+                }
+            } catch (RuntimeException e) {
+                reportFailure(registration, e);
+            }
+        }
+    }
+
+    private void reportFailure(Registration registration, Exception exception) {
+        failureCount.incrementAndGet();
+        try {
+            registration.callback.onFailure(registration.folder, exception);
+        } catch (RuntimeException e) {
+            // a failing failure handler must not stop the watch thread or a worker
+        }
+    }
+
+    /**
+     * @throws IOException if the watch service could not be closed; the workers and watch thread are stopped anyway
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            watchService.close();
+        } finally {
+            executor.shutdownNow();
+            watchThread.interrupt();
+        }
+    }
+
+    /**
+     * A watched folder.
+     */
+    public static final class Registration {
+        private final Path folder;
+        private final FileBatchCallbackInterface callback;
+        private final WatchKey watchKey;
+        // guarded by this
+        private final Map<Path, PendingFile> readyFiles = new LinkedHashMap<>();
+        private boolean batchInProgress;
+        private volatile boolean active = true;
+
+        private Registration(Path folder, FileBatchCallbackInterface callback, WatchKey watchKey) {
+            this.folder = folder;
+            this.callback = callback;
+            this.watchKey = watchKey;
+        }
+
+        public Path getFolder() {
+            return folder;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    private static final class PendingFile {
+        private final long firstEventNanos;
+        private WatchEvent.Kind<?> kind;
+        private long lastEventNanos;
+        private long size = -1;
+        private long lastModified;
+
+        private PendingFile(WatchEvent.Kind<?> kind, long firstEventNanos) {
+            this.kind = kind;
+            this.firstEventNanos = firstEventNanos;
+            lastEventNanos = firstEventNanos;
+        }
+
+        private void recordAttributes(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                size = attributes.isRegularFile() ? attributes.size() : -1;
+                lastModified = attributes.lastModifiedTime().toMillis();
+            } catch (IOException e) {
+                size = -1;
+            }
+        }
+    }
+
+    /**
+     * @param watchedFolderCount
+     * @param pendingFileCount        files changed but not yet complete
+     * @param queuedBatchCount        batches waiting for a worker
+     * @param deliveredFileCount
+     * @param coalescedEventCount     events merged into a file's pending delivery
+     * @param rejectedSubmissionCount times a batch was held back by a full queue
+     * @param failureCount            failures passed to callbacks
+     * @param lastLagMillis           from a file's first event to the start of its delivery
+     * @param maxLagMillis
+     */
+    public record LiveDataWatchMetricsRecord(
+            int watchedFolderCount,
+            int pendingFileCount,
+            int queuedBatchCount,
+            long deliveredFileCount,
+            long coalescedEventCount,
+            long rejectedSubmissionCount,
+            long failureCount,
+            long lastLagMillis,
+            long maxLagMillis) {
+    }
+}
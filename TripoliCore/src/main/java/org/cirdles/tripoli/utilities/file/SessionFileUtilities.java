@@ -18,7 +18,7 @@ package org.cirdles.tripoli.utilities.file;
 
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
-import org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSessionStore;
 
 /**
  * @author James F. Bowring
@@ -29,7 +29,7 @@ public enum SessionFileUtilities {
     public static void serializeTripoliSession(Session session, String sessionFileName)
             throws TripoliException {
 
-        TripoliSerializer.serializeObjectToFile(session, sessionFileName);
+        TripoliSessionStore.saveSession(session, sessionFileName);
         Session.setSessionChanged(false);
     }
 }
\ No newline at end of file
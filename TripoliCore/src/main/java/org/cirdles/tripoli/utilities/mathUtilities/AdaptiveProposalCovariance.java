@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+/**
+ * Running mean and covariance of the chain for the adaptive MCMC proposal, updated in place by UpdateMeanCovMS:
+ * <pre>
+ *     xmeantmp = xmean;
+ *     xmean = xmeantmp + (xx-xmeantmp)/m;
+ *     xcov = xcov*(m-1)/m + (m-1)/m^2*(xx-xmean)*(xx-xmeantmp)';
+ * </pre>
+ * The rank-one term is symmetric, so only the lower triangle is kept, packed by rows.  MultivariateNormalSampler
+ * blends it with C0 straight from the packed storage.  Not thread safe - one instance per chain.
+ *
+ * @author James F. Bowring
+ */
+public class AdaptiveProposalCovariance {
+
+    private final int dimension;
+    private final double[] mean;
+    private final double[] packedCovariance;
+    private final double[] deltaFromPreviousMean;
+    private final double[] model;
+    private long countOfModels;
+
+    /**
+     * @param dimension Nmod, the length of the model vector
+     */
+    public AdaptiveProposalCovariance(int dimension) {
+        this.dimension = dimension;
+        mean = new double[dimension];
+        packedCovariance = new double[dimension * (dimension + 1) / 2];
+        deltaFromPreviousMean = new double[dimension];
+        model = new double[dimension];
+    }
+
+    /**
+     * @param row
+     * @param col not greater than row
+     * @return the position of (row, col) in the packed lower triangle
+     */
+    public static int packedIndex(int row, int col) {
+        return row * (row + 1) / 2 + col;
+    }
+
+    /**
+     * Adds the model given as its parts, in the order of the MCMC model vector.
+     *
+     * @param logRatios
+     * @param I0
+     * @param baseLine
+     * @param dfGain
+     */
+    public void update(double[] logRatios, double[] I0, double[] baseLine, double dfGain) {
+        System.arraycopy(logRatios, 0, model, 0, logRatios.length);
+        System.arraycopy(I0, 0, model, logRatios.length, I0.length);
+        System.arraycopy(baseLine, 0, model, logRatios.length + I0.length, baseLine.length);
+        model[dimension - 1] = dfGain;
+        update(model);
+    }
+
+    /**
+     * Adds the model; the values are read, not kept.
+     *
+     * @param xx the model vector
+     */
+    public void update(double[] xx) {
+        countOfModels++;
+        for (int row = 0; row < dimension; row++) {
+            deltaFromPreviousMean[row] = xx[row] - mean[row];
+            mean[row] += deltaFromPreviousMean[row] / countOfModels;
+        }
+        // as in updateMeanCovMS2, pre-calculated to guarantee results
+        double countMinusOneOverCount = ((countOfModels - 1.0) / countOfModels);
+        double countMinusOneOverSquareCount = (countOfModels - 1.0) / Math.pow(countOfModels, 2.0);
+        for (int row = 0; row < dimension; row++) {
+            double weightedDeltaFromMean = (xx[row] - mean[row]) * countMinusOneOverSquareCount;
+            int rowOffset = packedIndex(row, 0);
+            for (int col = 0; col <= row; col++) {
+                packedCovariance[rowOffset + col] =
+                        packedCovariance[rowOffset + col] * countMinusOneOverCount + weightedDeltaFromMean * deltaFromPreviousMean[col];
+            }
+        }
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return xcov(row, col)
+     */
+    public double covariance(int row, int col) {
+        return (col <= row) ? packedCovariance[packedIndex(row, col)] : packedCovariance[packedIndex(col, row)];
+    }
+
+    /**
+     * @return the live lower triangle of xcov, packed by rows; not to be modified
+     */
+    public double[] packedCovariance() {
+        return packedCovariance;
+    }
+
+    /**
+     * @return the live running mean; not to be modified
+     */
+    public double[] mean() {
+        return mean;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public long getCountOfModels() {
+        return countOfModels;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.ojalgo.matrix.store.Primitive64Store;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The B-spline basis of SplineBasisModel.bBase(x, xl, xr, nseg, bdeg), stored as a band.  On the uniform knots of
+ * bBase each point lies in one knot interval and only the bdeg+1 splines of that interval are non-zero, so each
+ * row keeps the column of its first spline and those bdeg+1 values, evaluated with the Cox-de Boor recursion
+ * instead of the differenced truncated powers of bBase, which lose about 1e-9 to cancellation.  A point on a knot
+ * belongs to the interval it starts, as in bBase.  For odd degrees, including the cubic used throughout, the values
+ * are those of bBase; for even degrees bBase omits the sign (-1)^(bdeg+1) of Eilers and Marx and is negated.
+ * Bases on an evenly spaced grid are cached, as the peak shape fits rebuild the same one for every file of an
+ * isotope.  Immutable.
+ *
+ * @author James F. Bowring
+ */
+public final class BandedSplineBasis {
+
+    public static final int MAXIMUM_CACHED_BASES = 256;
+    private static final Map<BasisKey, BandedSplineBasis> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BasisKey, BandedSplineBasis> eldest) {
+            return size() > MAXIMUM_CACHED_BASES;
+        }
+    });
+
+    private final int countOfRows;
+    private final int countOfColumns;
+    private final int degree;
+    private final int[] firstColumns;
+    private final double[] bandValues;
+
+    private BandedSplineBasis(int countOfRows, int countOfColumns, int degree) {
+        this.countOfRows = countOfRows;
+        this.countOfColumns = countOfColumns;
+        this.degree = degree;
+        firstColumns = new int[countOfRows];
+        bandValues = new double[countOfRows * (degree + 1)];
+    }
+
+    /**
+     * @param x           the points, in any order
+     * @param xl          lower end of the range, widened to the first point
+     * @param xr          upper end of the range, widened to the last point
+     * @param numSegments count of knot intervals across the range
+     * @param basisDegree
+     * @return the basis, length(x) by numSegments + basisDegree
+     */
+    public static BandedSplineBasis evaluate(double[] x, double xl, double xr, double numSegments, int basisDegree) {
+        double xLower = Math.min(xl, x[0]);
+        double xUpper = Math.max(xr, x[x.length - 1]);
+        double dx = (xUpper - xLower) / numSegments;
+
+        // the knots of bBase, as MatLab.linspace places them
+        int countOfKnots = (int) (numSegments + 2 * basisDegree + 1);
+        double firstKnot = xLower - basisDegree * dx;
+        double lastKnot = xUpper + basisDegree * dx;
+        double[] knots = new double[countOfKnots];
+        for (int i = 0; i < countOfKnots; i++) {
+            knots[i] = firstKnot + i * (lastKnot - firstKnot) / (numSegments + 2 * basisDegree);
+        }
+
+        BandedSplineBasis basis = new BandedSplineBasis(x.length, countOfKnots - basisDegree - 1, basisDegree);
+        double[] splines = new double[basisDegree + 1];
+        for (int row = 0; row < x.length; row++) {
+            int knotInterval = knotIntervalOf(x[row], knots, dx);
+            basis.firstColumns[row] = knotInterval - basisDegree;
+            // outside the knots every spline is zero, as the mask of bBase leaves it
+            if (0 <= knotInterval && knotInterval < countOfKnots - 1) {
+                double u = Math.min(1.0, Math.max(0.0, (x[row] - knots[knotInterval]) / dx));
+                uniformSplines(u, basisDegree, splines);
+                System.arraycopy(splines, 0, basis.bandValues, row * (basisDegree + 1), basisDegree + 1);
+            }
+        }
+        return basis;
+    }
+
+    /**
+     * The basis on linspace(xLower, xUpper, countOfPoints), built once for each distinct argument list.
+     *
+     * @param xLower
+     * @param xUpper
+     * @param countOfPoints
+     * @param numSegments
+     * @param basisDegree
+     * @return the shared basis
+     */
+    public static BandedSplineBasis onLinspace(double xLower, double xUpper, int countOfPoints, double numSegments, int basisDegree) {
+        return cache.computeIfAbsent(new BasisKey(xLower, xUpper, countOfPoints, numSegments, basisDegree), key -> {
+            double[] x = new double[countOfPoints];
+            for (int i = 0; i < countOfPoints; i++) {
+                x[i] = xLower + i * (xUpper - xLower) / (countOfPoints - 1);
+            }
+            return evaluate(x, xLower, xUpper, numSegments, basisDegree);
+        });
+    }
+
+    /**
+     * @return the largest i with knots[i] <= x, or -1 below the first knot
+     */
+    private static int knotIntervalOf(double x, double[] knots, double dx) {
+        int knotInterval = (int) Math.max(-1, Math.min(knots.length - 1, Math.floor((x - knots[0]) / dx)));
+        while (knotInterval + 1 < knots.length && knots[knotInterval + 1] <= x) {
+            knotInterval++;
+        }
+        while (0 <= knotInterval && knots[knotInterval] > x) {
+            knotInterval--;
+        }
+        return knotInterval;
+    }
+
+    /**
+     * Cox-de Boor on unit-spaced knots, where every denominator right[r+1]+left[j-r] equals j.
+     *
+     * @param u       position within the knot interval, in [0, 1]
+     * @param degree
+     * @param splines receives the degree+1 non-zero splines, leftmost first
+     */
+    static void uniformSplines(double u, int degree, double[] splines) {
+        splines[0] = 1.0;
+        for (int j = 1; j <= degree; j++) {
+            double saved = 0.0;
+            for (int r = 0; r < j; r++) {
+                double right = r + 1 - u;
+                double left = u + j - r - 1;
+                double temp = splines[r] / j;
+                splines[r] = saved + right * temp;
+                saved = left * temp;
+            }
+            splines[j] = saved;
+        }
+    }
+
+    public int getCountOfRows() {
+        return countOfRows;
+    }
+
+    public int getCountOfColumns() {
+        return countOfColumns;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * @param row
+     * @return the column of the first value of the row's band, which may lie before column 0
+     */
+    public int getFirstColumn(int row) {
+        return firstColumns[row];
+    }
+
+    public double get(int row, int col) {
+        int bandIndex = col - firstColumns[row];
+        return (0 <= bandIndex && bandIndex <= degree) ? bandValues[row * (degree + 1) + bandIndex] : 0.0;
+    }
+
+    /**
+     * @param coefficients one per column
+     * @return basis * coefficients, one per row
+     */
+    public double[] multiply(double[] coefficients) {
+        double[] product = new double[countOfRows];
+        for (int row = 0; row < countOfRows; row++) {
+            double sum = 0.0;
+            int bandStart = row * (degree + 1);
+            for (int bandIndex = 0; bandIndex <= degree; bandIndex++) {
+                int col = firstColumns[row] + bandIndex;
+                if (0 <= col && col < countOfColumns) {
+                    sum += bandValues[bandStart + bandIndex] * coefficients[col];
+                }
+            }
+            product[row] = sum;
+        }
+        return product;
+    }
+
+    /**
+     * Only the non-zero entries of the left matrix are visited, so a sparse integration matrix costs its non-zeros
+     * times degree+1.
+     *
+     * @param leftRows rows of a matrix with one column per row of the basis
+     * @return leftRows * basis
+     */
+    public double[][] premultiply(double[][] leftRows) {
+        double[][] product = new double[leftRows.length][countOfColumns];
+        for (int leftRow = 0; leftRow < leftRows.length; leftRow++) {
+            double[] left = leftRows[leftRow];
+            double[] result = product[leftRow];
+            for (int row = 0; row < countOfRows; row++) {
+                if (0.0 != left[row]) {
+                    int bandStart = row * (degree + 1);
+                    for (int bandIndex = 0; bandIndex <= degree; bandIndex++) {
+                        int col = firstColumns[row] + bandIndex;
+                        if (0 <= col && col < countOfColumns) {
+                            result[col] += left[row] * bandValues[bandStart + bandIndex];
+                        }
+                    }
+                }
+            }
+        }
+        return product;
+    }
+
+    /**
+     * @return the dense basis, as bBase returns it
+     */
+    public Primitive64Store toPrimitive64Store() {
+        Primitive64Store dense = Primitive64Store.FACTORY.make(countOfRows, countOfColumns);
+        for (int row = 0; row < countOfRows; row++) {
+            for (int bandIndex = 0; bandIndex <= degree; bandIndex++) {
+                int col = firstColumns[row] + bandIndex;
+                if (0 <= col && col < countOfColumns) {
+                    dense.set(row, col, bandValues[row * (degree + 1) + bandIndex]);
+                }
+            }
+        }
+        return dense;
+    }
+
+    private record BasisKey(double xLower, double xUpper, int countOfPoints, double numSegments, int basisDegree) {
+    }
+}
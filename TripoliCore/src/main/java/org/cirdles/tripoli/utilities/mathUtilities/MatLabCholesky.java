@@ -80,6 +80,21 @@ public enum MatLabCholesky {
      * @return
      */
     public static Matrix mvnrndTripoli(double[] myMu, double[][] sigma, int cases) {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeedSecure();
+        return mvnrndTripoli(myMu, sigma, cases, randomDataGenerator);
+    }
+
+    /**
+     * As above, but draws from the supplied generator so that a chain seeded once produces a reproducible sequence
+     *
+     * @param myMu
+     * @param sigma
+     * @param cases
+     * @param randomDataGenerator
+     * @return
+     */
+    public static Matrix mvnrndTripoli(double[] myMu, double[][] sigma, int cases, RandomDataGenerator randomDataGenerator) {
 
         // mu = repmat(mu,n,1);
         double[][] mu = new double[cases][];
@@ -103,8 +118,6 @@ public enum MatLabCholesky {
         // then z = (1.4-1.2) / 0.4 = 0.5, i.e. the pupil is half a standard deviation from the mean (value at centre of curve).
 
         Matrix T = cholCov(new Matrix(sigma));
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
 
         double[][] rArray = new double[cases][T.getRowDimension()];
         for (int row = 0; row < cases; row++) {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+
+/**
+ * Zero-mean multivariate normal draws for the adaptive MCMC proposal,
+ * C = C0 early on and C = w0*C0 + w1*xcov afterwards (see MCMCProcess), xcov given in full or as an
+ * AdaptiveProposalCovariance.
+ * The Cholesky factor of C0 is computed once; the factor of the blended covariance is recomputed
+ * only every refactorInterval draws.  All work is done in preallocated row-major buffers and
+ * draws come from the chain's own generator.
+ * With a refactorInterval of 1 the draws match MatLabCholesky.mvnrndTripoli for the same generator.
+ * Not thread safe - one instance per chain.
+ *
+ * @author James F. Bowring
+ */
+public class MultivariateNormalSampler {
+
+    private final int dimension;
+    private final int refactorInterval;
+    private final RandomDataGenerator randomDataGenerator;
+    private final double[] initialCovariance;
+    private final double[] initialFactor;
+    private final double[] blendedCovariance;
+    private final double[] blendedFactor;
+    private final double[] standardNormals;
+    private double[] activeFactor;
+    private int drawsSinceFactorization;
+    private int factorizationCount;
+
+    /**
+     * @param initialCovariance   square, symmetric C0
+     * @param refactorInterval    number of draws between factorizations of the blended covariance
+     * @param randomDataGenerator the chain's generator
+     */
+    public MultivariateNormalSampler(double[][] initialCovariance, int refactorInterval, RandomDataGenerator randomDataGenerator) {
+        dimension = initialCovariance.length;
+        this.refactorInterval = Math.max(1, refactorInterval);
+        this.randomDataGenerator = randomDataGenerator;
+        this.initialCovariance = new double[dimension * dimension];
+        for (int row = 0; row < dimension; row++) {
+            System.arraycopy(initialCovariance[row], 0, this.initialCovariance, row * dimension, dimension);
+        }
+        initialFactor = new double[dimension * dimension];
+        blendedCovariance = new double[dimension * dimension];
+        blendedFactor = new double[dimension * dimension];
+        standardNormals = new double[dimension];
+
+        choleskyLower(this.initialCovariance, initialFactor, dimension);
+        factorizationCount = 1;
+        activeFactor = initialFactor;
+    }
+
+    /**
+     * Port of Jama's CholeskyDecomposition into flat row-major storage, same operation order so results agree.
+     * As with Jama, a non-positive pivot is clamped to zero rather than reported as an error.
+     *
+     * @param a         n x n symmetric, row-major
+     * @param lower     receives the lower triangle of L where a = L*L', upper triangle zeroed
+     * @param dimension n
+     * @return true if a is symmetric positive definite
+     */
+    public static boolean choleskyLower(double[] a, double[] lower, int dimension) {
+        boolean isSPD = true;
+        for (int j = 0; j < dimension; j++) {
+            int rowJ = j * dimension;
+            double d = 0.0;
+            for (int k = 0; k < j; k++) {
+                int rowK = k * dimension;
+                double s = 0.0;
+                for (int i = 0; i < k; i++) {
+                    s += lower[rowK + i] * lower[rowJ + i];
+                }
+                s = (a[rowJ + k] - s) / lower[rowK + k];
+                lower[rowJ + k] = s;
+                d += s * s;
+                isSPD = isSPD && (a[rowK + j] == a[rowJ + k]);
+            }
+            d = a[rowJ + j] - d;
+            isSPD = isSPD && (0.0 < d);
+            lower[rowJ + j] = StrictMath.sqrt(Math.max(d, 0.0));
+            for (int k = j + 1; k < dimension; k++) {
+                lower[rowJ + k] = 0.0;
+            }
+        }
+        return isSPD;
+    }
+
+    /**
+     * Draw from N(0, C0) until told otherwise.
+     */
+    public void useInitialCovariance() {
+        activeFactor = initialFactor;
+    }
+
+    /**
+     * Draw from N(0, C) with C = initialWeight*C0 + adaptiveWeight*adaptiveCovariance, symmetrized.
+     * The blend and its factor are only rebuilt when the current factor is older than refactorInterval draws.
+     *
+     * @param adaptiveCovariance running covariance of the chain, read only when a refactorization is due
+     * @param initialWeight
+     * @param adaptiveWeight
+     */
+    public void useBlendedCovariance(double[][] adaptiveCovariance, double initialWeight, double adaptiveWeight) {
+        if (isRefactorizationDue()) {
+            for (int row = 0; row < dimension; row++) {
+                int rowOffset = row * dimension;
+                for (int col = 0; col <= row; col++) {
+                    double c_rc = initialCovariance[rowOffset + col] * initialWeight + adaptiveCovariance[row][col] * adaptiveWeight;
+                    double c_cr = initialCovariance[col * dimension + row] * initialWeight + adaptiveCovariance[col][row] * adaptiveWeight;
+                    double symmetric = (c_cr + c_rc) * 0.5;
+                    blendedCovariance[rowOffset + col] = symmetric;
+                    blendedCovariance[col * dimension + row] = symmetric;
+                }
+            }
+            factorBlendedCovariance();
+        }
+    }
+
+    /**
+     * As useBlendedCovariance(double[][], ...), reading the running covariance from its packed lower triangle.
+     *
+     * @param adaptiveCovariance running covariance of the chain, read only when a refactorization is due
+     * @param initialWeight
+     * @param adaptiveWeight
+     */
+    public void useBlendedCovariance(AdaptiveProposalCovariance adaptiveCovariance, double initialWeight, double adaptiveWeight) {
+        if (isRefactorizationDue()) {
+            double[] packedCovariance = adaptiveCovariance.packedCovariance();
+            int packedIndex = 0;
+            for (int row = 0; row < dimension; row++) {
+                int rowOffset = row * dimension;
+                for (int col = 0; col <= row; col++) {
+                    double adaptive = packedCovariance[packedIndex++] * adaptiveWeight;
+                    double c_rc = initialCovariance[rowOffset + col] * initialWeight + adaptive;
+                    double c_cr = initialCovariance[col * dimension + row] * initialWeight + adaptive;
+                    double symmetric = (c_cr + c_rc) * 0.5;
+                    blendedCovariance[rowOffset + col] = symmetric;
+                    blendedCovariance[col * dimension + row] = symmetric;
+                }
+            }
+            factorBlendedCovariance();
+        }
+    }
+
+    private boolean isRefactorizationDue() {
+        return (activeFactor != blendedFactor) || (drawsSinceFactorization >= refactorInterval);
+    }
+
+    private void factorBlendedCovariance() {
+        choleskyLower(blendedCovariance, blendedFactor, dimension);
+        factorizationCount++;
+        drawsSinceFactorization = 0;
+        activeFactor = blendedFactor;
+    }
+
+    /**
+     * Writes one draw from the active distribution into target.
+     *
+     * @param target length at least dimension
+     */
+    public void draw(double[] target) {
+        for (int i = 0; i < dimension; i++) {
+            standardNormals[i] = randomDataGenerator.nextGaussian(0.0, 1.0);
+        }
+        // r * L' as in mvnrndTripoli, using only the non-zero lower triangle
+        for (int row = 0; row < dimension; row++) {
+            int rowOffset = row * dimension;
+            double sum = 0.0;
+            for (int k = 0; k <= row; k++) {
+                sum += standardNormals[k] * activeFactor[rowOffset + k];
+            }
+            target[row] = sum;
+        }
+        if (activeFactor == blendedFactor) {
+            drawsSinceFactorization++;
+        }
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int getFactorizationCount() {
+        return factorizationCount;
+    }
+}
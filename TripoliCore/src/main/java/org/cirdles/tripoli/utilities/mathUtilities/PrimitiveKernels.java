@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+/**
+ * Element-wise kernels on flat double arrays for the hot paths that MatLab serves with whole-matrix stores.  Where
+ * MatLab builds a 0/1 mask, multiplies it in and then searches it with find, the queries here return the index
+ * bounds directly, and the fused operations write into an output buffer supplied by the caller, which may be the
+ * input itself.  Each loop is a counted loop over primitive arrays.  The index queries stop at the first match
+ * found, which saves the full pass and the mask of MatLab but is not vectorized.  hasPositiveSum,
+ * multiplyWhereLessThan and divideByAtLeast have neither early exits nor calls, so that the JIT can unroll and
+ * auto-vectorize them; truncatedPowers calls Math.pow for each knot.  Results are those of the MatLab compositions
+ * they replace, bit for bit.
+ *
+ * @author James F. Bowring
+ */
+public enum PrimitiveKernels {
+    ;
+
+    /**
+     * @param values
+     * @param lower
+     * @param upper
+     * @return the first index with lower <= values[i] <= upper, or -1 if there is none
+     */
+    public static int firstIndexInRange(double[] values, double lower, double upper) {
+        for (int i = 0; i < values.length; i++) {
+            if (lower <= values[i] && values[i] <= upper) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param values
+     * @param lower
+     * @param upper
+     * @return the last index with lower <= values[i] <= upper, or -1 if there is none
+     */
+    public static int lastIndexInRange(double[] values, double lower, double upper) {
+        for (int i = values.length - 1; 0 <= i; i--) {
+            if (lower <= values[i] && values[i] <= upper) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One row of MatLab.any(matrix, 2).
+     *
+     * @param values
+     * @return true if the values sum to more than zero
+     */
+    public static boolean hasPositiveSum(double[] values) {
+        double sum = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        return 0.0 < sum;
+    }
+
+    /**
+     * @param values
+     * @param fromIndex inclusive
+     * @param toIndex   exclusive
+     * @param threshold
+     * @return the last i in [fromIndex, toIndex - 1) with values[i] not above the threshold and values[i + 1] above
+     * it, or -1 if there is none
+     */
+    public static int lastRisingCrossing(double[] values, int fromIndex, int toIndex, double threshold) {
+        for (int i = toIndex - 2; fromIndex <= i; i--) {
+            if (!(values[i] > threshold) && values[i + 1] > threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param values
+     * @param fromIndex inclusive
+     * @param toIndex   exclusive
+     * @param threshold
+     * @return the first i in [fromIndex, toIndex - 1) with values[i] above the threshold and values[i + 1] not above
+     * it, or -1 if there is none
+     */
+    public static int firstFallingCrossing(double[] values, int fromIndex, int toIndex, double threshold) {
+        for (int i = fromIndex; i < toIndex - 1; i++) {
+            if (values[i] > threshold && !(values[i + 1] > threshold)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The truncated powers (x - knots[j])^degree for x >= knots[j], else zero: one row of
+     * arrayMultiply(expMatrix(X - T, degree), greaterOrEqual(X, T)) in SplineBasisModel.bBase.
+     *
+     * @param x
+     * @param knots
+     * @param degree
+     * @param out   at least as long as knots
+     * @return out
+     */
+    public static double[] truncatedPowers(double x, double[] knots, int degree, double[] out) {
+        for (int j = 0; j < knots.length; j++) {
+            out[j] = Math.pow(x - knots[j], degree) * ((x >= knots[j]) ? 1.0 : 0.0);
+        }
+        return out;
+    }
+
+    /**
+     * values[j] where x < bounds[j], else values[j] * 0: one row of arrayMultiply(A, lessThan(X, B)).
+     *
+     * @param values
+     * @param x
+     * @param bounds at least as long as values
+     * @param out    at least as long as values, and may be values
+     * @return out
+     */
+    public static double[] multiplyWhereLessThan(double[] values, double x, double[] bounds, double[] out) {
+        for (int j = 0; j < values.length; j++) {
+            out[j] = values[j] * ((x < bounds[j]) ? 1.0 : 0.0);
+        }
+        return out;
+    }
+
+    /**
+     * numerator / max(values[i], floor), as rDivide(numerator, max(values, floor)).
+     *
+     * @param numerator
+     * @param values
+     * @param floor
+     * @param out       at least as long as values, and may be values
+     * @return out
+     */
+    public static double[] divideByAtLeast(double numerator, double[] values, double floor, double[] out) {
+        for (int i = 0; i < values.length; i++) {
+            out[i] = numerator / ((floor > values[i]) ? floor : values[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+/**
+ * Derives reproducible seeds for independent random streams, such as the blocks of an MCMC run or the chains of
+ * an MCMC2 simulation, from one base seed.
+ *
+ * @author James F. Bowring
+ */
+public enum RandomSeeds {
+    ;
+
+    /**
+     * Mixes the base seed with the stream index (SplitMix64 finalizer) so that every stream of a seeded run has a
+     * distinct, reproducible seed.
+     *
+     * @param baseSeed    null for secure seeding
+     * @param streamIndex such as a block ID or chain index
+     * @return stream seed or null
+     */
+    public static Long seedForStream(Long baseSeed, int streamIndex) {
+        Long retVal = null;
+        if (null != baseSeed) {
+            long z = baseSeed + streamIndex * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            retVal = z ^ (z >>> 31);
+        }
+        return retVal;
+    }
+}
@@ -32,65 +32,14 @@ public class SplineBasisModel {
 
 
     public static Primitive64Store bBase(MatrixStore<Double> x, int numSegments, int basisDegree) {
-        PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
-        double[][] sk;
         double xLower = x.get(0, 0);
         double xUpper = x.get(x.getRowDim() - 1, x.getColDim() - 1);
 
-        MatrixStore<Double> transposeX = x.transpose();
-
-        double dx = (xUpper - xLower) / numSegments;
-        Primitive64Store knots = MatLab.linspace(xLower - basisDegree * dx, xUpper + basisDegree * dx, numSegments + 2 * basisDegree + 1);
-
-        int nx = transposeX.getRowDim();
-        int nt = knots.getColDim();
-
-
-        Primitive64Store kronTerm = storeFactory.make(1, nt);
-        kronTerm.fillAll(1.0);
-
-        MatrixStore<Double> matrixX = MatLab.kron(transposeX, kronTerm);
-
-
-        Primitive64Store term2 = storeFactory.make(nx, 1);
-        term2.fillAll(1.0);
-        MatrixStore<Double> matrixT = MatLab.kron(knots, term2);
-
-        Primitive64Store testTerm1 = MatLab.expMatrix(matrixX.subtract(matrixT), basisDegree);
-        Primitive64Store testTerm2 = MatLab.greaterOrEqual(matrixX, matrixT);
-        MatrixStore<Double> matrixP = MatLab.arrayMultiply(testTerm1, testTerm2);
-
-
-        double v = (basisDegree + 1);
-        MatrixStore<Double> matrixD = MatLab.diff(Primitive64Store.FACTORY.makeIdentity(nt), basisDegree + 1).divide((Gamma.gamma(v) * Math.pow(dx, basisDegree)));
-
-        MatrixStore<Double> Base = matrixP.multiply(matrixD.transpose());
-
-        int nb = MatLab.size(Base, 2);
-        Primitive64Store kronTerm2 = storeFactory.make(1, nb);
-        kronTerm2.fillAll(1.0);
-        matrixX = MatLab.kron(transposeX, kronTerm2);
-
-        sk = new double[1][nb];
-        for (int i = 0; 1 > i; i++) {
-            for (int j = 0; j < nb; j++) {
-                sk[i][j] = knots.get(i, j + basisDegree + 1);
-            }
-        }
-
-        Primitive64Store kronTerm3 = storeFactory.make(nx, 1);
-        kronTerm3.fillAll(1.0);
-        Primitive64Store SK = MatLab.kron(Primitive64Store.FACTORY.rows(sk), kronTerm3);
-        Primitive64Store MASK = MatLab.lessThan(matrixX, SK);
-
-
-        return MatLab.arrayMultiply(Base, MASK);
+        return bBase(x.toRawCopy1D(), xLower, xUpper, numSegments, basisDegree);
     }
 
 
     public static Primitive64Store bBase(MatrixStore<Double> x, double xl, double xr, double numSegments, int basisDegree) {
-        PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
-        double[][] sk;
         double xLower;
         double xUpper;
 
@@ -98,56 +47,50 @@ public class SplineBasisModel {
         xLower = xl > x.get(0, 0) ? x.get(0, 0) : xl;
         xUpper = xr < x.get(x.getRowDim() - 1, x.getColDim() - 1) ? x.get(x.getRowDim() - 1, x.getColDim() - 1) : xr;
 
-        // TODO: confirm that transpose should be used here instead of just x.
-        MatrixStore<Double> transposeX = x.transpose();
-
-        double dx = (xUpper - xLower) / numSegments;
-        Primitive64Store knots = MatLab.linspace(xLower - basisDegree * dx, xUpper + basisDegree * dx, numSegments + 2 * basisDegree + 1);
-
-        int nx = transposeX.getRowDim();
-        int nt = knots.getColDim();
-
-
-        Primitive64Store kronTerm = storeFactory.make(1, nt);
-        kronTerm.fillAll(1.0);
-
-        MatrixStore<Double> matrixX = MatLab.kron(transposeX, kronTerm);
+        // TODO: confirm that x should be a row here; bBase used to transpose it to a column of points.
+        return bBase(x.toRawCopy1D(), xLower, xUpper, numSegments, basisDegree);
+    }
 
+    /**
+     * Builds each row of the truncated powers P and of the mask from the point and the knots, rather than from the
+     * point and knot matrices that kron spreads out, with the same arithmetic and so the same values.
+     *
+     * @param x           the points of the row vector x
+     * @param xLower
+     * @param xUpper
+     * @param numSegments
+     * @param basisDegree
+     * @return length(x) by numSegments + basisDegree
+     */
+    private static Primitive64Store bBase(double[] x, double xLower, double xUpper, double numSegments, int basisDegree) {
+        PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
 
-        Primitive64Store term2 = storeFactory.make(nx, 1);
-        term2.fillAll(1.0);
-        MatrixStore<Double> matrixT = MatLab.kron(knots, term2);
+        double dx = (xUpper - xLower) / numSegments;
+        double[] knots = MatLab.linspace(xLower - basisDegree * dx, xUpper + basisDegree * dx, numSegments + 2 * basisDegree + 1).toRawCopy1D();
 
-        Primitive64Store testTerm1 = MatLab.expMatrix(matrixX.subtract(matrixT), basisDegree);
-        Primitive64Store testTerm2 = MatLab.greaterOrEqual(matrixX, matrixT);
+        int nx = x.length;
+        int nt = knots.length;
 
-        MatrixStore<Double> matrixP = MatLab.arrayMultiply(testTerm1, testTerm2);
+        double[][] matrixP = new double[nx][];
+        for (int i = 0; i < nx; i++) {
+            matrixP[i] = PrimitiveKernels.truncatedPowers(x[i], knots, basisDegree, new double[nt]);
+        }
 
 
         double v = (basisDegree + 1);
         MatrixStore<Double> matrixD = MatLab.diff(Primitive64Store.FACTORY.makeIdentity(nt), basisDegree + 1).divide((Gamma.gamma(v) * Math.pow(dx, basisDegree)));
 
-        MatrixStore<Double> Base = matrixP.multiply(matrixD.transpose());
+        double[][] base = storeFactory.rows(matrixP).multiply(matrixD.transpose()).toRawCopy2D();
 
-        int nb = MatLab.size(Base, 2);
-        Primitive64Store kronTerm2 = storeFactory.make(1, nb);
-        kronTerm2.fillAll(1.0);
-        matrixX = MatLab.kron(transposeX, kronTerm2);
+        int nb = (0 < nx) ? base[0].length : nt - basisDegree - 1;
+        double[] sk = new double[nb];
+        System.arraycopy(knots, basisDegree + 1, sk, 0, nb);
 
-        sk = new double[1][nb];
-        for (int i = 0; 1 > i; i++) {
-            for (int j = 0; j < nb; j++) {
-                sk[i][j] = knots.get(i, j + basisDegree + 1);
-            }
+        for (int i = 0; i < nx; i++) {
+            PrimitiveKernels.multiplyWhereLessThan(base[i], x[i], sk, base[i]);
         }
 
-        Primitive64Store kronTerm3 = storeFactory.make(nx, 1);
-        kronTerm3.fillAll(1.0);
-        Primitive64Store SK = MatLab.kron(Primitive64Store.FACTORY.rows(sk), kronTerm3);
-        Primitive64Store MASK = MatLab.lessThan(matrixX, SK);
-
-
-        return MatLab.arrayMultiply(Base, MASK);
+        return storeFactory.rows(base);
     }
 
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.stateUtilities;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in written by TripoliSessionStore for a large numeric payload: a double[] or an ArrayList of Double or
+ * Integer.  Values are stored as their raw bits, each XORed with the value before it and split into byte planes,
+ * so that the repeated and slowly changing values of MCMC ensembles and raw data become long runs that the
+ * deflater of the session file compresses well.  Ensembles reach here as the double[] columns that
+ * EnsembleColumns writes.  Reading restores a bit-identical copy of the original.
+ *
+ * @author James F. Bowring
+ */
+final class PrimitiveChunk implements Serializable {
+
+    static final int MIN_ELEMENT_COUNT = 64;
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final int DOUBLE_ARRAY = 0;
+    private static final int DOUBLE_LIST = 1;
+    private static final int INTEGER_LIST = 2;
+
+    private final int kind;
+    private final int count;
+    private final byte[] intPlanes;
+    private final byte[] doublePlanes;
+
+    private PrimitiveChunk(int kind, int count, int[] ints, double[] doubles) {
+        this.kind = kind;
+        this.count = count;
+        long[] intBits = new long[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            intBits[i] = ints[i] & 0xFFFFFFFFL;
+        }
+        intPlanes = encode(intBits, Integer.BYTES);
+        long[] doubleBits = new long[doubles.length];
+        for (int i = 0; i < doubles.length; i++) {
+            doubleBits[i] = Double.doubleToRawLongBits(doubles[i]);
+        }
+        doublePlanes = encode(doubleBits, Double.BYTES);
+    }
+
+    /**
+     * @param object
+     * @return a chunk standing in for object, or object itself when it is not a large numeric payload
+     */
+    static Object chunkOf(Object object) {
+        Object retVal = object;
+        if ((object instanceof double[] values) && (MIN_ELEMENT_COUNT <= values.length)) {
+            retVal = new PrimitiveChunk(DOUBLE_ARRAY, values.length, new int[0], values);
+        } else if ((null != object) && (ArrayList.class == object.getClass())
+                && (MIN_ELEMENT_COUNT <= ((ArrayList<?>) object).size())) {
+            ArrayList<?> list = (ArrayList<?>) object;
+            if (allElementsOf(list, Double.class)) {
+                double[] values = new double[list.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (Double) list.get(i);
+                }
+                retVal = new PrimitiveChunk(DOUBLE_LIST, values.length, new int[0], values);
+            } else if (allElementsOf(list, Integer.class)) {
+                int[] values = new int[list.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (Integer) list.get(i);
+                }
+                retVal = new PrimitiveChunk(INTEGER_LIST, values.length, values, new double[0]);
+            }
+        }
+        return retVal;
+    }
+
+    private static boolean allElementsOf(List<?> list, Class<?> elementClass) {
+        boolean retVal = true;
+        for (int i = 0; retVal && (i < list.size()); i++) {
+            retVal = (null != list.get(i)) && (elementClass == list.get(i).getClass());
+        }
+        return retVal;
+    }
+
+    private static byte[] encode(long[] values, int byteCount) {
+        int n = values.length;
+        byte[] planes = new byte[n * byteCount];
+        long previous = 0L;
+        for (int i = 0; i < n; i++) {
+            long bits = values[i] ^ previous;
+            previous = values[i];
+            for (int plane = 0; plane < byteCount; plane++) {
+                planes[plane * n + i] = (byte) (bits >>> (8 * (byteCount - 1 - plane)));
+            }
+        }
+        return planes;
+    }
+
+    private static long[] decode(byte[] planes, int byteCount) {
+        int n = planes.length / byteCount;
+        long[] values = new long[n];
+        long previous = 0L;
+        for (int i = 0; i < n; i++) {
+            long bits = 0L;
+            for (int plane = 0; plane < byteCount; plane++) {
+                bits = (bits << 8) | (planes[plane * n + i] & 0xFFL);
+            }
+            previous ^= bits;
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private int[] ints() {
+        long[] bits = decode(intPlanes, Integer.BYTES);
+        int[] retVal = new int[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            retVal[i] = (int) bits[i];
+        }
+        return retVal;
+    }
+
+    private double[] doubles() {
+        long[] bits = decode(doublePlanes, Double.BYTES);
+        double[] retVal = new double[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            retVal[i] = Double.longBitsToDouble(bits[i]);
+        }
+        return retVal;
+    }
+
+    @Serial
+    private Object readResolve() {
+        Object retVal;
+        switch (kind) {
+            case DOUBLE_ARRAY -> retVal = doubles();
+            case DOUBLE_LIST -> {
+                ArrayList<Double> list = new ArrayList<>(count);
+                for (double value : doubles()) {
+                    list.add(value);
+                }
+                retVal = list;
+            }
+            default -> {
+                ArrayList<Integer> list = new ArrayList<>(count);
+                for (int value : ints()) {
+                    list.add(value);
+                }
+                retVal = list;
+            }
+        }
+        return retVal;
+    }
+}
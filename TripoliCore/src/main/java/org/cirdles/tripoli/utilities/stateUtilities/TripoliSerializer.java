@@ -38,8 +38,9 @@ public enum TripoliSerializer {
         ObjectOutputStream objectOutputStream = null;
         try {
             RandomAccessFile raf = new RandomAccessFile(fileName, "rw");
+            raf.setLength(0);
             FileOutputStream fos = new FileOutputStream(raf.getFD());
-            objectOutputStream = new ObjectOutputStream(fos);
+            objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(fos, 1 << 16));
             objectOutputStream.writeObject(serializableObject);
         } catch (IOException ex) {
             throw new TripoliException("Cannot serialize object of " + serializableObject.getClass().getSimpleName() + " to: " + fileName
@@ -67,7 +68,7 @@ public enum TripoliSerializer {
         Object deserializedObject = null;
 
         try (FileInputStream inputStream = new FileInputStream(filename)) {
-            deserializedInputStream = new ObjectInputStream(inputStream);
+            deserializedInputStream = new ObjectInputStream(new BufferedInputStream(inputStream, 1 << 16));
             deserializedObject = deserializedInputStream.readObject();
 
         } catch (FileNotFoundException ex) {
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.stateUtilities;
+
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.analysis.Analysis;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.utilities.collections.TripoliSessionAnalysisMap;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Versioned session file with one compressed chunk for the session and one for each of its analyses, so that
+ * analyses can be written in parallel and read only when first used.
+ * <p>
+ * Layout: the 8 byte magic, the format version, the length of the index, then the index itself (the session chunk
+ * length and, for each analysis, its name, whether it is held in the session chunk, and its chunk length), then
+ * the session chunk followed by the analysis chunks in index order.  Each chunk is a deflated Java serialization
+ * stream in which large numeric payloads are written as PrimitiveChunks.  References from an analysis chunk to the
+ * session, to its shared defaults, and to other analyses of the session are written as references and are
+ * resolved on reading.  An analysis that the session itself refers to other than through its map of analyses,
+ * such as the live data analysis, is written inside the session chunk.
+ * <p>
+ * Files without the magic are read as whole-graph files from TripoliSerializer.
+ *
+ * @author James F. Bowring
+ */
+public enum TripoliSessionStore {
+    ;
+
+    public static final int FORMAT_VERSION = 1;
+    private static final byte[] MAGIC = {'T', 'R', 'I', 'P', 'O', 'L', 'I', 'S'};
+    private static final int HEADER_BYTES = MAGIC.length + Integer.BYTES + Integer.BYTES;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * @param session
+     * @return the objects that analyses share with their session, indexed by SessionReference slot
+     */
+    private static Object[] sharedSessionObjects(Session session) {
+        return new Object[]{
+                session,
+                session.getMapOfAnalyses(),
+                session.getSessionDefaultMapOfSpeciesToColors(),
+                session.getSessionDefaultParameters(),
+                session.getBlockCyclesPlotColors()};
+    }
+
+    /**
+     * @param sessionFileName
+     * @return true if the file starts with the session store magic
+     */
+    public static boolean isSessionStoreFile(String sessionFileName) {
+        boolean retVal = false;
+        try (InputStream inputStream = Files.newInputStream(Path.of(sessionFileName))) {
+            retVal = Arrays.equals(MAGIC, inputStream.readNBytes(MAGIC.length));
+        } catch (IOException | InvalidPathException ignored) {
+        }
+        return retVal;
+    }
+
+    /**
+     * Writes the session to a temporary file beside sessionFileName and then moves it into place.
+     * Analyses not yet loaded from a lazily opened session are loaded first.
+     *
+     * @param session
+     * @param sessionFileName
+     * @throws TripoliException
+     */
+    public static void saveSession(Session session, String sessionFileName) throws TripoliException {
+        Map<String, AnalysisInterface> analyses;
+        try {
+            analyses = new TreeMap<>(session.getMapOfAnalyses());
+        } catch (IllegalStateException ex) {
+            throw new TripoliException(ex.getMessage());
+        }
+        Map<Object, String> topLevelAnalysisNames = new IdentityHashMap<>();
+        for (Map.Entry<String, AnalysisInterface> entry : analyses.entrySet()) {
+            topLevelAnalysisNames.put(entry.getValue(), entry.getKey());
+        }
+
+        Path sessionFilePath = Path.of(sessionFileName).toAbsolutePath();
+        Path temporaryPath = sessionFilePath.resolveSibling(sessionFilePath.getFileName() + ".saving");
+        try {
+            // the session chunk, with the map of analyses written as names only
+            Map<Object, Object> sessionReplacements = new IdentityHashMap<>();
+            sessionReplacements.put(session.getMapOfAnalyses(),
+                    ((TripoliSessionAnalysisMap) session.getMapOfAnalyses()).detachedCopy());
+            Set<String> inlineAnalysisNames = new TreeSet<>();
+            byte[] sessionChunk = writeChunk(session, sessionReplacements, topLevelAnalysisNames, inlineAnalysisNames);
+
+            Object[] sharedSessionObjects = sharedSessionObjects(session);
+            Map<Object, Object> analysisReplacements = new IdentityHashMap<>();
+            for (int slot = 0; slot < sharedSessionObjects.length; slot++) {
+                if (null != sharedSessionObjects[slot]) {
+                    analysisReplacements.put(sharedSessionObjects[slot], new SessionReference(slot));
+                }
+            }
+            List<String> chunkedAnalysisNames = new ArrayList<>(analyses.keySet());
+            chunkedAnalysisNames.removeAll(inlineAnalysisNames);
+            Map<String, byte[]> analysisChunks = new ConcurrentHashMap<>();
+            chunkedAnalysisNames.parallelStream().forEach(analysisName -> {
+                try {
+                    analysisChunks.put(analysisName,
+                            writeChunk(analyses.get(analysisName), analysisReplacements, topLevelAnalysisNames, null));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            index.writeInt(sessionChunk.length);
+            index.writeInt(analyses.size());
+            for (String analysisName : analyses.keySet()) {
+                index.writeUTF(analysisName);
+                index.writeBoolean(inlineAnalysisNames.contains(analysisName));
+                index.writeInt(inlineAnalysisNames.contains(analysisName) ? 0 : analysisChunks.get(analysisName).length);
+            }
+            index.flush();
+
+            try (DataOutputStream outputStream = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryPath), STREAM_BUFFER_BYTES))) {
+                outputStream.write(MAGIC);
+                outputStream.writeInt(FORMAT_VERSION);
+                outputStream.writeInt(indexBytes.size());
+                indexBytes.writeTo(outputStream);
+                outputStream.write(sessionChunk);
+                for (String analysisName : chunkedAnalysisNames) {
+                    outputStream.write(analysisChunks.get(analysisName));
+                }
+            }
+            try {
+                Files.move(temporaryPath, sessionFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryPath, sessionFilePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            try {
+                Files.deleteIfExists(temporaryPath);
+            } catch (IOException ignored) {
+            }
+            throw new TripoliException("Cannot save session " + session.getSessionName() + " to: " + sessionFileName
+                    + "\n\nbecause: \n" + ex.getMessage());
+        }
+    }
+
+    private static byte[] writeChunk(
+            Object root, Map<Object, Object> replacements, Map<Object, String> topLevelAnalysisNames, Set<String> inlineAnalysisNames)
+            throws IOException {
+        ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(STREAM_BUFFER_BYTES);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ChunkOutputStream chunkOutputStream = new ChunkOutputStream(
+                new DeflaterOutputStream(chunkBytes, deflater, STREAM_BUFFER_BYTES),
+                root, replacements, topLevelAnalysisNames, inlineAnalysisNames)) {
+            chunkOutputStream.writeObject(root);
+        } finally {
+            deflater.end();
+        }
+        return chunkBytes.toByteArray();
+    }
+
+    /**
+     * Opens a session from either a session store file or a whole-graph file from TripoliSerializer.
+     *
+     * @param sessionFileName
+     * @param lazy            if true, each analysis of a session store file is read on first use
+     * @return
+     * @throws TripoliException
+     */
+    public static Session loadSession(String sessionFileName, boolean lazy) throws TripoliException {
+        Session session;
+        if (isSessionStoreFile(sessionFileName)) {
+            try {
+                SessionStoreReader sessionStoreReader = new SessionStoreReader(Path.of(sessionFileName));
+                session = sessionStoreReader.readSession();
+            } catch (FileNotFoundException | NoSuchFileException ex) {
+                throw new TripoliException("The file you are attempting to open does not exist:\n" + " " + sessionFileName);
+            } catch (IOException ex) {
+                throw new TripoliException("The file you are attempting to open is not a valid '*.tripoli' file.");
+            } catch (ClassNotFoundException | ClassCastException ex) {
+                throw new TripoliException("The file you are attempting to open is not compatible with this version of Tripoli.");
+            }
+            if (!lazy) {
+                try {
+                    ((TripoliSessionAnalysisMap) session.getMapOfAnalyses()).loadPendingAnalyses();
+                } catch (IllegalStateException ex) {
+                    throw new TripoliException(ex.getMessage());
+                }
+            }
+        } else {
+            Object sessionObject = TripoliSerializer.getSerializedObjectFromFile(sessionFileName, true);
+            if (!(sessionObject instanceof Session)) {
+                throw new TripoliException("The file you are attempting to open is not a valid '*.tripoli' file.");
+            }
+            session = (Session) sessionObject;
+            for (AnalysisInterface analysis : session.getMapOfAnalyses().values()) {
+                rebuildPlots(analysis);
+            }
+        }
+        return session;
+    }
+
+    private static void rebuildPlots(AnalysisInterface analysis) {
+        if (analysis instanceof Analysis) {
+            ((Analysis) analysis).rebuildPlots();
+        }
+    }
+
+    private record SessionReference(int slot) implements Serializable {
+    }
+
+    private record AnalysisReference(String analysisName) implements Serializable {
+    }
+
+    private static final class ChunkOutputStream extends ObjectOutputStream {
+        private final Object root;
+        private final Map<Object, Object> replacements;
+        private final Map<Object, String> topLevelAnalysisNames;
+        private final Set<String> inlineAnalysisNames;
+
+        /**
+         * @param inlineAnalysisNames collects the top-level analyses written inline; null to write them as references
+         */
+        ChunkOutputStream(OutputStream outputStream, Object root, Map<Object, Object> replacements,
+                          Map<Object, String> topLevelAnalysisNames, Set<String> inlineAnalysisNames) throws IOException {
+            super(outputStream);
+            this.root = root;
+            this.replacements = replacements;
+            this.topLevelAnalysisNames = topLevelAnalysisNames;
+            this.inlineAnalysisNames = inlineAnalysisNames;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) {
+            Object retVal = object;
+            if (object != root) {
+                if (replacements.containsKey(object)) {
+                    retVal = replacements.get(object);
+                } else if (topLevelAnalysisNames.containsKey(object)) {
+                    if (null == inlineAnalysisNames) {
+                        retVal = new AnalysisReference(topLevelAnalysisNames.get(object));
+                    } else {
+                        inlineAnalysisNames.add(topLevelAnalysisNames.get(object));
+                    }
+                } else {
+                    retVal = PrimitiveChunk.chunkOf(object);
+                }
+            }
+            return retVal;
+        }
+    }
+
+    private static final class ChunkInputStream extends ObjectInputStream {
+        private final SessionStoreReader sessionStoreReader;
+
+        ChunkInputStream(InputStream inputStream, SessionStoreReader sessionStoreReader) throws IOException {
+            super(inputStream);
+            this.sessionStoreReader = sessionStoreReader;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object object) {
+            Object retVal = object;
+            if (object instanceof SessionReference sessionReference) {
+                retVal = sessionStoreReader.sharedSessionObjects[sessionReference.slot()];
+            } else if (object instanceof AnalysisReference analysisReference) {
+                retVal = sessionStoreReader.session.getMapOfAnalyses().get(analysisReference.analysisName());
+            } else if ((null == sessionStoreReader.session) && (object instanceof Analysis analysis)
+                    && sessionStoreReader.inlineAnalysisNames.contains(analysis.getAnalysisName())) {
+                sessionStoreReader.inlineAnalyses.put(analysis.getAnalysisName(), analysis);
+            }
+            return retVal;
+        }
+    }
+
+    private static final class SessionStoreReader implements TripoliSessionAnalysisMap.AnalysisLoader {
+        private final Path sessionFilePath;
+        private final long fileSize;
+        private final FileTime lastModifiedTime;
+        private final long sessionChunkOffset;
+        private final int sessionChunkLength;
+        private final Map<String, Long> analysisChunkOffsets = new HashMap<>();
+        private final Map<String, Integer> analysisChunkLengths = new HashMap<>();
+        private final Set<String> inlineAnalysisNames = new HashSet<>();
+        private final Map<String, AnalysisInterface> inlineAnalyses = new HashMap<>();
+        private Session session;
+        private Object[] sharedSessionObjects;
+
+        SessionStoreReader(Path sessionFilePath) throws IOException {
+            this.sessionFilePath = sessionFilePath;
+            fileSize = Files.size(sessionFilePath);
+            lastModifiedTime = Files.getLastModifiedTime(sessionFilePath);
+
+            ByteBuffer header = readBytes(0, HEADER_BYTES);
+            header.position(MAGIC.length);
+            int formatVersion = header.getInt();
+            if (FORMAT_VERSION < formatVersion) {
+                throw new IOException("Session file format " + formatVersion + " is newer than this version of Tripoli.");
+            }
+            int indexLength = header.getInt();
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(readBytes(HEADER_BYTES, indexLength).array()));
+            sessionChunkOffset = HEADER_BYTES + indexLength;
+            sessionChunkLength = index.readInt();
+            int analysisCount = index.readInt();
+            long offset = sessionChunkOffset + sessionChunkLength;
+            for (int i = 0; i < analysisCount; i++) {
+                String analysisName = index.readUTF();
+                if (index.readBoolean()) {
+                    inlineAnalysisNames.add(analysisName);
+                }
+                int chunkLength = index.readInt();
+                analysisChunkOffsets.put(analysisName, offset);
+                analysisChunkLengths.put(analysisName, chunkLength);
+                offset += chunkLength;
+            }
+        }
+
+        private ByteBuffer readBytes(long position, int length) throws IOException {
+            ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+            try (FileChannel fileChannel = FileChannel.open(sessionFilePath, StandardOpenOption.READ)) {
+                while (byteBuffer.hasRemaining()) {
+                    if (0 > fileChannel.read(byteBuffer, position + byteBuffer.position())) {
+                        throw new EOFException("Session file is truncated.");
+                    }
+                }
+            }
+            return byteBuffer.flip();
+        }
+
+        private Object readChunk(long offset, int length) throws IOException, ClassNotFoundException {
+            try (ChunkInputStream chunkInputStream = new ChunkInputStream(new BufferedInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(readBytes(offset, length).array())), STREAM_BUFFER_BYTES), this)) {
+                return chunkInputStream.readObject();
+            }
+        }
+
+        Session readSession() throws IOException, ClassNotFoundException {
+            Session storedSession = (Session) readChunk(sessionChunkOffset, sessionChunkLength);
+            TripoliSessionAnalysisMap mapOfAnalyses = (TripoliSessionAnalysisMap) storedSession.getMapOfAnalyses();
+            for (Map.Entry<String, AnalysisInterface> entry : inlineAnalyses.entrySet()) {
+                rebuildPlots(entry.getValue());
+                mapOfAnalyses.putLoadedAnalysis(entry.getKey(), entry.getValue());
+            }
+            sharedSessionObjects = sharedSessionObjects(storedSession);
+            session = storedSession;
+            mapOfAnalyses.setAnalysisLoader(this);
+            return storedSession;
+        }
+
+        @Override
+        public AnalysisInterface loadAnalysis(String analysisName) throws TripoliException {
+            AnalysisInterface analysis;
+            try {
+                if ((fileSize != Files.size(sessionFilePath)) || !lastModifiedTime.equals(Files.getLastModifiedTime(sessionFilePath))) {
+                    throw new TripoliException("The session file " + sessionFilePath + " has changed since it was opened.");
+                }
+                analysis = (AnalysisInterface) readChunk(analysisChunkOffsets.get(analysisName), analysisChunkLengths.get(analysisName));
+            } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                throw new TripoliException("Cannot read analysis " + analysisName + " from: " + sessionFilePath
+                        + "\n\nbecause: \n" + ex.getMessage());
+            }
+            rebuildPlots(analysis);
+            return analysis;
+        }
+    }
+}
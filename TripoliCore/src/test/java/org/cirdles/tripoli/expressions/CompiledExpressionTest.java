@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.expressions;
+
+import org.cirdles.tripoli.expressions.expressionTrees.CompiledExpression;
+import org.cirdles.tripoli.expressions.expressionTrees.ExpressionTree;
+import org.cirdles.tripoli.expressions.expressionTrees.ExpressionTreeInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledExpressionTest {
+
+    private static final String[] COLUMN_HEADERS = {"Cycle", "Time", "206Pb", "207Pb", "208Pb"};
+
+    private static Map<Integer, MassSpecOutputBlockRecordLite> blocksDataLite() {
+        Map<Integer, MassSpecOutputBlockRecordLite> blocksDataLite = new TreeMap<>();
+        blocksDataLite.put(1, new MassSpecOutputBlockRecordLite(1, new double[][]{
+                {1, 207.285, 1.840641088e+005, 1.681383249e+005, 3.977253415e+005},
+                {2, 237.465, 1.841678606e+005, 1.683411348e+005, 3.985448608e+005}}));
+        blocksDataLite.put(2, new MassSpecOutputBlockRecordLite(2, new double[][]{
+                {3, 267.655, 1.844026237e+005, 1.684364932e+005, 3.988635356e+005},
+                // a short row reads the missing 208Pb as zero
+                {4, 297.839, 1.846252347e+005, 1.686199883e+005}}));
+        return blocksDataLite;
+    }
+
+    @Test
+    void matchesTreeEvaluation() {
+        // sqrt(207Pb / 206Pb) - log(208Pb ^ 0.5) + exp(Time / 1000) * 2
+        ExpressionTreeInterface tree = ExpressionTree.buildTree(List.of(
+                "207Pb", "206Pb", "/", "sqrt", "208Pb", "0.5", "^", "log", "-", "Time", "1000", "/", "exp", "2", "*", "+"));
+        CompiledExpression compiledExpression = CompiledExpression.compile(tree);
+        assertNotNull(compiledExpression);
+        assertEquals(16, compiledExpression.getInstructionCount());
+        assertTrue(compiledExpression.referencesOnlyColumnsIn(COLUMN_HEADERS));
+
+        Double[][] expected = tree.eval(COLUMN_HEADERS, blocksDataLite());
+        double[][] actual = compiledExpression.evaluateBlocks(COLUMN_HEADERS, blocksDataLite());
+        assertEquals(expected.length, actual.length);
+        for (int block = 0; block < expected.length; block++) {
+            assertEquals(expected[block].length, actual[block].length);
+            for (int row = 0; row < expected[block].length; row++) {
+                assertEquals(Double.doubleToLongBits(expected[block][row]), Double.doubleToLongBits(actual[block][row]));
+            }
+        }
+    }
+
+    @Test
+    void unknownColumnIsReported() {
+        CompiledExpression compiledExpression = CompiledExpression.compile(ExpressionTree.buildTree(List.of("204Pb", "206Pb", "/")));
+        assertNotNull(compiledExpression);
+        assertFalse(compiledExpression.referencesOnlyColumnsIn(COLUMN_HEADERS));
+        assertNull(CompiledExpression.compile(new ExpressionTree()));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.utilities.callbacks.FileImportCallbackInterface;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchImportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void failedFilesAreReportedAndLeaveTheSessionUnchanged() throws IOException, TripoliException {
+        Session session = Session.initializeDefaultSession();
+        Path unknownFile = tempDir.resolve("notes.txt");
+        Files.writeString(unknownFile, "not a mass spectrometer data file\n");
+        Path missingFile = tempDir.resolve("missing.TIMSDP");
+
+        Set<Path> failedFiles = ConcurrentHashMap.newKeySet();
+        try (BatchImportService batchImportService = new BatchImportService(2)) {
+            BatchImportService.BatchImportRecord batchImportRecord = batchImportService.importFiles(
+                    session, List.of(unknownFile, missingFile), new FileImportCallbackInterface() {
+                        @Override
+                        public void fileImported(Path dataFile, AnalysisInterface analysis, int countOfFilesDone, int countOfFiles) {
+                            fail("Nothing should import");
+                        }
+
+                        @Override
+                        public void fileFailed(Path dataFile, Throwable throwable, int countOfFilesDone, int countOfFiles) {
+                            assertEquals(2, countOfFiles);
+                            failedFiles.add(dataFile);
+                        }
+                    });
+
+            assertTrue(batchImportRecord.importedAnalyses().isEmpty());
+            assertEquals(List.of(unknownFile, missingFile), List.copyOf(batchImportRecord.mapOfFilesToFailures().keySet()));
+            assertEquals(BatchImportService.UNRECOGNIZED_FORMAT_MESSAGE,
+                    batchImportRecord.mapOfFilesToFailures().get(unknownFile).getMessage());
+            assertEquals(Set.of(unknownFile, missingFile), failedFiles);
+            assertTrue(session.getMapOfAnalyses().isEmpty());
+        }
+    }
+
+    @Test
+    void analysesOfTakenNamesAreRenamedNotReplaced() throws TripoliException {
+        Session session = Session.initializeDefaultSession();
+        AnalysisInterface existingAnalysis = AnalysisInterface.initializeNewAnalysis(0);
+        existingAnalysis.setAnalysisName("FC1 z1");
+        session.putAnalyses(List.of(existingAnalysis));
+
+        AnalysisInterface firstDropped = AnalysisInterface.initializeNewAnalysis(0);
+        firstDropped.setAnalysisName("FC1 z1");
+        AnalysisInterface secondDropped = AnalysisInterface.initializeNewAnalysis(0);
+        secondDropped.setAnalysisName("FC1 z1");
+        session.putAnalyses(List.of(firstDropped, secondDropped));
+
+        assertEquals(3, session.getMapOfAnalyses().size());
+        assertSame(existingAnalysis, session.getMapOfAnalyses().get("FC1 z1"));
+        assertSame(firstDropped, session.getMapOfAnalyses().get("FC1 z1-2"));
+        assertSame(secondDropped, session.getMapOfAnalyses().get("FC1 z1-3"));
+        assertEquals("FC1 z1-3", secondDropped.getAnalysisName());
+    }
+}
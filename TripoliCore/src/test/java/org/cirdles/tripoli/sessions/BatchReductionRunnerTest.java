@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions;
+
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchReductionRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void foldersExpandToVisibleFilesInIntuitiveOrder() throws IOException, TripoliException {
+        Path dataFolder = Files.createDirectory(tempDir.resolve("data"));
+        for (String fileName : List.of("Sample10.txt", "Sample2.txt", ".hidden.txt")) {
+            Files.writeString(dataFolder.resolve(fileName), "");
+        }
+        Files.createDirectory(dataFolder.resolve("PeakCentres"));
+        Path outputFolder = tempDir.resolve("out");
+
+        BatchReductionRunner.BatchReductionOptions options = BatchReductionRunner.BatchReductionOptions.parse(new String[]{
+                dataFolder.toString(), "--threads", "4", "--mcmc", "--seed", "42", "--out", outputFolder.toString()});
+
+        assertEquals(List.of(dataFolder.resolve("Sample2.txt"), dataFolder.resolve("Sample10.txt")), options.dataFiles());
+        assertEquals(outputFolder, options.outputFolder());
+        assertEquals(4, options.threadBudget());
+        assertTrue(options.runMCMC());
+        assertEquals(Long.valueOf(42L), options.mcmcSeed());
+        assertNull(options.methodFile());
+    }
+
+    @Test
+    void badArgumentsAreRejected() throws IOException {
+        Path dataFile = Files.writeString(tempDir.resolve("Sample1.txt"), "");
+        String dataFileName = dataFile.toString();
+
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(new String[0]));
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(new String[]{dataFileName, "--threads"}));
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(new String[]{dataFileName, "--threads", "0"}));
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(new String[]{dataFileName, "--seed", "x"}));
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(new String[]{dataFileName, "--bogus"}));
+        assertThrows(TripoliException.class, () -> BatchReductionRunner.BatchReductionOptions.parse(
+                new String[]{tempDir.resolve("missing").toString()}));
+    }
+}
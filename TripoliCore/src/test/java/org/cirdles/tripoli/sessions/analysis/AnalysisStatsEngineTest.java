@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis;
+
+import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisStatsEngineTest {
+
+    private static Map<Integer, PlotBlockCyclesRecord> buildBlocks(int blockCount, int cycleCount) {
+        Random random = new Random(7L);
+        Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord = new TreeMap<>();
+        for (int blockID = 1; blockID <= blockCount; blockID++) {
+            double[] cycleMeansData = new double[cycleCount];
+            boolean[] cyclesIncluded = new boolean[cycleCount];
+            for (int i = 0; i < cycleCount; i++) {
+                cycleMeansData[i] = 0.0725 * (1.0 + 1.0e-3 * random.nextGaussian()) + 1.0e-5 * blockID;
+                cyclesIncluded[i] = true;
+            }
+            mapBlockIdToBlockCyclesRecord.put(blockID, new PlotBlockCyclesRecord(
+                    blockID, true, true, true, cyclesIncluded, cycleMeansData, new double[cycleCount], new String[]{""}));
+        }
+        return mapBlockIdToBlockCyclesRecord;
+    }
+
+    private static void assertMatchesFullRebuild(AnalysisStatsRecord expected, AnalysisStatsRecord actual) {
+        assertEquals(expected.blockModeWeightedMean(), actual.blockModeWeightedMean());
+        assertEquals(expected.blockModeWeightedMeanOneSigma(), actual.blockModeWeightedMeanOneSigma());
+        assertEquals(expected.blockModeChiSquared(), actual.blockModeChiSquared());
+        assertEquals(expected.countOfIncludedBlocks(), actual.countOfIncludedBlocks());
+        assertEquals(expected.cycleModeMean(), actual.cycleModeMean(), 1.0e-12 * Math.abs(expected.cycleModeMean()));
+        assertEquals(expected.cycleModeVariance(), actual.cycleModeVariance(), 1.0e-9 * expected.cycleModeVariance());
+        assertEquals(expected.cycleModeStandardError(), actual.cycleModeStandardError(), 1.0e-9 * expected.cycleModeStandardError());
+        assertArrayEquals(expected.cycleModeIncluded(), actual.cycleModeIncluded());
+        assertArrayEquals(expected.cycleModeData(), actual.cycleModeData());
+        assertEquals(expected.countOfTotalCycles(), actual.countOfTotalCycles());
+        assertEquals(expected.countOfIncludedCycles(), actual.countOfIncludedCycles());
+    }
+
+    private static AnalysisStatsRecord fullRebuild(Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord) {
+        BlockStatsRecord[] blockStatsRecords = new BlockStatsRecord[mapBlockIdToBlockCyclesRecord.size()];
+        int blockIndex = 0;
+        for (PlotBlockCyclesRecord plotBlockCyclesRecord : mapBlockIdToBlockCyclesRecord.values()) {
+            blockStatsRecords[blockIndex++] = BlockStatsRecord.generateBlockStatsRecord(plotBlockCyclesRecord.blockID(),
+                    plotBlockCyclesRecord.blockIncluded(), true, false, plotBlockCyclesRecord.cycleMeansData(), plotBlockCyclesRecord.cyclesIncluded());
+        }
+        return AnalysisStatsRecord.generateAnalysisStatsRecord(blockStatsRecords);
+    }
+
+    @Test
+    void sculptingRecomputesOnlyTheTouchedBlocks() {
+        Map<Integer, PlotBlockCyclesRecord> mapBlockIdToBlockCyclesRecord = buildBlocks(10, 40);
+        AnalysisStatsEngine analysisStatsEngine = new AnalysisStatsEngine();
+        assertMatchesFullRebuild(fullRebuild(mapBlockIdToBlockCyclesRecord), analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, true, false));
+        assertEquals(10, analysisStatsEngine.getCountOfBlocksRecomputed());
+
+        analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, true, false);
+        assertEquals(0, analysisStatsEngine.getCountOfBlocksRecomputed());
+
+        // sculpting and Chauvenet rejection change the inclusions in place
+        boolean[] cyclesIncluded = mapBlockIdToBlockCyclesRecord.get(3).cyclesIncluded();
+        cyclesIncluded[5] = false;
+        cyclesIncluded[17] = false;
+        AnalysisStatsRecord sculpted = analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, true, false);
+        assertEquals(1, analysisStatsEngine.getCountOfBlocksRecomputed());
+        assertMatchesFullRebuild(fullRebuild(mapBlockIdToBlockCyclesRecord), sculpted);
+        assertEquals(398, sculpted.countOfIncludedCycles());
+
+        mapBlockIdToBlockCyclesRecord.put(8, mapBlockIdToBlockCyclesRecord.get(8).toggleBlockIncluded());
+        AnalysisStatsRecord toggled = analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, true, false);
+        assertEquals(1, analysisStatsEngine.getCountOfBlocksRecomputed());
+        assertMatchesFullRebuild(fullRebuild(mapBlockIdToBlockCyclesRecord), toggled);
+        assertEquals(9, toggled.countOfIncludedBlocks());
+
+        // an earlier record keeps the inclusions it was made with
+        assertFalse(sculpted.cycleModeIncluded()[2 * 40 + 5]);
+        cyclesIncluded[5] = true;
+        analysisStatsEngine.update(mapBlockIdToBlockCyclesRecord, true, false);
+        assertFalse(sculpted.cycleModeIncluded()[2 * 40 + 5]);
+    }
+}
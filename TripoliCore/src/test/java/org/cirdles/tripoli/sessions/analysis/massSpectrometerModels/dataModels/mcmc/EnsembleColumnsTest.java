@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleColumnsTest {
+
+    private static EnsembleColumns appendModels(int countOfModels) {
+        EnsembleColumns ensembleColumns = new EnsembleColumns(2, 3, 1, 0);
+        double[] logRatios = new double[2];
+        double[] I0 = new double[3];
+        double[] baseLine = new double[1];
+        for (int model = 0; model < countOfModels; model++) {
+            // the same arrays change between models, as the current model's do in MCMCProcess
+            logRatios[0] = model;
+            logRatios[1] = -model;
+            I0[2] = 10.0 * model;
+            baseLine[0] = 0.5 * model;
+            ensembleColumns.append(logRatios, I0, baseLine, 0.9, null, model * model, 1.0);
+        }
+        return ensembleColumns;
+    }
+
+    @Test
+    void appendedModelsAreCopiedIntoColumns() {
+        // larger than the initial capacity
+        EnsembleColumns ensembleColumns = appendModels(1000);
+
+        assertEquals(1000, ensembleColumns.size());
+        EnsemblesStore.EnsembleRecord record = ensembleColumns.get(7);
+        assertArrayEquals(new double[]{7.0, -7.0}, record.logRatios(), 0.0);
+        assertArrayEquals(new double[]{0.0, 0.0, 70.0}, record.I0(), 0.0);
+        assertArrayEquals(new double[]{3.5}, record.baseLine(), 0.0);
+        assertNull(record.signalNoise());
+        assertEquals(49.0, record.errorWeighted(), 0.0);
+
+        assertArrayEquals(new double[]{996.0, 997.0, 998.0, 999.0},
+                ensembleColumns.copyColumn(ensembleColumns.logRatioColumn(0), 996, 1000), 0.0);
+        assertEquals(749.5, ensembleColumns.mean(ensembleColumns.logRatioColumn(0), 500, 1000), 1e-12);
+        assertEquals(0.0, ensembleColumns.standardDeviation(ensembleColumns.dfGainColumn(), 500, 1000), 1e-12);
+        assertArrayEquals(new double[]{999.0, -999.0, 0.0, 0.0, 9990.0, 499.5, 0.9},
+                ensembleColumns.modelParameterRows(999, 1000)[0], 0.0);
+
+        assertThrows(IllegalArgumentException.class, () -> ensembleColumns.append(
+                new double[1], new double[3], new double[1], 0.9, null, 0.0, 0.0));
+    }
+
+    @Test
+    void legacyListsAndSpilledColumnsKeepTheirValues() throws IOException {
+        EnsembleColumns ensembleColumns = appendModels(300);
+        List<EnsemblesStore.EnsembleRecord> legacyList = new ArrayList<>(ensembleColumns);
+        EnsembleColumns fromLegacyList = EnsembleColumns.of(legacyList);
+        assertEquals(ensembleColumns.countOfColumns(), fromLegacyList.countOfColumns());
+        assertArrayEquals(ensembleColumns.copyColumn(ensembleColumns.intensityColumn(2), 0, 300),
+                fromLegacyList.copyColumn(fromLegacyList.intensityColumn(2), 0, 300), 0.0);
+        assertSame(ensembleColumns, EnsembleColumns.of(ensembleColumns));
+
+        // a legacy list in an analysis is converted once, on first use
+        Map<Integer, List<EnsemblesStore.EnsembleRecord>> mapBlockIDToEnsembles = new TreeMap<>();
+        mapBlockIDToEnsembles.put(1, legacyList);
+        mapBlockIDToEnsembles.put(2, new ArrayList<>());
+        EnsembleColumns blockColumns = EnsembleColumns.ofBlock(mapBlockIDToEnsembles, 1);
+        assertSame(blockColumns, mapBlockIDToEnsembles.get(1));
+        assertSame(blockColumns, EnsembleColumns.ofBlock(mapBlockIDToEnsembles, 1));
+        assertEquals(300, blockColumns.size());
+        assertEquals(0, EnsembleColumns.ofBlock(mapBlockIDToEnsembles, 2).size());
+        assertFalse(mapBlockIDToEnsembles.get(2) instanceof EnsembleColumns);
+
+        ensembleColumns.spillToFile();
+        assertTrue(ensembleColumns.isMapped());
+        ensembleColumns.append(new double[]{1.0, 2.0}, new double[3], new double[1], 0.9, null, 0.0, 0.0);
+        assertEquals(301, ensembleColumns.size());
+        assertEquals(299.0, ensembleColumns.column(ensembleColumns.logRatioColumn(0), 299, 301).get(0), 0.0);
+        assertEquals(2.0, ensembleColumns.get(300).logRatios()[1], 0.0);
+    }
+
+    @Test
+    void serializedColumnsRestoreToTheHeap() throws IOException, ClassNotFoundException {
+        EnsembleColumns ensembleColumns = appendModels(50);
+        ensembleColumns.spillToFile();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(ensembleColumns);
+        }
+        EnsembleColumns restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (EnsembleColumns) in.readObject();
+        }
+
+        assertFalse(restored.isMapped());
+        assertEquals(50, restored.size());
+        assertArrayEquals(ensembleColumns.copyColumn(ensembleColumns.errorWeightedColumn(), 0, 50),
+                restored.copyColumn(restored.errorWeightedColumn(), 0, 50), 0.0);
+    }
+}
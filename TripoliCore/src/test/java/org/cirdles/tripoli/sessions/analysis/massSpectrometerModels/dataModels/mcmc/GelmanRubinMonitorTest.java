@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jama.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GelmanRubinMonitorTest {
+
+    /**
+     * The criterion computed directly over the first ngroup * gsize models.
+     */
+    private static double groupedRExit(double[][] models, int countOfGroups, int groupSize) {
+        int countOfParameters = models[0].length;
+        double[][] meanOfVar = new double[countOfParameters][countOfParameters];
+        double[][] groupMeans = new double[countOfGroups][countOfParameters];
+        for (int group = 0; group < countOfGroups; group++) {
+            for (int index = group * groupSize; index < (group + 1) * groupSize; index++) {
+                for (int row = 0; row < countOfParameters; row++) {
+                    groupMeans[group][row] += models[index][row] / groupSize;
+                }
+            }
+            for (int index = group * groupSize; index < (group + 1) * groupSize; index++) {
+                for (int row = 0; row < countOfParameters; row++) {
+                    for (int col = 0; col < countOfParameters; col++) {
+                        meanOfVar[row][col] += (models[index][row] - groupMeans[group][row])
+                                * (models[index][col] - groupMeans[group][col]) / (groupSize - 1.0) / countOfGroups;
+                    }
+                }
+            }
+        }
+        double[][] varOfMean = new double[countOfParameters][countOfParameters];
+        for (int row = 0; row < countOfParameters; row++) {
+            double mean = 0.0;
+            for (int group = 0; group < countOfGroups; group++) {
+                mean += groupMeans[group][row] / countOfGroups;
+            }
+            for (int group = 0; group < countOfGroups; group++) {
+                varOfMean[row][row] += (groupMeans[group][row] - mean) * (groupMeans[group][row] - mean) / (countOfGroups - 1.0);
+            }
+        }
+        double term2 = new Matrix(varOfMean).det() / new Matrix(meanOfVar).det();
+        return StrictMath.sqrt((countOfGroups - 1.0) / countOfGroups + StrictMath.pow(term2, 1.0 / countOfParameters) / countOfGroups);
+    }
+
+    @Test
+    void monitorMatchesGroupedCriterionAtAnyCount() {
+        Random random = new Random(17);
+        double[][] models = new double[5000][4];
+        GelmanRubinMonitor monitor = new GelmanRubinMonitor(4);
+        assertEquals(Double.POSITIVE_INFINITY, monitor.rExit());
+        for (int index = 0; index < models.length; index++) {
+            double shared = random.nextGaussian();
+            models[index] = new double[]{shared, shared + random.nextGaussian(), 1.0e5 + 10.0 * random.nextGaussian(), 0.8 + 1.0e-4 * random.nextGaussian()};
+            monitor.accept(new double[]{models[index][0], models[index][1]}, new double[]{models[index][2]}, new double[0], models[index][3]);
+
+            int count = index + 1;
+            if ((37 == count) || (1000 == count) || (4321 == count) || (5000 == count)) {
+                int countOfBatches = monitor.countOfBatches();
+                int batchSize = monitor.batchSize();
+                assertTrue(countOfBatches * batchSize <= count && count < (countOfBatches + 1) * batchSize);
+                assertTrue(batchSize <= 2 * countOfBatches && countOfBatches <= 2 * batchSize);
+                assertEquals(groupedRExit(models, countOfBatches, batchSize), monitor.rExit(), 1e-9);
+            }
+        }
+        assertEquals(5000L, monitor.countOfModels());
+        // independent draws are converged
+        assertTrue(monitor.rExit() < 1.1);
+    }
+
+    @Test
+    void sixteenModelsMatchGRConverge() {
+        /*
+        GRConverge worked through by hand for these 16 models, ngroup = gsize = 4:
+            tmpxm     = [3 3; 3 13/4; 4 17/4; 11/2 5]'
+            MeanofVar = [17/4 37/12; 37/12 131/24],  det = 3943/288
+            VarofMean = diag([67/48 41/48]),         det = 2747/2304
+            Rexit     = sqrt(3/4 + (2747/31544)^(1/2)/4)
+         */
+        double[][] models = {
+                {1, 2}, {3, 1}, {2, 4}, {6, 5},
+                {2, 2}, {4, 3}, {5, 7}, {1, 1},
+                {3, 6}, {7, 4}, {2, 3}, {4, 4},
+                {5, 2}, {6, 6}, {3, 3}, {8, 9}};
+        GelmanRubinMonitor monitor = new GelmanRubinMonitor(2);
+        for (double[] model : models) {
+            monitor.accept(model);
+        }
+        assertEquals(4, monitor.countOfBatches());
+        assertEquals(4, monitor.batchSize());
+        assertEquals(0.907620678075611, monitor.rExit(), 1e-12);
+        assertEquals(StrictMath.sqrt(0.75 + StrictMath.sqrt(2747.0 / 31544.0) / 4.0), monitor.rExit(), 1e-12);
+    }
+
+    @Test
+    void driftingChainIsNotConverged() {
+        GelmanRubinMonitor monitor = new GelmanRubinMonitor(2);
+        Random random = new Random(3);
+        for (int index = 0; index < 2000; index++) {
+            monitor.accept(new double[]{index / 20.0 + random.nextGaussian(), -index / 50.0 + random.nextGaussian()});
+        }
+        assertTrue(monitor.rExit() > 2.0);
+
+        assertThrows(IllegalArgumentException.class, () -> monitor.accept(new double[2], new double[1], new double[0], 0.0));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCBlockMetricsTest {
+
+    private static final List<String> OPERATIONS = List.of("changer", "changeI", "changedfg", "changebl", "noise");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void phasesAndOperationsAreCounted() {
+        MCMCBlockMetrics blockMetrics = new MCMCBlockMetrics("Sample", 3, OPERATIONS);
+        for (int index = 0; index < 99; index++) {
+            blockMetrics.record(MCMCBlockMetrics.Phase.FORWARD_MODEL, 1000);
+        }
+        blockMetrics.record(MCMCBlockMetrics.Phase.FORWARD_MODEL, 1_000_000);
+        blockMetrics.recordProposal(0, true);
+        blockMetrics.recordProposal(0, false);
+        blockMetrics.recordProposal(3, true);
+        blockMetrics.recordConvergenceTest(1.5, 1.1, 100);
+        blockMetrics.recordConvergenceTest(1.05, 1.1, 200);
+        blockMetrics.recordConvergenceTest(1.2, 1.1, 300);
+        blockMetrics.finish();
+
+        assertEquals(9, MCMCBlockMetrics.bucketOf(1000));
+        assertEquals(100, blockMetrics.getPhaseCount(MCMCBlockMetrics.Phase.FORWARD_MODEL));
+        assertEquals(1_099_000, blockMetrics.getPhaseNanos(MCMCBlockMetrics.Phase.FORWARD_MODEL));
+        assertEquals(10.99, blockMetrics.meanPhaseMicros(MCMCBlockMetrics.Phase.FORWARD_MODEL), 1e-12);
+        assertEquals(1024, blockMetrics.phaseQuantileNanos(MCMCBlockMetrics.Phase.FORWARD_MODEL, 0.5));
+        assertEquals(1 << 20, blockMetrics.phaseQuantileNanos(MCMCBlockMetrics.Phase.FORWARD_MODEL, 1.0));
+        assertEquals(0, blockMetrics.getPhaseCount(MCMCBlockMetrics.Phase.PROPOSAL));
+
+        assertEquals(3, blockMetrics.getIterations());
+        assertEquals(0.5, blockMetrics.acceptanceRate(0));
+        assertEquals(1.0, blockMetrics.acceptanceRate(3));
+        assertTrue(Double.isNaN(blockMetrics.acceptanceRate(4)));
+        assertEquals(2.0 / 3.0, blockMetrics.acceptanceRate(), 1e-15);
+
+        assertTrue(blockMetrics.isConverged());
+        assertEquals(200, blockMetrics.getConvergedAtIteration());
+        assertEquals(3, blockMetrics.getCountOfConvergenceTests());
+        assertEquals(1.2, blockMetrics.getRExit());
+    }
+
+    @Test
+    void registryWritesOneRowPerBlock() throws IOException {
+        MCMCMetricsRegistry.clear();
+        for (int blockID = 1; blockID <= 2; blockID++) {
+            MCMCBlockMetrics blockMetrics = new MCMCBlockMetrics("Sample \"A\", 1", blockID, OPERATIONS);
+            blockMetrics.recordProposal(1, true);
+            blockMetrics.finish();
+            MCMCMetricsRegistry.record(blockMetrics);
+        }
+        List<MCMCBlockMetrics> completedBlocks = MCMCMetricsRegistry.getCompletedBlocks();
+        MCMCMetricsRegistry.clear();
+
+        Path metricsPath = tempDir.resolve("metrics.csv");
+        MCMCMetricsRegistry.writeCSV(completedBlocks, metricsPath);
+        List<String> lines = Files.readAllLines(metricsPath);
+
+        assertEquals(3, lines.size());
+        int countOfColumns = lines.get(0).split(",").length;
+        assertTrue(lines.get(0).contains("changeI acceptance rate"));
+        assertTrue(lines.get(0).contains("Forward model p99 us"));
+        assertTrue(lines.get(2).startsWith("\"Sample \"\"A\"\", 1\",2,1,"));
+        // the quoted comma in the analysis name
+        assertEquals(countOfColumns + 1, lines.get(1).split(",").length);
+        assertEquals("plain", MCMCMetricsRegistry.csvField("plain"));
+        assertEquals("\"two\nlines\"", MCMCMetricsRegistry.csvField("two\nlines"));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockDataColumns.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleBlockDataColumnsTest {
+
+    private static SingleBlockRawDataSetRecord accumulateBlock(SingleBlockDataColumns columns, int blockID, int onPeakRows) {
+        columns.clear();
+        columns.startSegment(BASELINE_SEGMENT);
+        columns.add(3, 1, -3.8e5, 0.0, 0, 0, false, -1);
+        columns.add(5, 1, 1.1e5, 0.0, 0, 0, false, -1);
+        columns.startSegment(ONPEAK_FARADAY_SEGMENT);
+        int s1 = columns.sequenceIdIndex("S1");
+        int s2 = columns.sequenceIdIndex("S2");
+        for (int row = 0; row < onPeakRows; row++) {
+            columns.add(3, 1 + row / 10, 3.0e5 + row, 0.5 * row, row, 1 + row % 2, true, (0 == row % 3) ? s2 : s1);
+        }
+        columns.startSegment(ONPEAK_PHOTOMULTIPLIER_SEGMENT);
+        int s3 = columns.sequenceIdIndex("S3");
+        columns.sequenceIdIndex("S1");
+        columns.add(0, 1, 6.1e5, 100.0, 2, 3, true, s1);
+        columns.add(0, 1, 5.9e5, 101.0, 3, 3, true, s3);
+        return columns.toRawDataSetRecord(blockID, new double[0][0], new int[]{0}, Map.of());
+    }
+
+    @Test
+    void columnsFeedRecordArraysAndSegmentViews() {
+        SingleBlockDataColumns columns = new SingleBlockDataColumns();
+        // larger than the initial capacity, then reused for a smaller block
+        SingleBlockRawDataSetRecord large = accumulateBlock(columns, 1, 3000);
+        assertEquals(3004, large.blockRawDataArray().length);
+        SingleBlockRawDataSetRecord record = accumulateBlock(columns, 2, 4);
+
+        assertEquals(2, record.blockID());
+        assertArrayEquals(new double[]{-3.8e5, 1.1e5, 3.0e5, 3.0e5 + 1, 3.0e5 + 2, 3.0e5 + 3, 6.1e5, 5.9e5}, record.blockRawDataArray(), 0.0);
+        assertArrayEquals(new int[]{0, 0, 1, 2, 1, 2, 3, 3}, record.blockIsotopeOrdinalIndicesArray());
+        assertArrayEquals(new boolean[]{false, false, true, true, true, true, true, true}, record.blockIncludedIntensitiesArray());
+        assertEquals(2, record.getCountOfBaselineIntensities());
+        assertEquals(4, record.getCountOfOnPeakFaradayIntensities());
+
+        assertEquals(List.of(0.0, 1.5), record.onPeakFaradayDataSetMCMC().blockMapOfIdsToData().get("S2"));
+        assertEquals(List.of(0.5, 1.0), record.onPeakFaradayDataSetMCMC().blockMapOfIdsToData().get("S1"));
+        assertEquals(List.of(100.0), record.onPeakPhotoMultiplierDataSetMCMC().blockMapOfIdsToData().get("S1"));
+        assertEquals(List.of(101.0), record.onPeakPhotoMultiplierDataSetMCMC().blockMapOfIdsToData().get("S3"));
+        assertFalse(record.onPeakPhotoMultiplierDataSetMCMC().blockMapOfIdsToData().containsKey("S2"));
+        assertTrue(record.baselineDataSetMCMC().blockMapOfIdsToData().isEmpty());
+        assertEquals(List.of(0.5, 1.0, 100.0), record.blockMapIdsToDataTimes().get("S1"));
+        assertEquals(List.of("S1", "S2", "S3"), List.copyOf(record.blockMapIdsToDataTimes().keySet()));
+
+        assertEquals(List.of(6.1e5, 5.9e5), record.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList());
+        assertEquals(List.of(3, 5), record.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorList());
+        assertEquals(List.of(false, false), record.baselineDataSetMCMC().includedIntensitiesList());
+
+        // sculpting the block array leaves the segment lists alone
+        record.blockIncludedIntensitiesArray()[2] = false;
+        assertEquals(true, record.onPeakFaradayDataSetMCMC().includedIntensitiesList().get(0));
+
+        // the segment lists cannot write through to the shared block arrays
+        assertThrows(UnsupportedOperationException.class,
+                () -> record.onPeakFaradayDataSetMCMC().intensityAccumulatorList().set(0, 0.0));
+        assertThrows(UnsupportedOperationException.class,
+                () -> record.baselineDataSetMCMC().timeIndexAccumulatorList().set(0, 7));
+        assertThrows(UnsupportedOperationException.class,
+                () -> record.onPeakFaradayDataSetMCMC().blockMapOfIdsToData().get("S1").set(0, 0.0));
+        assertEquals(3.0e5, record.blockRawDataArray()[2], 0.0);
+    }
+
+    @Test
+    void segmentsMustBeStartedInOrder() {
+        SingleBlockDataColumns columns = new SingleBlockDataColumns();
+        assertThrows(IllegalStateException.class, () -> columns.startSegment(ONPEAK_FARADAY_SEGMENT));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC.modelInitData;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleBlockForwardModelTest {
+
+    // 2 baseline, 4 on-peak Faraday and 3 photomultiplier rows; isotope 3 is the denominator
+    final double[][] knotInterpolation = {
+            {1.0, 0.0, 0.0},
+            {0.75, 0.25, 0.0},
+            {0.0, 0.5, 0.5},
+            {0.0, 0.0, 1.0}};
+    final int[] detectorOrdinals = {3, 5, 3, 5, 3, 5, 0, 0, 0};
+    final int[] isotopeOrdinals = {0, 0, 1, 2, 3, 1, 1, 3, 2};
+    final int[] timeIndices = {0, 0, 0, 1, 2, 3, 1, 2, 3};
+    final Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = Map.of(3, 0, 5, 1);
+
+    private static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord rawDataRecord(int count) {
+        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
+                1, List.of(), List.of(), Collections.nCopies(count, 0.0), List.of(), List.of(), List.of(), List.of(), Map.of());
+    }
+
+    private SingleBlockModelRecord modelRecord(double[] logRatios, double[] I0, double[] baselineMeans, double dfGain) {
+        return new SingleBlockModelRecord(1, 2, 3, 3, null, baselineMeans, new double[2], dfGain,
+                mapDetectorOrdinalToFaradayIndex, logRatios, null, null, null, null, I0, null);
+    }
+
+    @Test
+    void matchesModelInitData() {
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = new SingleBlockRawDataSetRecord(
+                1, rawDataRecord(2), rawDataRecord(4), rawDataRecord(3),
+                knotInterpolation, new double[9], new int[9], new double[9], new boolean[9],
+                detectorOrdinals, isotopeOrdinals, timeIndices, new int[]{0}, Map.of(), Map.of());
+        SingleBlockForwardModel forwardModel = SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+        double[] dataModel = new double[forwardModel.getCountOfData()];
+
+        SingleBlockModelRecord x = modelRecord(new double[]{0.0137, -2.1}, new double[]{6.1e5, 6.0e5, 5.9e5}, new double[]{-3.9e5, 1.0e5}, 0.9);
+        forwardModel.modelData(x, dataModel);
+        assertArrayEquals(modelInitData(x, singleBlockRawDataSetRecord), dataModel, 0.0);
+
+        // same log ratios exercise the exp cache, new ones must invalidate it
+        SingleBlockModelRecord x2 = modelRecord(x.logRatios(), new double[]{5.0e5, 4.0e5, 3.0e5}, new double[]{-1.0e2, 2.0e5}, 0.95);
+        forwardModel.modelData(x2, dataModel);
+        assertArrayEquals(modelInitData(x2, singleBlockRawDataSetRecord), dataModel, 0.0);
+
+        SingleBlockModelRecord x3 = modelRecord(new double[]{0.5, -1.0}, x2.I0(), x2.baselineMeansArray(), 0.95);
+        forwardModel.modelData(x3, dataModel);
+        assertArrayEquals(modelInitData(x3, singleBlockRawDataSetRecord), dataModel, 0.0);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleBlockInitGridSearchTest {
+
+    // 2 baseline, 4 on-peak Faraday and 3 photomultiplier rows; isotope 3 is the denominator
+    final double[][] knotInterpolation = {
+            {1.0, 0.0, 0.0},
+            {0.75, 0.25, 0.0},
+            {0.0, 0.5, 0.5},
+            {0.0, 0.0, 1.0}};
+    final int[] detectorOrdinals = {3, 5, 3, 5, 3, 5, 0, 0, 0};
+    final int[] isotopeOrdinals = {0, 0, 1, 2, 3, 1, 1, 3, 2};
+    final int[] timeIndices = {0, 0, 0, 1, 2, 3, 1, 2, 3};
+    final double[] data = {-3.8e5, 1.1e5, 3.0e5, 1.8e5, 2.7e5, 7.6e5, 6.1e5, 5.9e5, 7.3e4};
+    final double[] dataSignalNoise = {2.5e7, 2.4e7, 3.0e7, 2.0e7, 2.6e7, 4.0e7, 6.0e5, 5.9e5, 7.0e4};
+    final Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = Map.of(3, 0, 5, 1);
+
+    private static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord rawDataRecord(int count) {
+        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
+                1, List.of(), List.of(), Collections.nCopies(count, 0.0), List.of(), List.of(), List.of(), List.of(), Map.of());
+    }
+
+    private double fullMisfit(SingleBlockForwardModel forwardModel, double[] logRatios, double[] I0, double[] baselineMeans, double dfGain) {
+        double[] dataModel = new double[data.length];
+        forwardModel.modelData(logRatios, I0, baselineMeans, dfGain, dataModel);
+        double sum = 0.0;
+        for (int row = 0; row < data.length; row++) {
+            sum += Math.pow(data[row] - dataModel[row], 2.0) / dataSignalNoise[row];
+        }
+        return sum;
+    }
+
+    @Test
+    void relativeMisfitsMatchFullEvaluation() {
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = new SingleBlockRawDataSetRecord(
+                1, rawDataRecord(2), rawDataRecord(4), rawDataRecord(3),
+                knotInterpolation, new double[9], new int[9], data, new boolean[9],
+                detectorOrdinals, isotopeOrdinals, timeIndices, new int[]{0}, Map.of(), Map.of());
+        SingleBlockForwardModel forwardModel = SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+        double[] logRatios = {0.0137, -2.1};
+        double[] I0 = {6.1e5, 6.0e5, 5.9e5};
+        double[] baselineMeans = {-3.9e5, 1.0e5};
+        double dfGain = 0.9;
+        SingleBlockInitGridSearch gridSearch = new SingleBlockInitGridSearch(
+                forwardModel, data, dataSignalNoise, logRatios, I0, baselineMeans, dfGain);
+
+        assertEquals(8, gridSearch.getCountOfParameters());
+        // knot 0 only reaches the on-peak rows of the first two times
+        assertEquals(3, gridSearch.getCountOfRows(2));
+        // the gain reaches every on-peak Faraday row
+        assertEquals(4, gridSearch.getCountOfRows(7));
+
+        double[] offsets = {-0.02, 0.0, 0.01, 0.03};
+        double[] scales = {1.0, 1.0, 1.0e5, 1.0e5, 1.0e5, 1.0e5, 1.0e5, 1.0};
+        for (int parameterIndex = 0; parameterIndex < gridSearch.getCountOfParameters(); parameterIndex++) {
+            double[] scaledOffsets = new double[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                scaledOffsets[i] = offsets[i] * scales[parameterIndex];
+            }
+            double[] misfits = gridSearch.misfits(parameterIndex, scaledOffsets);
+            double[] fullMisfits = new double[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                double[] testLogRatios = logRatios.clone();
+                double[] testI0 = I0.clone();
+                double[] testBaselineMeans = baselineMeans.clone();
+                double testGain = dfGain;
+                if (parameterIndex < 2) {
+                    testLogRatios[parameterIndex] += scaledOffsets[i];
+                } else if (parameterIndex < 5) {
+                    testI0[parameterIndex - 2] += scaledOffsets[i];
+                } else if (parameterIndex < 7) {
+                    testBaselineMeans[parameterIndex - 5] += scaledOffsets[i];
+                } else {
+                    testGain += scaledOffsets[i];
+                }
+                fullMisfits[i] = fullMisfit(forwardModel, testLogRatios, testI0, testBaselineMeans, testGain);
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                assertEquals(fullMisfits[i] - fullMisfits[1], misfits[i] - misfits[1], 1e-9 * fullMisfits[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleBlockLikelihoodTest {
+
+    // 2 baseline, 4 on-peak Faraday and 3 photomultiplier rows; isotope 3 is the denominator
+    final double[][] knotInterpolation = {
+            {1.0, 0.0, 0.0},
+            {0.75, 0.25, 0.0},
+            {0.0, 0.5, 0.5},
+            {0.0, 0.0, 1.0}};
+    final int[] detectorOrdinals = {3, 5, 3, 5, 3, 5, 0, 0, 0};
+    final int[] isotopeOrdinals = {0, 0, 1, 2, 3, 1, 1, 3, 2};
+    final int[] timeIndices = {0, 0, 0, 1, 2, 3, 1, 2, 3};
+    final double[] data = {-3.8e5, 1.1e5, 3.0e5, 1.8e5, 2.7e5, 7.6e5, 6.1e5, 5.9e5, 7.3e4};
+    final double[] baselineMultiplier = {1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 0.1, 0.1, 0.1};
+    final double[] dataSignalNoise = {2.5e7, 2.4e7, 3.0e7, 2.0e7, 2.6e7, 4.0e7, 6.0e5, 5.9e5, 7.0e4};
+    final Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = Map.of(3, 0, 5, 1);
+
+    private static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord rawDataRecord(int count) {
+        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
+                1, List.of(), List.of(), Collections.nCopies(count, 0.0), List.of(), List.of(), List.of(), List.of(), Map.of());
+    }
+
+    private SingleBlockModelRecord modelRecord(double[] logRatios, double[] I0, double[] baselineMeans, double dfGain) {
+        return new SingleBlockModelRecord(1, 2, 3, 3, null, baselineMeans, new double[2], dfGain,
+                mapDetectorOrdinalToFaradayIndex, logRatios, null, null, null, null, I0, null);
+    }
+
+    private double fullWeightedMisfit(SingleBlockForwardModel forwardModel, SingleBlockModelRecord x) {
+        return fullWeightedMisfit(forwardModel, x, 1.0);
+    }
+
+    /**
+     * As MCMCProcess computed E2 before the delta likelihood, in one pass in row order.
+     */
+    private double fullWeightedMisfit(SingleBlockForwardModel forwardModel, SingleBlockModelRecord x, double temperature) {
+        double[] dataModel = forwardModel.modelData(x);
+        double sum = 0.0;
+        for (int row = 0; row < data.length; row++) {
+            sum += Math.pow(data[row] - dataModel[row], 2) * baselineMultiplier[row] / dataSignalNoise[row] / temperature;
+        }
+        return sum;
+    }
+
+    private SingleBlockRawDataSetRecord rawDataSetRecord() {
+        return new SingleBlockRawDataSetRecord(
+                1, rawDataRecord(2), rawDataRecord(4), rawDataRecord(3),
+                knotInterpolation, new double[9], new int[9], data, new boolean[9],
+                detectorOrdinals, isotopeOrdinals, timeIndices, new int[]{0}, Map.of(), Map.of());
+    }
+
+    @Test
+    void proposalsChangingEveryGroupMatchTheFullPassExactly() {
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = rawDataSetRecord();
+        SingleBlockForwardModel reference = SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+        SingleBlockModelRecord x = modelRecord(new double[]{0.0137, -2.1}, new double[]{6.1e5, 6.0e5, 5.9e5}, new double[]{-3.9e5, 1.0e5}, 0.9);
+        SingleBlockLikelihood likelihood = new SingleBlockLikelihood(
+                SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex),
+                data, baselineMultiplier, dataSignalNoise, x);
+
+        // as every step of MCMCProcess with allFlag set
+        SingleBlockModelRecord x2 = modelRecord(new double[]{0.0141, -2.2}, new double[]{6.0e5, 6.2e5, 5.8e5}, new double[]{-3.85e5, 1.02e5}, 0.93);
+        likelihood.propose(x2);
+        assertEquals(9, likelihood.getCountOfRowsRecomputed());
+        assertEquals(fullWeightedMisfit(reference, x2, 3.7), likelihood.getProposedWeightedMisfit(3.7), 0.0);
+        double[] dataModel = reference.modelData(x2);
+        double unWeighted = 0.0;
+        double noiseWeighted = 0.0;
+        for (int row = 0; row < data.length; row++) {
+            unWeighted += Math.pow(data[row] - dataModel[row], 2);
+            noiseWeighted += Math.pow(data[row] - dataModel[row], 2) / dataSignalNoise[row];
+        }
+        assertEquals(unWeighted, likelihood.getProposedUnWeightedMisfit(), 0.0);
+        assertEquals(noiseWeighted, likelihood.getProposedNoiseWeightedMisfit(), 0.0);
+        likelihood.acceptProposal();
+        assertArrayEquals(dataModel, likelihood.getCurrentDataModel(), 0.0);
+
+        // the group sums kept by the full pass serve the next partial proposal, to within rounding
+        SingleBlockModelRecord x3 = modelRecord(x2.logRatios(), x2.I0(), new double[]{-3.8e5, 1.02e5}, 0.93);
+        likelihood.propose(x3);
+        assertEquals(3, likelihood.getCountOfRowsRecomputed());
+        assertEquals(fullWeightedMisfit(reference, x3, 3.7), likelihood.getProposedWeightedMisfit(3.7), 1e-12 * fullWeightedMisfit(reference, x3, 3.7));
+    }
+
+    @Test
+    void deltaMisfitsMatchFullEvaluation() {
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = rawDataSetRecord();
+        SingleBlockForwardModel reference = SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex);
+        SingleBlockModelRecord x = modelRecord(new double[]{0.0137, -2.1}, new double[]{6.1e5, 6.0e5, 5.9e5}, new double[]{-3.9e5, 1.0e5}, 0.9);
+        SingleBlockLikelihood likelihood = new SingleBlockLikelihood(
+                SingleBlockForwardModel.compile(singleBlockRawDataSetRecord, mapDetectorOrdinalToFaradayIndex),
+                data, baselineMultiplier, dataSignalNoise, x);
+
+        // one baseline moves: its baseline row and its two on-peak Faraday rows
+        SingleBlockModelRecord x2 = modelRecord(x.logRatios(), x.I0(), new double[]{-3.85e5, 1.0e5}, 0.9);
+        likelihood.propose(x2);
+        assertEquals(3, likelihood.getCountOfRowsRecomputed());
+        assertEquals(fullWeightedMisfit(reference, x2), likelihood.getProposedWeightedMisfit(1.0), 1e-9 * fullWeightedMisfit(reference, x2));
+        likelihood.acceptProposal();
+        assertArrayEquals(reference.modelData(x2), likelihood.getCurrentDataModel(), 0.0);
+
+        // a rejected proposal leaves the current model alone
+        SingleBlockModelRecord x3 = modelRecord(new double[]{0.02, -2.1}, new double[]{5.0e5, 6.0e5, 5.9e5}, x2.baselineMeansArray(), 0.95);
+        likelihood.propose(x3);
+        assertEquals(7, likelihood.getCountOfRowsRecomputed());
+        assertEquals(fullWeightedMisfit(reference, x3), likelihood.getProposedWeightedMisfit(1.0), 1e-9 * fullWeightedMisfit(reference, x3));
+
+        SingleBlockModelRecord x4 = modelRecord(x2.logRatios(), x2.I0(), x2.baselineMeansArray(), 0.92);
+        likelihood.propose(x4);
+        assertEquals(4, likelihood.getCountOfRowsRecomputed());
+        assertEquals(fullWeightedMisfit(reference, x4), likelihood.getProposedWeightedMisfit(1.0), 1e-9 * fullWeightedMisfit(reference, x4));
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MCMC2EngineTest {
+
+    @Test
+    void gelmanRubinRHat() {
+        // two chains of four post burn-in models after one burn-in model
+        double[][][] chainModels = {
+                {{9.0, 1.0, 2.0, 3.0, 4.0}, {9.0, 1.0, 2.0, 1.0, 2.0}},
+                {{9.0, 2.0, 3.0, 4.0, 5.0}, {9.0, 2.0, 1.0, 2.0, 1.0}}};
+        double[] rHat = MCMC2Engine.gelmanRubinRHat(chainModels, 1, 5);
+
+        // W = 5/3, B/n = 1/2, varPlus = 3/4 * 5/3 + 1/2
+        assertEquals(Math.sqrt((1.25 + 0.5) / (5.0 / 3.0)), rHat[0], 1e-15);
+        // identical chain means leave only the within-chain term
+        assertEquals(Math.sqrt(0.75), rHat[1], 1e-15);
+        assertTrue(rHat[1] < MCMC2Engine.DEFAULT_R_HAT_THRESHOLD);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.peakShapes;
+
+import org.cirdles.tripoli.plots.PlotBuilder;
+import org.cirdles.tripoli.plots.linePlots.PeakShapesOverlayBuilder;
+import org.cirdles.tripoli.plots.linePlots.PeakShapesOverlayRecord;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakShapeServiceTest {
+
+    private static final String PEAK_FILE =
+            "/org/cirdles/tripoli/dataSourceProcessors/dataSources/peakShapes/DVCC18-9 z9 Pb-570-PKC-205Pb-PM-S2B7C1.TXT";
+
+    @TempDir
+    Path tempDir;
+
+    private File copyPeakFile(String fileName) throws IOException {
+        Path peakFile = tempDir.resolve(fileName);
+        try (InputStream inputStream = PeakShapeServiceTest.class.getResourceAsStream(PEAK_FILE)) {
+            Files.copy(inputStream, peakFile);
+        }
+        return peakFile.toFile();
+    }
+
+    @Test
+    void fitsMatchTheSerialProcessAndAreCachedByContent() throws IOException, TripoliException {
+        PeakShapeService.clearCache();
+        File peakFile = copyPeakFile("A-S2B7C1.TXT");
+        File sameContentFile = copyPeakFile("B-S2B7C1.TXT");
+
+        PlotBuilder[] plotBuilders = PeakShapeService.fitBlock(7, List.of(peakFile, sameContentFile));
+
+        PeakShapesOverlayRecord serial = ((PeakShapesOverlayBuilder) PeakShapeProcess.beamShapeCollectorWidth(
+                7, PeakShapeProcess.createPeakShapeProcessor().prepareInputDataModelFromFile(peakFile.toPath())))
+                .getPeakShapesOverlayRecord();
+        PeakShapesOverlayRecord fitted = ((PeakShapesOverlayBuilder) plotBuilders[0]).getPeakShapesOverlayRecord();
+
+        assertEquals(2, plotBuilders.length);
+        assertNotSame(plotBuilders[0], plotBuilders[1]);
+        assertSame(fitted, ((PeakShapesOverlayBuilder) plotBuilders[1]).getPeakShapesOverlayRecord());
+        assertEquals(serial.peakWidth(), fitted.peakWidth());
+        assertArrayEquals(serial.beamYData(), fitted.beamYData());
+        assertArrayEquals(serial.gBeamYData(), fitted.gBeamYData());
+        assertSame(fitted, ((PeakShapesOverlayBuilder) PeakShapeService.fitBlock(7, List.of(peakFile))[0]).getPeakShapesOverlayRecord());
+        assertNotSame(fitted, ((PeakShapesOverlayBuilder) PeakShapeService.fitBlock(8, List.of(peakFile))[0]).getPeakShapesOverlayRecord());
+    }
+
+    @Test
+    void callersAreGivenCopiesOfTheCachedPlots() throws IOException, TripoliException {
+        PeakShapeService.clearCache();
+        File peakFile = copyPeakFile("C-S2B7C1.TXT");
+
+        PlotBuilder plotBuilder = PeakShapeService.fitBlock(7, List.of(peakFile))[0];
+        plotBuilder.setDisplayed(false);
+        plotBuilder.getTitle()[0] = "changed";
+
+        PlotBuilder plotBuilderAgain = PeakShapeService.fitBlock(7, List.of(peakFile))[0];
+        assertTrue(plotBuilderAgain.isDisplayed());
+        assertNotEquals("changed", plotBuilderAgain.getTitle()[0]);
+    }
+
+    @Test
+    void unreadableFileFailsTheBlock() {
+        File missingFile = tempDir.resolve("missing-S2B7C1.TXT").toFile();
+        assertThrows(TripoliException.class, () -> PeakShapeService.fitBlock(7, List.of(missingFile)));
+    }
+}
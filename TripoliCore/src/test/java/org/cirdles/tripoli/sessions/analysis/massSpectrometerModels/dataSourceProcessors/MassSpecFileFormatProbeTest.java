@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.cirdles.tripoli.constants.MassSpectrometerContextEnum.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MassSpecFileFormatProbeTest {
+
+    private static final String TIMSDP_HEAD = "#HEADER\n"
+            + "Analysis,Pb Sample 1\n"
+            + "Version,2.0.12\n"
+            + "Filename,C:\\Data\\PbSample1.TIMSDP\n"
+            + "MethodName,Pb_Daly\n"
+            + "MethodPath,C:\\Methods\n"
+            + "FolderPath,C:\\Data\n"
+            + "IsoWorksMethod,Pb_Daly\n"
+            + "TFEMode,False\n"
+            + "TFEMonitorPeak,\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void signaturesMatchInContextOrder() {
+        assertEquals(TRITON_EXP, MassSpecFileFormatProbe.matchSignatures(List.of("Triton Analysis Data Report", "")));
+        assertEquals(OGTRIPOLI, MassSpecFileFormatProbe.matchSignatures(
+                List.of("Tripoli tab-delimited output of processed data for: Pb Sample 1")));
+        assertEquals(PHOENIX_TIMSDP_CASE1, MassSpecFileFormatProbe.matchSignatures(List.of(TIMSDP_HEAD.split("\n"))));
+        assertEquals(UNKNOWN, MassSpecFileFormatProbe.matchSignatures(List.of()));
+    }
+
+    @Test
+    void probeReadsOnlyTheHead() throws IOException {
+        Path dataFile = tempDir.resolve("PbSample1.TIMSDP");
+        Files.writeString(dataFile, TIMSDP_HEAD + "#COLLECTORS\n" + "1,2,3\n".repeat(50_000), Charset.defaultCharset());
+        assertEquals(PHOENIX_TIMSDP_CASE1, MassSpecFileFormatProbe.probe(dataFile));
+
+        // a signature cut short by the end of the file is no match
+        Path shortFile = tempDir.resolve("Short.TIMSDP");
+        Files.writeString(shortFile, "#HEADER\nAnalysis,Pb Sample 1\n", Charset.defaultCharset());
+        assertEquals(UNKNOWN, MassSpecFileFormatProbe.probe(shortFile));
+
+        // one line longer than the probe
+        Path longLineFile = tempDir.resolve("LongLine.txt");
+        Files.writeString(longLineFile, "x".repeat(2 * MassSpecFileFormatProbe.MAX_PROBE_BYTES), Charset.defaultCharset());
+        assertEquals(UNKNOWN, MassSpecFileFormatProbe.probe(longLineFile));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix;
+
+import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
+import org.cirdles.tripoli.plots.compoundPlotBuilders.PlotBlockCyclesRecord;
+import org.cirdles.tripoli.sessions.analysis.BlockStatsRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.cirdles.tripoli.constants.TripoliConstants.R18O_16O_DEFAULT_OXIDE_CORRECTION;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveDataBlockBufferTest {
+
+    private static final int COLUMN_COUNT = 6;
+    // running sums against the two-pass statistics of generateBlockStatsRecord
+    private static final double STATISTICS_TOLERANCE = 1e-12;
+
+    @Test
+    void appendedBatchesMatchFullRebuild() {
+        Random random = new Random(3);
+        UserFunction[] userFunctions = {
+                new UserFunction("Pb206", 2),
+                new UserFunction("270/267", 3, true, true),
+                new UserFunction("270/267oc", COLUMN_COUNT + 2, true, true),
+                new UserFunction("206/204", 4, true, true)};
+        PlotBlockCyclesRecord[] records = new PlotBlockCyclesRecord[userFunctions.length];
+        List<double[]> cycles = new ArrayList<>();
+
+        LiveDataBlockBuffer liveDataBlockBuffer = new LiveDataBlockBuffer();
+        liveDataBlockBuffer.setBlockID(2);
+        while (cycles.size() < 120) {
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                int cycleIndex = cycles.size() + 1;
+                double[] row = liveDataBlockBuffer.cycleRow(cycleIndex, COLUMN_COUNT);
+                row[0] = cycleIndex;
+                row[1] = cycleIndex;
+                row[2] = random.nextGaussian();
+                row[3] = 0.5 + random.nextDouble();
+                // some non-positive ratios
+                row[4] = random.nextDouble() - 0.2;
+                row[5] = 0.3 + random.nextDouble();
+                cycles.add(row.clone());
+            }
+            MassSpecOutputBlockRecordLite blockRecordLite = liveDataBlockBuffer.blockRecordLite(3, 5);
+            MassSpecOutputBlockRecordLite rebuilt = new MassSpecOutputBlockRecordLite(2, cycles.toArray(new double[0][]))
+                    .expandForUraniumOxideCorrection(3, 5, R18O_16O_DEFAULT_OXIDE_CORRECTION);
+            assertTrue(Arrays.deepEquals(rebuilt.cycleData(), blockRecordLite.cycleData()));
+
+            for (int u = 0; u < userFunctions.length; u++) {
+                if ((null != records[u]) && (0 == random.nextInt(3))) {
+                    // user sculpting between batches
+                    int cycle = random.nextInt(records[u].cyclesIncluded().length);
+                    records[u] = records[u].updateCyclesIncluded(records[u].cyclesIncluded().clone());
+                    records[u].cyclesIncluded()[cycle] = !records[u].cyclesIncluded()[cycle];
+                }
+                boolean[] expectedIncluded = new boolean[cycles.size()];
+                Arrays.fill(expectedIncluded, true);
+                if (null != records[u]) {
+                    System.arraycopy(records[u].cyclesIncluded(), 0, expectedIncluded, 0, records[u].cyclesIncluded().length);
+                }
+
+                records[u] = liveDataBlockBuffer.updateBlockCyclesRecord(userFunctions[u], blockRecordLite.cycleData(), records[u]);
+                double[] expectedMeans = new double[cycles.size()];
+                for (int row = 0; row < expectedMeans.length; row++) {
+                    expectedMeans[row] = rebuilt.cycleData()[row][userFunctions[u].getColumnIndex()];
+                }
+                assertEquals(2, records[u].blockID());
+                assertArrayEquals(expectedMeans, records[u].cycleMeansData());
+                assertArrayEquals(expectedIncluded, records[u].cyclesIncluded());
+            }
+            liveDataBlockBuffer.markPublished();
+            assertFalse(liveDataBlockBuffer.hasChanges());
+
+            for (int u = 0; u < userFunctions.length; u++) {
+                BlockStatsRecord running = liveDataBlockBuffer.blockStatsRecord(userFunctions[u]);
+                BlockStatsRecord expected = BlockStatsRecord.generateBlockStatsRecord(2, records[u].blockIncluded(),
+                        userFunctions[u].isTreatAsIsotopicRatio(), userFunctions[u].isInverted(),
+                        records[u].cycleMeansData(), records[u].cyclesIncluded().clone());
+                assertEquals(expected.blockIncluded(), running.blockIncluded());
+                assertArrayEquals(expected.cyclesIncluded(), running.cyclesIncluded());
+                assertEquals(expected.mean(), running.mean(), STATISTICS_TOLERANCE);
+                assertEquals(expected.variance(), running.variance(), STATISTICS_TOLERANCE);
+                assertEquals(expected.standardError(), running.standardError(), STATISTICS_TOLERANCE);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.phoenix;
+
+import org.cirdles.commons.util.ResourceExtractor;
+import org.cirdles.tripoli.Tripoli;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordLite;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.file.DelimitedDataFileReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The streaming extractors against Files.readAllLines, String.split and the parse methods of Integer and Double,
+ * as the extractors read the sample files before they streamed.
+ */
+class PhoenixMassSpecTest {
+
+    private static final ResourceExtractor RESOURCE_EXTRACTOR
+            = new ResourceExtractor(Tripoli.class);
+    private static final String SYNTHETIC_FOLDER = "/org/cirdles/tripoli/dataSourceProcessors/dataSources/synthetic/twoIsotopeSyntheticData/";
+    private static final String[] VERSION_1_0_SAMPLES = {
+            "SyntheticDataset_01.txt", "SyntheticDataset_02.txt", "SyntheticDataset_03.txt", "SyntheticDataset_04.txt",
+            "SyntheticDataset_05.txt", "SyntheticDataset_06.txt", "SyntheticDataset_07.txt", "SyntheticDataset_08.txt",
+            "SyntheticDataset_12.txt"};
+    private static final String PHOENIX_FOLDER = "/org/cirdles/tripoli/dataSourceProcessors/dataSources/ogTripoli/isotopxPhoenixTIMS/";
+    private static final String[] TIMSDP_SAMPLES = {
+            "kU_IGL/isolinxVersion1/NBS981_210325b-392.TIMSDP",
+            "kU_IGL/isolinxVersion2/NBS981_230024a-145.TIMSDP",
+            "purdue/WH205_z4_Pb-654.TIMSDP"};
+
+    @TempDir
+    Path tempDir;
+
+    private static Path extractResource(String resourcePath) {
+        return RESOURCE_EXTRACTOR.extractResourceAsFile(resourcePath).toPath();
+    }
+
+    /**
+     * @return the data rows of a Version 1.00 file, split and grouped by block as they appear
+     */
+    private static List<List<String[]>> version_1_0_BlockRows(List<String> lines) {
+        List<List<String[]>> blockRows = new ArrayList<>();
+        int lineIndex = 0;
+        while (!lines.get(lineIndex).startsWith("#START")) {
+            lineIndex++;
+        }
+        // past the column names
+        lineIndex += 2;
+        String currentBlock = null;
+        for (; (lineIndex < lines.size()) && !lines.get(lineIndex).startsWith("#END"); lineIndex++) {
+            if (!lines.get(lineIndex).trim().isBlank()) {
+                String[] lineSplit = lines.get(lineIndex).split(",");
+                if (!lineSplit[1].trim().equals(currentBlock)) {
+                    currentBlock = lineSplit[1].trim();
+                    blockRows.add(new ArrayList<>());
+                }
+                blockRows.get(blockRows.size() - 1).add(lineSplit);
+            }
+        }
+        // an incomplete last block, ending in baseline cycle 0, is not extracted
+        List<String[]> lastBlock = blockRows.get(blockRows.size() - 1);
+        if (0 == Integer.parseInt(lastBlock.get(lastBlock.size() - 1)[2].trim())) {
+            blockRows.remove(lastBlock);
+        }
+        return blockRows;
+    }
+
+    private static void assertBlockMatchesRows(MassSpecOutputBlockRecordFull blockRecord, List<String[]> rows) {
+        int baselineCount = blockRecord.baselineIDs().length;
+        assertEquals(Integer.parseInt(rows.get(0)[1].trim()), blockRecord.blockID());
+        assertEquals(rows.size(), baselineCount + blockRecord.onPeakIDs().length);
+        for (int row = 0; row < rows.size(); row++) {
+            String[] fields = rows.get(row);
+            boolean baseline = row < baselineCount;
+            int index = baseline ? row : row - baselineCount;
+            assertEquals(fields[0].trim(), baseline ? blockRecord.baselineIDs()[index] : blockRecord.onPeakIDs()[index]);
+            assertEquals(Integer.parseInt(fields[2].trim()),
+                    baseline ? blockRecord.baselineCycleNumbers()[index] : blockRecord.onPeakCycleNumbers()[index]);
+            assertEquals(Integer.parseInt(fields[3].trim()),
+                    baseline ? blockRecord.baselineIntegrationNumbers()[index] : blockRecord.onPeakIntegrationNumbers()[index]);
+            assertEquals(Double.parseDouble(fields[4]),
+                    baseline ? blockRecord.baselineTimeStamps()[index] : blockRecord.onPeakTimeStamps()[index], 0.0);
+            assertEquals(Double.parseDouble(fields[5]),
+                    baseline ? blockRecord.baselineMasses()[index] : blockRecord.onPeakMasses()[index], 0.0);
+            assertArrayEquals(Arrays.stream(fields, 6, fields.length).mapToDouble(Double::parseDouble).toArray(),
+                    baseline ? blockRecord.baselineIntensities()[index] : blockRecord.onPeakIntensities()[index], 0.0);
+        }
+    }
+
+    @Test
+    void version_1_0_SamplesMatchSplitParsing() throws IOException, TripoliException {
+        for (String sample : VERSION_1_0_SAMPLES) {
+            Path dataFile = extractResource(SYNTHETIC_FOLDER + sample);
+            List<List<String[]>> blockRows = version_1_0_BlockRows(Files.readAllLines(dataFile, Charset.defaultCharset()));
+            for (boolean memoryMapped : new boolean[]{false, true}) {
+                MassSpecExtractedData massSpecExtractedData;
+                try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFile, Charset.defaultCharset(), memoryMapped)) {
+                    massSpecExtractedData = PhoenixMassSpec.extractMetaAndBlockDataFromFileVersion_1_0(reader);
+                }
+                assertEquals(blockRows.size(), massSpecExtractedData.getBlocksDataFull().size(), sample);
+                for (List<String[]> rows : blockRows) {
+                    assertBlockMatchesRows(
+                            massSpecExtractedData.getBlocksDataFull().get(Integer.parseInt(rows.get(0)[1].trim())), rows);
+                }
+            }
+        }
+    }
+
+    @Test
+    void timsdpSamplesMatchSplitParsing() throws IOException, TripoliException {
+        for (String sample : TIMSDP_SAMPLES) {
+            Path dataFile = extractResource(PHOENIX_FOLDER + sample);
+            List<String> lines = Files.readAllLines(dataFile, Charset.defaultCharset());
+            List<double[]> expectedCycles = new ArrayList<>();
+            int lineIndex = lines.indexOf("#CYCLES");
+            // past the column names
+            lineIndex += 2;
+            for (; !lines.get(lineIndex).startsWith("#"); lineIndex++) {
+                if (!lines.get(lineIndex).trim().isBlank()) {
+                    expectedCycles.add(Arrays.stream(lines.get(lineIndex).split(",")).mapToDouble(Double::parseDouble).toArray());
+                }
+            }
+
+            for (boolean memoryMapped : new boolean[]{false, true}) {
+                MassSpecExtractedData massSpecExtractedData;
+                try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFile, Charset.defaultCharset(), memoryMapped)) {
+                    massSpecExtractedData = PhoenixMassSpec.extractDataFromFileVersion_2_TIMSDP(reader);
+                }
+                List<double[]> extractedCycles = new ArrayList<>();
+                for (MassSpecOutputBlockRecordLite blockRecordLite : massSpecExtractedData.getBlocksDataLite().values()) {
+                    extractedCycles.addAll(Arrays.asList(blockRecordLite.cycleData()));
+                }
+                assertEquals(expectedCycles.size(), extractedCycles.size(), sample);
+                for (int cycle = 0; cycle < expectedCycles.size(); cycle++) {
+                    assertArrayEquals(expectedCycles.get(cycle), extractedCycles.get(cycle), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void malformedRowIsReportedNotDropped() throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(
+                extractResource(SYNTHETIC_FOLDER + "SyntheticDataset_05.txt"), Charset.defaultCharset()));
+        int lineIndex = 0;
+        while (!lines.get(lineIndex).startsWith("#START")) {
+            lineIndex++;
+        }
+        // a time stamp that does not parse, in the middle of the first block
+        int malformedIndex = lineIndex + 7;
+        String[] lineSplit = lines.get(malformedIndex).split(",");
+        lineSplit[4] = "0.5x";
+        lines.set(malformedIndex, String.join(",", lineSplit));
+        Path dataFile = tempDir.resolve("malformed.txt");
+        Files.write(dataFile, lines, Charset.defaultCharset());
+
+        TripoliException exception = assertThrows(TripoliException.class,
+                () -> PhoenixMassSpec.extractMetaAndBlockDataFromFileVersion_1_0(dataFile));
+        assertTrue(exception.getMessage().contains("line " + (malformedIndex + 1)));
+        assertTrue(exception.getCause() instanceof NumberFormatException);
+    }
+}
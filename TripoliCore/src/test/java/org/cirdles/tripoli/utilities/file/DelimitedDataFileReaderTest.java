@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimitedDataFileReaderTest {
+
+    private static final String CONTENTS = "#CYCLES\r\n"
+            + "Cycle,Time,204Pb,205Pb\r\n"
+            + "1,207.285,1.089091156e+004,-3.853499649e-001\r\n"
+            + "\r\n"
+            + "12, 237.465 ,0.1,1.7976931348623157E308,-0,NaN,,5,,\n"
+            + "BL1, 1, 0, 0, 123456789012345678,.5,7.,1e-400\r"
+            + "#END";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesReadAllLinesAndSplit() throws IOException {
+        Path dataFile = tempDir.resolve("data.TIMSDP");
+        Files.writeString(dataFile, CONTENTS, StandardCharsets.UTF_8);
+        List<String> expectedLines = Files.readAllLines(dataFile, StandardCharsets.UTF_8);
+
+        for (boolean memoryMapped : new boolean[]{false, true}) {
+            try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFile, StandardCharsets.UTF_8, memoryMapped)) {
+                assertEquals(memoryMapped, reader.isMemoryMapped());
+                for (String expectedLine : expectedLines) {
+                    assertTrue(reader.nextLine());
+                    assertEquals(expectedLine, reader.line());
+                    assertEquals(expectedLine.trim().isBlank(), reader.isBlank());
+                    assertEquals(expectedLine.startsWith("#"), reader.startsWith("#"));
+                    String[] fields = expectedLine.split(",");
+                    assertEquals(fields.length, reader.fieldCount());
+                    for (int i = 0; i < fields.length; i++) {
+                        assertEquals(fields[i], reader.field(i));
+                    }
+                }
+                assertFalse(reader.nextLine());
+            }
+        }
+    }
+
+    @Test
+    void numericFieldsMatchParse() throws IOException {
+        Path dataFile = tempDir.resolve("data.txt");
+        Files.writeString(dataFile, CONTENTS, StandardCharsets.UTF_8);
+        try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFile, StandardCharsets.UTF_8)) {
+            reader.nextLine();
+            reader.nextLine();
+            reader.nextLine();
+            assertEquals(1, reader.intField(0));
+            assertArrayEquals(new double[]{1.0, 207.285, 1.089091156e+004, -3.853499649e-001}, reader.doubleFields(0), 0.0);
+            reader.nextLine();
+            reader.nextLine();
+            assertEquals(12, reader.intField(0));
+            assertEquals(8, reader.fieldCount());
+            assertEquals(237.465, reader.doubleField(1), 0.0);
+            assertEquals(0.1, reader.doubleField(2), 0.0);
+            assertEquals(Double.MAX_VALUE, reader.doubleField(3), 0.0);
+            assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(reader.doubleField(4)));
+            assertTrue(Double.isNaN(reader.doubleField(5)));
+            assertThrows(NumberFormatException.class, () -> reader.doubleField(6));
+            assertEquals(5.0, reader.doubleField(7), 0.0);
+            reader.nextLine();
+            assertEquals(0, reader.intField(3));
+            for (int i = 4; i < reader.fieldCount(); i++) {
+                assertEquals(Double.parseDouble(reader.field(i)), reader.doubleField(i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    void rewindReturnsToFirstLine() throws IOException {
+        Path dataFile = tempDir.resolve("rewind.txt");
+        // the second file runs past the read buffer
+        for (String contents : new String[]{CONTENTS, CONTENTS + "\n" + "1,2,3\n".repeat(20_000)}) {
+            Files.writeString(dataFile, contents, StandardCharsets.UTF_8);
+            List<String> expectedLines = Files.readAllLines(dataFile, StandardCharsets.UTF_8);
+            for (boolean memoryMapped : new boolean[]{false, true}) {
+                try (DelimitedDataFileReader reader = DelimitedDataFileReader.open(dataFile, StandardCharsets.UTF_8, memoryMapped)) {
+                    assertTrue(reader.nextLine(3));
+                    assertEquals("#CY", reader.line());
+                    // once from within the first buffer, then again from the end of the file
+                    for (int pass = 0; pass < 2; pass++) {
+                        reader.rewind();
+                        int lineCount = 0;
+                        while (reader.nextLine()) {
+                            assertEquals(expectedLines.get(lineCount), reader.line());
+                            assertEquals(lineCount, reader.getLineNumber());
+                            lineCount++;
+                        }
+                        assertEquals(expectedLines.size(), lineCount);
+                    }
+                }
+            }
+        }
+    }
+}
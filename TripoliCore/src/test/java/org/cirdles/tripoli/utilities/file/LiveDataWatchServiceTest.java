@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.file;
+
+import org.cirdles.tripoli.utilities.callbacks.FileBatchCallbackInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveDataWatchServiceTest {
+
+    private static final long QUIET_PERIOD_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private static DeliveredFiles awaitDelivery(BlockingQueue<DeliveredFiles> deliveries) throws InterruptedException {
+        DeliveredFiles deliveredFiles = deliveries.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(deliveredFiles);
+        return deliveredFiles;
+    }
+
+    private static void awaitQuiet() throws InterruptedException {
+        // long enough for events to be seen, coalesced and promoted
+        TimeUnit.MILLISECONDS.sleep(20 * QUIET_PERIOD_MILLIS);
+    }
+
+    @Test
+    void createdModifiedAndDeletedFiles() throws IOException, InterruptedException {
+        BlockingQueue<DeliveredFiles> deliveries = new LinkedBlockingQueue<>();
+        try (LiveDataWatchService liveDataWatchService = new LiveDataWatchService(QUIET_PERIOD_MILLIS, 1, 4)) {
+            liveDataWatchService.watch(tempDir, (fullPaths, kind) -> deliveries.add(new DeliveredFiles(List.copyOf(fullPaths), kind)));
+
+            Path cycleFile = tempDir.resolve("Cycle1.txt");
+            Files.writeString(cycleFile, "1,2,3");
+            assertEquals(new DeliveredFiles(List.of(cycleFile), ENTRY_CREATE), awaitDelivery(deliveries));
+
+            Files.writeString(cycleFile, "1,2,3,4");
+            assertEquals(new DeliveredFiles(List.of(cycleFile), ENTRY_MODIFY), awaitDelivery(deliveries));
+
+            // deleted before it is quiet, so never complete
+            Path transientFile = tempDir.resolve("Cycle2.txt");
+            Files.writeString(transientFile, "1");
+            Files.delete(transientFile);
+            awaitQuiet();
+            assertTrue(deliveries.isEmpty());
+            assertEquals(1, liveDataWatchService.getMetrics().watchedFolderCount());
+            assertEquals(0, liveDataWatchService.getMetrics().pendingFileCount());
+        }
+    }
+
+    @Test
+    void fileDeletedWhileWaitingForItsBatchIsDropped() throws IOException, InterruptedException {
+        BlockingQueue<DeliveredFiles> deliveries = new LinkedBlockingQueue<>();
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        try (LiveDataWatchService liveDataWatchService = new LiveDataWatchService(QUIET_PERIOD_MILLIS, 1, 4)) {
+            liveDataWatchService.watch(tempDir, new FileBatchCallbackInterface() {
+                @Override
+                public void onFilesReady(List<Path> fullPaths, WatchEvent.Kind<?> kind) {
+                    firstBatchStarted.countDown();
+                    try {
+                        releaseFirstBatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    deliveries.add(new DeliveredFiles(List.copyOf(fullPaths), kind));
+                }
+
+                @Override
+                public void onFailure(Path folder, Exception exception) {
+                    failures.add(exception);
+                }
+            });
+
+            Path firstFile = tempDir.resolve("Cycle1.txt");
+            Files.writeString(firstFile, "1");
+            assertTrue(firstBatchStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+            // completes while the folder's batch is running, then goes before it can be delivered
+            Path deletedFile = tempDir.resolve("Cycle2.txt");
+            Files.writeString(deletedFile, "2");
+            awaitQuiet();
+            Files.delete(deletedFile);
+            awaitQuiet();
+            releaseFirstBatch.countDown();
+
+            assertEquals(new DeliveredFiles(List.of(firstFile), ENTRY_CREATE), awaitDelivery(deliveries));
+            awaitQuiet();
+            assertTrue(deliveries.isEmpty());
+            assertTrue(failures.isEmpty());
+            assertEquals(1L, liveDataWatchService.getMetrics().deliveredFileCount());
+        }
+    }
+
+    private record DeliveredFiles(List<Path> fullPaths, WatchEvent.Kind<?> kind) {
+    }
+}
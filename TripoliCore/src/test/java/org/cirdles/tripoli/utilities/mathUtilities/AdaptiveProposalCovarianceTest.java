@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import jama.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveProposalCovarianceTest {
+
+    @Test
+    void packedUpdateMatchesUpdateMeanCovMS() {
+        int dimension = 5;
+        Random random = new Random(18);
+        AdaptiveProposalCovariance adaptiveProposalCovariance = new AdaptiveProposalCovariance(dimension);
+        Matrix xCovM = new Matrix(dimension, dimension);
+        double[] xMean = new double[dimension];
+
+        for (int m = 1; m <= 200; m++) {
+            double[] xx = {random.nextGaussian(), 0.01 * random.nextGaussian(), 6.0e5 + 1.0e3 * random.nextGaussian(),
+                    -4.0e5 + 5.0e3 * random.nextGaussian(), 0.8 + 1.0e-4 * random.nextGaussian()};
+            adaptiveProposalCovariance.update(new double[]{xx[0], xx[1]}, new double[]{xx[2]}, new double[]{xx[3]}, xx[4]);
+
+            // xcov = xcov*(m-1)/m + (m-1)/m^2*(xx-xmean)*(xx-xmeantmp)'
+            double[] xMeanTemp = xMean.clone();
+            for (int row = 0; row < dimension; row++) {
+                xMean[row] = xMeanTemp[row] + (xx[row] - xMeanTemp[row]) / m;
+            }
+            Matrix diffXwithXmean = new Matrix(dimension, 1);
+            Matrix diffXwithXmeanTemp = new Matrix(dimension, 1);
+            for (int row = 0; row < dimension; row++) {
+                diffXwithXmean.set(row, 0, xx[row] - xMean[row]);
+                diffXwithXmeanTemp.set(row, 0, xx[row] - xMeanTemp[row]);
+            }
+            xCovM = xCovM.times((m - 1.0) / m).plus(diffXwithXmean.times((m - 1.0) / Math.pow(m, 2.0)).times(diffXwithXmeanTemp.transpose()));
+        }
+
+        assertEquals(200L, adaptiveProposalCovariance.getCountOfModels());
+        assertArrayEquals(xMean, adaptiveProposalCovariance.mean(), 0.0);
+        for (int row = 0; row < dimension; row++) {
+            for (int col = 0; col < dimension; col++) {
+                assertEquals(xCovM.get(row, col), adaptiveProposalCovariance.covariance(row, col),
+                        1e-12 * Math.sqrt(xCovM.get(row, row) * xCovM.get(col, col)));
+            }
+        }
+        assertEquals(dimension * (dimension + 1) / 2, adaptiveProposalCovariance.packedCovariance().length);
+    }
+}
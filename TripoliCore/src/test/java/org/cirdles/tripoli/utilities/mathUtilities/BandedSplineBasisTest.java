@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.junit.jupiter.api.Test;
+import org.ojalgo.matrix.store.Primitive64Store;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandedSplineBasisTest {
+
+    private static final double X_LOWER = 204.83994725925928;
+    private static final double X_UPPER = 205.10565274074074;
+
+    @Test
+    void cubicBandMatchesDenseBasis() {
+        Primitive64Store x = MatLab.linspace(X_LOWER, X_UPPER, 1000);
+        double[][] expected = SplineBasisModel.bBase(x, X_LOWER, X_UPPER, 22, 3).toRawCopy2D();
+
+        BandedSplineBasis basis = BandedSplineBasis.onLinspace(X_LOWER, X_UPPER, 1000, 22, 3);
+        double[][] actual = basis.toPrimitive64Store().toRawCopy2D();
+
+        assertEquals(expected.length, basis.getCountOfRows());
+        assertEquals(expected[0].length, basis.getCountOfColumns());
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], 1e-8);
+        }
+        assertSame(basis, BandedSplineBasis.onLinspace(X_LOWER, X_UPPER, 1000, 22, 3));
+    }
+
+    @Test
+    void bandProductsMatchDenseProducts() {
+        Random random = new Random(5);
+        double[] x = new double[300];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = X_LOWER + i * (X_UPPER - X_LOWER) / (x.length - 1);
+        }
+        BandedSplineBasis basis = BandedSplineBasis.evaluate(x, X_LOWER, X_UPPER, 17, 3);
+        Primitive64Store dense = basis.toPrimitive64Store();
+
+        double[] coefficients = new double[basis.getCountOfColumns()];
+        for (int col = 0; col < coefficients.length; col++) {
+            coefficients[col] = random.nextDouble();
+        }
+        double[][] leftRows = new double[4][x.length];
+        for (int row = 0; row < x.length; row++) {
+            leftRows[random.nextInt(4)][row] = random.nextDouble();
+        }
+
+        assertArrayEquals(dense.multiply(Primitive64Store.FACTORY.columns(coefficients)).toRawCopy1D(),
+                basis.multiply(coefficients), 1e-12);
+        double[][] expected = Primitive64Store.FACTORY.rows(leftRows).multiply(dense).toRawCopy2D();
+        double[][] actual = basis.premultiply(leftRows);
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], 1e-12);
+        }
+        // partition of unity inside the range
+        for (int row = 0; row < x.length; row++) {
+            double sum = 0.0;
+            for (int col = 0; col < basis.getCountOfColumns(); col++) {
+                sum += basis.get(row, col);
+            }
+            assertEquals(1.0, sum, 1e-12);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import jama.Matrix;
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultivariateNormalSamplerTest {
+
+    final double[][] c0 = {
+            {4.0, 0.0, 0.0, 0.0},
+            {0.0, 2.5, 0.0, 0.0},
+            {0.0, 0.0, 1.0e-6, 0.0},
+            {0.0, 0.0, 0.0, 3.0e4}};
+    final double[][] xcov = {
+            {1.0, 0.2, 0.0, 0.1},
+            {0.2, 0.8, 1.0e-4, 0.0},
+            {0.0, 1.0e-4, 2.0e-6, 0.0},
+            {0.1, 0.0, 0.0, 1.0e4}};
+
+    @Test
+    void choleskyLowerMatchesJama() {
+        int n = xcov.length;
+        double[] flat = new double[n * n];
+        for (int row = 0; row < n; row++) {
+            System.arraycopy(xcov[row], 0, flat, row * n, n);
+        }
+        double[] lower = new double[n * n];
+        assertTrue(MultivariateNormalSampler.choleskyLower(flat, lower, n));
+        assertArrayEquals(new Matrix(xcov).chol().getL().getRowPackedCopy(), lower, 0.0);
+    }
+
+    @Test
+    void drawsMatchMvnrndTripoliWhenRefactoredEveryStep() {
+        RandomDataGenerator expectedGenerator = new RandomDataGenerator();
+        expectedGenerator.reSeed(1234L);
+        RandomDataGenerator actualGenerator = new RandomDataGenerator();
+        actualGenerator.reSeed(1234L);
+        MultivariateNormalSampler sampler = new MultivariateNormalSampler(c0, 1, actualGenerator);
+        double[] draw = new double[c0.length];
+
+        for (int step = 0; step < 5; step++) {
+            sampler.useInitialCovariance();
+            sampler.draw(draw);
+            double[] expected = MatLabCholesky.mvnrndTripoli(new double[c0.length], c0, 1, expectedGenerator).getRowPackedCopy();
+            assertArrayEquals(expected, draw, 1e-12 * Math.sqrt(3.0e4));
+        }
+
+        Matrix blended = new Matrix(c0).times(0.05).plus(new Matrix(xcov).times(0.95 * 2.38 * 2.38 / c0.length));
+        blended = blended.transpose().plus(blended).times(0.5);
+        for (int step = 0; step < 5; step++) {
+            sampler.useBlendedCovariance(xcov, 0.05, 0.95 * 2.38 * 2.38 / c0.length);
+            sampler.draw(draw);
+            double[] expected = MatLabCholesky.mvnrndTripoli(new double[c0.length], blended.getArray(), 1, expectedGenerator).getRowPackedCopy();
+            assertArrayEquals(expected, draw, 1e-12 * Math.sqrt(3.0e4));
+        }
+    }
+
+    @Test
+    void blendedFactorIsReusedUntilIntervalElapses() {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(99L);
+        MultivariateNormalSampler sampler = new MultivariateNormalSampler(c0, 10, randomDataGenerator);
+        double[] draw = new double[c0.length];
+        assertEquals(1, sampler.getFactorizationCount());
+
+        for (int step = 0; step < 25; step++) {
+            sampler.useBlendedCovariance(xcov, 0.05, 0.95);
+            sampler.draw(draw);
+        }
+        assertEquals(4, sampler.getFactorizationCount());
+    }
+
+    @Test
+    void packedRunningCovarianceBlendsAsFullMatrix() {
+        AdaptiveProposalCovariance adaptiveProposalCovariance = new AdaptiveProposalCovariance(c0.length);
+        for (int m = 0; m < 20; m++) {
+            adaptiveProposalCovariance.update(new double[]{m % 3, 0.5 * m, 1.0e-3 * (m % 2), 1.0e2 * m * m});
+        }
+        double[][] fullCovariance = new double[c0.length][c0.length];
+        for (int row = 0; row < c0.length; row++) {
+            for (int col = 0; col < c0.length; col++) {
+                fullCovariance[row][col] = adaptiveProposalCovariance.covariance(row, col);
+            }
+        }
+        RandomDataGenerator fullGenerator = new RandomDataGenerator();
+        fullGenerator.reSeed(7L);
+        RandomDataGenerator packedGenerator = new RandomDataGenerator();
+        packedGenerator.reSeed(7L);
+        MultivariateNormalSampler fullSampler = new MultivariateNormalSampler(c0, 10, fullGenerator);
+        MultivariateNormalSampler packedSampler = new MultivariateNormalSampler(c0, 10, packedGenerator);
+        double[] fullDraw = new double[c0.length];
+        double[] packedDraw = new double[c0.length];
+
+        for (int step = 0; step < 12; step++) {
+            fullSampler.useBlendedCovariance(fullCovariance, 0.05, 0.95);
+            fullSampler.draw(fullDraw);
+            packedSampler.useBlendedCovariance(adaptiveProposalCovariance, 0.05, 0.95);
+            packedSampler.draw(packedDraw);
+            assertArrayEquals(fullDraw, packedDraw, 0.0);
+        }
+        assertEquals(fullSampler.getFactorizationCount(), packedSampler.getFactorizationCount());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveKernelsTest {
+
+    @Test
+    void rangeAndThresholdQueriesReturnIndexBounds() {
+        double[] values = {0.0, 0.5, 1.0, 1.5, 2.0, 2.5};
+        assertEquals(2, PrimitiveKernels.firstIndexInRange(values, 0.8, 2.0));
+        assertEquals(4, PrimitiveKernels.lastIndexInRange(values, 0.8, 2.0));
+        assertEquals(-1, PrimitiveKernels.firstIndexInRange(values, 3.0, 4.0));
+        assertEquals(-1, PrimitiveKernels.lastIndexInRange(values, 0.1, 0.2));
+
+        double[] peak = {0, 2, 0, 1, 3, 5, 3, 1, 0, 2};
+        assertEquals(2, PrimitiveKernels.lastRisingCrossing(peak, 0, 5, 0.5));
+        assertEquals(7, PrimitiveKernels.firstFallingCrossing(peak, 5, peak.length, 0.5));
+        assertEquals(-1, PrimitiveKernels.lastRisingCrossing(peak, 3, 5, 0.5));
+        assertEquals(-1, PrimitiveKernels.firstFallingCrossing(peak, 8, peak.length, 0.5));
+
+        assertTrue(PrimitiveKernels.hasPositiveSum(new double[]{0.0, 0.0, 0.25}));
+        assertFalse(PrimitiveKernels.hasPositiveSum(new double[]{0.0, 0.0}));
+    }
+
+    @Test
+    void fusedOperationsWriteIntoTheOutputBuffer() {
+        double[] knots = {0.0, 1.0, 2.0, 3.0};
+        double[] powers = PrimitiveKernels.truncatedPowers(2.0, knots, 3, new double[4]);
+        // the masked power keeps its sign, as arrayMultiply leaves it
+        assertArrayEquals(new double[]{8.0, 1.0, 0.0, -0.0}, powers);
+
+        double[] values = {1.0, 2.0, 3.0};
+        assertSame(values, PrimitiveKernels.multiplyWhereLessThan(values, 1.5, new double[]{1.0, 2.0, 3.0}, values));
+        assertArrayEquals(new double[]{0.0, 2.0, 3.0}, values);
+
+        assertArrayEquals(new double[]{1.0, 1.0, 0.25},
+                PrimitiveKernels.divideByAtLeast(1.0, new double[]{-2.0, 0.5, 4.0}, 1.0, new double[3]));
+    }
+}
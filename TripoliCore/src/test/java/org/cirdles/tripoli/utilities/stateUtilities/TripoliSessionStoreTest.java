@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.stateUtilities;
+
+import org.cirdles.tripoli.sessions.Session;
+import org.cirdles.tripoli.sessions.SessionBuiltinFactory;
+import org.cirdles.tripoli.utilities.collections.TripoliSessionAnalysisMap;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.cirdles.tripoli.sessions.SessionBuiltinFactory.TRIPOLI_DEMONSTRATION_SESSION;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripoliSessionStoreTest {
+
+    private final String fileName = "testSessionStoreFile.tripoli";
+    private final String legacyFileName = "testSessionStoreFile.ser";
+
+    @AfterEach
+    void tearDown() {
+        for (String name : new String[]{fileName, legacyFileName}) {
+            File file = new File(name);
+            if (file.exists() && !file.delete()) {
+                System.err.println("Failed to delete test file: " + name);
+            }
+        }
+    }
+
+    @Test
+    void saveAndLoadSession() throws TripoliException {
+        Session testSession = SessionBuiltinFactory.sessionsBuiltinMap.get(TRIPOLI_DEMONSTRATION_SESSION);
+        TripoliSessionStore.saveSession(testSession, fileName);
+        assertTrue(TripoliSessionStore.isSessionStoreFile(fileName));
+
+        Session lazySession = TripoliSessionStore.loadSession(fileName, true);
+        assertEquals(testSession, lazySession);
+        assertEquals(testSession.getMapOfAnalyses().keySet(), lazySession.getMapOfAnalyses().keySet());
+        for (String analysisName : lazySession.getMapOfAnalyses().keySet()) {
+            assertFalse(((TripoliSessionAnalysisMap) lazySession.getMapOfAnalyses()).isLoaded(analysisName));
+            assertEquals(analysisName, lazySession.getMapOfAnalyses().get(analysisName).getAnalysisName());
+            assertTrue(((TripoliSessionAnalysisMap) lazySession.getMapOfAnalyses()).isLoaded(analysisName));
+        }
+
+        Session session = TripoliSessionStore.loadSession(fileName, false);
+        assertEquals(testSession.getMapOfAnalyses().size(), session.getMapOfAnalyses().values().size());
+    }
+
+    @Test
+    void loadLegacySessionFile() throws TripoliException {
+        Session testSession = SessionBuiltinFactory.sessionsBuiltinMap.get(TRIPOLI_DEMONSTRATION_SESSION);
+        TripoliSerializer.serializeObjectToFile(testSession, legacyFileName);
+        assertFalse(TripoliSessionStore.isSessionStoreFile(legacyFileName));
+        assertEquals(testSession, TripoliSessionStore.loadSession(legacyFileName, true));
+    }
+
+    @Test
+    void primitiveChunkRoundTrip() throws TripoliException {
+        Random random = new Random(17);
+        double[] values = new double[500];
+        ArrayList<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (0 == i % 3) ? random.nextGaussian() : values[Math.max(0, i - 1)];
+            counts.add(random.nextInt());
+        }
+        values[7] = -0.0;
+        values[11] = Double.NaN;
+        TripoliSerializer.serializeObjectToFile(PrimitiveChunk.chunkOf(values), legacyFileName);
+        double[] restoredValues = (double[]) TripoliSerializer.getSerializedObjectFromFile(legacyFileName, true);
+        assertEquals(values.length, restoredValues.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(restoredValues[i]));
+        }
+
+        TripoliSerializer.serializeObjectToFile(PrimitiveChunk.chunkOf(counts), legacyFileName);
+        assertEquals(counts, TripoliSerializer.getSerializedObjectFromFile(legacyFileName, true));
+    }
+}